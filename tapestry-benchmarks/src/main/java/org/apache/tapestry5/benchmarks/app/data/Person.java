@@ -0,0 +1,128 @@
+// Copyright 2012 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.benchmarks.app.data;
+
+import org.apache.tapestry5.beaneditor.Validate;
+
+import java.util.List;
+
+import static org.apache.tapestry5.ioc.internal.util.CollectionFactory.newList;
+
+/**
+ * The bean displayed and edited by the benchmark pages.
+ */
+public class Person
+{
+    private Title title;
+
+    private String firstName, lastName, email;
+
+    private int age;
+
+    private boolean subscribed;
+
+    public Person()
+    {
+    }
+
+    public Person(int index)
+    {
+        title = Title.values()[index % Title.values().length];
+        firstName = "First" + index;
+        lastName = "Last" + index;
+        email = String.format("person%d@example.org", index);
+        age = 20 + index % 50;
+        subscribed = index % 2 == 0;
+    }
+
+    /**
+     * Creates a list of people, numbered from zero.
+     */
+    public static List<Person> createList(int count)
+    {
+        List<Person> result = newList();
+
+        for (int i = 0; i < count; i++)
+        {
+            result.add(new Person(i));
+        }
+
+        return result;
+    }
+
+    public Title getTitle()
+    {
+        return title;
+    }
+
+    public void setTitle(Title title)
+    {
+        this.title = title;
+    }
+
+    @Validate("required")
+    public String getFirstName()
+    {
+        return firstName;
+    }
+
+    public void setFirstName(String firstName)
+    {
+        this.firstName = firstName;
+    }
+
+    @Validate("required")
+    public String getLastName()
+    {
+        return lastName;
+    }
+
+    public void setLastName(String lastName)
+    {
+        this.lastName = lastName;
+    }
+
+    @Validate("required,regexp=^.+@.+$")
+    public String getEmail()
+    {
+        return email;
+    }
+
+    public void setEmail(String email)
+    {
+        this.email = email;
+    }
+
+    @Validate("min=0,max=150")
+    public int getAge()
+    {
+        return age;
+    }
+
+    public void setAge(int age)
+    {
+        this.age = age;
+    }
+
+    public boolean isSubscribed()
+    {
+        return subscribed;
+    }
+
+    public void setSubscribed(boolean subscribed)
+    {
+        this.subscribed = subscribed;
+    }
+}
@@ -0,0 +1,44 @@
+// Copyright 2012 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.benchmarks.app.pages;
+
+import org.apache.tapestry5.annotations.Property;
+import org.apache.tapestry5.benchmarks.app.data.Person;
+
+import java.util.List;
+
+/**
+ * A single page of a Grid of 100 rows; the activation context may specify a larger number of rows, up to
+ * {@value #MAX_ROWS}.
+ */
+public class GridPage
+{
+    public static final int MAX_ROWS = 10000;
+
+    private final List<Person> people = Person.createList(MAX_ROWS);
+
+    @Property
+    private int rows = 100;
+
+    void onActivate(int rows)
+    {
+        this.rows = rows;
+    }
+
+    public List<Person> getPeople()
+    {
+        return people.subList(0, rows);
+    }
+}
@@ -0,0 +1,57 @@
+// Copyright 2012 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.benchmarks.app.pages;
+
+import org.apache.tapestry5.annotations.InjectComponent;
+import org.apache.tapestry5.annotations.Property;
+import org.apache.tapestry5.benchmarks.app.data.Person;
+import org.apache.tapestry5.corelib.components.Zone;
+
+import java.util.List;
+
+/**
+ * A Loop of 2000 items, each in its own Zone, with an ActionLink to update the Zone; a render of the page renders
+ * thousands of components.
+ */
+public class LoopZonesPage
+{
+    private final List<Person> people = Person.createList(2000);
+
+    @Property
+    private Person person;
+
+    @Property
+    private int index;
+
+    @InjectComponent
+    private Zone personZone;
+
+    public List<Person> getPeople()
+    {
+        return people;
+    }
+
+    public String getZoneId()
+    {
+        return "person_" + index;
+    }
+
+    Object onActionFromRefresh(int index)
+    {
+        person = people.get(index);
+
+        return personZone.getBody();
+    }
+}
@@ -0,0 +1,60 @@
+// Copyright 2012 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.benchmarks.core;
+
+import org.apache.tapestry5.dom.Document;
+import org.apache.tapestry5.test.PageTester;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures rendering a single page of a Grid of thousands of rows, using the {@link PageTester}. Unlike
+ * {@link org.apache.tapestry5.benchmarks.ioc.PropertyAccessBenchmark}, this shows what share of a complete render goes
+ * to reading properties: the Grid's bean model is built through
+ * {@link org.apache.tapestry5.ioc.services.PropertyAccess}, while the cells are read through compiled property
+ * conduits.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(2)
+public class GridRenderBenchmark
+{
+    @Param({"1000", "5000"})
+    public int rows;
+
+    private PageTester tester;
+
+    @Setup
+    public void setup()
+    {
+        tester = new PageTester("org.apache.tapestry5.benchmarks.app", "app");
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        tester.shutdown();
+    }
+
+    @Benchmark
+    public Document render()
+    {
+        return tester.renderPage("GridPage/" + rows);
+    }
+}
@@ -0,0 +1,62 @@
+// Copyright 2012 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.benchmarks.core;
+
+import org.apache.tapestry5.dom.Document;
+import org.apache.tapestry5.test.PageTester;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures complete page renders, using the {@link PageTester}, of representative pages of the benchmark application:
+ * a Grid of 100 rows, a BeanEditForm, and a Loop of 2000 Zones. Each render includes the full request pipeline, up to
+ * the rendered (but not streamed) DOM. The benchmark task adds the GC profiler, which reports the bytes allocated per
+ * render.
+ * <p/>
+ * The PageTester is not thread safe, so this benchmark is single threaded; see the load harness for concurrent
+ * measurements.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(2)
+public class PageRenderBenchmark
+{
+    @Param({"GridPage", "BeanEditFormPage", "LoopZonesPage"})
+    public String page;
+
+    private PageTester tester;
+
+    @Setup
+    public void setup()
+    {
+        tester = new PageTester("org.apache.tapestry5.benchmarks.app", "app");
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        tester.shutdown();
+    }
+
+    @Benchmark
+    public Document render()
+    {
+        return tester.renderPage(page);
+    }
+}
@@ -0,0 +1,82 @@
+// Copyright 2012 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.benchmarks.core;
+
+import org.apache.tapestry5.PropertyConduit;
+import org.apache.tapestry5.benchmarks.app.data.Person;
+import org.apache.tapestry5.services.PropertyConduitSource;
+import org.apache.tapestry5.test.PageTester;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures reading and writing through conduits created by {@link PropertyConduitSource}, as used by "prop:"
+ * bindings, and obtaining an (already cached) conduit, as done when binding parameters while loading pages.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class PropertyConduitBenchmark
+{
+    @Param({"firstName", "firstName.length()", "title.name()"})
+    public String expression;
+
+    private PageTester tester;
+
+    private PropertyConduitSource source;
+
+    private PropertyConduit conduit, ageConduit;
+
+    private final Person person = new Person(1);
+
+    @Setup
+    public void setup()
+    {
+        tester = new PageTester("org.apache.tapestry5.benchmarks.app", "app");
+
+        source = tester.getService(PropertyConduitSource.class);
+
+        conduit = source.create(Person.class, expression);
+        ageConduit = source.create(Person.class, "age");
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        tester.shutdown();
+    }
+
+    @Benchmark
+    public Object read()
+    {
+        return conduit.get(person);
+    }
+
+    @Benchmark
+    public void write()
+    {
+        ageConduit.set(person, 42);
+    }
+
+    @Benchmark
+    public Object create()
+    {
+        return source.create(Person.class, expression);
+    }
+}
@@ -0,0 +1,70 @@
+// Copyright 2012 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.benchmarks.core;
+
+import org.apache.tapestry5.test.PageTester;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Reports the bytes allocated by the rendering thread per render of each page of the benchmark application, using the
+ * HotSpot {@link com.sun.management.ThreadMXBean}. This measures the per-component allocation of
+ * {@link org.apache.tapestry5.internal.structure.ComponentPageElementImpl} and
+ * {@link org.apache.tapestry5.internal.services.RenderQueueImpl} more directly than elapsed time; LoopZonesPage, with
+ * its thousands of components, is the most sensitive. Page names may be given as arguments.
+ */
+public class RenderAllocation
+{
+    private static final int WARMUP = 500;
+
+    private static final int RENDERS = 1000;
+
+    public static void main(String[] args)
+    {
+        String[] pages = args.length == 0 ? new String[]{"GridPage", "BeanEditFormPage", "LoopZonesPage"} : args;
+
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        long threadId = Thread.currentThread().getId();
+
+        PageTester tester = new PageTester("org.apache.tapestry5.benchmarks.app", "app");
+
+        try
+        {
+            for (String page : pages)
+            {
+                for (int i = 0; i < WARMUP; i++)
+                {
+                    tester.renderPage(page);
+                }
+
+                long before = threads.getThreadAllocatedBytes(threadId);
+
+                for (int i = 0; i < RENDERS; i++)
+                {
+                    tester.renderPage(page);
+                }
+
+                long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+                System.out.printf("%-20s %,12d bytes per render%n", page, allocated / RENDERS);
+            }
+        } finally
+        {
+            tester.shutdown();
+        }
+    }
+}
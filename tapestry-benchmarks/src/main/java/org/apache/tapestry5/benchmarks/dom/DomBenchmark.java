@@ -0,0 +1,82 @@
+// Copyright 2012 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.benchmarks.dom;
+
+import org.apache.tapestry5.dom.DefaultMarkupModel;
+import org.apache.tapestry5.dom.Document;
+import org.apache.tapestry5.dom.Element;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures building a {@link Document} (a table, as a Grid would render) and writing it out as markup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class DomBenchmark
+{
+    @Param({"100", "1000"})
+    public int rows;
+
+    private Document document;
+
+    @Setup
+    public void setup()
+    {
+        document = build();
+    }
+
+    private Document build()
+    {
+        Document result = new Document(new DefaultMarkupModel());
+
+        Element table = result.newRootElement("html").element("body").element("table", "class", "t-data-grid");
+
+        for (int i = 0; i < rows; i++)
+        {
+            Element row = table.element("tr", "class", i % 2 == 0 ? "even" : "odd");
+
+            for (int j = 0; j < 5; j++)
+            {
+                row.element("td", "class", "column" + j).text("Row " + i + " & column " + j);
+            }
+        }
+
+        return result;
+    }
+
+    @Benchmark
+    public Document create()
+    {
+        return build();
+    }
+
+    @Benchmark
+    public String render()
+    {
+        StringWriter writer = new StringWriter();
+
+        document.toMarkup(new PrintWriter(writer));
+
+        return writer.toString();
+    }
+}
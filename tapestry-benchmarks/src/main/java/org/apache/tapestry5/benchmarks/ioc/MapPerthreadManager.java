@@ -0,0 +1,243 @@
+// Copyright 2012 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.benchmarks.ioc;
+
+import org.apache.tapestry5.ioc.Invokable;
+import org.apache.tapestry5.ioc.internal.util.CollectionFactory;
+import org.apache.tapestry5.ioc.internal.util.JDKUtils;
+import org.apache.tapestry5.ioc.services.PerThreadValue;
+import org.apache.tapestry5.ioc.services.PerthreadManager;
+import org.apache.tapestry5.ioc.services.PerthreadScope;
+import org.apache.tapestry5.ioc.services.ThreadCleanupListener;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * The Tapestry 5.3 implementation of {@link PerthreadManager}: a per-thread map keyed on an integer id, accessed
+ * while holding a lock (a no-op lock except under JDK 1.5). Kept as a baseline for {@link PerthreadManagerBenchmark}.
+ * The 5.4 {@linkplain #captureScope() scope} methods are implemented by binding the same map to another thread.
+ */
+@SuppressWarnings("all")
+public class MapPerthreadManager implements PerthreadManager
+{
+    private final Lock lock = JDKUtils.createLockForThreadLocalCreation();
+
+    private final PerThreadValue<List<ThreadCleanupListener>> listenersValue;
+
+    private static class MapHolder extends ThreadLocal<Map>
+    {
+        @Override
+        protected Map initialValue()
+        {
+            return CollectionFactory.newMap();
+        }
+    }
+
+    private final MapHolder holder = new MapHolder();
+
+    private final class MapScope implements PerthreadScope
+    {
+        private final Map map;
+
+        MapScope(Map map)
+        {
+            this.map = map;
+        }
+
+        public void run(final Runnable runnable)
+        {
+            invoke(new Invokable<Void>()
+            {
+                public Void invoke()
+                {
+                    runnable.run();
+
+                    return null;
+                }
+            });
+        }
+
+        public <T> T invoke(Invokable<T> invokable)
+        {
+            Map previous = getPerthreadMap();
+
+            bind(map);
+
+            try
+            {
+                return invokable.invoke();
+            } finally
+            {
+                bind(previous);
+            }
+        }
+    }
+
+    private final AtomicInteger uuidGenerator = new AtomicInteger();
+
+    private static final Object NULL_VALUE = new Object();
+
+    public MapPerthreadManager()
+    {
+        listenersValue = createValue();
+    }
+
+    private Map getPerthreadMap()
+    {
+        lock.lock();
+
+        try
+        {
+            return holder.get();
+        } finally
+        {
+            lock.unlock();
+        }
+    }
+
+    private void bind(Map map)
+    {
+        lock.lock();
+
+        try
+        {
+            holder.set(map);
+        } finally
+        {
+            lock.unlock();
+        }
+    }
+
+    public void addThreadCleanupListener(ThreadCleanupListener listener)
+    {
+        List<ThreadCleanupListener> listeners = listenersValue.get();
+
+        if (listeners == null)
+        {
+            listeners = CollectionFactory.newList();
+            listenersValue.set(listeners);
+        }
+
+        listeners.add(listener);
+    }
+
+    public void cleanup()
+    {
+        List<ThreadCleanupListener> listeners = listenersValue.get();
+
+        if (listeners != null)
+        {
+            for (ThreadCleanupListener listener : listeners)
+            {
+                listener.threadDidCleanup();
+            }
+        }
+
+        // Also clear the map itself, in case it has been captured and is bound to some other thread.
+
+        getPerthreadMap().clear();
+
+        lock.lock();
+
+        try
+        {
+            holder.remove();
+        } finally
+        {
+            lock.unlock();
+        }
+    }
+
+    public <T> PerThreadValue<T> createValue()
+    {
+        final Object key = uuidGenerator.getAndIncrement();
+
+        return new PerThreadValue<T>()
+        {
+            public T get()
+            {
+                return get(null);
+            }
+
+            public T get(T defaultValue)
+            {
+                Map map = getPerthreadMap();
+
+                if (map.containsKey(key))
+                {
+                    Object storedValue = map.get(key);
+
+                    if (storedValue == NULL_VALUE)
+                        return null;
+
+                    return (T) storedValue;
+                }
+
+                return defaultValue;
+            }
+
+            public T set(T newValue)
+            {
+                getPerthreadMap().put(key, newValue == null ? NULL_VALUE : newValue);
+
+                return newValue;
+            }
+
+            public boolean exists()
+            {
+                return getPerthreadMap().containsKey(key);
+            }
+        };
+    }
+
+    public void run(Runnable runnable)
+    {
+        try
+        {
+            runnable.run();
+        } finally
+        {
+            cleanup();
+        }
+    }
+
+    public <T> T invoke(Invokable<T> invokable)
+    {
+        try
+        {
+            return invokable.invoke();
+        } finally
+        {
+            cleanup();
+        }
+    }
+
+    public PerthreadScope captureScope()
+    {
+        return new MapScope(getPerthreadMap());
+    }
+
+    public PerthreadScope detachScope()
+    {
+        PerthreadScope scope = captureScope();
+
+        bind(CollectionFactory.newMap());
+
+        return scope;
+    }
+}
@@ -0,0 +1,80 @@
+// Copyright 2012 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.benchmarks.ioc;
+
+import org.apache.tapestry5.ioc.annotations.SubModule;
+import org.apache.tapestry5.ioc.def.ModuleDef;
+import org.apache.tapestry5.ioc.internal.DefaultModuleDefImpl;
+import org.apache.tapestry5.ioc.internal.services.PlasticProxyFactoryImpl;
+import org.apache.tapestry5.ioc.internal.util.CollectionFactory;
+import org.apache.tapestry5.ioc.services.PlasticProxyFactory;
+import org.apache.tapestry5.services.TapestryModule;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures building the module definitions of {@link TapestryModule} and its sub-modules, as the
+ * {@link org.apache.tapestry5.ioc.RegistryBuilder} does at startup. Analyzing the module classes is much cheaper once
+ * warmed up, so each measurement is a single shot in a new JVM.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(20)
+public class ModuleDefBenchmark
+{
+    private final Logger logger = LoggerFactory.getLogger(ModuleDefBenchmark.class);
+
+    private PlasticProxyFactory proxyFactory;
+
+    @Setup
+    public void setup()
+    {
+        proxyFactory = new PlasticProxyFactoryImpl(Thread.currentThread().getContextClassLoader(), logger);
+    }
+
+    @Benchmark
+    public List<ModuleDef> buildModuleDefs()
+    {
+        List<ModuleDef> result = CollectionFactory.newList();
+
+        List<Class> queue = CollectionFactory.newList();
+
+        queue.add(TapestryModule.class);
+
+        while (!queue.isEmpty())
+        {
+            Class moduleClass = queue.remove(0);
+
+            result.add(new DefaultModuleDefImpl(moduleClass, logger, proxyFactory));
+
+            SubModule annotation = (SubModule) moduleClass.getAnnotation(SubModule.class);
+
+            if (annotation != null)
+            {
+                queue.addAll(Arrays.asList(annotation.value()));
+            }
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,94 @@
+// Copyright 2012 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.benchmarks.ioc;
+
+import org.apache.tapestry5.ioc.internal.services.PerthreadManagerImpl;
+import org.apache.tapestry5.ioc.services.PerThreadValue;
+import org.apache.tapestry5.ioc.services.PerthreadManager;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the per-request overhead of {@link PerthreadManager}: a request touches a number of per-thread values (as
+ * perthread service proxies, the Environment and component field conduits do), reads them repeatedly, then is cleaned
+ * up. Compares {@link PerthreadManagerImpl} against the previous, map-based, {@link MapPerthreadManager}, with 64
+ * concurrent threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+@Threads(64)
+public class PerthreadManagerBenchmark
+{
+    @Param({"slots", "map"})
+    public String implementation;
+
+    /**
+     * Number of distinct per-thread values used by each request.
+     */
+    @Param({"25"})
+    public int valueCount;
+
+    /**
+     * Number of times each value is read, per request.
+     */
+    @Param({"4"})
+    public int readsPerValue;
+
+    private PerthreadManager manager;
+
+    private PerThreadValue<Object>[] values;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setup()
+    {
+        manager = implementation.equals("slots")
+                ? new PerthreadManagerImpl(LoggerFactory.getLogger(PerthreadManagerImpl.class))
+                : new MapPerthreadManager();
+
+        values = new PerThreadValue[valueCount];
+
+        for (int i = 0; i < valueCount; i++)
+        {
+            values[i] = manager.createValue();
+        }
+    }
+
+    @Benchmark
+    public void request(Blackhole blackhole)
+    {
+        for (PerThreadValue<Object> value : values)
+        {
+            value.set(value);
+        }
+
+        for (int i = 0; i < readsPerValue; i++)
+        {
+            for (PerThreadValue<Object> value : values)
+            {
+                blackhole.consume(value.get());
+            }
+        }
+
+        manager.cleanup();
+    }
+}
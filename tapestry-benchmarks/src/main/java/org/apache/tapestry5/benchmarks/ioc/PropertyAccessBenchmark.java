@@ -0,0 +1,81 @@
+// Copyright 2012 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.benchmarks.ioc;
+
+import org.apache.tapestry5.benchmarks.app.data.Person;
+import org.apache.tapestry5.ioc.internal.services.PlasticProxyFactoryImpl;
+import org.apache.tapestry5.ioc.internal.services.PropertyAccessImpl;
+import org.apache.tapestry5.ioc.services.PropertyAccess;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures reading the properties of many beans through {@link PropertyAccess}, much as the Grid component does
+ * when rendering rows. Compares reflective access with the accessors generated by {@link PropertyAccessImpl}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class PropertyAccessBenchmark
+{
+    private static final String[] PROPERTIES = {"title", "firstName", "lastName", "email", "age", "subscribed"};
+
+    @Param({"reflection", "generated"})
+    public String mode;
+
+    private PropertyAccess access;
+
+    private List<Person> rows;
+
+    @Setup
+    public void setup()
+    {
+        access = mode.equals("reflection")
+                ? new PropertyAccessImpl()
+                : new PropertyAccessImpl(new PlasticProxyFactoryImpl(
+                Thread.currentThread().getContextClassLoader(),
+                LoggerFactory.getLogger(PropertyAccessBenchmark.class)));
+
+        rows = Person.createList(100);
+    }
+
+    @Benchmark
+    public void readRows(Blackhole blackhole)
+    {
+        for (Person row : rows)
+        {
+            for (String property : PROPERTIES)
+            {
+                blackhole.consume(access.get(row, property));
+            }
+        }
+    }
+
+    @Benchmark
+    public void writeRows()
+    {
+        for (Person row : rows)
+        {
+            access.set(row, "age", 42);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+// Copyright 2012 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.benchmarks.ioc;
+
+import org.apache.tapestry5.ioc.Registry;
+import org.apache.tapestry5.ioc.RegistryBuilder;
+import org.apache.tapestry5.ioc.services.TapestryIOCModule;
+import org.apache.tapestry5.ioc.services.TypeCoercer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link TypeCoercer#coerce(Object, Class)} for a cached coercion, as performed for nearly every parameter
+ * binding read and write. The input types cover a direct coercion, a coercion found through the input's
+ * superclass, and a compound coercion.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class TypeCoercerBenchmark
+{
+    @Param({"string-to-long", "long-to-integer", "string-to-boolean", "array-to-list"})
+    public String coercion;
+
+    private Registry registry;
+
+    private TypeCoercer coercer;
+
+    private Object input;
+
+    private Class targetType;
+
+    @Setup
+    public void setup()
+    {
+        registry = new RegistryBuilder().add(TapestryIOCModule.class).build();
+
+        registry.performRegistryStartup();
+
+        coercer = registry.getService(TypeCoercer.class);
+
+        if (coercion.equals("string-to-long"))
+        {
+            input = "1234567";
+            targetType = Long.class;
+        } else if (coercion.equals("long-to-integer"))
+        {
+            input = 1234567L;
+            targetType = Integer.class;
+        } else if (coercion.equals("string-to-boolean"))
+        {
+            input = "true";
+            targetType = Boolean.class;
+        } else
+        {
+            input = new Object[]{"alpha", "beta", "gamma"};
+            targetType = List.class;
+        }
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        registry.shutdown();
+    }
+
+    @Benchmark
+    public Object coerce()
+    {
+        return coercer.coerce(input, targetType);
+    }
+}
@@ -0,0 +1,89 @@
+// Copyright 2012 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.benchmarks.json;
+
+import org.apache.tapestry5.json.JSONArray;
+import org.apache.tapestry5.json.JSONObject;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures serializing and parsing a {@link JSONObject} shaped like a partial page render reply: content, plus a
+ * list of initializations with nested parameters.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class JSONObjectBenchmark
+{
+    @Param({"10", "100"})
+    public int initializations;
+
+    private JSONObject reply;
+
+    private String serialized;
+
+    @Setup
+    public void setup()
+    {
+        reply = build();
+        serialized = reply.toCompactString();
+    }
+
+    private JSONObject build()
+    {
+        JSONArray inits = new JSONArray();
+
+        for (int i = 0; i < initializations; i++)
+        {
+            inits.put(new JSONObject("zone", "person_" + i, "url", "/loopzonespage.refresh/" + i)
+                    .put("show", true)
+                    .put("delay", i * 0.5)
+                    .put("params", new JSONArray("alpha", "beta \"quoted\"", i)));
+        }
+
+        return new JSONObject()
+                .put("content", "<div class=\"t-zone\">Updated &amp; ready</div>")
+                .put("inits", inits);
+    }
+
+    @Benchmark
+    public JSONObject create()
+    {
+        return build();
+    }
+
+    @Benchmark
+    public String print()
+    {
+        return reply.toString();
+    }
+
+    @Benchmark
+    public String printCompact()
+    {
+        return reply.toCompactString();
+    }
+
+    @Benchmark
+    public JSONObject parse()
+    {
+        return new JSONObject(serialized);
+    }
+}
@@ -1,4 +1,4 @@
-// Copyright 2008, 2011 The Apache Software Foundation
+// Copyright 2008, 2011, 2012 The Apache Software Foundation
 //
 // Licensed under the Apache License, Version 2.0 (the "License");
 // you may not use this file except in compliance with the License.
@@ -43,4 +43,31 @@ public class MetaDataConstants
      * @since 5.3
      */
     public static final String WHITELIST_ONLY_PAGE = "tapestry.white-list-only-page";
+
+    /**
+     * Meta-data key for pages whose markup should be streamed to the client as it renders, rather than first being
+     * rendered to a complete {@link org.apache.tapestry5.dom.Document}. This reduces memory use for very large pages
+     * and lets the client start on the {@code <head>} (stylesheets and scripts) sooner. The meta-default is "false".
+     * <p/>
+     * Streaming has some limitations: elements can not be modified after they have been rendered (so, for example, a
+     * {@link org.apache.tapestry5.MarkupWriterListener} can not rely on revisiting earlier content), except for the
+     * content of forms, which is held back until the form is complete; stylesheets and
+     * scripts imported once the body has started are added to the end of the body, rather than the head; and since
+     * output has already started, an exception during rendering can not be replaced with the exception report page.
+     *
+     * @see org.apache.tapestry5.internal.services.StreamingMarkupWriterImpl
+     * @since 5.4
+     */
+    public static final String STREAM_MARKUP = "tapestry.stream-markup";
+
+    /**
+     * Meta-data key for pages whose {@code <head>} should be sent to the client as soon as it is complete, while the
+     * body is still rendering, so that the browser can start fetching stylesheets and JavaScript earlier; this is
+     * most useful for pages that are slow to render. Implies {@link #STREAM_MARKUP} (with the same limitations). The
+     * response is sent using chunked transfer encoding, and is not GZIP compressed by Tapestry, since the compressed
+     * stream can not be partially flushed. The meta-default is "false".
+     *
+     * @since 5.4
+     */
+    public static final String FLUSH_HEAD = "tapestry.flush-head";
 }
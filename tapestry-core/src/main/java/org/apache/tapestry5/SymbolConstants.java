@@ -1,4 +1,4 @@
-// Copyright 2008, 2009, 2010, 2011 The Apache Software Foundation
+// Copyright 2008, 2009, 2010, 2011, 2012 The Apache Software Foundation
 //
 // Licensed under the Apache License, Version 2.0 (the "License");
 // you may not use this file except in compliance with the License.
@@ -147,7 +147,8 @@ public class SymbolConstants
     /**
      * If "true" (the default) then GZip compression is enabled for dynamic requests and for static assets. If you are
      * using a server that handles GZip compression for you, or you don't want to ue the extra processing power
-     * necessary to GZIP requests, then override this to "false".
+     * necessary to GZIP requests, then override this to "false". This also controls the other content encodings
+     * contributed to the {@link org.apache.tapestry5.services.ContentEncoderSource} service.
      *
      * @see #MIN_GZIP_SIZE
      * @since 5.1.0.0
@@ -355,4 +356,127 @@ public class SymbolConstants
      * Prefix to be used for all asset paths
      */
     public static final String ASSET_PATH_PREFIX = "tapestry.asset-path-prefix";
+
+    /**
+     * The maximum number of page instances (one per page name and
+     * {@link org.apache.tapestry5.services.pageload.ComponentResourceSelector}) kept by the page cache. When the limit
+     * is exceeded, pages are evicted according to the {@link #PAGE_CACHE_EVICTION_POLICY}; pages pinned by
+     * contributing their names to the {@link org.apache.tapestry5.internal.services.PageSource} service are never
+     * evicted. The default is 0, meaning the cache is unbounded (the number of pages and selectors in an application
+     * is finite).
+     *
+     * @since 5.4
+     */
+    public static final String PAGE_CACHE_MAX_SIZE = "tapestry.page-cache-max-size";
+
+    /**
+     * The {@link org.apache.tapestry5.services.pageload.PageCacheEvictionPolicy} used when the page cache exceeds
+     * its {@linkplain #PAGE_CACHE_MAX_SIZE maximum size}, either "lru" or "lfu". The default is "lru".
+     *
+     * @since 5.4
+     */
+    public static final String PAGE_CACHE_EVICTION_POLICY = "tapestry.page-cache-eviction-policy";
+
+    /**
+     * If "true", then every page is loaded into the page cache at {@linkplain org.apache.tapestry5.ioc.Registry#performRegistryStartup()
+     * registry startup}, rather than on first request. Pages are loaded in parallel, using the
+     * {@link org.apache.tapestry5.ioc.services.ParallelExecutor}. The default is "false".
+     *
+     * @see #PRELOAD_PAGES_LOCALES
+     * @see #PRELOAD_PAGES_FAIL_ON_ERROR
+     * @since 5.4
+     */
+    public static final String PRELOAD_PAGES = "tapestry.preload-pages";
+
+    /**
+     * A comma separated list of locales for which pages are {@linkplain #PRELOAD_PAGES preloaded}. The default is
+     * blank, meaning only the default locale (the first of the {@linkplain #SUPPORTED_LOCALES supported locales}).
+     *
+     * @since 5.4
+     */
+    public static final String PRELOAD_PAGES_LOCALES = "tapestry.preload-pages-locales";
+
+    /**
+     * If "true", then a failure to {@linkplain #PRELOAD_PAGES preload} any page is reported as a startup error, after all
+     * other pages have been loaded. If "false" (the default), each failure is logged as a warning and the page
+     * will be loaded (and fail) again on first request.
+     *
+     * @since 5.4
+     */
+    public static final String PRELOAD_PAGES_FAIL_ON_ERROR = "tapestry.preload-pages-fail-on-error";
+
+    /**
+     * The maximum time a request may be suspended waiting for an {@link org.apache.tapestry5.services.AsyncResult}
+     * before failing with a 503 (service unavailable) response. The default is "60 s".
+     *
+     * @since 5.4
+     */
+    public static final String ASYNC_REQUEST_TIMEOUT = "tapestry.async-request-timeout";
+
+    /**
+     * Location of an asset store written ahead of time by
+     * {@link org.apache.tapestry5.internal.services.assets.AssetStoreWriter}: either a file system directory, or a
+     * folder on the classpath prefixed with "classpath:". Assets (and JavaScript stacks) found in the store are served
+     * as stored, without being minimized or compressed at runtime; the store is not checked for changes, so it is
+     * only appropriate in production mode. The default is blank, meaning no store.
+     *
+     * @since 5.4
+     */
+    public static final String ASSET_STORE = "tapestry.asset-store";
+
+    /**
+     * The maximum number of bytes of asset content (including assembled JavaScript stacks, and the compressed
+     * versions of each) cached in memory, outside of the Java heap. The least recently used content is discarded to
+     * make room for new content. The default is 33554432 (32 MB).
+     *
+     * @since 5.4
+     */
+    public static final String ASSET_CACHE_SIZE = "tapestry.asset-cache-size";
+
+    /**
+     * If "true", then render profiling data (render commands, elapsed time and allocation, per page and per component
+     * class) is collected by the {@link org.apache.tapestry5.services.RenderProfiler} service. Profiling may also be
+     * enabled or disabled at runtime. The default is "false".
+     *
+     * @since 5.4
+     */
+    public static final String RENDER_PROFILING_ENABLED = "tapestry.render-profiling-enabled";
+
+    /**
+     * If "true", then the time spent in each stage of the request pipeline (request filters, component event and page
+     * render handling, page activation, markup rendering, serialization and asset streaming) is recorded, per page,
+     * by the {@link org.apache.tapestry5.services.PipelineMetrics} service. Collection may also be enabled or disabled
+     * at runtime. The default is "false".
+     *
+     * @since 5.4
+     */
+    public static final String PIPELINE_METRICS_ENABLED = "tapestry.pipeline-metrics-enabled";
+
+    /**
+     * Requests that take at least this long to process are captured, along with the timeline of their operations, by
+     * the {@link org.apache.tapestry5.services.SlowRequestLog} service. The threshold may also be changed at runtime;
+     * a threshold of zero disables capture. The default is "1 s".
+     *
+     * @since 5.4
+     */
+    public static final String SLOW_REQUEST_THRESHOLD = "tapestry.slow-request-threshold";
+
+    /**
+     * The number of slow requests kept by the {@link org.apache.tapestry5.services.SlowRequestLog}; the oldest is
+     * discarded when a new slow request is captured. The default is 20.
+     *
+     * @since 5.4
+     */
+    public static final String SLOW_REQUEST_CAPTURE_SIZE = "tapestry.slow-request-capture-size";
+
+    /**
+     * If "false", Tapestry does not check local files (templates, message catalogs, classes and so forth) for changes,
+     * and the filter that performs the check is omitted from the {@link org.apache.tapestry5.services.RequestHandler}
+     * pipeline entirely. Checks are never made in {@linkplain #PRODUCTION_MODE production mode}. The default is
+     * "true".
+     *
+     * @see #FILE_CHECK_INTERVAL
+     * @since 5.4
+     */
+    public static final String RELOADING_ENABLED = "tapestry.reloading-enabled";
 }
@@ -34,6 +34,7 @@ import org.apache.tapestry5.ioc.internal.util.InternalUtils;
 import org.apache.tapestry5.services.BeanModelSource;
 import org.apache.tapestry5.services.ComponentClassResolver;
 import org.apache.tapestry5.services.pageload.ComponentResourceSelector;
+import org.apache.tapestry5.services.pageload.PageCacheStatistics;
 
 import java.util.Collection;
 import java.util.List;
@@ -143,6 +144,12 @@ public class PageCatalog
         }).toSet();
 
         totals.selectors = InternalUtils.joinSorted(selectorIds);
+
+        PageCacheStatistics statistics = pageSource.getCacheStatistics();
+
+        totals.cacheHits = statistics.getHitCount();
+        totals.cacheMisses = statistics.getMissCount();
+        totals.evictions = statistics.getEvictionCount();
     }
 
     public List<String> getPageNames()
@@ -0,0 +1,102 @@
+// Copyright 2012 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.corelib.pages;
+
+import org.apache.tapestry5.alerts.AlertManager;
+import org.apache.tapestry5.annotations.ContentType;
+import org.apache.tapestry5.annotations.InjectComponent;
+import org.apache.tapestry5.annotations.Property;
+import org.apache.tapestry5.annotations.WhitelistAccessOnly;
+import org.apache.tapestry5.corelib.components.Zone;
+import org.apache.tapestry5.ioc.annotations.Inject;
+import org.apache.tapestry5.services.RenderProfile;
+import org.apache.tapestry5.services.RenderProfiler;
+
+import java.util.List;
+
+/**
+ * Displays the render profiling data collected by the {@link RenderProfiler} service, per page and per component
+ * class, and allows profiling to be enabled, disabled, or reset.
+ *
+ * @since 5.4
+ */
+@ContentType("text/html")
+@WhitelistAccessOnly
+public class RenderProfiling
+{
+    @Inject
+    private RenderProfiler profiler;
+
+    @Inject
+    private AlertManager alertManager;
+
+    @InjectComponent
+    private Zone profilesZone;
+
+    @Property
+    private RenderProfile profile;
+
+    public boolean isEnabled()
+    {
+        return profiler.isEnabled();
+    }
+
+    public List<RenderProfile> getPageProfiles()
+    {
+        return profiler.getPageProfiles();
+    }
+
+    public List<RenderProfile> getComponentProfiles()
+    {
+        return profiler.getComponentProfiles();
+    }
+
+    Object onActionFromEnable()
+    {
+        profiler.setEnabled(true);
+
+        alertManager.info("Render profiling enabled.");
+
+        return profilesZone.getBody();
+    }
+
+    Object onActionFromDisable()
+    {
+        profiler.setEnabled(false);
+
+        alertManager.info("Render profiling disabled.");
+
+        return profilesZone.getBody();
+    }
+
+    Object onActionFromReset()
+    {
+        profiler.reset();
+
+        alertManager.info("Render profiling data discarded.");
+
+        return profilesZone.getBody();
+    }
+
+    public String formatElapsed(long nanos)
+    {
+        return String.format("%,.3f ms", nanos / 1000000d);
+    }
+
+    public String formatAverage(long nanos, long count)
+    {
+        return count == 0 ? "-" : formatElapsed(nanos / count);
+    }
+}
@@ -0,0 +1,92 @@
+// Copyright 2012 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.corelib.pages;
+
+import org.apache.tapestry5.alerts.AlertManager;
+import org.apache.tapestry5.annotations.ContentType;
+import org.apache.tapestry5.annotations.InjectComponent;
+import org.apache.tapestry5.annotations.Property;
+import org.apache.tapestry5.annotations.WhitelistAccessOnly;
+import org.apache.tapestry5.corelib.components.Zone;
+import org.apache.tapestry5.ioc.annotations.Inject;
+import org.apache.tapestry5.ioc.services.OperationTiming;
+import org.apache.tapestry5.services.SlowRequest;
+import org.apache.tapestry5.services.SlowRequestLog;
+
+import java.util.List;
+
+/**
+ * Displays the requests captured by the {@link SlowRequestLog} service, each with its timeline of operations.
+ *
+ * @since 5.4
+ */
+@ContentType("text/html")
+@WhitelistAccessOnly
+public class SlowRequests
+{
+    @Inject
+    private SlowRequestLog log;
+
+    @Inject
+    private AlertManager alertManager;
+
+    @InjectComponent
+    private Zone requestsZone;
+
+    @Property
+    private SlowRequest slowRequest;
+
+    @Property
+    private OperationTiming operation;
+
+    public boolean isEnabled()
+    {
+        return log.getThreshold() > 0;
+    }
+
+    public long getThreshold()
+    {
+        return log.getThreshold();
+    }
+
+    public List<SlowRequest> getSlowRequests()
+    {
+        return log.getSlowRequests();
+    }
+
+    public String getTimestamp()
+    {
+        return String.format("%tF %<tT", slowRequest.getTimestamp());
+    }
+
+    public int getIndent()
+    {
+        return 2 * (operation.getDepth() - 1);
+    }
+
+    Object onActionFromClear()
+    {
+        log.clear();
+
+        alertManager.info("Slow requests discarded.");
+
+        return requestsZone.getBody();
+    }
+
+    public String formatElapsed(long nanos)
+    {
+        return String.format("%,.3f ms", nanos / 1000000d);
+    }
+}
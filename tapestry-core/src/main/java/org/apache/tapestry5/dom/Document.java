@@ -1,4 +1,4 @@
-// Copyright 2006, 2007, 2008, 2009, 2010 The Apache Software Foundation
+// Copyright 2006, 2007, 2008, 2009, 2010, 2012 The Apache Software Foundation
 //
 // Licensed under the Apache License, Version 2.0 (the "License");
 // you may not use this file except in compliance with the License.
@@ -134,6 +134,20 @@ public final class Document extends Node
 
     @Override
     public void toMarkup(Document document, PrintWriter writer, Map<String, String> namespaceURIToPrefix)
+    {
+        writePrologue(writer, namespaceURIToPrefix);
+
+        if (rootElement == null)
+            return;
+
+        rootElement.toMarkup(document, writer, createInitialNamespaceMap());
+    }
+
+    /**
+     * Writes the XML declaration (for XML documents), the DTD and any preamble nodes; that is, everything that
+     * precedes the root element.
+     */
+    void writePrologue(PrintWriter writer, Map<String, String> namespaceURIToPrefix)
     {
         if (model.isXML())
         {
@@ -154,16 +168,16 @@ public final class Document extends Node
             for (Node n : preamble)
                 n.toMarkup(this, writer, namespaceURIToPrefix);
         }
+    }
 
-        if (rootElement == null)
-            return;
-
+    static Map<String, String> createInitialNamespaceMap()
+    {
         Map<String, String> initialNamespaceMap = CollectionFactory.newMap();
 
         initialNamespaceMap.put("xml", "http://www.w3.org/XML/1998/namespace");
         initialNamespaceMap.put("xmlns", "http://www.w3.org/2000/xmlns/");
 
-        rootElement.toMarkup(document, writer, initialNamespaceMap);
+        return initialNamespaceMap;
     }
 
     public Element getRootElement()
@@ -0,0 +1,219 @@
+// Copyright 2012 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.dom;
+
+import org.apache.tapestry5.ioc.internal.util.CollectionFactory;
+
+import java.io.PrintWriter;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes a {@link Document} incrementally, while it is still being built. As each element is
+ * {@linkplain #streamCompleted(Element) completed}, it is written out (along with the start tags of its containers and
+ * any content that precedes it), and then removed from the document. The document therefore only holds the elements
+ * that are still open, plus any elements whose streaming has been deferred, rather than the entire content.
+ * <p/>
+ * Once an element has been written, it is no longer part of the document and changes to it have no effect; likewise,
+ * once an element's start tag has been written, changes to its attributes have no effect.
+ *
+ * @since 5.4
+ */
+public final class DocumentStreamer
+{
+    private final Document document;
+
+    private final PrintWriter writer;
+
+    /**
+     * Elements whose start tag has been written, but whose end tag has not; always a path from the root element
+     * downwards. This is as long as the nesting depth of the document, so linear searches are inexpensive.
+     */
+    private final List<Element> openElements = CollectionFactory.newList();
+
+    /**
+     * The namespace mapping for each element in {@link #openElements}.
+     */
+    private final List<Map<String, String>> openNamespaceMaps = CollectionFactory.newList();
+
+    public DocumentStreamer(Document document, PrintWriter writer)
+    {
+        assert document != null;
+        assert writer != null;
+
+        this.document = document;
+        this.writer = writer;
+    }
+
+    /**
+     * Writes the completed element, and any content that precedes it in the document that has not yet been written,
+     * then removes the element from the document. Completing the root element has no effect: it is written by
+     * {@link #finish()}.
+     *
+     * @param element an element that has been completely rendered
+     */
+    public void streamCompleted(Element element)
+    {
+        Element container = element.getContainer();
+
+        if (container == null)
+        {
+            return;
+        }
+
+        open(container);
+
+        Map<String, String> namespaceMap = namespaceMapFor(container);
+
+        while (true)
+        {
+            Node child = container.getFirstChild();
+
+            // The element may have already been written, as the content preceding some later element.
+
+            if (child == null)
+            {
+                return;
+            }
+
+            writeAndRemove(child, namespaceMap);
+
+            if (child == element)
+            {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Writes everything in the document that has not yet been written, closing any open elements. This should be
+     * invoked once the document is complete.
+     */
+    public void finish()
+    {
+        if (openElements.isEmpty())
+        {
+            document.toMarkup(writer);
+            return;
+        }
+
+        while (!openElements.isEmpty())
+        {
+            int index = openElements.size() - 1;
+
+            Element element = openElements.get(index);
+            Map<String, String> namespaceMap = openNamespaceMaps.get(index);
+
+            writeRemainingChildren(element, namespaceMap);
+
+            element.writeEndTag(writer, namespaceMap);
+
+            openElements.remove(index);
+            openNamespaceMaps.remove(index);
+
+            if (element.getContainer() != null)
+            {
+                element.remove();
+            }
+        }
+    }
+
+    private Map<String, String> namespaceMapFor(Element element)
+    {
+        return openNamespaceMaps.get(openElements.indexOf(element));
+    }
+
+    private boolean isOpen(Element element)
+    {
+        return openElements.contains(element);
+    }
+
+    /**
+     * Ensures that the element's start tag has been written, along with the start tags of its containers and all
+     * content that precedes the element.
+     */
+    private void open(Element element)
+    {
+        if (isOpen(element))
+        {
+            return;
+        }
+
+        Element container = element.getContainer();
+
+        Map<String, String> containerNamespaceMap;
+
+        if (container == null)
+        {
+            document.writePrologue(writer, document.getNamespaceURIToPrefix());
+
+            containerNamespaceMap = Document.createInitialNamespaceMap();
+        } else
+        {
+            open(container);
+
+            containerNamespaceMap = namespaceMapFor(container);
+
+            // Everything in the container before this element is complete and can be written.
+
+            while (container.getFirstChild() != element)
+            {
+                writeAndRemove(container.getFirstChild(), containerNamespaceMap);
+            }
+        }
+
+        openElements.add(element);
+        openNamespaceMaps.add(element.startTagToMarkup(document, writer, containerNamespaceMap));
+    }
+
+    private void writeAndRemove(Node node, Map<String, String> namespaceMap)
+    {
+        if (node instanceof Element && isOpen((Element) node))
+        {
+            // Any open elements nested inside this one are closed as its remaining children are written; being deeper,
+            // they do not affect this element's index.
+
+            int index = openElements.indexOf(node);
+            Map<String, String> elementNamespaceMap = openNamespaceMaps.get(index);
+
+            writeRemainingChildren((Element) node, elementNamespaceMap);
+
+            ((Element) node).writeEndTag(writer, elementNamespaceMap);
+
+            openElements.remove(index);
+            openNamespaceMaps.remove(index);
+        } else
+        {
+            node.toMarkup(document, writer, namespaceMap);
+        }
+
+        node.remove();
+    }
+
+    private void writeRemainingChildren(Element element, Map<String, String> namespaceMap)
+    {
+        while (true)
+        {
+            Node child = element.getFirstChild();
+
+            if (child == null)
+            {
+                return;
+            }
+
+            writeAndRemove(child, namespaceMap);
+        }
+    }
+}
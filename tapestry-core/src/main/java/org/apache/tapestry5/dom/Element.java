@@ -1,4 +1,4 @@
-// Copyright 2006, 2007, 2008, 2009, 2010, 2011 The Apache Software Foundation
+// Copyright 2006, 2007, 2008, 2009, 2010, 2011, 2012 The Apache Software Foundation
 //
 // Licensed under the Apache License, Version 2.0 (the "License");
 // you may not use this file except in compliance with the License.
@@ -336,6 +336,41 @@ public final class Element extends Node
 
         MarkupModel markupModel = document.getMarkupModel();
 
+        EndTagStyle style = markupModel.getEndTagStyle(name);
+
+        boolean hasChildren = hasChildren();
+
+        writeStartTag(markupModel, writer, localNamespacePrefixToURI,
+                (!hasChildren && style == EndTagStyle.ABBREVIATE) ? "/>" : ">");
+
+        if (hasChildren)
+            writeChildMarkup(document, writer, localNamespacePrefixToURI);
+
+        if (hasChildren || style == EndTagStyle.REQUIRE)
+        {
+            writeEndTag(writer, localNamespacePrefixToURI);
+        }
+    }
+
+    /**
+     * Writes just the start tag for this element, for an element whose children will be written separately (by
+     * {@link DocumentStreamer}).
+     *
+     * @return the namespace mapping to be used when writing the element's children and end tag
+     */
+    Map<String, String> startTagToMarkup(Document document, PrintWriter writer,
+                                         Map<String, String> containerNamespacePrefixToURI)
+    {
+        Map<String, String> localNamespacePrefixToURI = createNamespaceURIToPrefix(containerNamespacePrefixToURI);
+
+        writeStartTag(document.getMarkupModel(), writer, localNamespacePrefixToURI, ">");
+
+        return localNamespacePrefixToURI;
+    }
+
+    private void writeStartTag(MarkupModel markupModel, PrintWriter writer,
+                               Map<String, String> localNamespacePrefixToURI, String close)
+    {
         StringBuilder builder = new StringBuilder();
 
         String prefixedElementName = toPrefixedName(localNamespacePrefixToURI, namespace, name);
@@ -376,26 +411,17 @@ public final class Element extends Node
             builder.append(markupModel.getAttributeQuote());
         }
 
-        EndTagStyle style = markupModel.getEndTagStyle(name);
-
-        boolean hasChildren = hasChildren();
-
-        String close = (!hasChildren && style == EndTagStyle.ABBREVIATE) ? "/>" : ">";
-
         builder.append(close);
 
         writer.print(builder.toString());
+    }
 
-        if (hasChildren)
-            writeChildMarkup(document, writer, localNamespacePrefixToURI);
-
-        if (hasChildren || style == EndTagStyle.REQUIRE)
-        {
-            // TAP5-471: Avoid use of printf().
-            writer.print("</");
-            writer.print(prefixedElementName);
-            writer.print(">");
-        }
+    void writeEndTag(PrintWriter writer, Map<String, String> localNamespacePrefixToURI)
+    {
+        // TAP5-471: Avoid use of printf().
+        writer.print("</");
+        writer.print(toPrefixedName(localNamespacePrefixToURI, namespace, name));
+        writer.print(">");
     }
 
     String toPrefixedName(Map<String, String> namespaceURIToPrefix, String namespace, String name)
@@ -892,6 +918,11 @@ public final class Element extends Node
         return firstChild != null;
     }
 
+    Node getFirstChild()
+    {
+        return firstChild;
+    }
+
     void writeChildMarkup(Document document, PrintWriter writer, Map<String, String> namespaceURIToPrefix)
     {
         Node cursor = firstChild;
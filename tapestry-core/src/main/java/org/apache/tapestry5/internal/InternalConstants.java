@@ -1,4 +1,4 @@
-// Copyright 2006, 2007, 2008, 2009, 2010, 2011 The Apache Software Foundation
+// Copyright 2006, 2007, 2008, 2009, 2010, 2011, 2012 The Apache Software Foundation
 //
 // Licensed under the Apache License, Version 2.0 (the "License");
 // you may not use this file except in compliance with the License.
@@ -102,6 +102,20 @@ public final class InternalConstants
      */
     public static final String GZIP_CONTENT_ENCODING = "gzip";
 
+    /**
+     * Name of request header listing the content encodings accepted by the client.
+     *
+     * @since 5.4
+     */
+    public static final String ACCEPT_ENCODING_HEADER = "Accept-Encoding";
+
+    /**
+     * Name of response header identifying the request headers that affect the content of the response.
+     *
+     * @since 5.4
+     */
+    public static final String VARY_HEADER = "Vary";
+
     /**
      * Identifies the start of an expansion inside a template.
      */
@@ -156,4 +170,22 @@ public final class InternalConstants
      * @see org.apache.tapestry5.internal.services.PageRenderRequestHandlerImpl
      */
     public static final String BYPASS_ACTIVATION = "tapestry.bypass-page-activation";
+
+    /**
+     * Request attribute storing the {@link org.apache.tapestry5.internal.services.SuspendedRequest} for a request
+     * awaiting an {@link org.apache.tapestry5.services.AsyncResult}.
+     *
+     * @since 5.4
+     * @see org.apache.tapestry5.internal.services.AsyncRequestFilter
+     */
+    public static final String SUSPENDED_REQUEST = "tapestry.suspended-request";
+
+    /**
+     * Request attribute storing the {@link org.apache.tapestry5.internal.services.SuspendedRequest} whose result is
+     * ready; the RequestHandler pipeline's terminator processes the result rather than dispatching the request.
+     *
+     * @since 5.4
+     * @see org.apache.tapestry5.internal.services.AsyncRequestFilter
+     */
+    public static final String RESUMED_REQUEST = "tapestry.resumed-request";
 }
@@ -19,7 +19,7 @@ import org.apache.tapestry5.beaneditor.ReorderProperties;
 /**
  * @see org.apache.tapestry5.corelib.pages.PageCatalog
  */
-@ReorderProperties("definedPages,loadedPages,uniquePageNames,selectors,components")
+@ReorderProperties("definedPages,loadedPages,uniquePageNames,selectors,components,cacheHits,cacheMisses,evictions")
 public class PageCatalogTotals
 {
     /**
@@ -44,4 +44,19 @@ public class PageCatalogTotals
      * All selectors represented in the pool, often just 'en'.
      */
     public String selectors;
+
+    /**
+     * Number of page requests satisfied by the page cache.
+     */
+    public long cacheHits;
+
+    /**
+     * Number of page requests that required a page to be loaded.
+     */
+    public long cacheMisses;
+
+    /**
+     * Number of pages discarded to keep the page cache within its maximum size.
+     */
+    public long evictions;
 }
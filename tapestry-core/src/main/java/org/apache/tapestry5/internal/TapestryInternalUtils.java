@@ -1,4 +1,4 @@
-// Copyright 2006, 2007, 2008, 2009, 2010, 2011 The Apache Software Foundation
+// Copyright 2006, 2007, 2008, 2009, 2010, 2011, 2012 The Apache Software Foundation
 //
 // Licensed under the Apache License, Version 2.0 (the "License");
 // you may not use this file except in compliance with the License.
@@ -36,6 +36,8 @@ import java.lang.annotation.Annotation;
 import java.lang.ref.Reference;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.regex.Pattern;
 
 /**
@@ -603,5 +605,57 @@ public class TapestryInternalUtils
 
         return ref == null ? null : ref.get();
     }
-}
 
+    /**
+     * Waits for the result of a task, typically one that is shared by concurrent requests (so that some expensive
+     * work, such as loading a page or assembling a stack, is only done once). Waiting is not interruptible; if the
+     * thread is interrupted while waiting, its interrupt status is restored once the result is available. An exception
+     * thrown by the task is rethrown unchanged if it is unchecked or of the expected checked type, and wrapped in a
+     * RuntimeException otherwise.
+     *
+     * @param future
+     *         for the task's result
+     * @param checkedExceptionType
+     *         the type of checked exception that the task may throw
+     * @return the task's result
+     * @since 5.4
+     */
+    public static <T, E extends Exception> T waitFor(Future<T> future, Class<E> checkedExceptionType) throws E
+    {
+        boolean interrupted = false;
+
+        try
+        {
+            while (true)
+            {
+                try
+                {
+                    return future.get();
+                } catch (InterruptedException ex)
+                {
+                    interrupted = true;
+                } catch (ExecutionException ex)
+                {
+                    Throwable cause = ex.getCause();
+
+                    if (checkedExceptionType.isInstance(cause))
+                        throw checkedExceptionType.cast(cause);
+
+                    if (cause instanceof RuntimeException)
+                        throw (RuntimeException) cause;
+
+                    if (cause instanceof Error)
+                        throw (Error) cause;
+
+                    throw new RuntimeException(cause);
+                }
+            }
+        } finally
+        {
+            if (interrupted)
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -1,4 +1,4 @@
-// Copyright 2009 The Apache Software Foundation
+// Copyright 2009, 2012 The Apache Software Foundation
 //
 // Licensed under the Apache License, Version 2.0 (the "License");
 // you may not use this file except in compliance with the License.
@@ -15,6 +15,7 @@
 package org.apache.tapestry5.internal.gzip;
 
 import org.apache.tapestry5.internal.InternalConstants;
+import org.apache.tapestry5.services.ContentEncoder;
 import org.apache.tapestry5.services.ResponseCompressionAnalyzer;
 
 import javax.servlet.ServletOutputStream;
@@ -23,11 +24,11 @@ import java.io.BufferedOutputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.util.zip.GZIPOutputStream;
 
 /**
  * A buffered output stream that, when a certain number of bytes is buffered (the cutover point) will open a compressed
- * stream (via {@link org.apache.tapestry5.services.Response#getOutputStream(String)}
+ * stream (via {@link org.apache.tapestry5.services.Response#getOutputStream(String)}), encoded using the negotiated
+ * {@link ContentEncoder}.
  */
 public class BufferedGZipOutputStream extends ServletOutputStream
 {
@@ -37,23 +38,26 @@ public class BufferedGZipOutputStream extends ServletOutputStream
 
     private final ResponseCompressionAnalyzer analyzer;
 
+    private final ContentEncoder encoder;
+
     private final int cutover;
 
     private ByteArrayOutputStream byteArrayOutputStream;
 
     /**
-     * Initially the ByteArrayOutputStream, later the response output stream (possibly wrapped with a
-     * GZIPOutputStream).
+     * Initially the ByteArrayOutputStream, later the response output stream (possibly wrapped with an
+     * encoding stream).
      */
     private OutputStream currentOutputStream;
 
     public BufferedGZipOutputStream(String contentType, HttpServletResponse response, int cutover,
-                                    ResponseCompressionAnalyzer analyzer)
+                                    ResponseCompressionAnalyzer analyzer, ContentEncoder encoder)
     {
         this.contentType = contentType;
         this.response = response;
         this.cutover = cutover;
         this.analyzer = analyzer;
+        this.encoder = encoder;
 
         byteArrayOutputStream = new ByteArrayOutputStream(cutover);
 
@@ -66,22 +70,22 @@ public class BufferedGZipOutputStream extends ServletOutputStream
 
         if (byteArrayOutputStream.size() < cutover) return;
 
-        // Time to switch over to GZIP.
+        // Time to switch over to compression.
         openResponseOutputStream(true);
     }
 
-    private void openResponseOutputStream(boolean gzip) throws IOException
+    private void openResponseOutputStream(boolean compress) throws IOException
     {
         OutputStream responseOutputStream = response.getOutputStream();
 
-        boolean useCompression = gzip && analyzer.isCompressable(contentType);
+        boolean useCompression = compress && analyzer.isCompressable(contentType);
 
         OutputStream possiblyCompressed = useCompression
-                                          ? new GZIPOutputStream(responseOutputStream)
+                                          ? encoder.encode(responseOutputStream)
                                           : responseOutputStream;
 
         if (useCompression)
-            response.setHeader(InternalConstants.CONTENT_ENCODING_HEADER, InternalConstants.GZIP_CONTENT_ENCODING);
+            response.setHeader(InternalConstants.CONTENT_ENCODING_HEADER, encoder.getEncoding());
 
         currentOutputStream =
                 new BufferedOutputStream(possiblyCompressed);
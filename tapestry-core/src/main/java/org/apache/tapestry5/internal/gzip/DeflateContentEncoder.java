@@ -0,0 +1,38 @@
+// Copyright 2012 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.internal.gzip;
+
+import org.apache.tapestry5.services.ContentEncoder;
+
+import java.io.OutputStream;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Encodes content using the HTTP "deflate" content coding: the zlib format (RFC 1950), not raw deflate data.
+ *
+ * @since 5.4
+ */
+public class DeflateContentEncoder implements ContentEncoder
+{
+    public String getEncoding()
+    {
+        return "deflate";
+    }
+
+    public OutputStream encode(OutputStream stream)
+    {
+        return new DeflaterOutputStream(stream);
+    }
+}
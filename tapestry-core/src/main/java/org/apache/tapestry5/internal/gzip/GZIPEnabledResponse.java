@@ -1,4 +1,4 @@
-// Copyright 2009, 2010 The Apache Software Foundation
+// Copyright 2009, 2010, 2012 The Apache Software Foundation
 //
 // Licensed under the Apache License, Version 2.0 (the "License");
 // you may not use this file except in compliance with the License.
@@ -15,6 +15,7 @@
 package org.apache.tapestry5.internal.gzip;
 
 import org.apache.tapestry5.internal.InternalConstants;
+import org.apache.tapestry5.services.ContentEncoder;
 import org.apache.tapestry5.services.ResponseCompressionAnalyzer;
 
 import javax.servlet.ServletOutputStream;
@@ -33,10 +34,12 @@ public class GZIPEnabledResponse extends HttpServletResponseWrapper
 
     private final ResponseCompressionAnalyzer analyzer;
 
+    private final ContentEncoder encoder;
+
     private boolean contentLengthSet = false;
 
     public GZIPEnabledResponse(HttpServletResponse response, HttpServletRequest request, int cutover,
-            ResponseCompressionAnalyzer analyzer)
+            ResponseCompressionAnalyzer analyzer, ContentEncoder encoder)
     {
         super(response);
 
@@ -44,6 +47,7 @@ public class GZIPEnabledResponse extends HttpServletResponseWrapper
         this.response = response;
         this.cutover = cutover;
         this.analyzer = analyzer;
+        this.encoder = encoder;
     }
 
     public void setContentLength(int len)
@@ -61,7 +65,7 @@ public class GZIPEnabledResponse extends HttpServletResponseWrapper
 
         String contentType = getContentType();
 
-        return new BufferedGZipOutputStream(contentType, response, cutover, analyzer);
+        return new BufferedGZipOutputStream(contentType, response, cutover, analyzer, encoder);
     }
 
     private boolean isCompressionDisabled()
@@ -1,4 +1,4 @@
-// Copyright 2009 The Apache Software Foundation
+// Copyright 2009, 2012 The Apache Software Foundation
 //
 // Licensed under the Apache License, Version 2.0 (the "License");
 // you may not use this file except in compliance with the License.
@@ -15,7 +15,9 @@
 package org.apache.tapestry5.internal.gzip;
 
 import org.apache.tapestry5.SymbolConstants;
+import org.apache.tapestry5.internal.InternalConstants;
 import org.apache.tapestry5.ioc.annotations.Symbol;
+import org.apache.tapestry5.services.ContentEncoder;
 import org.apache.tapestry5.services.HttpServletRequestFilter;
 import org.apache.tapestry5.services.HttpServletRequestHandler;
 import org.apache.tapestry5.services.ResponseCompressionAnalyzer;
@@ -25,7 +27,9 @@ import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 
 /**
- * Filter that adds GZIP compression to the response, if the client supports it.
+ * Filter that adds compression (GZIP, or another {@link ContentEncoder}) to the response, if the client supports it.
+ * As the content of the response depends on the client's Accept-Encoding header, the filter adds a matching Vary
+ * header, for the benefit of intermediate caches.
  */
 public class GZipFilter implements HttpServletRequestFilter
 {
@@ -46,8 +50,12 @@ public class GZipFilter implements HttpServletRequestFilter
     public boolean service(HttpServletRequest request, HttpServletResponse response, HttpServletRequestHandler handler)
             throws IOException
     {
-        HttpServletResponse newResponse = analyzer.isGZipSupported()
-                                          ? new GZIPEnabledResponse(response, request, cutover, analyzer)
+        response.addHeader(InternalConstants.VARY_HEADER, InternalConstants.ACCEPT_ENCODING_HEADER);
+
+        ContentEncoder encoder = analyzer.getContentEncoder();
+
+        HttpServletResponse newResponse = encoder != null
+                                          ? new GZIPEnabledResponse(response, request, cutover, analyzer, encoder)
                                           : response;
 
         return handler.service(request, newResponse);
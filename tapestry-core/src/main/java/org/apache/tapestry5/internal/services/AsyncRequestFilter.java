@@ -0,0 +1,350 @@
+// Copyright 2012 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.internal.services;
+
+import org.apache.tapestry5.SymbolConstants;
+import org.apache.tapestry5.internal.InternalConstants;
+import org.apache.tapestry5.ioc.annotations.IntermediateType;
+import org.apache.tapestry5.ioc.annotations.Primary;
+import org.apache.tapestry5.ioc.annotations.Symbol;
+import org.apache.tapestry5.ioc.services.PerthreadManager;
+import org.apache.tapestry5.ioc.services.PerthreadScope;
+import org.apache.tapestry5.ioc.util.TimeInterval;
+import org.apache.tapestry5.services.AsyncResult;
+import org.apache.tapestry5.services.HttpServletRequestFilter;
+import org.apache.tapestry5.services.HttpServletRequestHandler;
+import org.apache.tapestry5.services.Request;
+import org.apache.tapestry5.services.RequestGlobals;
+import org.apache.tapestry5.services.RequestHandler;
+import org.apache.tapestry5.services.Response;
+import org.slf4j.Logger;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Suspends requests whose processing is waiting on an {@link AsyncResult} (as recorded by the
+ * {@link AsyncResultProcessor}). Under Servlet 3.0, the request is put into asynchronous mode, and the request's
+ * {@linkplain PerthreadScope per-thread scope} is detached from the container thread; when the result completes,
+ * processing continues on a container thread, with the scope restored. Otherwise, the container thread waits for
+ * the result.
+ * <p/>
+ * The result is processed by passing the request through the {@link RequestHandler} pipeline once more, so that its
+ * filters (including the CheckForUpdates barrier, error handling, and the end of request notification) apply to the
+ * resumed request just as they did to the original; the pipeline's terminator processes the result rather than
+ * dispatching the request.
+ *
+ * @since 5.4
+ */
+public class AsyncRequestFilter implements HttpServletRequestFilter
+{
+    private static final boolean SERVLET_3 = isServlet3();
+
+    private final Logger logger;
+
+    private final long timeout;
+
+    private final PerthreadManager perthreadManager;
+
+    private final RequestGlobals requestGlobals;
+
+    private final RequestHandler requestHandler;
+
+    public AsyncRequestFilter(Logger logger,
+
+                              @Symbol(SymbolConstants.ASYNC_REQUEST_TIMEOUT)
+                              @IntermediateType(TimeInterval.class)
+                              long timeout,
+
+                              PerthreadManager perthreadManager, RequestGlobals requestGlobals,
+
+                              @Primary
+                              RequestHandler requestHandler)
+    {
+        this.logger = logger;
+        this.timeout = timeout;
+        this.perthreadManager = perthreadManager;
+        this.requestGlobals = requestGlobals;
+        this.requestHandler = requestHandler;
+    }
+
+    private static boolean isServlet3()
+    {
+        try
+        {
+            HttpServletRequest.class.getMethod("startAsync");
+
+            return true;
+        } catch (NoSuchMethodException ex)
+        {
+            return false;
+        }
+    }
+
+    public boolean service(HttpServletRequest request, HttpServletResponse response, HttpServletRequestHandler handler)
+            throws IOException
+    {
+        boolean handled = handler.service(request, response);
+
+        SuspendedRequest suspended = takeSuspendedRequest(request);
+
+        if (suspended == null)
+        {
+            return handled;
+        }
+
+        // The request and response, as wrapped by the rest of the pipeline, used to resume the request.
+
+        Request tapestryRequest = requestGlobals.getRequest();
+        Response tapestryResponse = requestGlobals.getResponse();
+
+        if (SERVLET_3 && request.isAsyncSupported())
+        {
+            AsyncContext context = request.startAsync();
+
+            context.setTimeout(timeout);
+
+            new Continuation(context, perthreadManager.detachScope(), request, response, tapestryRequest,
+                    tapestryResponse).suspend(suspended);
+
+            return true;
+        }
+
+        // Without asynchronous request support, just wait for each result in turn.
+
+        while (suspended != null)
+        {
+            if (!await(suspended.getResult()))
+            {
+                sendTimeoutError(response);
+
+                return true;
+            }
+
+            resume(suspended, tapestryRequest, tapestryResponse);
+
+            suspended = takeSuspendedRequest(request);
+        }
+
+        return true;
+    }
+
+    private static SuspendedRequest takeSuspendedRequest(HttpServletRequest request)
+    {
+        SuspendedRequest result = (SuspendedRequest) request.getAttribute(InternalConstants.SUSPENDED_REQUEST);
+
+        request.removeAttribute(InternalConstants.SUSPENDED_REQUEST);
+
+        return result;
+    }
+
+    private boolean await(AsyncResult result)
+    {
+        try
+        {
+            return result.await(timeout);
+        } catch (InterruptedException ex)
+        {
+            Thread.currentThread().interrupt();
+
+            return false;
+        }
+    }
+
+    private void sendTimeoutError(HttpServletResponse response) throws IOException
+    {
+        if (!response.isCommitted())
+        {
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE,
+                    "Timed out waiting for an asynchronous result.");
+        }
+    }
+
+    /**
+     * Processes the result by passing the request back through the RequestHandler pipeline.
+     */
+    private void resume(SuspendedRequest suspended, Request request, Response response) throws IOException
+    {
+        request.setAttribute(InternalConstants.RESUMED_REQUEST, suspended);
+
+        requestHandler.service(request, response);
+    }
+
+    /**
+     * Tracks a request in asynchronous mode; it may be suspended repeatedly, if processing one result produces another
+     * result.
+     */
+    private final class Continuation implements AsyncListener
+    {
+        private final AsyncContext context;
+
+        private final PerthreadScope scope;
+
+        private final HttpServletRequest request;
+
+        private final HttpServletResponse response;
+
+        private final Request tapestryRequest;
+
+        private final Response tapestryResponse;
+
+        /**
+         * Set once the request has completed (or timed out); guarded by this.
+         */
+        private boolean finished;
+
+        Continuation(AsyncContext context, PerthreadScope scope, HttpServletRequest request,
+                     HttpServletResponse response, Request tapestryRequest, Response tapestryResponse)
+        {
+            this.context = context;
+            this.scope = scope;
+            this.request = request;
+            this.response = response;
+            this.tapestryRequest = tapestryRequest;
+            this.tapestryResponse = tapestryResponse;
+
+            context.addListener(this);
+        }
+
+        void suspend(final SuspendedRequest suspended)
+        {
+            suspended.getResult().onCompletion(new Runnable()
+            {
+                public void run()
+                {
+                    if (isFinished())
+                    {
+                        return;
+                    }
+
+                    // Continue on a container thread, rather than the thread that completed the result.
+
+                    context.start(new Runnable()
+                    {
+                        public void run()
+                        {
+                            runInScope(new Runnable()
+                            {
+                                public void run()
+                                {
+                                    continueRequest(suspended);
+                                }
+                            });
+                        }
+                    });
+                }
+            });
+        }
+
+        /**
+         * Binds the request's scope to the current thread and runs the action, unless the request has already
+         * finished. The monitor is held throughout, so only one container thread at a time uses the scope.
+         */
+        private synchronized void runInScope(Runnable action)
+        {
+            if (finished)
+            {
+                return;
+            }
+
+            scope.run(action);
+        }
+
+        private void continueRequest(SuspendedRequest suspended)
+        {
+            try
+            {
+                resume(suspended, tapestryRequest, tapestryResponse);
+
+                SuspendedRequest next = takeSuspendedRequest(request);
+
+                if (next != null)
+                {
+                    suspend(next);
+
+                    return;
+                }
+            } catch (Exception ex)
+            {
+                logger.error(String.format("Unable to process asynchronous result for request %s: %s",
+                        request.getRequestURI(), ex), ex);
+            }
+
+            finish();
+        }
+
+        private synchronized boolean isFinished()
+        {
+            return finished;
+        }
+
+        private void finish()
+        {
+            finished = true;
+
+            perthreadManager.cleanup();
+
+            context.complete();
+        }
+
+        public void onTimeout(AsyncEvent event)
+        {
+            abandon(true);
+        }
+
+        public void onError(AsyncEvent event)
+        {
+            abandon(false);
+        }
+
+        /**
+         * Invoked when the container gives up on the request before the result is available.
+         */
+        private void abandon(final boolean timedOut)
+        {
+            runInScope(new Runnable()
+            {
+                public void run()
+                {
+                    if (timedOut)
+                    {
+                        try
+                        {
+                            sendTimeoutError(response);
+                        } catch (IOException ex)
+                        {
+                            logger.error(String.format("Unable to report timeout of request %s: %s",
+                                    request.getRequestURI(), ex), ex);
+                        }
+                    }
+
+                    finish();
+                }
+            });
+        }
+
+        public void onComplete(AsyncEvent event)
+        {
+        }
+
+        public void onStartAsync(AsyncEvent event)
+        {
+        }
+    }
+}
@@ -0,0 +1,53 @@
+// Copyright 2012 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.internal.services;
+
+import org.apache.tapestry5.internal.InternalConstants;
+import org.apache.tapestry5.ioc.annotations.Primary;
+import org.apache.tapestry5.services.AsyncResult;
+import org.apache.tapestry5.services.ComponentEventResultProcessor;
+import org.apache.tapestry5.services.Request;
+import org.apache.tapestry5.services.Traditional;
+
+import java.io.IOException;
+
+/**
+ * Handles an {@link AsyncResult} returned from an event handler method by marking the request as suspended; the
+ * {@link AsyncRequestFilter} suspends the request once the rest of the request processing pipeline has completed.
+ *
+ * @since 5.4
+ */
+public class AsyncResultProcessor implements ComponentEventResultProcessor<AsyncResult>
+{
+    private final ComponentEventResultProcessor masterProcessor;
+
+    private final Request request;
+
+    public AsyncResultProcessor(@Traditional @Primary ComponentEventResultProcessor masterProcessor, Request request)
+    {
+        this.masterProcessor = masterProcessor;
+        this.request = request;
+    }
+
+    public void processResultValue(AsyncResult value) throws IOException
+    {
+        if (SuspendedRequest.find(request) != null)
+        {
+            throw new IllegalStateException("The request has already been suspended, awaiting a different asynchronous result.");
+        }
+
+        request.setAttribute(InternalConstants.SUSPENDED_REQUEST, new SuspendedRequest(value, masterProcessor));
+    }
+}
@@ -0,0 +1,128 @@
+// Copyright 2012 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.internal.services;
+
+import org.apache.tapestry5.internal.TapestryInternalUtils;
+import org.apache.tapestry5.ioc.internal.util.CollectionFactory;
+
+import java.util.List;
+
+/**
+ * A single range of bytes, from an HTTP Range request header, resolved against the size of the content.
+ *
+ * @since 5.4
+ */
+public class ByteRange
+{
+    private static final String BYTES_UNIT = "bytes=";
+
+    /**
+     * Requests with more ranges than this are served in full, rather than as many small parts.
+     */
+    static final int MAX_RANGES = 20;
+
+    /**
+     * First and last byte positions, inclusive.
+     */
+    public final long start, end;
+
+    public ByteRange(long start, long end)
+    {
+        this.start = start;
+        this.end = end;
+    }
+
+    public long getLength()
+    {
+        return end - start + 1;
+    }
+
+    /**
+     * Parses a Range header, such as "bytes=0-499,1000-", "bytes=-500" (the final 500 bytes).
+     *
+     * @param header
+     *         the Range header value
+     * @param size
+     *         size of the complete content
+     * @return the satisfiable ranges (possibly empty, if none of the ranges are satisfiable), or null if the header is
+     *         not understood (or should be ignored), meaning the complete content should be sent
+     */
+    public static List<ByteRange> parse(String header, long size)
+    {
+        if (header == null || !header.regionMatches(true, 0, BYTES_UNIT, 0, BYTES_UNIT.length()))
+            return null;
+
+        String[] specs = TapestryInternalUtils.splitAtCommas(header.substring(BYTES_UNIT.length()));
+
+        if (specs.length == 0 || specs.length > MAX_RANGES)
+            return null;
+
+        List<ByteRange> result = CollectionFactory.newList();
+
+        for (String spec : specs)
+        {
+            int dashx = spec.indexOf('-');
+
+            if (dashx < 0)
+                return null;
+
+            String first = spec.substring(0, dashx).trim();
+            String last = spec.substring(dashx + 1).trim();
+
+            try
+            {
+                if (first.length() == 0)
+                {
+                    // A suffix range: the final bytes of the content.
+
+                    long suffixLength = Long.parseLong(last);
+
+                    if (suffixLength > 0 && size > 0)
+                        result.add(new ByteRange(Math.max(0, size - suffixLength), size - 1));
+
+                    continue;
+                }
+
+                long start = Long.parseLong(first);
+                long end = last.length() == 0 ? Long.MAX_VALUE : Long.parseLong(last);
+
+                if (start < 0 || end < start)
+                    return null;
+
+                if (start < size)
+                    result.add(new ByteRange(start, Math.min(end, size - 1)));
+            } catch (NumberFormatException ex)
+            {
+                return null;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Formats the range for a Content-Range header, e.g. "bytes 0-499/1234".
+     */
+    public String toContentRange(long size)
+    {
+        return String.format("bytes %d-%d/%d", start, end, size);
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("ByteRange[%d-%d]", start, end);
+    }
+}
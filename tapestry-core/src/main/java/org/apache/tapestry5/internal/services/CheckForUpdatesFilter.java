@@ -1,4 +1,4 @@
-// Copyright 2006, 2007, 2008, 2009, 2011 The Apache Software Foundation
+// Copyright 2006, 2007, 2008, 2009, 2011, 2012 The Apache Software Foundation
 //
 // Licensed under the Apache License, Version 2.0 (the "License");
 // you may not use this file except in compliance with the License.
@@ -19,7 +19,7 @@ import org.apache.tapestry5.internal.util.Holder;
 import org.apache.tapestry5.ioc.Invokable;
 import org.apache.tapestry5.ioc.annotations.IntermediateType;
 import org.apache.tapestry5.ioc.annotations.Symbol;
-import org.apache.tapestry5.ioc.internal.util.ConcurrentBarrier;
+import org.apache.tapestry5.ioc.internal.util.ReadMostlyBarrier;
 import org.apache.tapestry5.ioc.util.TimeInterval;
 import org.apache.tapestry5.services.*;
 
@@ -30,6 +30,10 @@ import java.util.concurrent.TimeUnit;
  * Implements a barrier that periodically asks the {@link org.apache.tapestry5.services.UpdateListenerHub} to check for
  * updates to files. The UpdateListenerHub is invoked from a write method, meaning that when it is called, all other
  * threads will be blocked.
+ * <p/>
+ * Between checks, a request only reads the clock and a flag owned by its own thread (see {@link ReadMostlyBarrier}), so
+ * concurrent requests do not contend with each other. The filter is omitted entirely in production mode, or when
+ * {@linkplain SymbolConstants#RELOADING_ENABLED reloading is disabled}.
  */
 public class CheckForUpdatesFilter implements RequestFilter
 {
@@ -39,7 +43,7 @@ public class CheckForUpdatesFilter implements RequestFilter
 
     private final UpdateListenerHub updateListenerHub;
 
-    private final ConcurrentBarrier barrier = new ConcurrentBarrier();
+    private final ReadMostlyBarrier barrier = new ReadMostlyBarrier();
 
     private final Runnable checker = new Runnable()
     {
@@ -61,7 +65,7 @@ public class CheckForUpdatesFilter implements RequestFilter
         }
     };
 
-    private long lastCheck = 0;
+    private volatile long lastCheck = 0;
 
     /**
      * @param updateListenerHub
@@ -89,17 +93,17 @@ public class CheckForUpdatesFilter implements RequestFilter
     public boolean service(final Request request, final Response response, final RequestHandler handler)
             throws IOException
     {
+        // Check before entering the read side of the barrier, so as not to have to leave it and re-enter it.
+
+        if (System.currentTimeMillis() - lastCheck >= checkInterval)
+            barrier.tryWithWrite(checker, updateTimeout, TimeUnit.MILLISECONDS);
+
         final Holder<IOException> exceptionHolder = new Holder<IOException>();
 
         Invokable<Boolean> invokable = new Invokable<Boolean>()
         {
             public Boolean invoke()
             {
-                if (System.currentTimeMillis() - lastCheck >= checkInterval)
-                    barrier.tryWithWrite(checker, updateTimeout, TimeUnit.MILLISECONDS);
-
-                // And, now, back to code within the read lock.
-
                 try
                 {
                     return handler.service(request, response);
@@ -112,9 +116,8 @@ public class CheckForUpdatesFilter implements RequestFilter
             }
         };
 
-        // Obtain a read lock while handling the request. This will not impair parallel operations, except when a file
-        // check
-        // is needed (the exclusive write lock will block threads attempting to get a read lock).
+        // Handle the request on the read side of the barrier. This will not impair parallel operations, except when a
+        // file check is needed (the exclusive write will block threads attempting to enter the read side).
 
         boolean result = barrier.withRead(invokable);
 
@@ -1,4 +1,4 @@
-// Copyright 2006, 2007, 2008, 2009, 2010, 2011 The Apache Software Foundation
+// Copyright 2006, 2007, 2008, 2009, 2010, 2011, 2012 The Apache Software Foundation
 //
 // Licensed under the Apache License, Version 2.0 (the "License");
 // you may not use this file except in compliance with the License.
@@ -36,6 +36,8 @@ public class ComponentEventRequestHandlerImpl implements ComponentEventRequestHa
 
     private final Environment environment;
 
+    private final Request request;
+
     public ComponentEventRequestHandlerImpl(@Traditional
                                             @Primary
                                             ComponentEventResultProcessor resultProcessor,
@@ -44,13 +46,16 @@ public class ComponentEventRequestHandlerImpl implements ComponentEventRequestHa
 
                                             PageActivator pageActivator,
 
-                                            Environment environment)
+                                            Environment environment,
+
+                                            Request request)
     {
         this.resultProcessor = resultProcessor;
         this.cache = cache;
         this.response = response;
         this.pageActivator = pageActivator;
         this.environment = environment;
+        this.request = request;
     }
 
     public void handle(ComponentEventRequestParameters parameters) throws IOException
@@ -60,6 +65,8 @@ public class ComponentEventRequestHandlerImpl implements ComponentEventRequestHa
         if (pageActivator.activatePage(activePage.getRootElement().getComponentResources(), parameters
                 .getPageActivationContext(), resultProcessor))
         {
+            redirectToActivePageWhenResumed(activePage);
+
             return;
         }
 
@@ -86,6 +93,9 @@ public class ComponentEventRequestHandlerImpl implements ComponentEventRequestHa
         if (callback.isAborted())
         {
             callback.rethrow();
+
+            redirectToActivePageWhenResumed(activePage);
+
             return;
         }
 
@@ -97,4 +107,18 @@ public class ComponentEventRequestHandlerImpl implements ComponentEventRequestHa
             resultProcessor.processResultValue(activePage.getName());
         }
     }
+
+    /**
+     * If an event handler suspended the request, then a null result redirects back to the active page, just as if the
+     * event handler had not returned a value.
+     */
+    private void redirectToActivePageWhenResumed(Page activePage)
+    {
+        SuspendedRequest suspended = SuspendedRequest.find(request);
+
+        if (suspended != null)
+        {
+            suspended.setDefaultResult(activePage.getName());
+        }
+    }
 }
@@ -0,0 +1,119 @@
+// Copyright 2012 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.internal.services;
+
+import org.apache.tapestry5.internal.TapestryInternalUtils;
+import org.apache.tapestry5.ioc.internal.util.CollectionFactory;
+import org.apache.tapestry5.services.ContentEncoder;
+import org.apache.tapestry5.services.ContentEncoderSource;
+
+import java.util.List;
+import java.util.Map;
+
+public class ContentEncoderSourceImpl implements ContentEncoderSource
+{
+    private static final String ANY = "*";
+
+    private final List<ContentEncoder> encoders;
+
+    private final Map<String, ContentEncoder> encodersByName = CollectionFactory.newCaseInsensitiveMap();
+
+    public ContentEncoderSourceImpl(List<ContentEncoder> configuration)
+    {
+        encoders = configuration;
+
+        for (ContentEncoder encoder : configuration)
+        {
+            encodersByName.put(encoder.getEncoding(), encoder);
+        }
+    }
+
+    public ContentEncoder negotiate(String acceptEncoding)
+    {
+        if (acceptEncoding == null)
+            return null;
+
+        Map<String, Float> qualities = parse(acceptEncoding);
+
+        Float anyQuality = qualities.get(ANY);
+
+        ContentEncoder result = null;
+        float resultQuality = 0;
+
+        for (ContentEncoder encoder : encoders)
+        {
+            Float quality = qualities.get(encoder.getEncoding());
+
+            if (quality == null)
+                quality = anyQuality;
+
+            // Only a strictly higher quality displaces an encoder earlier in the configuration.
+
+            if (quality != null && quality > resultQuality)
+            {
+                result = encoder;
+                resultQuality = quality;
+            }
+        }
+
+        return result;
+    }
+
+    public ContentEncoder getEncoder(String encoding)
+    {
+        return encodersByName.get(encoding);
+    }
+
+    /**
+     * Parses an Accept-Encoding header, such as "gzip;q=1.0, identity; q=0.5, *;q=0", into a map from content coding
+     * to quality. A missing quality is 1; a malformed quality is treated as 0 (not acceptable).
+     */
+    static Map<String, Float> parse(String acceptEncoding)
+    {
+        Map<String, Float> result = CollectionFactory.newCaseInsensitiveMap();
+
+        for (String element : TapestryInternalUtils.splitAtCommas(acceptEncoding))
+        {
+            String[] terms = element.split(";");
+
+            String coding = terms[0].trim();
+
+            if (coding.length() == 0)
+                continue;
+
+            float quality = 1;
+
+            for (int i = 1; i < terms.length; i++)
+            {
+                String term = terms[i].trim();
+
+                if (term.startsWith("q=") || term.startsWith("Q="))
+                {
+                    try
+                    {
+                        quality = Float.parseFloat(term.substring(2).trim());
+                    } catch (NumberFormatException ex)
+                    {
+                        quality = 0;
+                    }
+                }
+            }
+
+            result.put(coding, quality);
+        }
+
+        return result;
+    }
+}
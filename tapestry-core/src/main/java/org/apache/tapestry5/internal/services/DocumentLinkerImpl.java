@@ -1,4 +1,4 @@
-// Copyright 2007, 2008, 2009, 2010, 2011 The Apache Software Foundation
+// Copyright 2007, 2008, 2009, 2010, 2011, 2012 The Apache Software Foundation
 //
 // Licensed under the Apache License, Version 2.0 (the "License");
 // you may not use this file except in compliance with the License.
@@ -42,6 +42,12 @@ public class DocumentLinkerImpl implements DocumentLinker
 
     private boolean hasDynamicScript;
 
+    /**
+     * Set once the head has been written to the client; content collected after that point is added to the end of
+     * the body instead.
+     */
+    private boolean headCommitted;
+
     /**
      * @param omitGeneratorMetaTag via symbol configuration
      * @param tapestryVersion      version of Tapestry framework (for meta tag)
@@ -91,6 +97,32 @@ public class DocumentLinkerImpl implements DocumentLinker
         hasDynamicScript = true;
     }
 
+    /**
+     * Adds the stylesheets and script links collected so far, and the generator meta tag, to the {@code <head>}
+     * element. This is used when the head is sent to the client before the body has rendered; anything
+     * collected after this point will be added to the end of the {@code <body>} element by {@link #updateDocument(Document)}.
+     *
+     * @param root the root element of the document being rendered
+     * @since 5.4
+     */
+    public void commitHead(Element root)
+    {
+        addStylesheetsToHead(root, includedStylesheets);
+
+        includedStylesheets.clear();
+
+        addGeneratorMeta(root);
+
+        if (!scripts.isEmpty() && root.getName().equals("html"))
+        {
+            addScriptLinksForIncludedScripts(findOrCreateElement(root, "head", true), scripts);
+
+            scripts.clear();
+        }
+
+        headCommitted = true;
+    }
+
     /**
      * Updates the supplied Document, possibly adding &lt;head&gt; or &lt;body&gt; elements.
      *
@@ -107,6 +139,16 @@ public class DocumentLinkerImpl implements DocumentLinker
 
         addStylesheetsToHead(root, includedStylesheets);
 
+        if (!headCommitted)
+        {
+            addGeneratorMeta(root);
+        }
+
+        addScriptElements(root);
+    }
+
+    private void addGeneratorMeta(Element root)
+    {
         // only add the generator meta only to html documents
 
         boolean isHtmlRoot = root.getName().equals("html");
@@ -119,8 +161,6 @@ public class DocumentLinkerImpl implements DocumentLinker
 
             addElementBefore(head, existingMeta, "meta", "name", "generator", "content", tapestryBanner);
         }
-
-        addScriptElements(root);
     }
 
     private static Element addElementBefore(Element container, Element insertionPoint, String name, String... namesAndValues)
@@ -148,16 +188,28 @@ public class DocumentLinkerImpl implements DocumentLinker
         if (!rootElementName.equals("html"))
             throw new RuntimeException(String.format("The root element of the rendered document was <%s>, not <html>. A root element of <html> is needed when linking JavaScript and stylesheet resources.", rootElementName));
 
-        Element head = findOrCreateElement(root, "head", true);
-
         // TAPESTRY-2364
 
-        addScriptLinksForIncludedScripts(head, scripts);
+        if (!scripts.isEmpty())
+        {
+            addScriptLinksForIncludedScripts(findHeadOrBody(root), scripts);
+        }
 
         if (hasDynamicScript)
             addDynamicScriptBlock(findOrCreateElement(root, "body", false));
     }
 
+    /**
+     * Finds the element to which stylesheet and script links should be added: normally the head, but the body once
+     * the head has been {@linkplain #commitHead(Element) committed}.
+     */
+    private Element findHeadOrBody(Element root)
+    {
+        return headCommitted
+                ? findOrCreateElement(root, "body", false)
+                : findOrCreateElement(root, "head", true);
+    }
+
     /**
      * Finds an element by name, or creates it. Returns the element (if found), or creates a new element
      * with the given name, and returns it. The new element will be positioned at the top or bottom of the root element.
@@ -298,10 +350,8 @@ public class DocumentLinkerImpl implements DocumentLinker
             return;
         }
 
-        Element head = findOrCreateElement(root, "head", true);
-
         // Create a temporary container element.
-        Element container = createTemporaryContainer(head, "style", "stylesheet-container");
+        Element container = createTemporaryContainer(findHeadOrBody(root), "style", "stylesheet-container");
 
         for (int i = 0; i < count; i++)
         {
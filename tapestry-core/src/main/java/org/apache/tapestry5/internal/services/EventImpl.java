@@ -1,4 +1,4 @@
-// Copyright 2007, 2008, 2010, 2011 The Apache Software Foundation
+// Copyright 2007, 2008, 2010, 2011, 2012 The Apache Software Foundation
 //
 // Licensed under the Apache License, Version 2.0 (the "License");
 // you may not use this file except in compliance with the License.
@@ -81,21 +81,30 @@ public class EventImpl implements Event
 
         if (result != null)
         {
-            boolean handleResult =
-                    tracker.invoke(String.format("Handling result from method %s.", methodDescription), new Invokable<Boolean>()
-                    {
-                        public Boolean invoke()
-                        {
-                            return handler.handleResult(result);
-                        }
-                    });
-
-            aborted |= handleResult;
+            aborted |= handleResult(result);
         }
 
         return aborted;
     }
 
+    /**
+     * Passes a non-null result to the handler, inside the operation tracker (so that a failure identifies the method
+     * that returned the result). Subclasses may bypass the tracker for results that can not fail.
+     *
+     * @return true if the event is aborted
+     * @since 5.4
+     */
+    protected boolean handleResult(final Object result)
+    {
+        return tracker.invoke(String.format("Handling result from method %s.", methodDescription), new Invokable<Boolean>()
+        {
+            public Boolean invoke()
+            {
+                return handler.handleResult(result);
+            }
+        });
+    }
+
     protected String getMethodDescription()
     {
         return methodDescription;
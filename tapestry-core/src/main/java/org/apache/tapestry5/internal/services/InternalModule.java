@@ -27,6 +27,7 @@ import org.apache.tapestry5.ioc.annotations.Autobuild;
 import org.apache.tapestry5.ioc.annotations.Contribute;
 import org.apache.tapestry5.ioc.annotations.Marker;
 import org.apache.tapestry5.services.*;
+import org.apache.tapestry5.services.pageload.PageCacheStatistics;
 import org.apache.tapestry5.services.transform.ControlledPackageType;
 
 import javax.servlet.http.Cookie;
@@ -127,6 +128,16 @@ public class InternalModule
         return service;
     }
 
+    /**
+     * Exposes the statistics maintained by the {@link PageSource}'s cache of loaded pages.
+     *
+     * @since 5.4
+     */
+    public static PageCacheStatistics buildPageCacheStatistics(PageSource pageSource)
+    {
+        return pageSource.getCacheStatistics();
+    }
+
     public ComponentClassCache buildComponentClassCache(@Autobuild
                                                         ComponentClassCacheImpl service)
     {
@@ -206,4 +217,19 @@ public class InternalModule
             configuration.add(entry.getKey(), entry.getValue());
         }
     }
+
+    /**
+     * Contributes:
+     * <dl>
+     * <dt>PagePreloader (instance of {@link PagePreloader})</dt>
+     * <dd>Loads all pages into the page cache, when {@link org.apache.tapestry5.SymbolConstants#PRELOAD_PAGES} is
+     * enabled</dd>
+     * </dl>
+     *
+     * @since 5.4
+     */
+    public static void contributeRegistryStartup(OrderedConfiguration<Runnable> configuration)
+    {
+        configuration.addInstance("PagePreloader", PagePreloader.class);
+    }
 }
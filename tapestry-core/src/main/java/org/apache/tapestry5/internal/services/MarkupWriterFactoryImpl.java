@@ -1,4 +1,4 @@
-// Copyright 2007, 2008, 2009 The Apache Software Foundation
+// Copyright 2007, 2008, 2009, 2012 The Apache Software Foundation
 //
 // Licensed under the Apache License, Version 2.0 (the "License");
 // you may not use this file except in compliance with the License.
@@ -22,6 +22,8 @@ import org.apache.tapestry5.dom.XMLMarkupModel;
 import org.apache.tapestry5.internal.structure.Page;
 import org.apache.tapestry5.services.MarkupWriterFactory;
 
+import java.io.PrintWriter;
+
 public class MarkupWriterFactoryImpl implements MarkupWriterFactory
 {
     private final PageContentTypeAnalyzer analyzer;
@@ -52,19 +54,28 @@ public class MarkupWriterFactoryImpl implements MarkupWriterFactory
         return newMarkupWriter(contentType, true);
     }
 
+    public MarkupWriter newStreamingMarkupWriter(ContentType contentType, PrintWriter writer, boolean flushHead)
+    {
+        return new StreamingMarkupWriterImpl(findModel(contentType, false), contentType.getCharset(), writer,
+                flushHead);
+    }
+
     @SuppressWarnings({"UnusedDeclaration"})
     private MarkupWriter newMarkupWriter(ContentType contentType, boolean partial)
     {
-        boolean isHTML = contentType.getMimeType().equalsIgnoreCase("text/html");
-
-        MarkupModel model = partial
-                            ? (isHTML ? htmlPartialModel : xmlPartialModel)
-                            : (isHTML ? htmlModel : xmlModel);
-
         // The charset parameter sets the encoding attribute of the XML declaration, if
         // not null and if using the XML model.
 
-        return new MarkupWriterImpl(model, contentType.getCharset());
+        return new MarkupWriterImpl(findModel(contentType, partial), contentType.getCharset());
+    }
+
+    private MarkupModel findModel(ContentType contentType, boolean partial)
+    {
+        boolean isHTML = contentType.getMimeType().equalsIgnoreCase("text/html");
+
+        return partial
+               ? (isHTML ? htmlPartialModel : xmlPartialModel)
+               : (isHTML ? htmlModel : xmlModel);
     }
 
     public MarkupWriter newMarkupWriter(String pageName)
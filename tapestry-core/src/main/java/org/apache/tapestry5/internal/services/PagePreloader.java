@@ -0,0 +1,220 @@
+// Copyright 2012 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.internal.services;
+
+import org.apache.tapestry5.SymbolConstants;
+import org.apache.tapestry5.internal.TapestryInternalUtils;
+import org.apache.tapestry5.ioc.IOCSymbols;
+import org.apache.tapestry5.ioc.Invokable;
+import org.apache.tapestry5.ioc.annotations.Symbol;
+import org.apache.tapestry5.ioc.internal.util.CollectionFactory;
+import org.apache.tapestry5.ioc.internal.util.InternalUtils;
+import org.apache.tapestry5.ioc.services.ParallelExecutor;
+import org.apache.tapestry5.services.ComponentClassResolver;
+import org.apache.tapestry5.services.LocalizationSetter;
+import org.apache.tapestry5.services.pageload.ComponentResourceSelector;
+import org.slf4j.Logger;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Future;
+
+/**
+ * Contributed to the RegistryStartup service; when {@link SymbolConstants#PRELOAD_PAGES} is enabled, loads every page
+ * known to the {@link ComponentClassResolver}, for each locale in {@link SymbolConstants#PRELOAD_PAGES_LOCALES}, into
+ * the {@link PageSource}'s cache. Pages are loaded in parallel, using the {@link ParallelExecutor}, with one worker per
+ * available processor, up to the thread pool's {@linkplain IOCSymbols#THREAD_POOL_CORE_SIZE core size}.
+ *
+ * @since 5.4
+ */
+public class PagePreloader implements Runnable
+{
+    private final Logger logger;
+
+    private final boolean enabled;
+
+    private final boolean failOnError;
+
+    private final String localeNames;
+
+    private final String supportedLocales;
+
+    private final int threadPoolCoreSize;
+
+    private final ComponentClassResolver resolver;
+
+    private final PageSource pageSource;
+
+    private final LocalizationSetter localizationSetter;
+
+    private final ParallelExecutor executor;
+
+    private static final class PageLoadTask
+    {
+        final String pageName;
+
+        final ComponentResourceSelector selector;
+
+        PageLoadTask(String pageName, ComponentResourceSelector selector)
+        {
+            this.pageName = pageName;
+            this.selector = selector;
+        }
+    }
+
+    public PagePreloader(Logger logger,
+
+                         @Symbol(SymbolConstants.PRELOAD_PAGES)
+                         boolean enabled,
+
+                         @Symbol(SymbolConstants.PRELOAD_PAGES_FAIL_ON_ERROR)
+                         boolean failOnError,
+
+                         @Symbol(SymbolConstants.PRELOAD_PAGES_LOCALES)
+                         String localeNames,
+
+                         @Symbol(SymbolConstants.SUPPORTED_LOCALES)
+                         String supportedLocales,
+
+                         @Symbol(IOCSymbols.THREAD_POOL_CORE_SIZE)
+                         int threadPoolCoreSize,
+
+                         ComponentClassResolver resolver, PageSource pageSource,
+                         LocalizationSetter localizationSetter, ParallelExecutor executor)
+    {
+        this.logger = logger;
+        this.enabled = enabled;
+        this.failOnError = failOnError;
+        this.localeNames = localeNames;
+        this.supportedLocales = supportedLocales;
+        this.threadPoolCoreSize = threadPoolCoreSize;
+        this.resolver = resolver;
+        this.pageSource = pageSource;
+        this.localizationSetter = localizationSetter;
+        this.executor = executor;
+    }
+
+    public void run()
+    {
+        if (!enabled)
+        {
+            return;
+        }
+
+        long startTime = System.currentTimeMillis();
+
+        List<ComponentResourceSelector> selectors = findSelectors();
+
+        final Queue<PageLoadTask> tasks = new ConcurrentLinkedQueue<PageLoadTask>();
+
+        for (String pageName : resolver.getPageNames())
+        {
+            for (ComponentResourceSelector selector : selectors)
+            {
+                tasks.add(new PageLoadTask(pageName, selector));
+            }
+        }
+
+        int taskCount = tasks.size();
+
+        // Rather than submitting each page individually (which could overflow the thread pool's queue), start one
+        // worker per processor, each pulling pages from the shared queue. Workers beyond the pool's core threads
+        // would only wait in its queue.
+
+        int workerCount = Math.min(Math.min(Runtime.getRuntime().availableProcessors(), threadPoolCoreSize),
+                taskCount);
+
+        final Queue<String> failures = new ConcurrentLinkedQueue<String>();
+
+        List<Future<Void>> workers = CollectionFactory.newList();
+
+        for (int i = 0; i < workerCount; i++)
+        {
+            workers.add(executor.invoke(new Invokable<Void>()
+            {
+                public Void invoke()
+                {
+                    while (true)
+                    {
+                        PageLoadTask task = tasks.poll();
+
+                        if (task == null)
+                        {
+                            return null;
+                        }
+
+                        load(task, failures);
+                    }
+                }
+            }));
+        }
+
+        for (Future<Void> worker : workers)
+        {
+            TapestryInternalUtils.waitFor(worker, RuntimeException.class);
+        }
+
+        logger.info(String.format("Preloaded %,d pages (%,d failed) in %,d ms.", taskCount - failures.size(),
+                failures.size(), System.currentTimeMillis() - startTime));
+
+        if (failOnError && !failures.isEmpty())
+        {
+            throw new RuntimeException(String.format("Unable to preload pages: %s.",
+                    InternalUtils.joinSorted(failures)));
+        }
+    }
+
+    private List<ComponentResourceSelector> findSelectors()
+    {
+        List<ComponentResourceSelector> result = CollectionFactory.newList();
+
+        // When no locales are configured explicitly, only the default (first supported) locale is preloaded.
+
+        String[] names = InternalUtils.isBlank(localeNames)
+                ? new String[]{TapestryInternalUtils.splitAtCommas(supportedLocales)[0]}
+                : TapestryInternalUtils.splitAtCommas(localeNames);
+
+        for (String name : names)
+        {
+            result.add(new ComponentResourceSelector(localizationSetter.toLocale(name)));
+        }
+
+        return result;
+    }
+
+    private void load(PageLoadTask task, Queue<String> failures)
+    {
+        long startTime = System.currentTimeMillis();
+
+        try
+        {
+            pageSource.getPage(task.pageName, task.selector);
+
+            if (logger.isDebugEnabled())
+            {
+                logger.debug(String.format("Preloaded page %s (%s) in %,d ms.", task.pageName,
+                        task.selector.toShortString(), System.currentTimeMillis() - startTime));
+            }
+        } catch (RuntimeException ex)
+        {
+            String description = String.format("%s (%s)", task.pageName, task.selector.toShortString());
+
+            failures.add(description);
+
+            logger.warn(String.format("Unable to preload page %s: %s", description, InternalUtils.toMessage(ex)), ex);
+        }
+    }
+}
@@ -1,4 +1,4 @@
-// Copyright 2007, 2008, 2010, 2011 The Apache Software Foundation
+// Copyright 2007, 2008, 2010, 2011, 2012 The Apache Software Foundation
 //
 // Licensed under the Apache License, Version 2.0 (the "License");
 // you may not use this file except in compliance with the License.
@@ -25,6 +25,7 @@ import org.apache.tapestry5.json.JSONObject;
 import org.apache.tapestry5.runtime.RenderCommand;
 import org.apache.tapestry5.services.PartialMarkupRenderer;
 import org.apache.tapestry5.services.PartialMarkupRendererFilter;
+import org.apache.tapestry5.services.RenderProfiler;
 import org.slf4j.Logger;
 
 /**
@@ -37,6 +38,8 @@ public class PageRenderQueueImpl implements PageRenderQueue
 {
     private final LoggerSource loggerSource;
 
+    private final RenderProfiler profiler;
+
     private Page page;
 
     private boolean partialRenderInitialized;
@@ -63,9 +66,10 @@ public class PageRenderQueueImpl implements PageRenderQueue
         }
     }
 
-    public PageRenderQueueImpl(LoggerSource loggerSource)
+    public PageRenderQueueImpl(LoggerSource loggerSource, RenderProfiler profiler)
     {
         this.loggerSource = loggerSource;
+        this.profiler = profiler;
     }
 
     public void initializeForCompletePage(Page page)
@@ -85,7 +89,7 @@ public class PageRenderQueueImpl implements PageRenderQueue
 
         Logger logger = loggerSource.getLogger(name);
 
-        queue = new RenderQueueImpl(logger);
+        queue = new RenderQueueImpl(logger, profiler, page.getName());
     }
 
     public boolean isPartialRenderInitialized()
@@ -1,4 +1,4 @@
-// Copyright 2006, 2007, 2008, 2009, 2010, 2011 The Apache Software Foundation
+// Copyright 2006, 2007, 2008, 2009, 2010, 2011, 2012 The Apache Software Foundation
 //
 // Licensed under the Apache License, Version 2.0 (the "License");
 // you may not use this file except in compliance with the License.
@@ -60,6 +60,16 @@ public class PageRenderRequestHandlerImpl implements PageRenderRequestHandler
             if (pageActivator.activatePage(page.getRootElement().getComponentResources(),
                     parameters.getActivationContext(), resultProcessor))
             {
+                SuspendedRequest suspended = SuspendedRequest.find(request);
+
+                // If the activate event handler suspended the request, a null result continues on to render the page.
+
+                if (suspended != null)
+                {
+                    suspended.setDefaultResult(new StreamPageContent(page.getRootComponent().getClass(),
+                            (Object[]) parameters.getActivationContext().toStrings()).withoutActivation());
+                }
+
                 return;
             }
 
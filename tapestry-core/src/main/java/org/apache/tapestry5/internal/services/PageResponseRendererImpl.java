@@ -1,4 +1,4 @@
-// Copyright 2006, 2007, 2008, 2009, 2010 The Apache Software Foundation
+// Copyright 2006, 2007, 2008, 2009, 2010, 2012 The Apache Software Foundation
 //
 // Licensed under the Apache License, Version 2.0 (the "License");
 // you may not use this file except in compliance with the License.
@@ -19,8 +19,11 @@ import java.io.PrintWriter;
 
 import org.apache.tapestry5.ContentType;
 import org.apache.tapestry5.MarkupWriter;
+import org.apache.tapestry5.MetaDataConstants;
 import org.apache.tapestry5.internal.structure.Page;
 import org.apache.tapestry5.services.MarkupWriterFactory;
+import org.apache.tapestry5.services.MetaDataLocator;
+import org.apache.tapestry5.services.PipelineMetrics;
 import org.apache.tapestry5.services.RequestGlobals;
 import org.apache.tapestry5.services.Response;
 import org.slf4j.Logger;
@@ -39,9 +42,13 @@ public class PageResponseRendererImpl implements PageResponseRenderer
 
     private final Logger logger;
 
+    private final MetaDataLocator metaDataLocator;
+
+    private final PipelineMetrics pipelineMetrics;
+
     public PageResponseRendererImpl(RequestGlobals requestGlobals, MarkupWriterFactory markupWriterFactory,
             PageMarkupRenderer markupRenderer, PageContentTypeAnalyzer pageContentTypeAnalyzer, Response response,
-            Logger logger)
+            Logger logger, MetaDataLocator metaDataLocator, PipelineMetrics pipelineMetrics)
     {
         this.requestGlobals = requestGlobals;
         this.markupWriterFactory = markupWriterFactory;
@@ -49,6 +56,8 @@ public class PageResponseRendererImpl implements PageResponseRenderer
         this.pageContentTypeAnalyzer = pageContentTypeAnalyzer;
         this.response = response;
         this.logger = logger;
+        this.metaDataLocator = metaDataLocator;
+        this.pipelineMetrics = pipelineMetrics;
     }
 
     public void renderPageResponse(Page page) throws IOException
@@ -59,6 +68,14 @@ public class PageResponseRendererImpl implements PageResponseRenderer
 
         ContentType contentType = pageContentTypeAnalyzer.findContentType(page);
 
+        boolean flushHead = metaDataLocator.findMeta(MetaDataConstants.FLUSH_HEAD, page.getName(), Boolean.class);
+
+        if (flushHead || metaDataLocator.findMeta(MetaDataConstants.STREAM_MARKUP, page.getName(), Boolean.class))
+        {
+            streamPageResponse(page, contentType, flushHead);
+            return;
+        }
+
         // For the moment, the content type is all that's used determine the model for the markup writer.
         // It's something of a can of worms.
 
@@ -68,9 +85,20 @@ public class PageResponseRendererImpl implements PageResponseRenderer
 
         PrintWriter pw = response.getPrintWriter(contentType.toString());
 
+        boolean timed = pipelineMetrics.start("serialize");
+
         long startNanos = System.nanoTime();
 
-        writer.toMarkup(pw);
+        try
+        {
+            writer.toMarkup(pw);
+        } finally
+        {
+            if (timed)
+            {
+                pipelineMetrics.end();
+            }
+        }
 
         long endNanos = System.nanoTime();
 
@@ -84,4 +112,54 @@ public class PageResponseRendererImpl implements PageResponseRenderer
 
         pw.close();
     }
+
+    /**
+     * Renders the page with a {@linkplain MarkupWriterFactory#newStreamingMarkupWriter(ContentType, PrintWriter, boolean)
+     * streaming markup writer}, so that markup is written to the response as it is
+     * rendered; optionally, the head is flushed to the client as soon as it is complete.
+     */
+    private void streamPageResponse(Page page, ContentType contentType, boolean flushHead) throws IOException
+    {
+        // GZIP compression buffers the output, which would defeat the early flush.
+
+        if (flushHead)
+        {
+            response.disableCompression();
+        }
+
+        PrintWriter pw = response.getPrintWriter(contentType.toString());
+
+        MarkupWriter writer = markupWriterFactory.newStreamingMarkupWriter(contentType, pw, flushHead);
+
+        long startNanos = System.nanoTime();
+
+        markupRenderer.renderPageMarkup(page, writer);
+
+        // Most of the markup has already been written as it was rendered; what remains is the end of the document.
+
+        boolean timed = pipelineMetrics.start("serialize");
+
+        try
+        {
+            writer.toMarkup(pw);
+        } finally
+        {
+            if (timed)
+            {
+                pipelineMetrics.end();
+            }
+        }
+
+        long endNanos = System.nanoTime();
+
+        if (logger.isDebugEnabled())
+        {
+            long elapsedNanos = endNanos - startNanos;
+            double elapsedSeconds = ((float) elapsedNanos) / 1000000000F;
+
+            logger.debug(String.format("Response rendered and streamed to markup in %.3f seconds", elapsedSeconds));
+        }
+
+        pw.close();
+    }
 }
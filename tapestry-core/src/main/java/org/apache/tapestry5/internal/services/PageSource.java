@@ -16,18 +16,25 @@ package org.apache.tapestry5.internal.services;
 
 import org.apache.tapestry5.internal.structure.Page;
 import org.apache.tapestry5.ioc.Resource;
+import org.apache.tapestry5.ioc.annotations.UsesConfiguration;
 import org.apache.tapestry5.services.dynamic.DynamicTemplate;
 import org.apache.tapestry5.services.pageload.ComponentRequestSelectorAnalyzer;
 import org.apache.tapestry5.services.pageload.ComponentResourceSelector;
+import org.apache.tapestry5.services.pageload.PageCacheStatistics;
 
 import java.util.Set;
 
 /**
  * Access to localized page instances (which are now shared singletons, starting in release 5.2).
  * This service is a wrapper around the {@link PageLoader} that caches the loaded pages.
+ * <p/>
+ * The cache may be limited in size (see {@link org.apache.tapestry5.SymbolConstants#PAGE_CACHE_MAX_SIZE}). The
+ * configuration is a set of page names that are <em>pinned</em>: once loaded, instances of these pages (for any
+ * {@link ComponentResourceSelector}) are never evicted to keep the cache within its maximum size.
  *
  * @since 5.2.0
  */
+@UsesConfiguration(String.class)
 public interface PageSource
 {
     /**
@@ -49,12 +56,30 @@ public interface PageSource
     Page getPage(String canonicalPageName);
 
     /**
-     * Returns all currently loaded pages. This will include any previously loaded pages not yet reclaimed by the
-     * garbage collector, and may include the same page loaded for different {@link ComponentResourceSelector}s. This is needed
+     * Returns a loaded instance of the indicated page for an explicit selector, rather than the selector for the
+     * current request. This is used when loading pages outside of a request, such as when preloading pages at startup.
+     *
+     * @param canonicalPageName
+     * @param selector
+     *         identifies the locale (and any other axes) of the page instance
+     * @return existing, or newly created, page instance
+     * @since 5.4
+     */
+    Page getPage(String canonicalPageName, ComponentResourceSelector selector);
+
+    /**
+     * Returns all currently loaded pages. This may include the same page loaded for different {@link ComponentResourceSelector}s. This is needed
      * for reporting purposes only.
      *
      * @see org.apache.tapestry5.corelib.pages.PageCatalog
      * @since 5.3
      */
     Set<Page> getAllPages();
+
+    /**
+     * Returns the live hit/miss/load counters for the cache maintained by this service.
+     *
+     * @since 5.4
+     */
+    PageCacheStatistics getCacheStatistics();
 }
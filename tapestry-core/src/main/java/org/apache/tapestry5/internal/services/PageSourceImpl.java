@@ -1,4 +1,4 @@
-// Copyright 2010, 2011 The Apache Software Foundation
+// Copyright 2010, 2011, 2012 The Apache Software Foundation
 //
 // Licensed under the Apache License, Version 2.0 (the "License");
 // you may not use this file except in compliance with the License.
@@ -14,17 +14,28 @@
 
 package org.apache.tapestry5.internal.services;
 
+import org.apache.tapestry5.SymbolConstants;
 import org.apache.tapestry5.func.F;
 import org.apache.tapestry5.func.Mapper;
+import org.apache.tapestry5.internal.TapestryInternalUtils;
 import org.apache.tapestry5.internal.structure.Page;
+import org.apache.tapestry5.internal.util.StripedCounter;
+import org.apache.tapestry5.ioc.annotations.Symbol;
 import org.apache.tapestry5.ioc.internal.util.CollectionFactory;
 import org.apache.tapestry5.services.InvalidationListener;
 import org.apache.tapestry5.services.pageload.ComponentRequestSelectorAnalyzer;
 import org.apache.tapestry5.services.pageload.ComponentResourceSelector;
+import org.apache.tapestry5.services.pageload.PageCacheEvictionPolicy;
+import org.apache.tapestry5.services.pageload.PageCacheStatistics;
 
-import java.lang.ref.SoftReference;
+import java.util.Collection;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class PageSourceImpl implements PageSource, InvalidationListener
 {
@@ -32,6 +43,14 @@ public class PageSourceImpl implements PageSource, InvalidationListener
 
     private final PageLoader pageLoader;
 
+    private final int maximumSize;
+
+    private final boolean bounded;
+
+    private final PageCacheEvictionPolicy evictionPolicy;
+
+    private final Set<String> pinnedPageNames = CollectionFactory.newSet();
+
     private static final class CachedPageKey
     {
         final String pageName;
@@ -63,12 +82,158 @@ public class PageSourceImpl implements PageSource, InvalidationListener
         }
     }
 
-    private final Map<CachedPageKey, SoftReference<Page>> pageCache = CollectionFactory.newConcurrentMap();
+    /**
+     * A cached page, plus the usage data needed by the {@link PageCacheEvictionPolicy}. Usage is only tracked when the
+     * cache is bounded; an unbounded cache never evicts, so page lookups write no shared state.
+     */
+    private final class CachedPage
+    {
+        final Page page;
+
+        final boolean pinned;
+
+        final AtomicInteger hits = new AtomicInteger();
+
+        volatile long lastAccess;
+
+        CachedPage(Page page, boolean pinned)
+        {
+            this.page = page;
+            this.pinned = pinned;
+
+            if (bounded)
+            {
+                lastAccess = clock.incrementAndGet();
+            }
+        }
+
+        Page access()
+        {
+            if (bounded)
+            {
+                hits.incrementAndGet();
+                lastAccess = clock.incrementAndGet();
+            }
+
+            return page;
+        }
+
+        /**
+         * Returns true if this entry is a better candidate for eviction than the other entry.
+         */
+        boolean isColderThan(CachedPage other)
+        {
+            if (evictionPolicy == PageCacheEvictionPolicy.LFU)
+            {
+                int myHits = hits.get();
+                int otherHits = other.hits.get();
+
+                if (myHits != otherHits)
+                    return myHits < otherHits;
+            }
+
+            return lastAccess < other.lastAccess;
+        }
+    }
+
+    /**
+     * Logical clock used to order accesses for LRU eviction; cheaper than System.nanoTime() and never ambiguous.
+     */
+    private final AtomicLong clock = new AtomicLong();
+
+    /**
+     * Updated on every page lookup, so striped to keep request threads from contending on a single counter.
+     */
+    private final StripedCounter hitCount = new StripedCounter();
+
+    private final StripedCounter missCount = new StripedCounter();
 
-    public PageSourceImpl(PageLoader pageLoader, ComponentRequestSelectorAnalyzer selectorAnalyzer)
+    private final AtomicLong loadCount = new AtomicLong();
+
+    private final AtomicLong totalLoadTime = new AtomicLong();
+
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    /**
+     * Incremented each time the cache is cleared, so that a page loaded using now-invalidated classes or templates
+     * is not added to the cache.
+     */
+    private final AtomicInteger generation = new AtomicInteger();
+
+    private final ConcurrentMap<CachedPageKey, CachedPage> pageCache = CollectionFactory.newConcurrentMap();
+
+    /**
+     * Pages currently being loaded; concurrent requests for the same page wait on the single load in progress, rather
+     * than each loading the page.
+     */
+    private final ConcurrentMap<CachedPageKey, FutureTask<Page>> inFlight = CollectionFactory.newConcurrentMap();
+
+    private final PageCacheStatistics statistics = new PageCacheStatistics()
+    {
+        public long getHitCount()
+        {
+            return hitCount.get();
+        }
+
+        public long getMissCount()
+        {
+            return missCount.get();
+        }
+
+        public long getLoadCount()
+        {
+            return loadCount.get();
+        }
+
+        public long getTotalLoadTime()
+        {
+            return totalLoadTime.get();
+        }
+
+        public long getEvictionCount()
+        {
+            return evictionCount.get();
+        }
+
+        public int getSize()
+        {
+            return pageCache.size();
+        }
+
+        public int getMaximumSize()
+        {
+            return maximumSize;
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("PageCacheStatistics[size=%d/%d hits=%d misses=%d loads=%d loadTime=%d ms evictions=%d]",
+                    getSize(), maximumSize, getHitCount(), getMissCount(), getLoadCount(), getTotalLoadTime(),
+                    getEvictionCount());
+        }
+    };
+
+    public PageSourceImpl(PageLoader pageLoader, ComponentRequestSelectorAnalyzer selectorAnalyzer,
+
+                          @Symbol(SymbolConstants.PAGE_CACHE_MAX_SIZE)
+                          int maximumSize,
+
+                          @Symbol(SymbolConstants.PAGE_CACHE_EVICTION_POLICY)
+                          PageCacheEvictionPolicy evictionPolicy,
+
+                          Collection<String> pinnedPageNames)
     {
         this.pageLoader = pageLoader;
         this.selectorAnalyzer = selectorAnalyzer;
+        this.maximumSize = maximumSize;
+        this.bounded = maximumSize > 0;
+        this.evictionPolicy = evictionPolicy;
+
+        for (String name : pinnedPageNames)
+        {
+            this.pinnedPageNames.add(name.toLowerCase());
+        }
     }
 
     public void objectWasInvalidated()
@@ -78,50 +243,164 @@ public class PageSourceImpl implements PageSource, InvalidationListener
 
     public Page getPage(String canonicalPageName)
     {
-        ComponentResourceSelector selector = selectorAnalyzer.buildSelectorForRequest();
+        return getPage(canonicalPageName, selectorAnalyzer.buildSelectorForRequest());
+    }
+
+    public Page getPage(String canonicalPageName, ComponentResourceSelector selector)
+    {
+        final CachedPageKey key = new CachedPageKey(canonicalPageName, selector);
+
+        CachedPage cached = pageCache.get(key);
+
+        if (cached != null)
+        {
+            hitCount.increment();
+
+            return cached.access();
+        }
+
+        missCount.increment();
+
+        FutureTask<Page> task = inFlight.get(key);
+
+        if (task == null)
+        {
+            FutureTask<Page> newTask = new FutureTask<Page>(new Callable<Page>()
+            {
+                public Page call() throws Exception
+                {
+                    return loadAndCache(key);
+                }
+            });
+
+            task = inFlight.putIfAbsent(key, newTask);
+
+            if (task == null)
+            {
+                task = newTask;
+
+                try
+                {
+                    task.run();
+                } finally
+                {
+                    inFlight.remove(key);
+                }
+            }
+        }
+
+        return TapestryInternalUtils.waitFor(task, RuntimeException.class);
+    }
+
+    private Page loadAndCache(CachedPageKey key)
+    {
+        // A thread may have completed loading the page between our cache check and the creation of the task.
 
-        CachedPageKey key = new CachedPageKey(canonicalPageName, selector);
+        CachedPage cached = pageCache.get(key);
 
-        // The while loop looks superfluous, but it helps to ensure that the Page instance,
-        // with all of its mutable construction-time state, is properly published to other
-        // threads (at least, as I understand Brian Goetz's explanation, it should be).
+        if (cached != null)
+        {
+            return cached.access();
+        }
+
+        int startGeneration = generation.get();
+
+        long startTime = System.currentTimeMillis();
 
-        while (true)
+        Page page = pageLoader.loadPage(key.pageName, key.selector);
+
+        loadCount.incrementAndGet();
+        totalLoadTime.addAndGet(System.currentTimeMillis() - startTime);
+
+        // Putting the page into the (concurrent) map ensures that the Page instance, with all of its mutable
+        // construction-time state, is properly published to other threads.
+
+        if (generation.get() == startGeneration)
         {
-            SoftReference<Page> ref = pageCache.get(key);
+            CachedPage entry = new CachedPage(page, pinnedPageNames.contains(key.pageName.toLowerCase()));
+
+            pageCache.put(key, entry);
 
-            Page page = ref == null ? null : ref.get();
+            // The cache may have been cleared between the check and the put; clearCache() increments the generation
+            // before clearing, so if it has not changed now, any later clear will also remove this entry.
 
-            if (page != null)
+            if (generation.get() != startGeneration)
             {
-                return page;
+                pageCache.remove(key, entry);
+            } else
+            {
+                evictIfNecessary();
             }
+        }
+
+        return page;
+    }
+
+    /**
+     * Evicts the coldest unpinned pages until the cache is within its maximum size. Eviction is only performed after
+     * a page load, which is rare, so a linear scan is acceptable; synchronization keeps concurrent loads from
+     * evicting more pages than necessary.
+     */
+    private synchronized void evictIfNecessary()
+    {
+        if (!bounded)
+        {
+            return;
+        }
+
+        while (pageCache.size() > maximumSize)
+        {
+            Map.Entry<CachedPageKey, CachedPage> coldest = null;
+
+            for (Map.Entry<CachedPageKey, CachedPage> entry : pageCache.entrySet())
+            {
+                CachedPage candidate = entry.getValue();
 
-            // In rare race conditions, we may see the same page loaded multiple times across
-            // different threads. The last built one will "evict" the others from the page cache,
-            // and the earlier ones will be GCed.
+                if (candidate.pinned)
+                {
+                    continue;
+                }
 
-            page = pageLoader.loadPage(canonicalPageName, selector);
+                if (coldest == null || candidate.isColderThan(coldest.getValue()))
+                {
+                    coldest = entry;
+                }
+            }
 
-            ref = new SoftReference<Page>(page);
+            // Everything left is pinned, so the cache is allowed to grow past its maximum size.
 
-            pageCache.put(key, ref);
+            if (coldest == null)
+            {
+                return;
+            }
+
+            if (pageCache.remove(coldest.getKey()) != null)
+            {
+                evictionCount.incrementAndGet();
+            }
         }
     }
 
     public void clearCache()
     {
+        generation.incrementAndGet();
+
         pageCache.clear();
     }
 
     public Set<Page> getAllPages()
     {
-        return F.flow(pageCache.values()).map(new Mapper<SoftReference<Page>, Page>()
+        return F.flow(pageCache.values()).map(new Mapper<CachedPage, Page>()
         {
-            public Page map(SoftReference<Page> element)
+            public Page map(CachedPage element)
             {
-                return element.get();
+                return element.page;
             }
-        }).removeNulls().toSet();
+        }).toSet();
+    }
+
+    public PageCacheStatistics getCacheStatistics()
+    {
+        return statistics;
     }
 }
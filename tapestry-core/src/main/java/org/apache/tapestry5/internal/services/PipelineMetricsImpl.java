@@ -0,0 +1,239 @@
+// Copyright 2012 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.internal.services;
+
+import org.apache.tapestry5.SymbolConstants;
+import org.apache.tapestry5.internal.util.LatencyHistogram;
+import org.apache.tapestry5.ioc.annotations.Symbol;
+import org.apache.tapestry5.ioc.internal.util.CollectionFactory;
+import org.apache.tapestry5.ioc.services.PerThreadValue;
+import org.apache.tapestry5.ioc.services.PerthreadManager;
+import org.apache.tapestry5.services.PipelineMetrics;
+import org.apache.tapestry5.services.PipelineStageStatistics;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+
+public class PipelineMetricsImpl implements PipelineMetrics
+{
+    /**
+     * The stages in progress in a thread.
+     */
+    private static class Stages
+    {
+        String[] paths = new String[8];
+
+        long[] startNanos = new long[8];
+
+        int depth;
+
+        String pageName = "";
+
+        void push(String path, long start)
+        {
+            if (depth == paths.length)
+            {
+                String[] newPaths = new String[depth * 2];
+                long[] newStartNanos = new long[depth * 2];
+
+                System.arraycopy(paths, 0, newPaths, 0, depth);
+                System.arraycopy(startNanos, 0, newStartNanos, 0, depth);
+
+                paths = newPaths;
+                startNanos = newStartNanos;
+            }
+
+            paths[depth] = path;
+            startNanos[depth] = start;
+
+            depth++;
+        }
+    }
+
+    private static final Comparator<PipelineStageStatistics> BY_PATH_AND_PAGE = new Comparator<PipelineStageStatistics>()
+    {
+        public int compare(PipelineStageStatistics o1, PipelineStageStatistics o2)
+        {
+            int result = o1.getPath().compareTo(o2.getPath());
+
+            return result != 0 ? result : o1.getPageName().compareTo(o2.getPageName());
+        }
+    };
+
+    private final PerThreadValue<Stages> stagesValue;
+
+    /**
+     * Path to page name to histogram.
+     */
+    private final ConcurrentMap<String, ConcurrentMap<String, LatencyHistogram>> histograms = CollectionFactory.newConcurrentMap();
+
+    /**
+     * Parent path to stage name to child path; avoids building a new path string for each stage of each request.
+     */
+    private final ConcurrentMap<String, ConcurrentMap<String, String>> childPaths = CollectionFactory.newConcurrentMap();
+
+    private volatile boolean enabled;
+
+    public PipelineMetricsImpl(PerthreadManager perthreadManager,
+
+                               @Symbol(SymbolConstants.PIPELINE_METRICS_ENABLED)
+                               boolean enabled)
+    {
+        this.enabled = enabled;
+
+        stagesValue = perthreadManager.createValue();
+    }
+
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled)
+    {
+        this.enabled = enabled;
+    }
+
+    public boolean start(String stage)
+    {
+        if (!enabled)
+        {
+            return false;
+        }
+
+        Stages stages = stagesValue.get();
+
+        if (stages == null)
+        {
+            stages = stagesValue.set(new Stages());
+        }
+
+        String parentPath = stages.depth == 0 ? "" : stages.paths[stages.depth - 1];
+
+        stages.push(childPath(parentPath, stage), System.nanoTime());
+
+        return true;
+    }
+
+    private String childPath(String parentPath, String stage)
+    {
+        ConcurrentMap<String, String> children = get(childPaths, parentPath);
+
+        String result = children.get(stage);
+
+        if (result == null)
+        {
+            result = parentPath.length() == 0 ? stage : parentPath + "/" + stage;
+
+            children.putIfAbsent(stage, result);
+        }
+
+        return result;
+    }
+
+    public void end()
+    {
+        Stages stages = stagesValue.get();
+
+        if (stages == null || stages.depth == 0)
+        {
+            return;
+        }
+
+        stages.depth--;
+
+        long elapsed = System.nanoTime() - stages.startNanos[stages.depth];
+
+        String path = stages.paths[stages.depth];
+
+        stages.paths[stages.depth] = null;
+
+        ConcurrentMap<String, LatencyHistogram> byPage = get(histograms, path);
+
+        LatencyHistogram histogram = byPage.get(stages.pageName);
+
+        if (histogram == null)
+        {
+            LatencyHistogram newHistogram = new LatencyHistogram();
+
+            histogram = byPage.putIfAbsent(stages.pageName, newHistogram);
+
+            if (histogram == null)
+            {
+                histogram = newHistogram;
+            }
+        }
+
+        histogram.record(elapsed);
+    }
+
+    private static <V> ConcurrentMap<String, V> get(ConcurrentMap<String, ConcurrentMap<String, V>> map, String key)
+    {
+        ConcurrentMap<String, V> result = map.get(key);
+
+        if (result == null)
+        {
+            ConcurrentMap<String, V> newMap = CollectionFactory.newConcurrentMap();
+
+            result = map.putIfAbsent(key, newMap);
+
+            if (result == null)
+            {
+                result = newMap;
+            }
+        }
+
+        return result;
+    }
+
+    public void setPageName(String pageName)
+    {
+        Stages stages = stagesValue.get();
+
+        if (stages != null)
+        {
+            stages.pageName = pageName == null ? "" : pageName;
+        }
+    }
+
+    public List<PipelineStageStatistics> getStatistics()
+    {
+        List<PipelineStageStatistics> result = CollectionFactory.newList();
+
+        for (Map.Entry<String, ConcurrentMap<String, LatencyHistogram>> pathEntry : histograms.entrySet())
+        {
+            for (Map.Entry<String, LatencyHistogram> pageEntry : pathEntry.getValue().entrySet())
+            {
+                LatencyHistogram histogram = pageEntry.getValue();
+
+                result.add(new PipelineStageStatistics(pathEntry.getKey(), pageEntry.getKey(), histogram.getCount(),
+                        histogram.getMean(), histogram.getPercentile(50), histogram.getPercentile(90),
+                        histogram.getPercentile(99), histogram.getMax()));
+            }
+        }
+
+        Collections.sort(result, BY_PATH_AND_PAGE);
+
+        return result;
+    }
+
+    public void reset()
+    {
+        histograms.clear();
+    }
+}
@@ -0,0 +1,54 @@
+// Copyright 2012 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.internal.services;
+
+import org.apache.tapestry5.plastic.MethodAdvice;
+import org.apache.tapestry5.plastic.MethodInvocation;
+import org.apache.tapestry5.services.PipelineMetrics;
+
+/**
+ * Records the time spent in each invocation of an advised method as a stage of the request pipeline.
+ *
+ * @since 5.4
+ */
+public class PipelineTimingAdvice implements MethodAdvice
+{
+    private final PipelineMetrics metrics;
+
+    private final String stage;
+
+    public PipelineTimingAdvice(PipelineMetrics metrics, String stage)
+    {
+        this.metrics = metrics;
+        this.stage = stage;
+    }
+
+    public void advise(MethodInvocation invocation)
+    {
+        if (!metrics.start(stage))
+        {
+            invocation.proceed();
+            return;
+        }
+
+        try
+        {
+            invocation.proceed();
+        } finally
+        {
+            metrics.end();
+        }
+    }
+}
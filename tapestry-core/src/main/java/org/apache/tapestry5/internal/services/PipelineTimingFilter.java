@@ -0,0 +1,129 @@
+// Copyright 2012 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.internal.services;
+
+import org.apache.tapestry5.MarkupWriter;
+import org.apache.tapestry5.json.JSONObject;
+import org.apache.tapestry5.services.*;
+
+import java.io.IOException;
+
+/**
+ * Placed at the front of several pipelines to record the time spent in each with {@link PipelineMetrics}: the
+ * {@link RequestHandler} ("request"), {@link ComponentEventRequestHandler} ("event"), {@link PageRenderRequestHandler}
+ * ("render"), and the {@link MarkupRenderer} and {@link PartialMarkupRenderer} ("markup"). The event and render
+ * stages also identify the page the metrics are recorded against.
+ *
+ * @since 5.4
+ */
+public class PipelineTimingFilter implements RequestFilter, ComponentEventRequestFilter, PageRenderRequestFilter,
+        MarkupRendererFilter, PartialMarkupRendererFilter
+{
+    private final PipelineMetrics metrics;
+
+    public PipelineTimingFilter(PipelineMetrics metrics)
+    {
+        this.metrics = metrics;
+    }
+
+    public boolean service(Request request, Response response, RequestHandler handler) throws IOException
+    {
+        if (!metrics.start("request"))
+        {
+            return handler.service(request, response);
+        }
+
+        try
+        {
+            return handler.service(request, response);
+        } finally
+        {
+            metrics.end();
+        }
+    }
+
+    public void handle(ComponentEventRequestParameters parameters, ComponentEventRequestHandler handler)
+            throws IOException
+    {
+        if (!metrics.start("event"))
+        {
+            handler.handle(parameters);
+            return;
+        }
+
+        metrics.setPageName(parameters.getActivePageName());
+
+        try
+        {
+            handler.handle(parameters);
+        } finally
+        {
+            metrics.end();
+        }
+    }
+
+    public void handle(PageRenderRequestParameters parameters, PageRenderRequestHandler handler) throws IOException
+    {
+        if (!metrics.start("render"))
+        {
+            handler.handle(parameters);
+            return;
+        }
+
+        metrics.setPageName(parameters.getLogicalPageName());
+
+        try
+        {
+            handler.handle(parameters);
+        } finally
+        {
+            metrics.end();
+        }
+    }
+
+    public void renderMarkup(MarkupWriter writer, MarkupRenderer renderer)
+    {
+        if (!metrics.start("markup"))
+        {
+            renderer.renderMarkup(writer);
+            return;
+        }
+
+        try
+        {
+            renderer.renderMarkup(writer);
+        } finally
+        {
+            metrics.end();
+        }
+    }
+
+    public void renderMarkup(MarkupWriter writer, JSONObject reply, PartialMarkupRenderer renderer)
+    {
+        if (!metrics.start("markup"))
+        {
+            renderer.renderMarkup(writer, reply);
+            return;
+        }
+
+        try
+        {
+            renderer.renderMarkup(writer, reply);
+        } finally
+        {
+            metrics.end();
+        }
+    }
+}
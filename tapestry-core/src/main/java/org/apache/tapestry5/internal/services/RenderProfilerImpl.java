@@ -0,0 +1,185 @@
+// Copyright 2012 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.internal.services;
+
+import org.apache.tapestry5.SymbolConstants;
+import org.apache.tapestry5.internal.util.StripedCounter;
+import org.apache.tapestry5.ioc.annotations.Symbol;
+import org.apache.tapestry5.ioc.internal.util.CollectionFactory;
+import org.apache.tapestry5.services.RenderProfile;
+import org.apache.tapestry5.services.RenderProfiler;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+
+public class RenderProfilerImpl implements RenderProfiler
+{
+    private static class Totals
+    {
+        final StripedCounter renders = new StripedCounter(), commands = new StripedCounter(),
+                elapsed = new StripedCounter(), allocated = new StripedCounter();
+
+        void add(long commandCount, long elapsedNanos, long allocatedBytes)
+        {
+            renders.increment();
+            commands.add(commandCount);
+            elapsed.add(elapsedNanos);
+            allocated.add(allocatedBytes);
+        }
+
+        RenderProfile toProfile(String name)
+        {
+            return new RenderProfile(name, renders.get(), commands.get(), elapsed.get(), allocated.get());
+        }
+    }
+
+    private static final Comparator<RenderProfile> BY_ELAPSED_DESCENDING = new Comparator<RenderProfile>()
+    {
+        public int compare(RenderProfile o1, RenderProfile o2)
+        {
+            long delta = o2.getElapsedNanos() - o1.getElapsedNanos();
+
+            return delta < 0 ? -1 : delta > 0 ? 1 : 0;
+        }
+    };
+
+    private final ConcurrentMap<String, Totals> pages = CollectionFactory.newConcurrentMap();
+
+    private final ConcurrentMap<String, Totals> components = CollectionFactory.newConcurrentMap();
+
+    private volatile boolean enabled;
+
+    /**
+     * The Sun/Oracle (com.sun.management) extension of ThreadMXBean can report bytes allocated by a thread; it is
+     * accessed reflectively, as it is not available in every JVM.
+     */
+    private final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+
+    private final Method getThreadAllocatedBytes = findAllocatedBytesMethod(threadBean);
+
+    public RenderProfilerImpl(@Symbol(SymbolConstants.RENDER_PROFILING_ENABLED) boolean enabled)
+    {
+        this.enabled = enabled;
+    }
+
+    private static Method findAllocatedBytesMethod(ThreadMXBean threadBean)
+    {
+        try
+        {
+            Class beanInterface = Class.forName("com.sun.management.ThreadMXBean");
+
+            if (!beanInterface.isInstance(threadBean))
+                return null;
+
+            Method method = beanInterface.getMethod("getThreadAllocatedBytes", long.class);
+
+            // Verify that allocation measurement is supported and enabled.
+
+            Object result = method.invoke(threadBean, Thread.currentThread().getId());
+
+            return ((Long) result) < 0 ? null : method;
+        } catch (Exception ex)
+        {
+            return null;
+        }
+    }
+
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled)
+    {
+        this.enabled = enabled;
+    }
+
+    public long getAllocatedBytes()
+    {
+        if (getThreadAllocatedBytes == null)
+            return 0;
+
+        try
+        {
+            return (Long) getThreadAllocatedBytes.invoke(threadBean, Thread.currentThread().getId());
+        } catch (Exception ex)
+        {
+            return 0;
+        }
+    }
+
+    public void recordComponent(String componentClassName, long commandCount, long elapsedNanos, long allocatedBytes)
+    {
+        get(components, componentClassName).add(commandCount, elapsedNanos, allocatedBytes);
+    }
+
+    public void recordPage(String pageName, long commandCount, long elapsedNanos, long allocatedBytes)
+    {
+        get(pages, pageName).add(commandCount, elapsedNanos, allocatedBytes);
+    }
+
+    private static Totals get(ConcurrentMap<String, Totals> map, String name)
+    {
+        Totals result = map.get(name);
+
+        if (result == null)
+        {
+            Totals newTotals = new Totals();
+
+            result = map.putIfAbsent(name, newTotals);
+
+            if (result == null)
+                result = newTotals;
+        }
+
+        return result;
+    }
+
+    public List<RenderProfile> getPageProfiles()
+    {
+        return toProfiles(pages);
+    }
+
+    public List<RenderProfile> getComponentProfiles()
+    {
+        return toProfiles(components);
+    }
+
+    private static List<RenderProfile> toProfiles(Map<String, Totals> map)
+    {
+        List<RenderProfile> result = CollectionFactory.newList();
+
+        for (Map.Entry<String, Totals> entry : map.entrySet())
+        {
+            result.add(entry.getValue().toProfile(entry.getKey()));
+        }
+
+        Collections.sort(result, BY_ELAPSED_DESCENDING);
+
+        return result;
+    }
+
+    public void reset()
+    {
+        pages.clear();
+        components.clear();
+    }
+}
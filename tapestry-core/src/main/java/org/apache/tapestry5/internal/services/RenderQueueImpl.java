@@ -1,4 +1,4 @@
-// Copyright 2006, 2007, 2008, 2010, 2011 The Apache Software Foundation
+// Copyright 2006, 2007, 2008, 2010, 2011, 2012 The Apache Software Foundation
 //
 // Licensed under the Apache License, Version 2.0 (the "License");
 // you may not use this file except in compliance with the License.
@@ -22,8 +22,11 @@ import org.apache.tapestry5.ioc.internal.util.InternalUtils;
 import org.apache.tapestry5.ioc.util.Stack;
 import org.apache.tapestry5.runtime.RenderCommand;
 import org.apache.tapestry5.runtime.RenderQueue;
+import org.apache.tapestry5.services.RenderProfiler;
 import org.slf4j.Logger;
 
+import java.util.Map;
+
 public class RenderQueueImpl implements RenderQueue
 {
     private static final int INITIAL_QUEUE_DEPTH = 200;
@@ -34,9 +37,29 @@ public class RenderQueueImpl implements RenderQueue
 
     private final Logger logger;
 
+    private final RenderProfiler profiler;
+
+    private final String pageName;
+
     public RenderQueueImpl(Logger logger)
+    {
+        this(logger, null, null);
+    }
+
+    /**
+     * @param logger
+     *         used to log render commands and render queue statistics
+     * @param profiler
+     *         collects render profiling data, if enabled (may be null)
+     * @param pageName
+     *         name of page being rendered, used when profiling
+     * @since 5.4
+     */
+    public RenderQueueImpl(Logger logger, RenderProfiler profiler, String pageName)
     {
         this.logger = logger;
+        this.profiler = profiler;
+        this.pageName = pageName;
     }
 
     public void push(RenderCommand command)
@@ -45,13 +68,23 @@ public class RenderQueueImpl implements RenderQueue
         queue.push(command);
     }
 
+    /**
+     * Executes commands until the queue is empty. When the {@link RenderProfiler} is enabled, each command is also
+     * measured, accumulating totals per component class; the totals are passed to the profiler once the queue is
+     * empty.
+     */
     public void run(MarkupWriter writer)
     {
         RenderCommand command = null;
 
         boolean traceEnabled = logger.isTraceEnabled(TapestryMarkers.RENDER_COMMANDS);
 
+        boolean profiling = profiler != null && profiler.isEnabled();
+
+        Map<String, long[]> componentTotals = profiling ? CollectionFactory.<String, long[]>newMap() : null;
+
         long startNanos = System.nanoTime();
+        long startBytes = profiling ? profiler.getAllocatedBytes() : 0;
         int commandCount = 0;
         int maxDepth = 0;
 
@@ -70,7 +103,41 @@ public class RenderQueueImpl implements RenderQueue
 
                 if (traceEnabled) logger.trace(TapestryMarkers.RENDER_COMMANDS, "Executing: {}", command);
 
+                if (!profiling)
+                {
+                    command.render(writer, this);
+                    continue;
+                }
+
+                String componentClassName = getRenderingComponentClassName();
+
+                long commandStartNanos = System.nanoTime();
+                long commandStartBytes = profiler.getAllocatedBytes();
+
                 command.render(writer, this);
+
+                // Commands that execute before any component has started (the page's root element) are attributed to
+                // the component they start.
+
+                if (componentClassName == null)
+                {
+                    componentClassName = getRenderingComponentClassName();
+                }
+
+                if (componentClassName != null)
+                {
+                    long[] totals = componentTotals.get(componentClassName);
+
+                    if (totals == null)
+                    {
+                        totals = new long[3];
+                        componentTotals.put(componentClassName, totals);
+                    }
+
+                    totals[0]++;
+                    totals[1] += System.nanoTime() - commandStartNanos;
+                    totals[2] += profiler.getAllocatedBytes() - commandStartBytes;
+                }
             }
         }
         catch (RuntimeException ex)
@@ -92,6 +159,25 @@ public class RenderQueueImpl implements RenderQueue
                                    commandCount,
                                    maxDepth,
                                    elapsedSeconds));
+
+        if (profiling)
+        {
+            for (Map.Entry<String, long[]> entry : componentTotals.entrySet())
+            {
+                long[] totals = entry.getValue();
+
+                profiler.recordComponent(entry.getKey(), totals[0], totals[1], totals[2]);
+            }
+
+            profiler.recordPage(pageName, commandCount, elapsedNanos, profiler.getAllocatedBytes() - startBytes);
+        }
+    }
+
+    private String getRenderingComponentClassName()
+    {
+        return renderingComponents.isEmpty()
+               ? null
+               : renderingComponents.peek().getComponentModel().getComponentClassName();
     }
 
     public void startComponent(ComponentResources resources)
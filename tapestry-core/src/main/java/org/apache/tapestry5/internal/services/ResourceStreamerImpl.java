@@ -1,4 +1,4 @@
-// Copyright 2006, 2007, 2008, 2009, 2010, 2011 The Apache Software Foundation
+// Copyright 2006, 2007, 2008, 2009, 2010, 2011, 2012 The Apache Software Foundation
 //
 // Licensed under the Apache License, Version 2.0 (the "License");
 // you may not use this file except in compliance with the License.
@@ -18,26 +18,67 @@ import org.apache.tapestry5.SymbolConstants;
 import org.apache.tapestry5.internal.IOOperation;
 import org.apache.tapestry5.internal.InternalConstants;
 import org.apache.tapestry5.internal.TapestryInternalUtils;
+import org.apache.tapestry5.internal.services.assets.AssetCache;
+import org.apache.tapestry5.internal.services.assets.BytestreamCache;
 import org.apache.tapestry5.internal.services.assets.ResourceChangeTracker;
+import org.apache.tapestry5.internal.services.assets.StreamableResourceImpl;
+import org.apache.tapestry5.internal.services.assets.URLStreamableResource;
 import org.apache.tapestry5.ioc.OperationTracker;
 import org.apache.tapestry5.ioc.Resource;
 import org.apache.tapestry5.ioc.annotations.Symbol;
+import org.apache.tapestry5.ioc.internal.util.CollectionFactory;
+import org.apache.tapestry5.ioc.internal.util.InternalUtils;
+import org.apache.tapestry5.services.ContentEncoder;
 import org.apache.tapestry5.services.Request;
 import org.apache.tapestry5.services.Response;
 import org.apache.tapestry5.services.ResponseCompressionAnalyzer;
+import org.apache.tapestry5.services.assets.CacheControlAnalyzer;
 import org.apache.tapestry5.services.assets.CompressionStatus;
 import org.apache.tapestry5.services.assets.StreamableResource;
 import org.apache.tapestry5.services.assets.StreamableResourceProcessing;
 import org.apache.tapestry5.services.assets.StreamableResourceSource;
 
 import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.List;
 
 public class ResourceStreamerImpl implements ResourceStreamer
 {
     static final String IF_MODIFIED_SINCE_HEADER = "If-Modified-Since";
 
+    static final String IF_NONE_MATCH_HEADER = "If-None-Match";
+
+    static final String ETAG_HEADER = "ETag";
+
+    static final String CACHE_CONTROL_HEADER = "Cache-Control";
+
+    static final String RANGE_HEADER = "Range";
+
+    static final String IF_RANGE_HEADER = "If-Range";
+
+    static final String ACCEPT_RANGES_HEADER = "Accept-Ranges";
+
+    static final String CONTENT_RANGE_HEADER = "Content-Range";
+
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * Request attributes used to have the servlet container (Tomcat, and others that follow its lead) send a file's
+     * content directly, rather than it being streamed by the application.
+     */
+    static final String SENDFILE_SUPPORT_ATTRIBUTE = "org.apache.tomcat.sendfile.support";
+
+    static final String SENDFILE_FILENAME_ATTRIBUTE = "org.apache.tomcat.sendfile.filename";
+
+    static final String SENDFILE_START_ATTRIBUTE = "org.apache.tomcat.sendfile.start";
+
+    static final String SENDFILE_END_ATTRIBUTE = "org.apache.tomcat.sendfile.end";
+
     private final Request request;
 
     private final Response response;
@@ -52,6 +93,12 @@ public class ResourceStreamerImpl implements ResourceStreamer
 
     private final ResourceChangeTracker resourceChangeTracker;
 
+    private final AssetCache assetCache;
+
+    private final int compressionCutoff;
+
+    private final CacheControlAnalyzer cacheControlAnalyzer;
+
     public ResourceStreamerImpl(Request request,
 
                                 Response response,
@@ -63,7 +110,14 @@ public class ResourceStreamerImpl implements ResourceStreamer
                                 OperationTracker tracker,
 
                                 @Symbol(SymbolConstants.PRODUCTION_MODE)
-                                boolean productionMode, ResourceChangeTracker resourceChangeTracker)
+                                boolean productionMode, ResourceChangeTracker resourceChangeTracker,
+
+                                AssetCache assetCache,
+
+                                @Symbol(SymbolConstants.MIN_GZIP_SIZE)
+                                int compressionCutoff,
+
+                                CacheControlAnalyzer cacheControlAnalyzer)
     {
         this.request = request;
         this.response = response;
@@ -73,6 +127,9 @@ public class ResourceStreamerImpl implements ResourceStreamer
         this.tracker = tracker;
         this.productionMode = productionMode;
         this.resourceChangeTracker = resourceChangeTracker;
+        this.assetCache = assetCache;
+        this.compressionCutoff = compressionCutoff;
+        this.cacheControlAnalyzer = cacheControlAnalyzer;
     }
 
     public void streamResource(final Resource resource) throws IOException
@@ -87,7 +144,11 @@ public class ResourceStreamerImpl implements ResourceStreamer
         {
             public void perform() throws IOException
             {
-                StreamableResourceProcessing processing = analyzer.isGZipSupported() ? StreamableResourceProcessing.COMPRESSION_ENABLED
+                // The StreamableResourceSource pipeline only compresses using GZIP; other encodings are applied
+                // as the resource is streamed.
+
+                StreamableResourceProcessing processing = isGZip(analyzer.getContentEncoder())
+                        ? StreamableResourceProcessing.COMPRESSION_ENABLED
                         : StreamableResourceProcessing.COMPRESSION_DISABLED;
 
                 StreamableResource streamable = streamableResourceSource.getStreamableResource(resource, processing, resourceChangeTracker);
@@ -97,10 +158,266 @@ public class ResourceStreamerImpl implements ResourceStreamer
         });
     }
 
+    private static boolean isGZip(ContentEncoder encoder)
+    {
+        return encoder != null && encoder.getEncoding().equals(InternalConstants.GZIP_CONTENT_ENCODING);
+    }
+
     public void streamResource(StreamableResource streamable) throws IOException
     {
+        String contentEncoding = null;
+
+        if (streamable.getCompression() == CompressionStatus.COMPRESSED)
+        {
+            contentEncoding = InternalConstants.GZIP_CONTENT_ENCODING;
+        } else if (streamable.getCompression() == CompressionStatus.COMPRESSABLE
+                && streamable.getSize() >= compressionCutoff)
+        {
+            ContentEncoder encoder = analyzer.getContentEncoder();
+
+            if (encoder != null && !isGZip(encoder))
+            {
+                streamable = encode(streamable, encoder);
+                contentEncoding = encoder.getEncoding();
+            }
+        }
+
         long lastModified = streamable.getLastModified();
 
+        String eTag = streamable.getETag();
+
+        if (isNotModified(eTag, lastModified))
+        {
+            response.setHeader(ETAG_HEADER, eTag);
+            response.sendError(HttpServletResponse.SC_NOT_MODIFIED, "");
+            return;
+        }
+
+        // Prevent the upstream code from compressing when we don't want to.
+
+        response.disableCompression();
+
+        response.setDateHeader("Last-Modified", lastModified);
+        response.setHeader(ETAG_HEADER, eTag);
+
+        if (productionMode)
+        {
+            response.setDateHeader("Expires", lastModified + InternalConstants.TEN_YEARS);
+        }
+
+        String cacheControl = cacheControlAnalyzer.getCacheControl(streamable.getContentType());
+
+        if (cacheControl != null)
+        {
+            response.setHeader(CACHE_CONTROL_HEADER, cacheControl);
+        }
+
+        if (contentEncoding != null)
+        {
+            response.setHeader(InternalConstants.CONTENT_ENCODING_HEADER, contentEncoding);
+        }
+
+        response.setHeader(ACCEPT_RANGES_HEADER, "bytes");
+
+        List<ByteRange> ranges = getRanges(streamable, eTag);
+
+        if (ranges == null)
+        {
+            response.setContentLength(streamable.getSize());
+
+            if (sendFile(streamable, 0, streamable.getSize()))
+            {
+                return;
+            }
+
+            OutputStream os = response.getOutputStream(streamable.getContentType());
+
+            streamable.streamTo(os);
+
+            os.close();
+
+            return;
+        }
+
+        if (ranges.isEmpty())
+        {
+            response.setHeader(CONTENT_RANGE_HEADER, "bytes */" + streamable.getSize());
+            response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE, "");
+            return;
+        }
+
+        response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+
+        if (ranges.size() == 1)
+        {
+            streamRange(streamable, ranges.get(0));
+        } else
+        {
+            streamRanges(streamable, ranges);
+        }
+    }
+
+    /**
+     * Returns the ranges requested by a Range header, or null if the complete content should be sent: no Range header,
+     * a header that is not understood, or an If-Range header that does not match the current content.
+     */
+    private List<ByteRange> getRanges(StreamableResource streamable, String eTag)
+    {
+        String range = request.getHeader(RANGE_HEADER);
+
+        if (range == null)
+            return null;
+
+        String ifRange = request.getHeader(IF_RANGE_HEADER);
+
+        if (ifRange != null)
+        {
+            if (ifRange.startsWith("\"") || ifRange.startsWith("W/"))
+            {
+                // Strong comparison; a weak tag never matches.
+
+                if (!ifRange.equals(eTag))
+                    return null;
+            } else
+            {
+                try
+                {
+                    // HTTP dates have a resolution of one second.
+
+                    if (request.getDateHeader(IF_RANGE_HEADER) / 1000 != streamable.getLastModified() / 1000)
+                        return null;
+                } catch (IllegalArgumentException ex)
+                {
+                    return null;
+                }
+            }
+        }
+
+        return ByteRange.parse(range, streamable.getSize());
+    }
+
+    private void streamRange(StreamableResource streamable, ByteRange range) throws IOException
+    {
+        response.setHeader(CONTENT_RANGE_HEADER, range.toContentRange(streamable.getSize()));
+        response.setContentLength((int) range.getLength());
+
+        if (sendFile(streamable, range.start, range.end + 1))
+        {
+            return;
+        }
+
+        OutputStream os = response.getOutputStream(streamable.getContentType());
+
+        copyRange(streamable, range, os);
+
+        os.close();
+    }
+
+    /**
+     * Sends several ranges as a multipart/byteranges response.
+     */
+    private void streamRanges(StreamableResource streamable, List<ByteRange> ranges) throws IOException
+    {
+        String boundary = "TAPESTRY-" + Long.toHexString(System.nanoTime());
+
+        List<byte[]> partHeaders = CollectionFactory.newList();
+
+        long contentLength = 0;
+
+        for (ByteRange range : ranges)
+        {
+            byte[] partHeader = String.format("\r\n--%s\r\nContent-Type: %s\r\nContent-Range: %s\r\n\r\n",
+                    boundary, streamable.getContentType(), range.toContentRange(streamable.getSize())).getBytes(
+                    "US-ASCII");
+
+            partHeaders.add(partHeader);
+
+            contentLength += partHeader.length + range.getLength();
+        }
+
+        byte[] closing = String.format("\r\n--%s--\r\n", boundary).getBytes("US-ASCII");
+
+        contentLength += closing.length;
+
+        response.setContentLength((int) contentLength);
+
+        OutputStream os = response.getOutputStream("multipart/byteranges; boundary=" + boundary);
+
+        for (int i = 0; i < ranges.size(); i++)
+        {
+            os.write(partHeaders.get(i));
+
+            copyRange(streamable, ranges.get(i), os);
+        }
+
+        os.write(closing);
+
+        os.close();
+    }
+
+    /**
+     * Copies a range of the content; the content stream is skipped forward to the start of the range (for file
+     * content, this is a seek rather than a read).
+     */
+    private static void copyRange(StreamableResource streamable, ByteRange range, OutputStream os) throws IOException
+    {
+        InputStream stream = streamable.openStream();
+
+        try
+        {
+            long toSkip = range.start;
+
+            while (toSkip > 0)
+            {
+                long skipped = stream.skip(toSkip);
+
+                if (skipped <= 0)
+                {
+                    // skip() may make no progress without being at the end of the stream.
+
+                    if (stream.read() < 0)
+                        return;
+
+                    skipped = 1;
+                }
+
+                toSkip -= skipped;
+            }
+
+            byte[] buffer = new byte[BUFFER_SIZE];
+
+            long remaining = range.getLength();
+
+            while (remaining > 0)
+            {
+                int length = stream.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+
+                if (length < 0)
+                    return;
+
+                os.write(buffer, 0, length);
+
+                remaining -= length;
+            }
+        } finally
+        {
+            InternalUtils.close(stream);
+        }
+    }
+
+    /**
+     * Checks the conditional request headers. When present, If-None-Match takes precedence over If-Modified-Since, as
+     * the entity tag does not depend on file timestamps (which may differ between servers in a cluster).
+     */
+    private boolean isNotModified(String eTag, long lastModified)
+    {
+        String ifNoneMatch = request.getHeader(IF_NONE_MATCH_HEADER);
+
+        if (ifNoneMatch != null)
+        {
+            return matches(ifNoneMatch, eTag);
+        }
+
         long ifModifiedSince = 0;
 
         try
@@ -113,37 +430,91 @@ public class ResourceStreamerImpl implements ResourceStreamer
             ifModifiedSince = -1;
         }
 
-        if (ifModifiedSince > 0)
+        return ifModifiedSince > 0 && ifModifiedSince >= lastModified;
+    }
+
+    /**
+     * Compares the entity tags of an If-None-Match header to the resource's entity tag, using the weak comparison
+     * function (a "W/" prefix is ignored).
+     */
+    static boolean matches(String ifNoneMatch, String eTag)
+    {
+        for (String tag : TapestryInternalUtils.splitAtCommas(ifNoneMatch))
         {
-            if (ifModifiedSince >= lastModified)
-            {
-                response.sendError(HttpServletResponse.SC_NOT_MODIFIED, "");
-                return;
-            }
+            if (tag.equals("*"))
+                return true;
+
+            if (tag.startsWith("W/"))
+                tag = tag.substring(2);
+
+            if (tag.equals(eTag))
+                return true;
         }
 
-        // Prevent the upstream code from compressing when we don't want to.
+        return false;
+    }
 
-        response.disableCompression();
+    /**
+     * Returns the content encoded using the encoder; encoded content is stored in the {@link AssetCache}, alongside
+     * the GZIP compressed content produced by the {@link StreamableResourceSource}. The content is keyed on its entity
+     * tag (a digest of the content), along with the content type and last modified time, which are carried over to the
+     * encoded content. Only compressable content is encoded, which never includes content read directly from a URL.
+     */
+    private StreamableResource encode(StreamableResource streamable, ContentEncoder encoder) throws IOException
+    {
+        String key = String.format("%s:%s:%d:%s", encoder.getEncoding(), streamable.getContentType(),
+                streamable.getLastModified(), streamable.getETag());
 
-        response.setDateHeader("Last-Modified", lastModified);
+        StreamableResource result = assetCache.get(key);
 
-        if (productionMode)
+        if (result == null)
         {
-            response.setDateHeader("Expires", lastModified + InternalConstants.TEN_YEARS);
+            ByteArrayOutputStream bos = new ByteArrayOutputStream(streamable.getSize());
+
+            OutputStream encoded = new BufferedOutputStream(encoder.encode(bos));
+
+            streamable.streamTo(encoded);
+
+            encoded.close();
+
+            result = assetCache.put(key, new StreamableResourceImpl(streamable.getDescription(),
+                    streamable.getContentType(), CompressionStatus.COMPRESSED, streamable.getLastModified(),
+                    new BytestreamCache(bos)));
         }
 
-        response.setContentLength(streamable.getSize());
+        return result;
+    }
 
-        if (streamable.getCompression() == CompressionStatus.COMPRESSED)
+    /**
+     * Has the container send the content directly from a file, when possible.
+     *
+     * @param start
+     *         offset of the first byte to send
+     * @param end
+     *         offset after the last byte to send
+     * @return true if the container will send the content
+     */
+    private boolean sendFile(StreamableResource streamable, long start, long end)
+    {
+        if (!(streamable instanceof URLStreamableResource)
+                || !Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT_ATTRIBUTE)))
         {
-            response.setHeader(InternalConstants.CONTENT_ENCODING_HEADER, InternalConstants.GZIP_CONTENT_ENCODING);
+            return false;
         }
 
-        OutputStream os = response.getOutputStream(streamable.getContentType());
+        File file = ((URLStreamableResource) streamable).getFile();
 
-        streamable.streamTo(os);
+        if (file == null)
+        {
+            return false;
+        }
 
-        os.close();
+        response.setHeader("Content-Type", streamable.getContentType());
+
+        request.setAttribute(SENDFILE_FILENAME_ATTRIBUTE, file.getAbsolutePath());
+        request.setAttribute(SENDFILE_START_ATTRIBUTE, start);
+        request.setAttribute(SENDFILE_END_ATTRIBUTE, end);
+
+        return true;
     }
 }
@@ -1,4 +1,4 @@
-// Copyright 2009, 2010 The Apache Software Foundation
+// Copyright 2009, 2010, 2012 The Apache Software Foundation
 //
 // Licensed under the Apache License, Version 2.0 (the "License");
 // you may not use this file except in compliance with the License.
@@ -19,8 +19,11 @@ import java.util.Collection;
 import javax.servlet.http.HttpServletRequest;
 
 import org.apache.tapestry5.SymbolConstants;
+import org.apache.tapestry5.internal.InternalConstants;
 import org.apache.tapestry5.internal.TapestryInternalUtils;
 import org.apache.tapestry5.ioc.annotations.Symbol;
+import org.apache.tapestry5.services.ContentEncoder;
+import org.apache.tapestry5.services.ContentEncoderSource;
 import org.apache.tapestry5.services.ResponseCompressionAnalyzer;
 import org.apache.tapestry5.services.assets.CompressionAnalyzer;
 
@@ -32,13 +35,16 @@ public class ResponseCompressionAnalyzerImpl implements ResponseCompressionAnaly
 
     private final CompressionAnalyzer analyzer;
 
+    private final ContentEncoderSource encoderSource;
+
     public ResponseCompressionAnalyzerImpl(HttpServletRequest request, CompressionAnalyzer analyzer, @Deprecated
     Collection<String> configuration, @Symbol(SymbolConstants.GZIP_COMPRESSION_ENABLED)
-    boolean gzipCompressionEnabled)
+    boolean gzipCompressionEnabled, ContentEncoderSource encoderSource)
     {
         this.request = request;
         this.analyzer = analyzer;
         this.gzipCompressionEnabled = gzipCompressionEnabled;
+        this.encoderSource = encoderSource;
     }
 
     public boolean isGZipSupported()
@@ -46,7 +52,7 @@ public class ResponseCompressionAnalyzerImpl implements ResponseCompressionAnaly
         if (!gzipCompressionEnabled)
             return false;
 
-        String supportedEncodings = request.getHeader("Accept-Encoding");
+        String supportedEncodings = request.getHeader(InternalConstants.ACCEPT_ENCODING_HEADER);
 
         if (supportedEncodings == null)
             return false;
@@ -60,6 +66,14 @@ public class ResponseCompressionAnalyzerImpl implements ResponseCompressionAnaly
         return false;
     }
 
+    public ContentEncoder getContentEncoder()
+    {
+        if (!gzipCompressionEnabled)
+            return null;
+
+        return encoderSource.negotiate(request.getHeader(InternalConstants.ACCEPT_ENCODING_HEADER));
+    }
+
     public boolean isCompressable(String contentType)
     {
         return analyzer.isCompressable(contentType);
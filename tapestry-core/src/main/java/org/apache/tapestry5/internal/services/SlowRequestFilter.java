@@ -0,0 +1,71 @@
+// Copyright 2012 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.internal.services;
+
+import org.apache.tapestry5.ioc.services.OperationRecorder;
+import org.apache.tapestry5.ioc.services.OperationTiming;
+import org.apache.tapestry5.services.*;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Records the operations of each request while the {@link SlowRequestLog} is enabled, and adds requests that exceed
+ * the threshold to the log.
+ *
+ * @since 5.4
+ */
+public class SlowRequestFilter implements RequestFilter
+{
+    private final SlowRequestLog log;
+
+    private final OperationRecorder recorder;
+
+    public SlowRequestFilter(SlowRequestLog log, OperationRecorder recorder)
+    {
+        this.log = log;
+        this.recorder = recorder;
+    }
+
+    public boolean service(Request request, Response response, RequestHandler handler) throws IOException
+    {
+        long threshold = log.getThreshold();
+
+        if (threshold == 0)
+        {
+            return handler.service(request, response);
+        }
+
+        long startNanos = System.nanoTime();
+
+        recorder.startRecording();
+
+        try
+        {
+            return handler.service(request, response);
+        } finally
+        {
+            List<OperationTiming> operations = recorder.stopRecording();
+
+            long elapsedNanos = System.nanoTime() - startNanos;
+
+            if (elapsedNanos >= threshold * 1000000L)
+            {
+                log.add(new SlowRequest(request.getMethod(), request.getPath(), System.currentTimeMillis(),
+                        elapsedNanos, operations));
+            }
+        }
+    }
+}
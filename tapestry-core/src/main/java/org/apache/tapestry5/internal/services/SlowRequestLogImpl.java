@@ -0,0 +1,95 @@
+// Copyright 2012 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.internal.services;
+
+import org.apache.tapestry5.SymbolConstants;
+import org.apache.tapestry5.ioc.annotations.IntermediateType;
+import org.apache.tapestry5.ioc.annotations.Symbol;
+import org.apache.tapestry5.ioc.internal.util.CollectionFactory;
+import org.apache.tapestry5.ioc.util.TimeInterval;
+import org.apache.tapestry5.services.SlowRequest;
+import org.apache.tapestry5.services.SlowRequestLog;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Keeps the captured requests in a ring buffer.
+ */
+public class SlowRequestLogImpl implements SlowRequestLog
+{
+    private volatile long threshold;
+
+    // Guarded by this
+
+    private final SlowRequest[] buffer;
+
+    private int next, count;
+
+    public SlowRequestLogImpl(@Symbol(SymbolConstants.SLOW_REQUEST_THRESHOLD)
+                              @IntermediateType(TimeInterval.class)
+                              long threshold,
+
+                              @Symbol(SymbolConstants.SLOW_REQUEST_CAPTURE_SIZE)
+                              int captureSize)
+    {
+        assert captureSize > 0;
+
+        this.threshold = Math.max(0, threshold);
+
+        buffer = new SlowRequest[captureSize];
+    }
+
+    public long getThreshold()
+    {
+        return threshold;
+    }
+
+    public void setThreshold(long thresholdMillis)
+    {
+        threshold = Math.max(0, thresholdMillis);
+    }
+
+    public synchronized void add(SlowRequest request)
+    {
+        assert request != null;
+
+        buffer[next] = request;
+
+        next = (next + 1) % buffer.length;
+
+        count = Math.min(count + 1, buffer.length);
+    }
+
+    public synchronized List<SlowRequest> getSlowRequests()
+    {
+        List<SlowRequest> result = CollectionFactory.newList();
+
+        for (int i = 1; i <= count; i++)
+        {
+            result.add(buffer[(next - i + buffer.length) % buffer.length]);
+        }
+
+        return result;
+    }
+
+    public synchronized void clear()
+    {
+        Arrays.fill(buffer, null);
+
+        next = 0;
+        count = 0;
+    }
+}
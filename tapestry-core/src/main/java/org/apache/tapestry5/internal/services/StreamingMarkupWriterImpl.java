@@ -0,0 +1,214 @@
+// Copyright 2012 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.internal.services;
+
+import org.apache.tapestry5.dom.DocumentStreamer;
+import org.apache.tapestry5.dom.Element;
+import org.apache.tapestry5.dom.MarkupModel;
+import org.apache.tapestry5.ioc.internal.util.CollectionFactory;
+
+import java.io.PrintWriter;
+import java.util.List;
+
+/**
+ * A {@link org.apache.tapestry5.MarkupWriter} that writes each element to the response as soon as it is complete,
+ * rather than building the entire {@link org.apache.tapestry5.dom.Document} first; the document only contains the
+ * currently open elements. Used for pages that enable {@link org.apache.tapestry5.MetaDataConstants#STREAM_MARKUP}.
+ * <p/>
+ * For HTML documents, the root element and the {@code <body>} are kept in the document until rendering completes, so
+ * that the {@link DocumentLinker} may add content at the end of the body. Nothing is written until the body starts,
+ * at which point the {@linkplain #addHeadCommitCallback(Runnable) head commit callbacks} are invoked, to add any
+ * content to the {@code <head>} that has been collected so far; the head is then written and, optionally, flushed
+ * to the client (see {@link org.apache.tapestry5.MetaDataConstants#FLUSH_HEAD}), so that the browser can begin
+ * loading stylesheets and scripts while the rest of the page renders.
+ * <p/>
+ * Forms are held back: nothing inside a {@code <form>}, nor the form itself, is written when it completes, since the
+ * {@link org.apache.tapestry5.corelib.components.Form} component revisits its content as it finishes (adding the
+ * hidden form data field, and possibly the {@code enctype} attribute). A held form is written once later content of
+ * its container completes, or when the document is finished.
+ *
+ * @since 5.4
+ */
+public class StreamingMarkupWriterImpl extends MarkupWriterImpl
+{
+    private final PrintWriter writer;
+
+    private final boolean flushHead;
+
+    private final DocumentStreamer streamer;
+
+    private final List<Runnable> headCommitCallbacks = CollectionFactory.newList();
+
+    /**
+     * The number of currently open held elements.
+     */
+    private int heldDepth;
+
+    private Element head, body;
+
+    private boolean htmlRoot;
+
+    /**
+     * @param model     markup model for the document
+     * @param encoding  character encoding of the response
+     * @param writer    to which markup is written
+     * @param flushHead if true, the writer is flushed once the head has been written
+     */
+    public StreamingMarkupWriterImpl(MarkupModel model, String encoding, PrintWriter writer, boolean flushHead)
+    {
+        super(model, encoding);
+
+        this.writer = writer;
+        this.flushHead = flushHead;
+
+        streamer = new DocumentStreamer(getDocument(), writer);
+    }
+
+    /**
+     * Adds a callback to be invoked just before the {@code <head>} element is written. Once the head is written, it
+     * may no longer be modified. Callbacks are invoked in the reverse of the order they were added, just as nested
+     * {@link org.apache.tapestry5.services.MarkupRendererFilter}s finish: a filter nested inside another (for example,
+     * the one for {@link org.apache.tapestry5.services.javascript.JavaScriptSupport}, inside the one for the
+     * {@link DocumentLinker}) gets to contribute its content first.
+     */
+    public void addHeadCommitCallback(Runnable callback)
+    {
+        assert callback != null;
+
+        headCommitCallbacks.add(callback);
+    }
+
+    @Override
+    public Element element(String name, Object... namesAndValues)
+    {
+        Element element = super.element(name, namesAndValues);
+
+        elementDidStart(element);
+
+        return element;
+    }
+
+    @Override
+    public Element elementNS(String namespace, String elementName)
+    {
+        Element element = super.elementNS(namespace, elementName);
+
+        elementDidStart(element);
+
+        return element;
+    }
+
+    @Override
+    public Element end()
+    {
+        Element element = getElement();
+
+        Element result = super.end();
+
+        boolean held = isHeld(element);
+
+        if (held)
+        {
+            heldDepth--;
+        }
+
+        // Content of an HTML document before the body (i.e., the head) is deferred until the body starts; held
+        // elements, and their content, are deferred until some later element completes.
+
+        boolean deferred = (htmlRoot && body == null) || held || heldDepth > 0;
+
+        if (!deferred && element != body)
+        {
+            streamer.streamCompleted(element);
+        }
+
+        return result;
+    }
+
+    /**
+     * Writes any remaining content. The provided writer must be the same one passed to the constructor.
+     */
+    @Override
+    public void toMarkup(PrintWriter writer)
+    {
+        assert writer == this.writer;
+
+        streamer.finish();
+    }
+
+    private static boolean isHeld(Element element)
+    {
+        return element.getName().equalsIgnoreCase("form");
+    }
+
+    private void elementDidStart(Element element)
+    {
+        if (isHeld(element))
+        {
+            heldDepth++;
+        }
+
+        Element container = element.getContainer();
+
+        if (container == null)
+        {
+            htmlRoot = element.getName().equals("html");
+            return;
+        }
+
+        if (!htmlRoot || container.getContainer() != null)
+        {
+            return;
+        }
+
+        if (element.getName().equals("head"))
+        {
+            head = element;
+            return;
+        }
+
+        if (body == null && element.getName().equals("body"))
+        {
+            body = element;
+
+            commitHead();
+        }
+    }
+
+    private void commitHead()
+    {
+        for (int i = headCommitCallbacks.size() - 1; i >= 0; i--)
+        {
+            headCommitCallbacks.get(i).run();
+        }
+
+        // A callback may have created the head.
+
+        if (head == null)
+        {
+            head = body.getContainer().find("head");
+        }
+
+        if (head != null)
+        {
+            streamer.streamCompleted(head);
+        }
+
+        if (flushHead)
+        {
+            writer.flush();
+        }
+    }
+}
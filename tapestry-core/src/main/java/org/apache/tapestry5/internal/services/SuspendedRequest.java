@@ -0,0 +1,108 @@
+// Copyright 2012 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.internal.services;
+
+import org.apache.tapestry5.internal.InternalConstants;
+import org.apache.tapestry5.ioc.internal.util.InternalUtils;
+import org.apache.tapestry5.services.AsyncResult;
+import org.apache.tapestry5.services.ComponentEventResultProcessor;
+import org.apache.tapestry5.services.Request;
+
+import java.io.IOException;
+
+/**
+ * Records that processing of a request has been suspended until an {@link AsyncResult} completes; stored as the
+ * {@link InternalConstants#SUSPENDED_REQUEST} request attribute, where it is found by the {@link AsyncRequestFilter}.
+ *
+ * @since 5.4
+ */
+public class SuspendedRequest
+{
+    private final AsyncResult result;
+
+    private final ComponentEventResultProcessor resultProcessor;
+
+    private Object defaultResult;
+
+    public SuspendedRequest(AsyncResult result, ComponentEventResultProcessor resultProcessor)
+    {
+        this.result = result;
+        this.resultProcessor = resultProcessor;
+    }
+
+    public AsyncResult getResult()
+    {
+        return result;
+    }
+
+    /**
+     * Sets the value to process if the result completes with null, which depends on the kind of request that was
+     * suspended.
+     */
+    public void setDefaultResult(Object defaultResult)
+    {
+        this.defaultResult = defaultResult;
+    }
+
+    /**
+     * Continues processing of the request, once the result has completed, by processing its value.
+     */
+    @SuppressWarnings("unchecked")
+    public void resume() throws IOException
+    {
+        Throwable failure = result.getFailure();
+
+        if (failure != null)
+        {
+            throw new RuntimeException(String.format("Asynchronous event result failed: %s",
+                    InternalUtils.toMessage(failure)), failure);
+        }
+
+        Object value = result.getValue();
+
+        if (value == null)
+        {
+            value = defaultResult;
+        }
+
+        if (value != null)
+        {
+            resultProcessor.processResultValue(value);
+        }
+    }
+
+    /**
+     * Returns the request's suspended request, if any.
+     */
+    public static SuspendedRequest find(Request request)
+    {
+        return (SuspendedRequest) request.getAttribute(InternalConstants.SUSPENDED_REQUEST);
+    }
+
+    /**
+     * Returns the suspended request being resumed, if any, and removes it from the request.
+     */
+    public static SuspendedRequest takeResumed(Request request)
+    {
+        SuspendedRequest result = (SuspendedRequest) request.getAttribute(InternalConstants.RESUMED_REQUEST);
+
+        if (result != null)
+        {
+            request.setAttribute(InternalConstants.RESUMED_REQUEST, null);
+        }
+
+        return result;
+    }
+}
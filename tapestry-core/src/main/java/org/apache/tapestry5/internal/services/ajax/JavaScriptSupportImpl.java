@@ -1,4 +1,4 @@
-// Copyright 2010, 2011 The Apache Software Foundation
+// Copyright 2010, 2011, 2012 The Apache Software Foundation
 //
 // Licensed under the Apache License, Version 2.0 (the "License");
 // you may not use this file except in compliance with the License.
@@ -51,6 +51,8 @@ public class JavaScriptSupportImpl implements JavaScriptSupport
 
     private final List<String> otherLibraries = CollectionFactory.newList();
 
+    private final Set<String> importedLibraryURLs = CollectionFactory.newSet();
+
     private final Set<String> importedStylesheetURLs = CollectionFactory.newSet();
 
     private final List<StylesheetLink> stylesheetLinks = CollectionFactory.newList();
@@ -112,6 +114,26 @@ public class JavaScriptSupportImpl implements JavaScriptSupport
         if (focusFieldId != null)
             addInitializerCall("activate", focusFieldId);
 
+        commitLinks();
+
+        for (InitializationPriority p : InitializationPriority.values())
+        {
+            JSONObject init = inits.get(p);
+
+            if (init != null)
+                linker.setInitialization(p, init);
+        }
+    }
+
+    /**
+     * Passes the stylesheets and JavaScript libraries imported so far to the {@link DocumentLinker}. This is invoked
+     * by {@link #commit()}, and also just before the {@code <head>} of a streamed document is written, so that
+     * anything imported before the body starts is linked from the head.
+     *
+     * @since 5.4
+     */
+    public void commitLinks()
+    {
         F.flow(stylesheetLinks).each(new Worker<StylesheetLink>()
         {
             public void work(StylesheetLink value)
@@ -131,13 +153,9 @@ public class JavaScriptSupportImpl implements JavaScriptSupport
         F.flow(stackLibraries).each(linkLibrary);
         F.flow(otherLibraries).each(linkLibrary);
 
-        for (InitializationPriority p : InitializationPriority.values())
-        {
-            JSONObject init = inits.get(p);
-
-            if (init != null)
-                linker.setInitialization(p, init);
-        }
+        stylesheetLinks.clear();
+        stackLibraries.clear();
+        otherLibraries.clear();
     }
 
     public void addInitializerCall(InitializationPriority priority, String functionName, JSONObject parameter)
@@ -249,7 +267,7 @@ public class JavaScriptSupportImpl implements JavaScriptSupport
             return;
         }
 
-        if (otherLibraries.contains(libraryURL))
+        if (!importedLibraryURLs.add(libraryURL))
             return;
 
         otherLibraries.add(libraryURL);
@@ -0,0 +1,67 @@
+// Copyright 2012 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.internal.services.assets;
+
+import org.apache.tapestry5.services.assets.StreamableResource;
+
+import java.io.IOException;
+
+/**
+ * A cache of processed {@link StreamableResource}s, shared by the caching interceptors of the
+ * {@link org.apache.tapestry5.services.assets.StreamableResourceSource} service and the {@link StackAssetRequestHandler}.
+ * Content is stored outside the Java heap, within a fixed byte budget; the least recently used entries are evicted
+ * to make room for new ones. The cache is cleared when any tracked resource changes.
+ *
+ * @see org.apache.tapestry5.SymbolConstants#ASSET_CACHE_SIZE
+ * @since 5.4
+ */
+public interface AssetCache
+{
+    /**
+     * Returns the cached resource, or null if not cached.
+     */
+    StreamableResource get(String key);
+
+    /**
+     * Caches the resource, evicting other resources if necessary. Content larger than the entire budget is not cached.
+     *
+     * @return the cached resource, which should be used in place of the provided resource (or the provided resource
+     *         itself, if not cached)
+     */
+    StreamableResource put(String key, StreamableResource resource) throws IOException;
+
+    /**
+     * Discards all cached resources.
+     */
+    void clear();
+
+    long getHits();
+
+    long getMisses();
+
+    long getEvictions();
+
+    /**
+     * The number of bytes of content currently cached.
+     */
+    long getSize();
+
+    /**
+     * The maximum number of bytes of content that may be cached.
+     */
+    long getMaxSize();
+
+    int getEntryCount();
+}
@@ -0,0 +1,366 @@
+// Copyright 2012 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.internal.services.assets;
+
+import org.apache.tapestry5.SymbolConstants;
+import org.apache.tapestry5.internal.util.StripedCounter;
+import org.apache.tapestry5.ioc.annotations.PostInjection;
+import org.apache.tapestry5.ioc.annotations.Symbol;
+import org.apache.tapestry5.ioc.internal.util.CollectionFactory;
+import org.apache.tapestry5.services.InvalidationListener;
+import org.apache.tapestry5.services.assets.CompressionStatus;
+import org.apache.tapestry5.services.assets.StreamableResource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.LinkedList;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Stores the content of each resource in a direct {@link ByteBuffer}. Reads never lock: entries are kept in a
+ * concurrent map, and a read only sets the entry's "referenced" flag. Adding content is synchronized, and evicts
+ * entries in approximately least recently used order, using the CLOCK (second chance) algorithm: entries are
+ * considered in the order they were added, and a referenced entry has its flag cleared and is moved to the back
+ * rather than being evicted.
+ * <p/>
+ * {@link URLStreamableResource}s are cached as-is; their content is read from their source each time they are
+ * streamed, so they do not count against the budget.
+ *
+ * @since 5.4
+ */
+public class AssetCacheImpl implements AssetCache, InvalidationListener
+{
+    private static final int CHUNK_SIZE = 8192;
+
+    private final long maxSize;
+
+    private final ConcurrentMap<String, Entry> entries = CollectionFactory.newConcurrentMap();
+
+    private final StripedCounter hits = new StripedCounter(), misses = new StripedCounter();
+
+    private final Object lock = new Object();
+
+    // Guarded by lock; may include entries that have since been replaced or removed, which are discarded when reached.
+
+    private final LinkedList<Entry> clock = CollectionFactory.newLinkedList();
+
+    // Only updated while holding the lock
+
+    private volatile long size, evictions;
+
+    private static final class Entry
+    {
+        final String key;
+
+        final StreamableResource resource;
+
+        final int size;
+
+        volatile boolean referenced;
+
+        Entry(String key, StreamableResource resource, int size)
+        {
+            this.key = key;
+            this.resource = resource;
+            this.size = size;
+        }
+    }
+
+    public AssetCacheImpl(@Symbol(SymbolConstants.ASSET_CACHE_SIZE) long maxSize)
+    {
+        this.maxSize = maxSize;
+    }
+
+    @PostInjection
+    public void listenForInvalidations(ResourceChangeTracker tracker)
+    {
+        tracker.addInvalidationListener(this);
+    }
+
+    public StreamableResource get(String key)
+    {
+        Entry entry = entries.get(key);
+
+        if (entry == null)
+        {
+            misses.increment();
+
+            return null;
+        }
+
+        hits.increment();
+
+        // Avoid writing to the entry (and invalidating its cache line on other processors) when already set.
+
+        if (!entry.referenced)
+        {
+            entry.referenced = true;
+        }
+
+        return entry.resource;
+    }
+
+    public StreamableResource put(String key, StreamableResource resource) throws IOException
+    {
+        StreamableResource cached = resource instanceof URLStreamableResource ? resource : toDirect(resource);
+
+        if (cached == null)
+        {
+            return resource;
+        }
+
+        Entry entry = new Entry(key, cached, sizeOf(cached));
+
+        synchronized (lock)
+        {
+            Entry existing = entries.put(key, entry);
+
+            long newSize = size + entry.size - (existing == null ? 0 : existing.size);
+
+            clock.add(entry);
+
+            while (newSize > maxSize)
+            {
+                Entry victim = clock.removeFirst();
+
+                if (entries.get(victim.key) != victim)
+                {
+                    continue;
+                }
+
+                // The new entry, and any recently read entry, gets a second chance.
+
+                if (victim == entry || victim.referenced)
+                {
+                    victim.referenced = false;
+                    clock.add(victim);
+                    continue;
+                }
+
+                entries.remove(victim.key);
+                newSize -= victim.size;
+                evictions++;
+            }
+
+            size = newSize;
+        }
+
+        return cached;
+    }
+
+    private int sizeOf(StreamableResource resource)
+    {
+        return resource instanceof DirectStreamableResource ? resource.getSize() : 0;
+    }
+
+    /**
+     * Copies the content into a direct buffer, or returns null if the content exceeds the budget.
+     */
+    private StreamableResource toDirect(StreamableResource resource) throws IOException
+    {
+        if (resource.getSize() > maxSize)
+        {
+            return null;
+        }
+
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(resource.getSize());
+
+        resource.streamTo(bos);
+
+        ByteBuffer content = ByteBuffer.allocateDirect(bos.size());
+
+        content.put(bos.toByteArray());
+        content.flip();
+
+        return new DirectStreamableResource(resource, content.asReadOnlyBuffer());
+    }
+
+    public void clear()
+    {
+        synchronized (lock)
+        {
+            entries.clear();
+            clock.clear();
+            size = 0;
+        }
+    }
+
+    public void objectWasInvalidated()
+    {
+        clear();
+    }
+
+    public long getHits()
+    {
+        return hits.get();
+    }
+
+    public long getMisses()
+    {
+        return misses.get();
+    }
+
+    public long getEvictions()
+    {
+        return evictions;
+    }
+
+    public long getSize()
+    {
+        return size;
+    }
+
+    public long getMaxSize()
+    {
+        return maxSize;
+    }
+
+    public int getEntryCount()
+    {
+        return entries.size();
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("AssetCache<%,d entries, %,d of %,d bytes, %,d hits, %,d misses, %,d evictions>",
+                getEntryCount(), size, maxSize, getHits(), getMisses(), evictions);
+    }
+
+    private static final class DirectStreamableResource implements StreamableResource
+    {
+        private final String description, contentType, eTag;
+
+        private final CompressionStatus compression;
+
+        private final long lastModified;
+
+        private final ByteBuffer content;
+
+        DirectStreamableResource(StreamableResource resource, ByteBuffer content)
+        {
+            description = resource.getDescription();
+            contentType = resource.getContentType();
+            compression = resource.getCompression();
+            lastModified = resource.getLastModified();
+            eTag = resource.getETag();
+
+            this.content = content;
+        }
+
+        public String getDescription()
+        {
+            return description;
+        }
+
+        public CompressionStatus getCompression()
+        {
+            return compression;
+        }
+
+        public String getContentType()
+        {
+            return contentType;
+        }
+
+        public int getSize()
+        {
+            return content.capacity();
+        }
+
+        public long getLastModified()
+        {
+            return lastModified;
+        }
+
+        public String getETag()
+        {
+            return eTag;
+        }
+
+        public void streamTo(OutputStream os) throws IOException
+        {
+            // Each caller gets its own view of the shared buffer.
+
+            ByteBuffer buffer = content.duplicate();
+
+            byte[] chunk = new byte[Math.min(CHUNK_SIZE, buffer.remaining())];
+
+            while (buffer.hasRemaining())
+            {
+                int length = Math.min(chunk.length, buffer.remaining());
+
+                buffer.get(chunk, 0, length);
+
+                os.write(chunk, 0, length);
+            }
+        }
+
+        public InputStream openStream() throws IOException
+        {
+            final ByteBuffer buffer = content.duplicate();
+
+            return new InputStream()
+            {
+                @Override
+                public int read()
+                {
+                    return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len)
+                {
+                    if (!buffer.hasRemaining())
+                    {
+                        return -1;
+                    }
+
+                    int length = Math.min(len, buffer.remaining());
+
+                    buffer.get(b, off, length);
+
+                    return length;
+                }
+
+                @Override
+                public long skip(long n)
+                {
+                    int length = (int) Math.max(0, Math.min(n, buffer.remaining()));
+
+                    buffer.position(buffer.position() + length);
+
+                    return length;
+                }
+
+                @Override
+                public int available()
+                {
+                    return buffer.remaining();
+                }
+            };
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("StreamableResource<%s %s %s lastModified: %tc size: %d>", contentType, description,
+                    compression.name(), lastModified, getSize());
+        }
+    }
+}
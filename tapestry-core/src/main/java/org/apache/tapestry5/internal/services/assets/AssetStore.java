@@ -0,0 +1,42 @@
+// Copyright 2012 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.internal.services.assets;
+
+import org.apache.tapestry5.services.assets.StreamableResource;
+
+import java.io.IOException;
+
+/**
+ * Provides access to the asset store written ahead of time by the {@link AssetStoreWriter}: the fully processed
+ * (minimized, and possibly compressed) content of individual assets and of aggregated JavaScript stacks. Entries are
+ * keyed on the Resource's {@code toString()} (i.e., "classpath:org/example/foo.js"), or on
+ * {@link #STACK_KEY_PREFIX} plus the stack's extra path (i.e., "stack:en/core.js").
+ *
+ * @see org.apache.tapestry5.SymbolConstants#ASSET_STORE
+ * @since 5.4
+ */
+public interface AssetStore
+{
+    String STACK_KEY_PREFIX = "stack:";
+
+    /**
+     * Returns the stored content for the key.
+     *
+     * @param key        identifies the asset
+     * @param compressed if true, the compressed content is returned, if it was stored
+     * @return the content, or null if the key is not stored (or the stored content is invalid)
+     */
+    StreamableResource get(String key, boolean compressed) throws IOException;
+}
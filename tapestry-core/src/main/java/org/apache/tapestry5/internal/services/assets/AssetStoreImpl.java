@@ -0,0 +1,255 @@
+// Copyright 2012 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.internal.services.assets;
+
+import org.apache.commons.codec.binary.Hex;
+import org.apache.tapestry5.SymbolConstants;
+import org.apache.tapestry5.internal.TapestryInternalUtils;
+import org.apache.tapestry5.ioc.annotations.Symbol;
+import org.apache.tapestry5.ioc.internal.util.CollectionFactory;
+import org.apache.tapestry5.ioc.internal.util.InternalUtils;
+import org.apache.tapestry5.services.assets.CompressionStatus;
+import org.apache.tapestry5.services.assets.StreamableResource;
+import org.slf4j.Logger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Reads the asset store from a directory, or from a folder on the classpath (which may be inside a JAR). The manifest
+ * is read once, at startup; the content of each entry is read on first access, checked against its SHA-1 digest, and
+ * then stored in the {@link AssetCache}. Content that does not match its digest is reported once; the entry is then
+ * ignored, and the asset processed normally, until the application is restarted.
+ *
+ * @since 5.4
+ */
+public class AssetStoreImpl implements AssetStore
+{
+    /**
+     * Name of the manifest file, within the store's folder; its keys are {@link AssetStore} keys, its values are the
+     * content type, last modified time, digest of the content and (optionally) the digest of the compressed content,
+     * separated by '|'.
+     */
+    static final String MANIFEST_FILE = "asset-store.properties";
+
+    static final String COMPRESSED_SUFFIX = ".gz";
+
+    private static final String CLASSPATH_PREFIX = "classpath:";
+
+    private final Logger logger;
+
+    private final URL manifestURL;
+
+    private final Map<String, Entry> entries = CollectionFactory.newMap();
+
+    private final AssetCache cache;
+
+    /**
+     * Cache keys of content that did not match its digest.
+     */
+    private final Map<String, Boolean> mismatched = CollectionFactory.newConcurrentMap();
+
+    private static class Entry
+    {
+        final String key, contentType, digest, compressedDigest;
+
+        final long lastModified;
+
+        Entry(String key, String value)
+        {
+            String[] terms = value.split("\\|");
+
+            this.key = key;
+            contentType = terms[0];
+            lastModified = Long.parseLong(terms[1]);
+            digest = terms[2];
+            compressedDigest = terms.length > 3 ? terms[3] : null;
+        }
+    }
+
+    public AssetStoreImpl(Logger logger, AssetCache cache,
+
+                          @Symbol(SymbolConstants.ASSET_STORE)
+                          String location) throws IOException
+    {
+        this.logger = logger;
+        this.cache = cache;
+
+        manifestURL = findManifest(location);
+
+        if (manifestURL != null)
+        {
+            readManifest();
+        }
+    }
+
+    private URL findManifest(String location) throws IOException
+    {
+        if (InternalUtils.isBlank(location))
+        {
+            return null;
+        }
+
+        URL result;
+
+        if (location.startsWith(CLASSPATH_PREFIX))
+        {
+            String folder = location.substring(CLASSPATH_PREFIX.length());
+
+            result = Thread.currentThread().getContextClassLoader().getResource(folder + "/" + MANIFEST_FILE);
+        } else
+        {
+            File file = new File(location, MANIFEST_FILE);
+
+            result = file.isFile() ? file.toURI().toURL() : null;
+        }
+
+        if (result == null)
+        {
+            logger.warn(String.format("Asset store '%s' does not contain %s; all assets will be processed on first request.",
+                    location, MANIFEST_FILE));
+        }
+
+        return result;
+    }
+
+    private void readManifest() throws IOException
+    {
+        Properties properties = new Properties();
+
+        InputStream stream = manifestURL.openStream();
+
+        try
+        {
+            properties.load(stream);
+        } finally
+        {
+            InternalUtils.close(stream);
+        }
+
+        for (Object key : properties.keySet())
+        {
+            entries.put(key.toString(), new Entry(key.toString(), properties.getProperty(key.toString())));
+        }
+
+        logger.info(String.format("Read %,d entries from asset store %s.", entries.size(), manifestURL));
+    }
+
+    public StreamableResource get(String key, boolean compressed) throws IOException
+    {
+        Entry entry = entries.get(key);
+
+        if (entry == null)
+        {
+            return null;
+        }
+
+        boolean useCompressed = compressed && entry.compressedDigest != null;
+
+        String cacheKey = (useCompressed ? "store-compressed:" : "store:") + key;
+
+        if (mismatched.containsKey(cacheKey))
+        {
+            return null;
+        }
+
+        StreamableResource result = cache.get(cacheKey);
+
+        if (result != null)
+        {
+            return result;
+        }
+
+        result = read(entry, useCompressed);
+
+        if (result == null)
+        {
+            mismatched.put(cacheKey, true);
+
+            return null;
+        }
+
+        return cache.put(cacheKey, result);
+    }
+
+    private StreamableResource read(Entry entry, boolean compressed) throws IOException
+    {
+        String fileName = toFileName(entry.key) + (compressed ? COMPRESSED_SUFFIX : "");
+
+        URL url = new URL(manifestURL, fileName);
+
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+
+        InputStream stream = url.openStream();
+
+        try
+        {
+            TapestryInternalUtils.copy(stream, bos);
+        } finally
+        {
+            InternalUtils.close(stream);
+        }
+
+        byte[] content = bos.toByteArray();
+
+        String expectedDigest = compressed ? entry.compressedDigest : entry.digest;
+
+        if (!expectedDigest.equals(digest(content)))
+        {
+            logger.warn(String.format(
+                    "Content of %s does not match its digest; the asset will be processed normally until the application is restarted.",
+                    url));
+
+            return null;
+        }
+
+        CompressionStatus compression = compressed ? CompressionStatus.COMPRESSED
+                : entry.compressedDigest != null ? CompressionStatus.COMPRESSABLE : CompressionStatus.NOT_COMPRESSABLE;
+
+        return new StreamableResourceImpl(entry.key + " (from asset store)", entry.contentType, compression,
+                entry.lastModified, new BytestreamCache(content));
+    }
+
+    /**
+     * Converts a key to a relative file name, i.e., "classpath:org/example/foo.js" to "classpath/org/example/foo.js".
+     */
+    static String toFileName(String key)
+    {
+        return key.replace(':', '/').replaceAll("/+", "/");
+    }
+
+    /**
+     * Returns the SHA-1 digest of the content, as a hex string.
+     */
+    static String digest(byte[] content)
+    {
+        try
+        {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+
+            return new String(Hex.encodeHex(digest.digest(content)));
+        } catch (NoSuchAlgorithmException ex)
+        {
+            throw new RuntimeException(ex);
+        }
+    }
+}
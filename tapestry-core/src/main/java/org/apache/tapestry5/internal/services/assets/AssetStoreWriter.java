@@ -0,0 +1,384 @@
+// Copyright 2012 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.internal.services.assets;
+
+import org.apache.tapestry5.SymbolConstants;
+import org.apache.tapestry5.internal.test.TestableRequest;
+import org.apache.tapestry5.internal.test.TestableResponse;
+import org.apache.tapestry5.ioc.Registry;
+import org.apache.tapestry5.ioc.Resource;
+import org.apache.tapestry5.ioc.annotations.Autobuild;
+import org.apache.tapestry5.ioc.annotations.Symbol;
+import org.apache.tapestry5.ioc.internal.util.CollectionFactory;
+import org.apache.tapestry5.ioc.internal.util.InternalUtils;
+import org.apache.tapestry5.services.*;
+import org.apache.tapestry5.services.assets.CompressionStatus;
+import org.apache.tapestry5.services.assets.StreamableResource;
+import org.apache.tapestry5.services.assets.StreamableResourceProcessing;
+import org.apache.tapestry5.services.assets.StreamableResourceSource;
+import org.apache.tapestry5.services.javascript.JavaScriptStackSource;
+import org.apache.tapestry5.test.PageTester;
+import org.slf4j.Logger;
+
+import java.io.*;
+import java.net.JarURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLDecoder;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.regex.Pattern;
+
+/**
+ * Writes the {@link AssetStore} ahead of time (typically, as part of the application's build): every asset in each
+ * {@linkplain ClasspathAssetAliasManager mapped classpath folder}, every file in the web application context, and every
+ * {@linkplain JavaScriptStackSource JavaScript stack} in each supported locale, is processed exactly as it would be at
+ * runtime (transformed, minimized, and compressed), and the results are written to a folder, along with a manifest
+ * identifying each entry's content type, last modified time and SHA-1 digest.
+ * <p/>
+ * The {@link #main(String[])} method initializes the application (as with {@link PageTester}, in production mode
+ * unless overridden) and writes the store.
+ *
+ * @see SymbolConstants#ASSET_STORE
+ * @since 5.4
+ */
+public class AssetStoreWriter
+{
+    private static final Pattern EXCLUDED_CLASSPATH_FILE = Pattern.compile(".*\\.(class|tml|properties)$",
+            Pattern.CASE_INSENSITIVE);
+
+    private static final Pattern EXCLUDED_CONTEXT_FILE = Pattern.compile("^(((web|meta)-inf/.*)|(.*\\.tml$))",
+            Pattern.CASE_INSENSITIVE);
+
+    private final Logger logger;
+
+    private final StreamableResourceSource streamableResourceSource;
+
+    private final AssetSource assetSource;
+
+    private final ClasspathAssetAliasManager aliasManager;
+
+    private final Resource contextRoot;
+
+    private final JavaScriptStackSource stackSource;
+
+    private final LocalizationSetter localizationSetter;
+
+    private final StackAssetRequestHandler stackHandler;
+
+    private final ResourceChangeTracker resourceChangeTracker;
+
+    private final boolean gzipEnabled;
+
+    public AssetStoreWriter(Logger logger, StreamableResourceSource streamableResourceSource, AssetSource assetSource,
+                            ClasspathAssetAliasManager aliasManager,
+
+                            @ContextProvider
+                            AssetFactory contextAssetFactory,
+
+                            JavaScriptStackSource stackSource, LocalizationSetter localizationSetter,
+
+                            @Autobuild
+                            StackAssetRequestHandler stackHandler,
+
+                            ResourceChangeTracker resourceChangeTracker,
+
+                            @Symbol(SymbolConstants.GZIP_COMPRESSION_ENABLED)
+                            boolean gzipEnabled)
+    {
+        this.logger = logger;
+        this.streamableResourceSource = streamableResourceSource;
+        this.assetSource = assetSource;
+        this.aliasManager = aliasManager;
+        this.contextRoot = contextAssetFactory.getRootResource();
+        this.stackSource = stackSource;
+        this.localizationSetter = localizationSetter;
+        this.stackHandler = stackHandler;
+        this.resourceChangeTracker = resourceChangeTracker;
+        this.gzipEnabled = gzipEnabled;
+    }
+
+    /**
+     * Writes the store.
+     *
+     * @param contextFolder the web application context folder, or null to skip context assets
+     * @param storeFolder   folder to write the store to (it is created if necessary)
+     * @return the number of entries written
+     */
+    public int write(File contextFolder, File storeFolder) throws IOException
+    {
+        Properties manifest = new Properties();
+
+        storeFolder.mkdirs();
+
+        for (String folder : aliasManager.getMappings().values())
+        {
+            for (String path : findClasspathFiles(folder))
+            {
+                writeResource(assetSource.resourceForPath(path), storeFolder, manifest);
+            }
+        }
+
+        if (contextFolder != null)
+        {
+            for (String path : findContextFiles(contextFolder))
+            {
+                writeResource(contextRoot.forFile(path), storeFolder, manifest);
+            }
+        }
+
+        for (Locale locale : localizationSetter.getSupportedLocales())
+        {
+            for (String stackName : stackSource.getStackNames())
+            {
+                String extraPath = String.format("%s/%s.js", locale, stackName);
+
+                StreamableResource uncompressed = stackHandler.getAssembledResource(extraPath, false);
+                StreamableResource compressed = gzipEnabled ? stackHandler.getAssembledResource(extraPath, true) : null;
+
+                writeEntry(AssetStore.STACK_KEY_PREFIX + extraPath, uncompressed, compressed, storeFolder, manifest);
+            }
+        }
+
+        OutputStream stream = new FileOutputStream(new File(storeFolder, AssetStoreImpl.MANIFEST_FILE));
+
+        try
+        {
+            manifest.store(stream, "Tapestry asset store");
+        } finally
+        {
+            InternalUtils.close(stream);
+        }
+
+        logger.info(String.format("Wrote %,d entries to asset store %s.", manifest.size(), storeFolder));
+
+        return manifest.size();
+    }
+
+    private void writeResource(Resource resource, File storeFolder, Properties manifest) throws IOException
+    {
+        StreamableResource uncompressed, compressed = null;
+
+        try
+        {
+            uncompressed = streamableResourceSource.getStreamableResource(resource,
+                    StreamableResourceProcessing.COMPRESSION_DISABLED, resourceChangeTracker);
+
+            if (gzipEnabled)
+            {
+                compressed = streamableResourceSource.getStreamableResource(resource,
+                        StreamableResourceProcessing.COMPRESSION_ENABLED, resourceChangeTracker);
+            }
+        } catch (Exception ex)
+        {
+            // The asset will simply be processed at runtime, as if there were no store.
+
+            logger.warn(String.format("Unable to process %s: %s", resource, InternalUtils.toMessage(ex)));
+
+            return;
+        }
+
+        writeEntry(resource.toString(), uncompressed, compressed, storeFolder, manifest);
+    }
+
+    private void writeEntry(String key, StreamableResource uncompressed, StreamableResource compressed,
+                            File storeFolder, Properties manifest) throws IOException
+    {
+        String fileName = AssetStoreImpl.toFileName(key);
+
+        StringBuilder value = new StringBuilder(uncompressed.getContentType())
+                .append('|').append(uncompressed.getLastModified())
+                .append('|').append(writeFile(uncompressed, new File(storeFolder, fileName)));
+
+        if (compressed != null && compressed.getCompression() == CompressionStatus.COMPRESSED)
+        {
+            value.append('|').append(writeFile(compressed,
+                    new File(storeFolder, fileName + AssetStoreImpl.COMPRESSED_SUFFIX)));
+        }
+
+        manifest.setProperty(key, value.toString());
+    }
+
+    /**
+     * Writes the content to the file, returning its digest.
+     */
+    private String writeFile(StreamableResource resource, File file) throws IOException
+    {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(resource.getSize());
+
+        resource.streamTo(bos);
+
+        byte[] content = bos.toByteArray();
+
+        file.getParentFile().mkdirs();
+
+        OutputStream stream = new FileOutputStream(file);
+
+        try
+        {
+            stream.write(content);
+        } finally
+        {
+            InternalUtils.close(stream);
+        }
+
+        return AssetStoreImpl.digest(content);
+    }
+
+    private List<String> findClasspathFiles(String folder) throws IOException
+    {
+        List<String> result = CollectionFactory.newList();
+
+        Enumeration<URL> urls = Thread.currentThread().getContextClassLoader().getResources(folder);
+
+        while (urls.hasMoreElements())
+        {
+            URL url = urls.nextElement();
+
+            URLConnection connection = url.openConnection();
+
+            if (connection instanceof JarURLConnection)
+            {
+                JarFile jarFile = ((JarURLConnection) connection).getJarFile();
+
+                Enumeration<JarEntry> entries = jarFile.entries();
+
+                while (entries.hasMoreElements())
+                {
+                    JarEntry entry = entries.nextElement();
+
+                    if (!entry.isDirectory() && entry.getName().startsWith(folder + "/"))
+                    {
+                        addAssetPath(entry.getName(), result);
+                    }
+                }
+            } else
+            {
+                scanFolder(new File(URLDecoder.decode(url.getFile(), "UTF-8")), folder, result);
+            }
+        }
+
+        return result;
+    }
+
+    private void scanFolder(File folder, String path, List<String> result)
+    {
+        File[] files = folder.listFiles();
+
+        if (files == null)
+        {
+            return;
+        }
+
+        for (File file : files)
+        {
+            String filePath = path + "/" + file.getName();
+
+            if (file.isDirectory())
+            {
+                scanFolder(file, filePath, result);
+            } else
+            {
+                addAssetPath(filePath, result);
+            }
+        }
+    }
+
+    private void addAssetPath(String path, List<String> result)
+    {
+        if (!EXCLUDED_CLASSPATH_FILE.matcher(path).matches())
+        {
+            result.add(path);
+        }
+    }
+
+    private List<String> findContextFiles(File contextFolder)
+    {
+        List<String> files = CollectionFactory.newList();
+        List<String> result = CollectionFactory.newList();
+
+        File[] children = contextFolder.listFiles();
+
+        if (children != null)
+        {
+            for (File child : children)
+            {
+                if (child.isDirectory())
+                {
+                    scanFolder(child, child.getName(), files);
+                } else
+                {
+                    files.add(child.getName());
+                }
+            }
+        }
+
+        for (String path : files)
+        {
+            if (!EXCLUDED_CONTEXT_FILE.matcher(path).matches())
+            {
+                result.add(path);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Writes an asset store for an application. Arguments are the application package, the application name (the
+     * filter name, used to locate the application module), the context folder (relative to the current
+     * directory, or the "basedir" system property) and the folder to write the store to. Symbols may be overridden
+     * using system properties.
+     */
+    public static void main(String[] args) throws IOException
+    {
+        if (args.length != 4)
+        {
+            System.err.println("Usage: AssetStoreWriter <app-package> <app-name> <context-folder> <store-folder>");
+            System.exit(1);
+        }
+
+        // Don't read from an existing store while writing a new one.
+
+        System.setProperty(SymbolConstants.ASSET_STORE, "");
+
+        PageTester tester = new PageTester(args[0], args[1], args[2]);
+
+        try
+        {
+            Registry registry = tester.getRegistry();
+
+            // Stack content includes asset URLs, which are built relative to the current request.
+
+            registry.getService(RequestGlobals.class).storeRequestResponse(registry.getService(TestableRequest.class),
+                    registry.getService(TestableResponse.class));
+
+            AssetStoreWriter writer = registry.autobuild(AssetStoreWriter.class);
+
+            // Resolved the same way as PageTester's context.
+
+            File baseDir = new File(System.getProperty("basedir", System.getProperty("user.dir")));
+
+            writer.write(new File(baseDir, args[2]), new File(args[3]));
+        } finally
+        {
+            tester.shutdown();
+        }
+    }
+}
@@ -1,4 +1,4 @@
-// Copyright 2010 The Apache Software Foundation
+// Copyright 2010, 2012 The Apache Software Foundation
 //
 // Licensed under the Apache License, Version 2.0 (the "License");
 // you may not use this file except in compliance with the License.
@@ -19,6 +19,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.security.MessageDigest;
 
 /**
  * A wrapper around a byte-stream, represented internally as a byte array. Part of the fix
@@ -51,6 +52,16 @@ public class BytestreamCache
         return streamData.length;
     }
 
+    /**
+     * Adds the content to the digest.
+     *
+     * @since 5.4
+     */
+    public void updateDigest(MessageDigest digest)
+    {
+        digest.update(streamData);
+    }
+
     public InputStream openStream()
     {
         return new ByteArrayInputStream(streamData);
@@ -0,0 +1,55 @@
+// Copyright 2012 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.internal.services.assets;
+
+import org.apache.tapestry5.services.assets.CacheControlAnalyzer;
+
+import java.util.Map;
+
+public class CacheControlAnalyzerImpl implements CacheControlAnalyzer
+{
+    private final Map<String, String> configuration;
+
+    public CacheControlAnalyzerImpl(Map<String, String> configuration)
+    {
+        this.configuration = configuration;
+    }
+
+    public String getCacheControl(String contentType)
+    {
+        assert contentType != null;
+
+        int x = contentType.indexOf(';');
+
+        String key = (x < 0 ? contentType : contentType.substring(0, x)).trim();
+
+        String result = configuration.get(key);
+
+        if (result != null)
+            return result;
+
+        int slashx = key.indexOf('/');
+
+        if (slashx > 0)
+        {
+            result = configuration.get(key.substring(0, slashx) + "/*");
+
+            if (result != null)
+                return result;
+        }
+
+        return configuration.get("*");
+    }
+}
@@ -1,4 +1,4 @@
-// Copyright 2011 The Apache Software Foundation
+// Copyright 2011, 2012 The Apache Software Foundation
 //
 // Licensed under the Apache License, Version 2.0 (the "License");
 // you may not use this file except in compliance with the License.
@@ -14,31 +14,44 @@
 
 package org.apache.tapestry5.internal.services.assets;
 
-import org.apache.tapestry5.internal.TapestryInternalUtils;
 import org.apache.tapestry5.ioc.Resource;
-import org.apache.tapestry5.ioc.internal.util.CollectionFactory;
-import org.apache.tapestry5.services.InvalidationListener;
 import org.apache.tapestry5.services.assets.ResourceDependencies;
 import org.apache.tapestry5.services.assets.StreamableResource;
 import org.apache.tapestry5.services.assets.StreamableResourceProcessing;
 import org.apache.tapestry5.services.assets.StreamableResourceSource;
 
 import java.io.IOException;
-import java.lang.ref.SoftReference;
-import java.util.Map;
 
 /**
- * An interceptor for the {@link StreamableResourceSource} service that handles caching of content.
+ * An interceptor for the {@link StreamableResourceSource} service that handles caching of content, storing it
+ * in the shared {@link AssetCache}.
  */
-public class SRSCachingInterceptor implements StreamableResourceSource, InvalidationListener
+public class SRSCachingInterceptor implements StreamableResourceSource
 {
     private final StreamableResourceSource delegate;
 
-    private final Map<Resource, SoftReference<StreamableResource>> cache = CollectionFactory.newConcurrentMap();
+    private final AssetCache cache;
 
-    public SRSCachingInterceptor(StreamableResourceSource delegate)
+    private final String keyPrefix;
+
+    public SRSCachingInterceptor(StreamableResourceSource delegate, AssetCache cache)
+    {
+        this(delegate, cache, "uncompressed:");
+    }
+
+    /**
+     * @param delegate
+     *         the service to delegate to
+     * @param cache
+     *         where content is cached
+     * @param keyPrefix
+     *         prefix for cache keys, to distinguish this interceptor's content from that of other interceptors
+     */
+    protected SRSCachingInterceptor(StreamableResourceSource delegate, AssetCache cache, String keyPrefix)
     {
         this.delegate = delegate;
+        this.cache = cache;
+        this.keyPrefix = keyPrefix;
     }
 
     public StreamableResource getStreamableResource(Resource baseResource, StreamableResourceProcessing processing, ResourceDependencies dependencies)
@@ -49,7 +62,9 @@ public class SRSCachingInterceptor implements StreamableResourceSource, Invalida
             return delegate.getStreamableResource(baseResource, processing, dependencies);
         }
 
-        StreamableResource result = TapestryInternalUtils.getAndDeref(cache, baseResource);
+        String key = keyPrefix + baseResource;
+
+        StreamableResource result = cache.get(key);
 
         if (result == null)
         {
@@ -59,7 +74,7 @@ public class SRSCachingInterceptor implements StreamableResourceSource, Invalida
             {
                 dependencies.addDependency(baseResource);
 
-                cache.put(baseResource, new SoftReference<StreamableResource>(result));
+                result = cache.put(key, result);
             }
         }
 
@@ -76,9 +91,4 @@ public class SRSCachingInterceptor implements StreamableResourceSource, Invalida
     {
         return true;
     }
-
-    public void objectWasInvalidated()
-    {
-        cache.clear();
-    }
 }
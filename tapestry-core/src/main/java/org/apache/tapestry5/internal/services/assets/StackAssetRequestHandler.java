@@ -1,4 +1,4 @@
-// Copyright 2010, 2011 The Apache Software Foundation
+// Copyright 2010, 2011, 2012 The Apache Software Foundation
 //
 // Licensed under the Apache License, Version 2.0 (the "License");
 // you may not use this file except in compliance with the License.
@@ -17,11 +17,11 @@ package org.apache.tapestry5.internal.services.assets;
 import org.apache.tapestry5.Asset;
 import org.apache.tapestry5.SymbolConstants;
 import org.apache.tapestry5.internal.IOOperation;
+import org.apache.tapestry5.internal.InternalConstants;
 import org.apache.tapestry5.internal.TapestryInternalUtils;
 import org.apache.tapestry5.internal.services.ResourceStreamer;
 import org.apache.tapestry5.ioc.OperationTracker;
 import org.apache.tapestry5.ioc.Resource;
-import org.apache.tapestry5.ioc.annotations.PostInjection;
 import org.apache.tapestry5.ioc.annotations.Symbol;
 import org.apache.tapestry5.ioc.internal.util.CollectionFactory;
 import org.apache.tapestry5.json.JSONArray;
@@ -32,12 +32,14 @@ import org.apache.tapestry5.services.javascript.JavaScriptStackSource;
 
 import java.io.*;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.FutureTask;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.zip.GZIPOutputStream;
 
-public class StackAssetRequestHandler implements AssetRequestHandler, InvalidationListener
+public class StackAssetRequestHandler implements AssetRequestHandler
 {
     private static final String JAVASCRIPT_CONTENT_TYPE = "text/javascript";
 
@@ -53,10 +55,15 @@ public class StackAssetRequestHandler implements AssetRequestHandler, Invalidati
 
     private final Pattern pathPattern = Pattern.compile("^(.+)/(.+)\\.js$");
 
-    // Two caches, keyed on extra path. Both are accessed only from synchronized blocks.
-    private final Map<String, StreamableResource> uncompressedCache = CollectionFactory.newCaseInsensitiveMap();
+    // Assembled content is cached under the (case-insensitive) extra path, with a prefix for compressed or
+    // uncompressed content.
+    private final AssetCache assetCache;
 
-    private final Map<String, StreamableResource> compressedCache = CollectionFactory.newCaseInsensitiveMap();
+    /**
+     * Content currently being assembled (or compressed), keyed as with the cache; concurrent requests for the same
+     * stack wait on the single assembly in progress, while different stacks are assembled in parallel.
+     */
+    private final ConcurrentMap<String, FutureTask<StreamableResource>> inFlight = CollectionFactory.newConcurrentMap();
 
     private final ResourceMinimizer resourceMinimizer;
 
@@ -66,13 +73,16 @@ public class StackAssetRequestHandler implements AssetRequestHandler, Invalidati
 
     private final ResourceChangeTracker resourceChangeTracker;
 
+    private final AssetStore assetStore;
+
     public StackAssetRequestHandler(StreamableResourceSource streamableResourceSource,
                                     JavaScriptStackSource javascriptStackSource, LocalizationSetter localizationSetter,
                                     ResponseCompressionAnalyzer compressionAnalyzer, ResourceStreamer resourceStreamer,
                                     ResourceMinimizer resourceMinimizer, OperationTracker tracker,
 
                                     @Symbol(SymbolConstants.MINIFICATION_ENABLED)
-                                    boolean minificationEnabled, ResourceChangeTracker resourceChangeTracker)
+                                    boolean minificationEnabled, ResourceChangeTracker resourceChangeTracker,
+                                    AssetStore assetStore, AssetCache assetCache)
     {
         this.streamableResourceSource = streamableResourceSource;
         this.javascriptStackSource = javascriptStackSource;
@@ -83,12 +93,8 @@ public class StackAssetRequestHandler implements AssetRequestHandler, Invalidati
         this.tracker = tracker;
         this.minificationEnabled = minificationEnabled;
         this.resourceChangeTracker = resourceChangeTracker;
-    }
-
-    @PostInjection
-    public void listenToInvalidations(ResourceChangeTracker resourceChangeTracker)
-    {
-        resourceChangeTracker.addInvalidationListener(this);
+        this.assetStore = assetStore;
+        this.assetCache = assetCache;
     }
 
     public boolean handleAssetRequest(Request request, Response response, final String extraPath) throws IOException
@@ -98,7 +104,12 @@ public class StackAssetRequestHandler implements AssetRequestHandler, Invalidati
                 {
                     public void perform() throws IOException
                     {
-                        boolean compress = compressionAnalyzer.isGZipSupported();
+                        // Stacks are only pre-compressed using GZIP; the ResourceStreamer applies other encodings.
+
+                        ContentEncoder encoder = compressionAnalyzer.getContentEncoder();
+
+                        boolean compress = encoder != null
+                                && encoder.getEncoding().equals(InternalConstants.GZIP_CONTENT_ENCODING);
 
                         StreamableResource resource = getResource(extraPath, compress);
 
@@ -109,45 +120,92 @@ public class StackAssetRequestHandler implements AssetRequestHandler, Invalidati
         return true;
     }
 
-    /**
-     * Notified by the {@link ResourceChangeTracker} when (any) resource files change; the internal caches are cleared.
-     */
-    public synchronized void objectWasInvalidated()
+    private StreamableResource getResource(String extraPath, boolean compressed) throws IOException
     {
-        uncompressedCache.clear();
-        compressedCache.clear();
+        StreamableResource stored = assetStore.get(AssetStore.STACK_KEY_PREFIX + extraPath, compressed);
+
+        return stored != null ? stored : getAssembledResource(extraPath, compressed);
     }
 
-    private StreamableResource getResource(String extraPath, boolean compressed) throws IOException
+    /**
+     * Returns the assembled (and possibly minimized and compressed) content of a stack, ignoring the
+     * {@link AssetStore}; used by the {@link AssetStoreWriter}.
+     */
+    StreamableResource getAssembledResource(String extraPath, boolean compressed) throws IOException
     {
         return compressed ? getCompressedResource(extraPath) : getUncompressedResource(extraPath);
     }
 
-    private synchronized StreamableResource getCompressedResource(String extraPath) throws IOException
+    private StreamableResource getCompressedResource(final String extraPath) throws IOException
     {
-        StreamableResource result = compressedCache.get(extraPath);
-
-        if (result == null)
+        return getCachedResource("stack-compressed:" + extraPath.toLowerCase(), new Callable<StreamableResource>()
         {
-            StreamableResource uncompressed = getUncompressedResource(extraPath);
-            result = compressStream(uncompressed);
-            compressedCache.put(extraPath, result);
-        }
+            public StreamableResource call() throws Exception
+            {
+                return compressStream(getUncompressedResource(extraPath));
+            }
+        });
+    }
 
-        return result;
+    private StreamableResource getUncompressedResource(final String extraPath) throws IOException
+    {
+        return getCachedResource("stack:" + extraPath.toLowerCase(), new Callable<StreamableResource>()
+        {
+            public StreamableResource call() throws Exception
+            {
+                return assembleStackContent(extraPath);
+            }
+        });
     }
 
-    private synchronized StreamableResource getUncompressedResource(String extraPath) throws IOException
+    /**
+     * Returns the cached content, or builds and caches it. Only one thread builds the content for any key; other
+     * threads requesting the same key wait for it to finish.
+     */
+    private StreamableResource getCachedResource(final String key, final Callable<StreamableResource> builder)
+            throws IOException
     {
-        StreamableResource result = uncompressedCache.get(extraPath);
+        StreamableResource result = assetCache.get(key);
+
+        if (result != null)
+        {
+            return result;
+        }
+
+        FutureTask<StreamableResource> task = inFlight.get(key);
 
-        if (result == null)
+        if (task == null)
         {
-            result = assembleStackContent(extraPath);
-            uncompressedCache.put(extraPath, result);
+            FutureTask<StreamableResource> newTask = new FutureTask<StreamableResource>(
+                    new Callable<StreamableResource>()
+                    {
+                        public StreamableResource call() throws Exception
+                        {
+                            // Another thread may have completed between the cache check and the creation of the task.
+
+                            StreamableResource cached = assetCache.get(key);
+
+                            return cached != null ? cached : assetCache.put(key, builder.call());
+                        }
+                    });
+
+            task = inFlight.putIfAbsent(key, newTask);
+
+            if (task == null)
+            {
+                task = newTask;
+
+                try
+                {
+                    task.run();
+                } finally
+                {
+                    inFlight.remove(key);
+                }
+            }
         }
 
-        return result;
+        return TapestryInternalUtils.waitFor(task, IOException.class);
     }
 
     private StreamableResource assembleStackContent(String extraPath) throws IOException
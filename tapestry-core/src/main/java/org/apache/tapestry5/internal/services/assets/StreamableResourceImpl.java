@@ -1,4 +1,4 @@
-// Copyright 2011 The Apache Software Foundation
+// Copyright 2011, 2012 The Apache Software Foundation
 //
 // Licensed under the Apache License, Version 2.0 (the "License");
 // you may not use this file except in compliance with the License.
@@ -14,12 +14,15 @@
 
 package org.apache.tapestry5.internal.services.assets;
 
+import org.apache.commons.codec.binary.Hex;
 import org.apache.tapestry5.services.assets.CompressionStatus;
 import org.apache.tapestry5.services.assets.StreamableResource;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 
 public class StreamableResourceImpl implements StreamableResource
 {
@@ -33,6 +36,8 @@ public class StreamableResourceImpl implements StreamableResource
 
     private final BytestreamCache bytestreamCache;
 
+    private final String eTag;
+
     public StreamableResourceImpl(String description, String contentType, CompressionStatus compression, long lastModified,
                                   BytestreamCache bytestreamCache)
     {
@@ -41,6 +46,27 @@ public class StreamableResourceImpl implements StreamableResource
         this.compression = compression;
         this.lastModified = lastModified;
         this.bytestreamCache = bytestreamCache;
+
+        eTag = toETag(bytestreamCache);
+    }
+
+    /**
+     * The entity tag is a quoted MD5 digest of the content; the content is already in memory, so this is computed
+     * just once, here.
+     */
+    private static String toETag(BytestreamCache bytestreamCache)
+    {
+        try
+        {
+            MessageDigest digest = MessageDigest.getInstance("MD5");
+
+            bytestreamCache.updateDigest(digest);
+
+            return "\"" + new String(Hex.encodeHex(digest.digest())) + "\"";
+        } catch (NoSuchAlgorithmException ex)
+        {
+            throw new RuntimeException(ex);
+        }
     }
 
     public String getDescription()
@@ -68,6 +94,11 @@ public class StreamableResourceImpl implements StreamableResource
         return lastModified;
     }
 
+    public String getETag()
+    {
+        return eTag;
+    }
+
     public void streamTo(OutputStream os) throws IOException
     {
         bytestreamCache.writeTo(os);
@@ -1,4 +1,4 @@
-// Copyright 2011 The Apache Software Foundation
+// Copyright 2011, 2012 The Apache Software Foundation
 //
 // Licensed under the Apache License, Version 2.0 (the "License");
 // you may not use this file except in compliance with the License.
@@ -16,6 +16,7 @@ package org.apache.tapestry5.internal.services.assets;
 
 import org.apache.tapestry5.internal.TapestryInternalUtils;
 import org.apache.tapestry5.ioc.Resource;
+import org.apache.tapestry5.services.ResourceDigestGenerator;
 import org.apache.tapestry5.services.assets.*;
 
 import java.io.ByteArrayOutputStream;
@@ -33,14 +34,18 @@ public class StreamableResourceSourceImpl implements StreamableResourceSource
 
     private final ResourceChangeTracker resourceChangeTracker;
 
+    private final ResourceDigestGenerator digestGenerator;
+
     public StreamableResourceSourceImpl(Map<String, ResourceTransformer> configuration,
                                         ContentTypeAnalyzer contentTypeAnalyzer, CompressionAnalyzer compressionAnalyzer,
-                                        ResourceChangeTracker resourceChangeTracker)
+                                        ResourceChangeTracker resourceChangeTracker,
+                                        ResourceDigestGenerator digestGenerator)
     {
         this.configuration = configuration;
         this.contentTypeAnalyzer = contentTypeAnalyzer;
         this.compressionAnalyzer = compressionAnalyzer;
         this.resourceChangeTracker = resourceChangeTracker;
+        this.digestGenerator = digestGenerator;
     }
 
     public StreamableResource getStreamableResource(Resource baseResource, StreamableResourceProcessing processing, ResourceDependencies dependencies)
@@ -60,6 +65,26 @@ public class StreamableResourceSourceImpl implements StreamableResourceSource
         // http://jashkenas.github.com/coffee-script/
         ResourceTransformer rt = configuration.get(fileSuffix);
 
+        String contentType = contentTypeAnalyzer.getContentType(baseResource);
+
+        boolean compressable = compressionAnalyzer.isCompressable(contentType);
+
+        long lastModified = resourceChangeTracker.trackResource(baseResource);
+
+        // Content that is used as-is is streamed from its source on each request, rather than
+        // being read into memory.
+
+        if (rt == null && !compressable)
+        {
+            StreamableResource streamed = URLStreamableResource.create(baseResource.toString(), contentType,
+                    lastModified, baseResource.toURL(), digestGenerator);
+
+            if (streamed != null)
+            {
+                return streamed;
+            }
+        }
+
         InputStream transformed = rt == null ? baseResource.openStream() : rt.transform(baseResource, dependencies);
 
         assert transformed != null;
@@ -68,12 +93,6 @@ public class StreamableResourceSourceImpl implements StreamableResourceSource
 
         transformed.close();
 
-        String contentType = contentTypeAnalyzer.getContentType(baseResource);
-
-        boolean compressable = compressionAnalyzer.isCompressable(contentType);
-
-        long lastModified = resourceChangeTracker.trackResource(baseResource);
-
         return new StreamableResourceImpl(baseResource.toString(), contentType, compressable ? CompressionStatus.COMPRESSABLE
                 : CompressionStatus.NOT_COMPRESSABLE, lastModified, bytestreamCache);
     }
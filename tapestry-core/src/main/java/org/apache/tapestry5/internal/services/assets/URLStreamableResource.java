@@ -0,0 +1,237 @@
+// Copyright 2012 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.internal.services.assets;
+
+import org.apache.tapestry5.internal.TapestryInternalUtils;
+import org.apache.tapestry5.ioc.internal.util.InternalUtils;
+import org.apache.tapestry5.services.ResourceDigestGenerator;
+import org.apache.tapestry5.services.assets.CompressionStatus;
+import org.apache.tapestry5.services.assets.StreamableResource;
+
+import java.io.*;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLDecoder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * A {@link StreamableResource} whose content is read from its URL each time it is streamed, rather than being held
+ * in memory; used for resources that are neither transformed nor compressed (images, fonts, PDFs, and the like).
+ * Content stored in a file is streamed using {@link FileChannel#transferTo(long, long, WritableByteChannel)}, and the
+ * file is exposed (via {@link #getFile()}) so that it may be sent by the servlet container directly.
+ *
+ * @since 5.4
+ */
+public class URLStreamableResource implements StreamableResource
+{
+    private final String description;
+
+    private final String contentType;
+
+    private final long lastModified;
+
+    private final URL url;
+
+    private final File file;
+
+    private final int size;
+
+    private final ResourceDigestGenerator digestGenerator;
+
+    // Computed on first use, and then cached; concurrent first uses may both compute it.
+
+    private volatile String eTag;
+
+    private URLStreamableResource(String description, String contentType, long lastModified, URL url, File file, int size,
+                                  ResourceDigestGenerator digestGenerator)
+    {
+        this.description = description;
+        this.contentType = contentType;
+        this.lastModified = lastModified;
+        this.url = url;
+        this.file = file;
+        this.size = size;
+        this.digestGenerator = digestGenerator;
+    }
+
+    /**
+     * Creates a resource for the URL, if the size of its content can be determined.
+     *
+     * @param digestGenerator
+     *         used to compute the entity tag from the content
+     * @return the resource, or null if the size of the content is not known
+     */
+    public static URLStreamableResource create(String description, String contentType, long lastModified, URL url,
+                                               ResourceDigestGenerator digestGenerator) throws IOException
+    {
+        if (url.getProtocol().equals("file"))
+        {
+            File file = new File(URLDecoder.decode(url.getFile(), "UTF-8"));
+
+            long length = file.length();
+
+            return file.isFile() && length <= Integer.MAX_VALUE
+                    ? new URLStreamableResource(description, contentType, lastModified, url, file, (int) length,
+                    digestGenerator)
+                    : null;
+        }
+
+        URLConnection connection = url.openConnection();
+
+        try
+        {
+            int length = connection.getContentLength();
+
+            return length < 0 ? null : new URLStreamableResource(description, contentType, lastModified, url, null,
+                    length, digestGenerator);
+        } finally
+        {
+            close(connection);
+        }
+    }
+
+    /**
+     * Releases the resources held by a connection that was only opened to determine the length of its content (for
+     * example, the JAR file of a connection that does not use caches).
+     */
+    private static void close(URLConnection connection)
+    {
+        if (connection instanceof HttpURLConnection)
+        {
+            ((HttpURLConnection) connection).disconnect();
+
+            return;
+        }
+
+        try
+        {
+            InternalUtils.close(connection.getInputStream());
+        } catch (IOException ex)
+        {
+            // The connection could not be opened, so there is nothing to release.
+        }
+    }
+
+    public String getDescription()
+    {
+        return description;
+    }
+
+    public CompressionStatus getCompression()
+    {
+        return CompressionStatus.NOT_COMPRESSABLE;
+    }
+
+    public String getContentType()
+    {
+        return contentType;
+    }
+
+    public int getSize()
+    {
+        return size;
+    }
+
+    public long getLastModified()
+    {
+        return lastModified;
+    }
+
+    /**
+     * Returns an entity tag derived from the content (and so the same on every server, whatever the file's
+     * modification time). The content is read to compute the tag the first time it is needed.
+     */
+    public String getETag()
+    {
+        String result = eTag;
+
+        if (result == null)
+        {
+            result = "\"" + digestGenerator.generateDigest(url) + "\"";
+
+            eTag = result;
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the file containing the content, or null if the content is not stored as a file.
+     */
+    public File getFile()
+    {
+        return file;
+    }
+
+    public void streamTo(OutputStream os) throws IOException
+    {
+        if (file == null)
+        {
+            InputStream stream = openStream();
+
+            try
+            {
+                TapestryInternalUtils.copy(stream, os);
+            } finally
+            {
+                InternalUtils.close(stream);
+            }
+
+            return;
+        }
+
+        FileInputStream stream = new FileInputStream(file);
+
+        try
+        {
+            FileChannel channel = stream.getChannel();
+            WritableByteChannel target = Channels.newChannel(os);
+
+            long position = 0;
+
+            // transferTo() may transfer fewer bytes than requested.
+
+            while (position < size)
+            {
+                long transferred = channel.transferTo(position, size - position, target);
+
+                if (transferred <= 0)
+                {
+                    break;
+                }
+
+                position += transferred;
+            }
+        } finally
+        {
+            InternalUtils.close(stream);
+        }
+    }
+
+    public InputStream openStream() throws IOException
+    {
+        return file == null ? url.openStream() : new FileInputStream(file);
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("StreamableResource<%s %s lastModified: %tc size: %d>", contentType, description,
+                lastModified, size);
+    }
+}
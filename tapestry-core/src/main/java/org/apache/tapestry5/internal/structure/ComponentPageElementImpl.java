@@ -1,4 +1,4 @@
-// Copyright 2006, 2007, 2008, 2009, 2010, 2011 The Apache Software Foundation
+// Copyright 2006, 2007, 2008, 2009, 2010, 2011, 2012 The Apache Software Foundation
 //
 // Licensed under the Apache License, Version 2.0 (the "License");
 // you may not use this file except in compliance with the License.
@@ -78,6 +78,11 @@ public class ComponentPageElementImpl extends BaseLocatable implements Component
 
     private static final Block PLACEHOLDER_BLOCK = new PlaceholderBlock();
 
+    /**
+     * Stands in for the current element when a component starts rendering with no current element.
+     */
+    private static final Object NO_ELEMENT = new Object();
+
     private static final ComponentCallback POST_RENDER_CLEANUP = new LifecycleNotificationComponentCallback()
     {
         public void run(Component component)
@@ -134,13 +139,14 @@ public class ComponentPageElementImpl extends BaseLocatable implements Component
                     return;
                 }
 
-                // Multiple components (i.e., some mixins).
+                // Multiple components (i.e., some mixins). Indexed access avoids creating an iterator
+                // for each phase of each render.
 
-                Iterator<Component> i = reverse ? InternalUtils.reverseIterator(components) : components.iterator();
+                int count = components.size();
 
-                while (i.hasNext())
+                for (int i = 0; i < count; i++)
                 {
-                    invokeComponent(i.next(), writer, event);
+                    invokeComponent(components.get(reverse ? count - 1 - i : i), writer, event);
 
                     if (event.isAborted())
                         break;
@@ -414,30 +420,24 @@ public class ComponentPageElementImpl extends BaseLocatable implements Component
         }
     }
 
+    /**
+     * Used to detect mismatches calls to {@link MarkupWriter#element(String, Object[])} and
+     * {@link org.apache.tapestry5.MarkupWriter#end()}. The expectation is that any element(s)
+     * begun by this component during rendering will be balanced by end() calls, resulting in the current element
+     * reverting to its initial value (which is stored in {@link #renderingValue} when rendering starts). A single
+     * instance is shared by every render of the component.
+     */
     private class PostRenderCleanupPhase implements RenderCommand
     {
-        /**
-         * Used to detect mismatches calls to {@link MarkupWriter#element(String, Object[])} and
-         * {@link org.apache.tapestry5.MarkupWriter#end()}. The expectation is that any element(s)
-         * begun by this component
-         * during rendering will be balanced by end() calls, resulting in the current element
-         * reverting to its initial
-         * value.
-         */
-        private final Element expectedElementAtCompletion;
-
-        PostRenderCleanupPhase(Element expectedElementAtCompletion)
-        {
-            this.expectedElementAtCompletion = expectedElementAtCompletion;
-        }
-
         public void render(MarkupWriter writer, RenderQueue queue)
         {
-            renderingValue.set(false);
+            Object expectedElementAtCompletion = renderingValue.get();
+
+            renderingValue.set(null);
 
             Element current = writer.getElement();
 
-            if (current != expectedElementAtCompletion)
+            if ((current == null ? NO_ELEMENT : current) != expectedElementAtCompletion)
                 throw new TapestryException(StructureMessages.unbalancedElements(completeId), getLocation(), null);
 
             invoke(false, POST_RENDER_CLEANUP);
@@ -499,7 +499,13 @@ public class ComponentPageElementImpl extends BaseLocatable implements Component
 
     private final Page page;
 
-    private final PerThreadValue<Boolean> renderingValue;
+    /**
+     * While the component is rendering, the element that was current when rendering started (or {@link #NO_ELEMENT});
+     * null when not rendering.
+     */
+    private final PerThreadValue<Object> renderingValue;
+
+    private final RenderCommand postRenderCleanupPhase = new PostRenderCleanupPhase();
 
     // should be okay since it's a shadow service object
     private final Request request;
@@ -957,11 +963,11 @@ public class ComponentPageElementImpl extends BaseLocatable implements Component
                 return;
             }
 
-            Iterator<Component> i = reverse ? InternalUtils.reverseIterator(components) : components.iterator();
+            int count = components.size();
 
-            while (i.hasNext())
+            for (int i = 0; i < count; i++)
             {
-                callback.run(i.next());
+                callback.run(components.get(reverse ? count - 1 - i : i));
 
                 if (callback.isEventAborted())
                     return;
@@ -979,7 +985,7 @@ public class ComponentPageElementImpl extends BaseLocatable implements Component
 
     public boolean isRendering()
     {
-        return renderingValue.get(false);
+        return renderingValue.get() != null;
     }
 
     /**
@@ -1000,11 +1006,13 @@ public class ComponentPageElementImpl extends BaseLocatable implements Component
 
         // TODO: Check for recursive rendering.
 
-        renderingValue.set(true);
+        Element current = writer.getElement();
+
+        renderingValue.set(current == null ? NO_ELEMENT : current);
 
         queue.startComponent(coreResources);
 
-        queue.push(new PostRenderCleanupPhase(writer.getElement()));
+        queue.push(postRenderCleanupPhase);
 
         push(queue, setupRenderPhase);
     }
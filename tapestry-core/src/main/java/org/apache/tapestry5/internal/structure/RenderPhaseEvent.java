@@ -1,4 +1,4 @@
-// Copyright 2010, 2011 The Apache Software Foundation
+// Copyright 2010, 2011, 2012 The Apache Software Foundation
 //
 // Licensed under the Apache License, Version 2.0 (the "License");
 // you may not use this file except in compliance with the License.
@@ -16,6 +16,7 @@ package org.apache.tapestry5.internal.structure;
 
 import org.apache.tapestry5.internal.services.EventImpl;
 import org.apache.tapestry5.ioc.OperationTracker;
+import org.apache.tapestry5.runtime.RenderCommand;
 import org.slf4j.Logger;
 
 public class RenderPhaseEvent extends EventImpl
@@ -30,6 +31,22 @@ public class RenderPhaseEvent extends EventImpl
 
     }
 
+    /**
+     * Boolean and {@link RenderCommand} results (by far the most common, as with Loop) are handled directly; they
+     * can not fail, so there's no need to describe the operation to the tracker, which would otherwise allocate a
+     * message for every result.
+     */
+    @Override
+    protected boolean handleResult(Object result)
+    {
+        if (result instanceof Boolean || result instanceof RenderCommand)
+        {
+            return handler.handleResult(result);
+        }
+
+        return super.handleResult(result);
+    }
+
     /**
      * Delegates to {@link org.apache.tapestry5.internal.structure.RenderPhaseEventHandler#enqueueSavedRenderCommands()}, to queue up any
      * render commands returned from invoked event handler methods.
@@ -0,0 +1,82 @@
+// Copyright 2012 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.internal.test;
+
+/**
+ * The state of one simulated client of a {@link org.apache.tapestry5.test.LoadTester}: its request (including its
+ * session), response and cookies. Each load test thread acts as a single client, whose state persists across
+ * requests; the client is bound to the thread for the duration of the load test.
+ *
+ * @since 5.4
+ */
+public class LoadTesterClient
+{
+    private static final ThreadLocal<LoadTesterClient> CURRENT = new ThreadLocal<LoadTesterClient>();
+
+    private final TestableRequest request = new TestableRequestImpl();
+
+    private final TestableResponse response = new TestableResponseImpl();
+
+    private final TestableCookieSinkSource cookies = new TestableCookieSinkSource();
+
+    /**
+     * Binds a new client to the current thread.
+     */
+    public static void bind()
+    {
+        CURRENT.set(new LoadTesterClient());
+    }
+
+    /**
+     * Discards the client bound to the current thread.
+     */
+    public static void unbind()
+    {
+        CURRENT.remove();
+    }
+
+    /**
+     * Returns the client bound to the current thread.
+     *
+     * @throws IllegalStateException
+     *         if no client is bound
+     */
+    public static LoadTesterClient current()
+    {
+        LoadTesterClient result = CURRENT.get();
+
+        if (result == null)
+        {
+            throw new IllegalStateException("No LoadTester client is bound to the current thread.");
+        }
+
+        return result;
+    }
+
+    public TestableRequest getRequest()
+    {
+        return request;
+    }
+
+    public TestableResponse getResponse()
+    {
+        return response;
+    }
+
+    public TestableCookieSinkSource getCookies()
+    {
+        return cookies;
+    }
+}
@@ -0,0 +1,100 @@
+// Copyright 2012 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.internal.test;
+
+import org.apache.tapestry5.internal.services.CookieSink;
+import org.apache.tapestry5.internal.services.CookieSource;
+import org.apache.tapestry5.ioc.MappedConfiguration;
+import org.apache.tapestry5.ioc.ObjectCreator;
+import org.apache.tapestry5.ioc.OrderedConfiguration;
+import org.apache.tapestry5.ioc.annotations.Contribute;
+import org.apache.tapestry5.ioc.annotations.Local;
+import org.apache.tapestry5.ioc.services.Builtin;
+import org.apache.tapestry5.ioc.services.PlasticProxyFactory;
+import org.apache.tapestry5.ioc.services.ServiceOverride;
+import org.apache.tapestry5.services.MarkupRendererFilter;
+import org.apache.tapestry5.services.Request;
+import org.apache.tapestry5.services.RequestFilter;
+import org.apache.tapestry5.services.Response;
+
+/**
+ * Used in place of the {@link PageTesterModule} by the {@link org.apache.tapestry5.test.LoadTester}. The request,
+ * response and cookies are proxies that delegate to the {@link LoadTesterClient} bound to the current thread, so that
+ * many threads (each a different client) may make requests at once.
+ *
+ * @since 5.4
+ */
+@SuppressWarnings("rawtypes")
+public class LoadTesterModule
+{
+    public static TestableRequest buildTestableRequest(@Builtin PlasticProxyFactory proxyFactory)
+    {
+        return proxyFactory.createProxy(TestableRequest.class, new ObjectCreator<TestableRequest>()
+        {
+            public TestableRequest createObject()
+            {
+                return LoadTesterClient.current().getRequest();
+            }
+        }, "<TestableRequest for current LoadTester client>");
+    }
+
+    public static TestableResponse buildTestableResponse(@Builtin PlasticProxyFactory proxyFactory)
+    {
+        return proxyFactory.createProxy(TestableResponse.class, new ObjectCreator<TestableResponse>()
+        {
+            public TestableResponse createObject()
+            {
+                return LoadTesterClient.current().getResponse();
+            }
+        }, "<TestableResponse for current LoadTester client>");
+    }
+
+    @Contribute(ServiceOverride.class)
+    public static void setupTestableOverrides(MappedConfiguration<Class, Object> configuration, @Local
+    TestableRequest request, @Local
+    TestableResponse response, @Builtin
+    PlasticProxyFactory proxyFactory)
+    {
+        configuration.add(Request.class, request);
+        configuration.add(Response.class, response);
+
+        configuration.add(CookieSink.class, proxyFactory.createProxy(CookieSink.class, new ObjectCreator<CookieSink>()
+        {
+            public CookieSink createObject()
+            {
+                return LoadTesterClient.current().getCookies();
+            }
+        }, "<CookieSink for current LoadTester client>"));
+
+        configuration.add(CookieSource.class, proxyFactory.createProxy(CookieSource.class,
+                new ObjectCreator<CookieSource>()
+                {
+                    public CookieSource createObject()
+                    {
+                        return LoadTesterClient.current().getCookies();
+                    }
+                }, "<CookieSource for current LoadTester client>"));
+    }
+
+    public static void contributeRequestHandler(OrderedConfiguration<RequestFilter> configuration)
+    {
+        configuration.addInstance("EndOfRequestCleanup", EndOfRequestCleanupFilter.class, "before:StaticFiles");
+    }
+
+    public static void contributeMarkupRenderer(OrderedConfiguration<MarkupRendererFilter> configuration)
+    {
+        configuration.addInstance("CaptureRenderedDocument", CaptureRenderedDocument.class, "before:DocumentLinker");
+    }
+}
@@ -0,0 +1,153 @@
+// Copyright 2012 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.internal.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of latencies (or any non-negative long values), with log-linear buckets in the style of HdrHistogram:
+ * each power of two is divided into eight buckets, so that any recorded value is reported to within 12.5%. Values
+ * of any magnitude are recorded into a fixed number of buckets, without allocation or locking. Recording a value
+ * updates its bucket and a {@linkplain StripedCounter striped} total; the maximum is only written when it grows, and
+ * the count is the sum of the buckets, so that many threads may record values with little contention.
+ *
+ * @since 5.4
+ */
+public class LatencyHistogram
+{
+    private static final int SUB_BUCKET_BITS = 3;
+
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    // Enough buckets for any positive long: the highest bit is 62
+
+    private static final int BUCKET_COUNT = (62 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+
+    private final StripedCounter total = new StripedCounter();
+
+    private final AtomicLong max = new AtomicLong();
+
+    static int bucketIndex(long value)
+    {
+        if (value < SUB_BUCKETS)
+        {
+            return (int) Math.max(0, value);
+        }
+
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+
+        int shift = exponent - SUB_BUCKET_BITS;
+
+        // The top bits of the value, from SUB_BUCKETS to 2 * SUB_BUCKETS - 1
+
+        int mantissa = (int) (value >>> shift);
+
+        return shift * SUB_BUCKETS + mantissa;
+    }
+
+    /**
+     * The highest value that is recorded into the bucket.
+     */
+    static long bucketUpperBound(int index)
+    {
+        if (index < 2 * SUB_BUCKETS)
+        {
+            return index;
+        }
+
+        int shift = index / SUB_BUCKETS - 1;
+        long mantissa = index % SUB_BUCKETS + SUB_BUCKETS;
+
+        return ((mantissa + 1) << shift) - 1;
+    }
+
+    public void record(long value)
+    {
+        counts.incrementAndGet(bucketIndex(value));
+        total.add(value);
+
+        while (true)
+        {
+            long current = max.get();
+
+            if (value <= current || max.compareAndSet(current, value))
+            {
+                return;
+            }
+        }
+    }
+
+    public long getCount()
+    {
+        long result = 0;
+
+        for (int i = 0; i < BUCKET_COUNT; i++)
+        {
+            result += counts.get(i);
+        }
+
+        return result;
+    }
+
+    public long getTotal()
+    {
+        return total.get();
+    }
+
+    public long getMax()
+    {
+        return max.get();
+    }
+
+    public long getMean()
+    {
+        long n = getCount();
+
+        return n == 0 ? 0 : total.get() / n;
+    }
+
+    /**
+     * Returns the value at the percentile (0 - 100): the upper bound of the bucket containing the value, but never
+     * more than the maximum recorded value. Returns 0 if nothing has been recorded.
+     */
+    public long getPercentile(double percentile)
+    {
+        long n = getCount();
+
+        if (n == 0)
+        {
+            return 0;
+        }
+
+        long target = Math.max(1, (long) Math.ceil(percentile / 100d * n));
+
+        long seen = 0;
+
+        for (int i = 0; i < BUCKET_COUNT; i++)
+        {
+            seen += counts.get(i);
+
+            if (seen >= target)
+            {
+                return Math.min(bucketUpperBound(i), max.get());
+            }
+        }
+
+        return max.get();
+    }
+}
@@ -0,0 +1,84 @@
+// Copyright 2012 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.internal.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A counter that may be updated by many threads at once with little contention: each thread adds to one of several
+ * stripes (chosen by thread id), and the stripes are summed when the value is read. Stripes are spaced apart in the
+ * underlying array so that they fall on different cache lines.
+ *
+ * @since 5.4
+ */
+public class StripedCounter
+{
+    // Eight longs (64 bytes) to a cache line
+
+    private static final int SPACING = 8;
+
+    private static final int STRIPES = stripeCount();
+
+    private final AtomicLongArray cells = new AtomicLongArray(STRIPES * SPACING);
+
+    private static int stripeCount()
+    {
+        int processors = Runtime.getRuntime().availableProcessors();
+
+        int result = 1;
+
+        // A power of two, at least twice the number of processors.
+
+        while (result < 2 * processors)
+        {
+            result <<= 1;
+        }
+
+        return result;
+    }
+
+    public void add(long delta)
+    {
+        int stripe = (int) (Thread.currentThread().getId() & (STRIPES - 1));
+
+        cells.addAndGet(stripe * SPACING, delta);
+    }
+
+    public void increment()
+    {
+        add(1);
+    }
+
+    /**
+     * Returns the current total. The result is not an atomic snapshot if the counter is being concurrently updated.
+     */
+    public long get()
+    {
+        long result = 0;
+
+        for (int i = 0; i < STRIPES; i++)
+        {
+            result += cells.get(i * SPACING);
+        }
+
+        return result;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.valueOf(get());
+    }
+}
@@ -0,0 +1,167 @@
+// Copyright 2012 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.services;
+
+/**
+ * An event handler method (including a page's "activate" event handler) may return an instance of this class to
+ * suspend the request until a result is available, typically from a slow backend. The handler arranges for
+ * {@link #complete(Object)} (or {@link #fail(Throwable)}) to be invoked later, from any thread; the request's servlet
+ * container thread is released in the meantime (when the container supports Servlet 3.0 asynchronous requests).
+ * <p/>
+ * Once complete, processing continues with the request's per-thread state (the Request, Response, Environment, and
+ * so forth) restored: a non-null value is processed just as if the event handler method had returned it; a null value
+ * continues the request normally (an "activate" event handler continues on to render the page, other event handlers
+ * redirect back to the active page).
+ * <p/>
+ * When the container does not support asynchronous requests (or Tapestry's filter is not configured with
+ * {@code <async-supported>}), the container thread simply waits for the result. In either case, if the result is not
+ * available within the {@link org.apache.tapestry5.SymbolConstants#ASYNC_REQUEST_TIMEOUT}, the request is failed with
+ * a 503 (service unavailable) response.
+ * <p/>
+ * Only traditional (non-Ajax) requests may be suspended.
+ *
+ * @since 5.4
+ */
+public final class AsyncResult
+{
+    private boolean done;
+
+    private Object value;
+
+    private Throwable failure;
+
+    private Runnable completionListener;
+
+    /**
+     * Completes the result with a value, resuming the suspended request.
+     *
+     * @param value the event handler result, or null
+     * @throws IllegalStateException if already completed
+     */
+    public void complete(Object value)
+    {
+        finish(value, null);
+    }
+
+    /**
+     * Completes the result with a failure, which will be reported as the request's exception.
+     *
+     * @param failure the cause of the failure
+     * @throws IllegalStateException if already completed
+     */
+    public void fail(Throwable failure)
+    {
+        assert failure != null;
+
+        finish(null, failure);
+    }
+
+    private void finish(Object value, Throwable failure)
+    {
+        Runnable listener;
+
+        synchronized (this)
+        {
+            if (done)
+            {
+                throw new IllegalStateException("The asynchronous result has already been completed.");
+            }
+
+            this.value = value;
+            this.failure = failure;
+
+            done = true;
+
+            listener = completionListener;
+            completionListener = null;
+
+            notifyAll();
+        }
+
+        if (listener != null)
+        {
+            listener.run();
+        }
+    }
+
+    public synchronized boolean isDone()
+    {
+        return done;
+    }
+
+    /**
+     * Returns the value provided to {@link #complete(Object)}.
+     */
+    public synchronized Object getValue()
+    {
+        return value;
+    }
+
+    /**
+     * Returns the exception provided to {@link #fail(Throwable)}, or null.
+     */
+    public synchronized Throwable getFailure()
+    {
+        return failure;
+    }
+
+    /**
+     * Waits for the result to be completed.
+     *
+     * @param timeout maximum time to wait, in milliseconds
+     * @return true if the result is complete, false if the timeout expired first
+     */
+    public synchronized boolean await(long timeout) throws InterruptedException
+    {
+        long deadline = System.currentTimeMillis() + timeout;
+
+        while (!done)
+        {
+            long remaining = deadline - System.currentTimeMillis();
+
+            if (remaining <= 0)
+            {
+                return false;
+            }
+
+            wait(remaining);
+        }
+
+        return true;
+    }
+
+    /**
+     * Used by the framework to be notified when the result completes; the listener is invoked by the thread that
+     * completes the result, or immediately if the result is already complete. Only a single listener is supported.
+     */
+    public void onCompletion(Runnable listener)
+    {
+        assert listener != null;
+
+        synchronized (this)
+        {
+            if (!done)
+            {
+                assert completionListener == null;
+
+                completionListener = listener;
+
+                return;
+            }
+        }
+
+        listener.run();
+    }
+}
@@ -0,0 +1,38 @@
+// Copyright 2012 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.services;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Encodes (compresses) response content for a particular HTTP content encoding, such as "gzip" or "deflate".
+ * Encoders are contributed to the {@link ContentEncoderSource} service.
+ *
+ * @since 5.4
+ */
+public interface ContentEncoder
+{
+    /**
+     * The content coding token, as used in the Accept-Encoding request header and Content-Encoding response header.
+     */
+    String getEncoding();
+
+    /**
+     * Wraps a stream, so that content written to the returned stream is encoded and written to the provided stream.
+     * The encoded content is complete only once the returned stream is closed.
+     */
+    OutputStream encode(OutputStream stream) throws IOException;
+}
@@ -0,0 +1,44 @@
+// Copyright 2012 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.services;
+
+import org.apache.tapestry5.ioc.annotations.UsesOrderedConfiguration;
+
+/**
+ * Negotiates the content encoding of a response, given the encodings accepted by the client. The configuration is the
+ * encoders supported by the application, in order of preference: when the client accepts several encodings equally,
+ * the earliest in the configuration is used. Tapestry contributes "gzip" and "deflate" encoders; others (such as a
+ * "br", Brotli, encoder) may be contributed ahead of them.
+ *
+ * @see ResponseCompressionAnalyzer#getContentEncoder()
+ * @since 5.4
+ */
+@UsesOrderedConfiguration(ContentEncoder.class)
+public interface ContentEncoderSource
+{
+    /**
+     * Selects the encoder to use.
+     *
+     * @param acceptEncoding
+     *         the value of the Accept-Encoding request header (possibly null)
+     * @return the preferred encoder accepted by the client, or null if the client accepts none of the encoders
+     */
+    ContentEncoder negotiate(String acceptEncoding);
+
+    /**
+     * Returns the encoder for the given content encoding, or null if not supported.
+     */
+    ContentEncoder getEncoder(String encoding);
+}
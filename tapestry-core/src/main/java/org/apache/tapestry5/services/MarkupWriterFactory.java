@@ -1,4 +1,4 @@
-// Copyright 2006, 2007, 2008 The Apache Software Foundation
+// Copyright 2006, 2007, 2008, 2012 The Apache Software Foundation
 //
 // Licensed under the Apache License, Version 2.0 (the "License");
 // you may not use this file except in compliance with the License.
@@ -17,6 +17,8 @@ package org.apache.tapestry5.services;
 import org.apache.tapestry5.ContentType;
 import org.apache.tapestry5.MarkupWriter;
 
+import java.io.PrintWriter;
+
 /**
  * Source for {@link org.apache.tapestry5.MarkupWriter} instances.
  */
@@ -48,4 +50,18 @@ public interface MarkupWriterFactory
      * @return writer configured for the page
      */
     MarkupWriter newMarkupWriter(String pageName);
+
+    /**
+     * Creates a markup writer for a particular content type that writes markup to the provided writer as it is
+     * rendered, rather than building the entire {@link org.apache.tapestry5.dom.Document} first.
+     *
+     * @param contentType type of content generated by the markup writer; used to control the type of {@link
+     *                    org.apache.tapestry5.dom.MarkupModel}
+     * @param writer      to which markup is written
+     * @param flushHead   if true, the writer is flushed as soon as the {@code <head>} has been written
+     * @see org.apache.tapestry5.MetaDataConstants#STREAM_MARKUP
+     * @see org.apache.tapestry5.MetaDataConstants#FLUSH_HEAD
+     * @since 5.4
+     */
+    MarkupWriter newStreamingMarkupWriter(ContentType contentType, PrintWriter writer, boolean flushHead);
 }
@@ -0,0 +1,75 @@
+// Copyright 2012 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.services;
+
+import java.util.List;
+
+/**
+ * Collects timing metrics for the stages of request processing. Stages nest: each stage started while another is
+ * in progress (in the same thread) is its child, and is identified by a path such as "request/render/markup". Time
+ * is recorded, for each stage path, per page: the page is identified by the component event or page render request
+ * being processed (stages of requests that are not for a page, such as asset requests, have a blank page name).
+ * <p/>
+ * Tapestry times these stages:
+ * <dl>
+ * <dt>request</dt><dd>The {@link RequestHandler} pipeline</dd>
+ * <dt>event</dt><dd>The {@link ComponentEventRequestHandler} pipeline (including Ajax requests)</dd>
+ * <dt>render</dt><dd>The {@link PageRenderRequestHandler} pipeline</dd>
+ * <dt>activation</dt><dd>Page activation (triggering the "activate" event)</dd>
+ * <dt>markup</dt><dd>The {@link MarkupRenderer} and {@link PartialMarkupRenderer} pipelines (rendering the DOM)</dd>
+ * <dt>serialize</dt><dd>Writing the rendered DOM to the response (for a streamed page, most markup is written as it
+ * is rendered, during "markup"; this is the remainder of the document)</dd>
+ * <dt>asset</dt><dd>Streaming an asset to the client</dd>
+ * </dl>
+ * Applications may time their own stages with {@link #start(String)} and {@link #end()}.
+ *
+ * @see org.apache.tapestry5.SymbolConstants#PIPELINE_METRICS_ENABLED
+ * @since 5.4
+ */
+public interface PipelineMetrics
+{
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    /**
+     * Starts timing a stage, as a child of the current stage (if any), in the current thread.
+     *
+     * @param stage
+     *         name of the stage
+     * @return true if the stage is being timed; if so, {@link #end()} must be invoked when the stage completes
+     */
+    boolean start(String stage);
+
+    /**
+     * Ends the most recently started stage in the current thread, recording its elapsed time.
+     */
+    void end();
+
+    /**
+     * Identifies the page to which the stages of the current request are attributed.
+     */
+    void setPageName(String pageName);
+
+    /**
+     * Returns statistics for each stage and page, sorted by path and page name.
+     */
+    List<PipelineStageStatistics> getStatistics();
+
+    /**
+     * Discards all collected metrics.
+     */
+    void reset();
+}
@@ -0,0 +1,85 @@
+// Copyright 2012 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.services;
+
+/**
+ * Immutable snapshot of the render profiling totals for a single page or component class.
+ *
+ * @see RenderProfiler
+ * @since 5.4
+ */
+public class RenderProfile
+{
+    private final String name;
+
+    private final long renderCount, commandCount, elapsedNanos, allocatedBytes;
+
+    public RenderProfile(String name, long renderCount, long commandCount, long elapsedNanos, long allocatedBytes)
+    {
+        this.name = name;
+        this.renderCount = renderCount;
+        this.commandCount = commandCount;
+        this.elapsedNanos = elapsedNanos;
+        this.allocatedBytes = allocatedBytes;
+    }
+
+    /**
+     * The page name, or the fully qualified component class name.
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * Number of renders (of the page), or number of page renders in which the component executed render commands.
+     */
+    public long getRenderCount()
+    {
+        return renderCount;
+    }
+
+    /**
+     * Number of render commands executed.
+     */
+    public long getCommandCount()
+    {
+        return commandCount;
+    }
+
+    /**
+     * Cumulative wall time, in nanoseconds, spent executing render commands.
+     */
+    public long getElapsedNanos()
+    {
+        return elapsedNanos;
+    }
+
+    /**
+     * Cumulative estimate of the bytes allocated while executing render commands, or 0 if the JVM does not support
+     * measuring per-thread allocation.
+     */
+    public long getAllocatedBytes()
+    {
+        return allocatedBytes;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s: %,d renders, %,d commands, %,.3f ms, %,d bytes", name, renderCount, commandCount,
+                elapsedNanos / 1000000d, allocatedBytes);
+    }
+}
@@ -0,0 +1,66 @@
+// Copyright 2012 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.services;
+
+import java.util.List;
+
+/**
+ * Collects render profiling data: the number of render commands executed, the wall time spent executing them, and an
+ * estimate of the memory allocated while doing so, totalled per page and per component class. A render command is
+ * attributed to the component that was rendering when the command started.
+ * <p/>
+ * Profiling adds a small cost to every render command, and is disabled by default; it may be enabled with the
+ * {@link org.apache.tapestry5.SymbolConstants#RENDER_PROFILING_ENABLED} symbol, or at runtime. The collected data
+ * is displayed by the core/RenderProfiling page.
+ *
+ * @since 5.4
+ */
+public interface RenderProfiler
+{
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    /**
+     * Returns the current thread's total allocated bytes (an ever increasing value, used to compute deltas), or 0 if
+     * not supported by the JVM.
+     */
+    long getAllocatedBytes();
+
+    /**
+     * Records the totals for one component class, within one page render.
+     */
+    void recordComponent(String componentClassName, long commandCount, long elapsedNanos, long allocatedBytes);
+
+    /**
+     * Records the totals for one page render (or partial page render).
+     */
+    void recordPage(String pageName, long commandCount, long elapsedNanos, long allocatedBytes);
+
+    /**
+     * Returns the totals for each page, sorted by descending elapsed time.
+     */
+    List<RenderProfile> getPageProfiles();
+
+    /**
+     * Returns the totals for each component class, sorted by descending elapsed time.
+     */
+    List<RenderProfile> getComponentProfiles();
+
+    /**
+     * Discards all collected data.
+     */
+    void reset();
+}
@@ -1,4 +1,4 @@
-// Copyright 2009, 2011 The Apache Software Foundation
+// Copyright 2009, 2011, 2012 The Apache Software Foundation
 //
 // Licensed under the Apache License, Version 2.0 (the "License");
 // you may not use this file except in compliance with the License.
@@ -18,7 +18,7 @@ import org.apache.tapestry5.ioc.annotations.UsesConfiguration;
 import org.apache.tapestry5.services.assets.CompressionAnalyzer;
 
 /**
- * Used to determine if the client supports GZIP compression of the response.
+ * Used to determine if the client supports GZIP (or other) compression of the response.
  * 
  * @since 5.1.0.0
  */
@@ -32,6 +32,16 @@ public interface ResponseCompressionAnalyzer
      */
     boolean isGZipSupported();
 
+    /**
+     * Negotiates the content encoding of the response, using the Accept-Encoding request header and the
+     * {@link ContentEncoderSource}.
+     *
+     * @return the encoder to use, or null if the response should not be encoded (the client accepts none of the
+     *         application's encodings, or compression is disabled)
+     * @since 5.4
+     */
+    ContentEncoder getContentEncoder();
+
     /**
      * Checks to see if the indicated content type is compressable. Many formats are already compressed; pushing them
      * through a GZip filter consumes cycles and makes them larger.
@@ -0,0 +1,88 @@
+// Copyright 2012 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.services;
+
+import org.apache.tapestry5.ioc.services.OperationTiming;
+
+import java.util.List;
+
+/**
+ * A request, captured by the {@link SlowRequestLog}, that took longer than the threshold to process; includes the
+ * timeline of operations tracked while processing the request.
+ *
+ * @since 5.4
+ */
+public class SlowRequest
+{
+    private final String method, path;
+
+    private final long timestamp, elapsedNanos;
+
+    private final List<OperationTiming> operations;
+
+    public SlowRequest(String method, String path, long timestamp, long elapsedNanos,
+                       List<OperationTiming> operations)
+    {
+        this.method = method;
+        this.path = path;
+        this.timestamp = timestamp;
+        this.elapsedNanos = elapsedNanos;
+        this.operations = operations;
+    }
+
+    /**
+     * The HTTP method, such as "GET" or "POST".
+     */
+    public String getMethod()
+    {
+        return method;
+    }
+
+    /**
+     * The path of the request, as per {@link Request#getPath()}.
+     */
+    public String getPath()
+    {
+        return path;
+    }
+
+    /**
+     * The time (as per {@link System#currentTimeMillis()}) at which the request completed.
+     */
+    public long getTimestamp()
+    {
+        return timestamp;
+    }
+
+    public long getElapsedNanos()
+    {
+        return elapsedNanos;
+    }
+
+    /**
+     * The operations tracked while processing the request, in the order they started.
+     */
+    public List<OperationTiming> getOperations()
+    {
+        return operations;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%tF %<tT %s %s %,.3f ms (%d operations)", timestamp, method, path,
+                elapsedNanos / 1000000d, operations.size());
+    }
+}
@@ -0,0 +1,54 @@
+// Copyright 2012 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.services;
+
+import java.util.List;
+
+/**
+ * Captures requests that take longer than a threshold to process, along with the timeline of operations (as tracked by
+ * the {@link org.apache.tapestry5.ioc.OperationTracker}) for each. Only the most recent slow requests are kept. The
+ * captured requests are displayed by the core/SlowRequests page.
+ *
+ * @see org.apache.tapestry5.SymbolConstants#SLOW_REQUEST_THRESHOLD
+ * @see org.apache.tapestry5.SymbolConstants#SLOW_REQUEST_CAPTURE_SIZE
+ * @since 5.4
+ */
+public interface SlowRequestLog
+{
+    /**
+     * The threshold, in milliseconds; zero if capture is disabled.
+     */
+    long getThreshold();
+
+    /**
+     * Changes the threshold; a threshold of zero disables capture.
+     */
+    void setThreshold(long thresholdMillis);
+
+    /**
+     * Adds a slow request, discarding the oldest captured request if the log is full.
+     */
+    void add(SlowRequest request);
+
+    /**
+     * Returns the captured requests, most recent first.
+     */
+    List<SlowRequest> getSlowRequests();
+
+    /**
+     * Discards all captured requests.
+     */
+    void clear();
+}
@@ -34,6 +34,8 @@ import org.apache.tapestry5.internal.bindings.*;
 import org.apache.tapestry5.internal.dynamic.DynamicTemplateParserImpl;
 import org.apache.tapestry5.internal.grid.CollectionGridDataSource;
 import org.apache.tapestry5.internal.grid.NullDataSource;
+import org.apache.tapestry5.internal.gzip.DeflateContentEncoder;
+import org.apache.tapestry5.internal.gzip.GZipContentEncoder;
 import org.apache.tapestry5.internal.gzip.GZipFilter;
 import org.apache.tapestry5.internal.renderers.*;
 import org.apache.tapestry5.internal.services.*;
@@ -299,6 +301,17 @@ public final class TapestryModule
             // normal set).
             requestGlobals.storeRequestResponse(request, response);
 
+            // A request resumed once its asynchronous result is available continues with that result.
+
+            SuspendedRequest resumed = SuspendedRequest.takeResumed(request);
+
+            if (resumed != null)
+            {
+                resumed.resume();
+
+                return true;
+            }
+
             return masterDispatcher.dispatch(request, response);
         }
     }
@@ -353,6 +366,10 @@ public final class TapestryModule
         binder.bind(AssetPathConverter.class, IdentityAssetPathConverter.class);
         binder.bind(NumericTranslatorSupport.class);
         binder.bind(ClientDataEncoder.class, ClientDataEncoderImpl.class);
+        binder.bind(ContentEncoderSource.class, ContentEncoderSourceImpl.class);
+        binder.bind(RenderProfiler.class, RenderProfilerImpl.class);
+        binder.bind(PipelineMetrics.class, PipelineMetricsImpl.class);
+        binder.bind(SlowRequestLog.class, SlowRequestLogImpl.class);
         binder.bind(ComponentEventLinkEncoder.class, ComponentEventLinkEncoderImpl.class);
         binder.bind(PageRenderLinkSource.class, PageRenderLinkSourceImpl.class);
         binder.bind(ValidatorMacro.class, ValidatorMacroImpl.class);
@@ -821,6 +838,24 @@ public final class TapestryModule
 
     }
 
+    /**
+     * Contributes the built-in encoders, in order of preference:
+     * <dl>
+     * <dt>gzip</dt>
+     * <dd>GZIP compression</dd>
+     * <dt>deflate</dt>
+     * <dd>zlib format compression</dd>
+     * </dl>
+     *
+     * @since 5.4
+     */
+    @Contribute(ContentEncoderSource.class)
+    public static void provideBuiltinContentEncoders(OrderedConfiguration<ContentEncoder> configuration)
+    {
+        configuration.add("gzip", new GZipContentEncoder());
+        configuration.add("deflate", new DeflateContentEncoder(), "after:gzip");
+    }
+
     /**
      * <dl>
      * <dt>StoreIntoGlobals</dt>
@@ -830,7 +865,10 @@ public final class TapestryModule
      * <dd>Identifies requests that are known (via the IgnoredPathsFilter service's configuration) to be mapped to other
      * applications</dd>
      * <dt>GZip</dt>
-     * <dd>Handles GZIP compression of response streams (if supported by client)</dd>
+     * <dd>Handles GZIP (or other {@link ContentEncoder}) compression of response streams (if supported by
+     * client)</dd>
+     * <dt>AsyncRequest</dt>
+     * <dd>Suspends requests awaiting an {@link AsyncResult}, once the rest of the pipeline has completed</dd>
      */
     public void contributeHttpServletRequestHandler(OrderedConfiguration<HttpServletRequestFilter> configuration,
 
@@ -859,6 +897,9 @@ public final class TapestryModule
         };
 
         configuration.add("StoreIntoGlobals", storeIntoGlobals, "before:*");
+
+        configuration.addInstance("AsyncRequest", AsyncRequestFilter.class, "after:StoreIntoGlobals",
+                "before:IgnoredPaths", "before:GZIP");
     }
 
     /**
@@ -870,7 +911,8 @@ public final class TapestryModule
      * <dt>CheckForUpdates</dt>
      * <dd>Periodically fires events that checks to see if the file system sources for any cached data has changed (see
      * {@link org.apache.tapestry5.internal.services.CheckForUpdatesFilter}). Starting in 5.3, this filter will be null
-     * in production mode (it will only be active in development mode).
+     * in production mode (it will only be active in development mode). Starting in 5.4, it is also null when
+     * {@linkplain SymbolConstants#RELOADING_ENABLED reloading is disabled}.
      * <dt>ErrorFilter</dt>
      * <dd>Catches request errors and lets the {@link org.apache.tapestry5.services.RequestExceptionHandler} handle them
      * </dd>
@@ -879,12 +921,20 @@ public final class TapestryModule
      * is repeated at the end of the pipeline, in case any filter substitutes the request or response).
      * <dt>EndOfRequest</dt>
      * <dd>Notifies internal services that the request has ended</dd>
+     * <dt>PipelineTiming</dt>
+     * <dd>Records the time spent in the pipeline with {@link PipelineMetrics}</dd>
+     * <dt>SlowRequests</dt>
+     * <dd>Captures requests that exceed a threshold into the {@link SlowRequestLog} (see
+     * {@link org.apache.tapestry5.internal.services.SlowRequestFilter})</dd>
      * </dl>
      */
     public void contributeRequestHandler(OrderedConfiguration<RequestFilter> configuration, Context context,
 
                                          @Symbol(SymbolConstants.PRODUCTION_MODE)
-                                         boolean productionMode)
+                                         boolean productionMode,
+
+                                         @Symbol(SymbolConstants.RELOADING_ENABLED)
+                                         boolean reloadingEnabled)
     {
         RequestFilter staticFilesFilter = new StaticFilesFilter(context);
 
@@ -912,12 +962,19 @@ public final class TapestryModule
             }
         };
 
-        if (productionMode)
+        // Timing and slow request capture enclose the rest of the pipeline, including any wait for a reload.
+
+        configuration.addInstance("PipelineTiming", PipelineTimingFilter.class, "before:*");
+
+        configuration.addInstance("SlowRequests", SlowRequestFilter.class, "after:PipelineTiming");
+
+        if (productionMode || !reloadingEnabled)
         {
-            configuration.add("CheckForUpdates", null, "before:*");
+            configuration.add("CheckForUpdates", null, "after:SlowRequests", "before:StaticFiles");
         } else
         {
-            configuration.addInstance("CheckForUpdates", CheckForUpdatesFilter.class, "before:*");
+            configuration.addInstance("CheckForUpdates", CheckForUpdatesFilter.class, "after:SlowRequests",
+                    "before:StaticFiles");
         }
 
         configuration.add("StaticFiles", staticFilesFilter);
@@ -1636,6 +1693,8 @@ public final class TapestryModule
      * <dd>The stream response is sent as the actual reply.</dd>
      * <dt>URL</dt>
      * <dd>Sends a redirect to a (presumably) external URL</dd>
+     * <dt>{@link AsyncResult}</dt>
+     * <dd>Suspends the request until the result is available, then processes the result's value</dd>
      * </dl>
      */
     public void contributeComponentEventResultProcessor(@Traditional
@@ -1671,6 +1730,8 @@ public final class TapestryModule
         configuration.addInstance(StreamResponse.class, StreamResponseResultProcessor.class);
 
         configuration.addInstance(StreamPageContent.class, StreamPageContentResultProcessor.class);
+
+        configuration.addInstance(AsyncResult.class, AsyncResultProcessor.class);
     }
 
     /**
@@ -1815,6 +1876,8 @@ public final class TapestryModule
      * <dd>Provides {@link org.apache.tapestry5.services.Heartbeat}</dd>
      * <dt>ValidationDecorator</dt>
      * <dd>Provides {@link org.apache.tapestry5.ValidationDecorator} (via {@link ValidationDecoratorFactory#newInstance(org.apache.tapestry5.MarkupWriter)})</dd>
+     * <dt>PipelineTiming</dt>
+     * <dd>Records the time spent in the pipeline with {@link PipelineMetrics}</dd>
      * </dl>
      */
     public void contributeMarkupRenderer(OrderedConfiguration<MarkupRendererFilter> configuration,
@@ -1843,9 +1906,23 @@ public final class TapestryModule
     {
         MarkupRendererFilter documentLinker = new MarkupRendererFilter()
         {
-            public void renderMarkup(MarkupWriter writer, MarkupRenderer renderer)
+            public void renderMarkup(final MarkupWriter writer, MarkupRenderer renderer)
             {
-                DocumentLinkerImpl linker = new DocumentLinkerImpl(omitGeneratorMeta, tapestryVersion, compactJSON);
+                final DocumentLinkerImpl linker = new DocumentLinkerImpl(omitGeneratorMeta, tapestryVersion, compactJSON);
+
+                // When streaming, the head is written out as soon as the body starts, so whatever has been collected
+                // by then must be added to it.
+
+                if (writer instanceof StreamingMarkupWriterImpl)
+                {
+                    ((StreamingMarkupWriterImpl) writer).addHeadCommitCallback(new Runnable()
+                    {
+                        public void run()
+                        {
+                            linker.commitHead(writer.getDocument().getRootElement());
+                        }
+                    });
+                }
 
                 environment.push(DocumentLinker.class, linker);
 
@@ -1863,9 +1940,23 @@ public final class TapestryModule
             {
                 DocumentLinker linker = environment.peekRequired(DocumentLinker.class);
 
-                JavaScriptSupportImpl support = new JavaScriptSupportImpl(linker, javascriptStackSource,
+                final JavaScriptSupportImpl support = new JavaScriptSupportImpl(linker, javascriptStackSource,
                         javascriptStackPathConstructor);
 
+                // When streaming, stacks and stylesheets imported before the body starts (typically, by @Import on
+                // the page) belong in the head; this runs before the DocumentLinker commits it.
+
+                if (writer instanceof StreamingMarkupWriterImpl)
+                {
+                    ((StreamingMarkupWriterImpl) writer).addHeadCommitCallback(new Runnable()
+                    {
+                        public void run()
+                        {
+                            support.commitLinks();
+                        }
+                    });
+                }
+
                 environment.push(JavaScriptSupport.class, support);
 
                 renderer.renderMarkup(writer);
@@ -1955,6 +2046,8 @@ public final class TapestryModule
             }
         };
 
+        configuration.addInstance("PipelineTiming", PipelineTimingFilter.class, "before:*");
+
         configuration.add("DocumentLinker", documentLinker);
         configuration.add("JavaScriptSupport", javaScriptSupport);
         configuration.add("RenderSupport", renderSupport);
@@ -1981,6 +2074,8 @@ public final class TapestryModule
      * <dt>DefaultValidationDecorator</dt>
      * <dt>ValidationDecorator</dt>
      * <dd>Provides {@link org.apache.tapestry5.ValidationDecorator} (via {@link ValidationDecoratorFactory#newInstance(org.apache.tapestry5.MarkupWriter)})</dd>
+     * <dt>PipelineTiming</dt>
+     * <dd>Records the time spent in the pipeline with {@link PipelineMetrics}</dd>
      * </dl>
      */
     public void contributePartialMarkupRenderer(OrderedConfiguration<PartialMarkupRendererFilter> configuration,
@@ -2102,6 +2197,8 @@ public final class TapestryModule
             }
         };
 
+        configuration.addInstance("PipelineTiming", PipelineTimingFilter.class, "before:*");
+
         configuration.add("DocumentLinker", documentLinker);
         configuration.add("JavaScriptSupport", javascriptSupport);
         configuration.add("RenderSupport", renderSupport);
@@ -2162,8 +2259,9 @@ public final class TapestryModule
     }
 
     /**
-     * Contributes a single filter, "Secure", which checks for non-secure
-     * requests that access secure pages.
+     * Contributes "Secure", which checks for non-secure
+     * requests that access secure pages, and "PipelineTiming", which records the time spent in the pipeline with
+     * {@link PipelineMetrics}.
      */
     public void contributePageRenderRequestHandler(OrderedConfiguration<PageRenderRequestFilter> configuration,
                                                    final RequestSecurityManager securityManager)
@@ -2181,6 +2279,8 @@ public final class TapestryModule
             }
         };
 
+        configuration.addInstance("PipelineTiming", PipelineTimingFilter.class, "before:*");
+
         configuration.add("Secure", secureFilter);
     }
 
@@ -2240,6 +2340,7 @@ public final class TapestryModule
 
         configuration.add(SymbolConstants.FILE_CHECK_INTERVAL, "1 s");
         configuration.add(SymbolConstants.FILE_CHECK_UPDATE_TIMEOUT, "50 ms");
+        configuration.add(SymbolConstants.RELOADING_ENABLED, true);
 
         // This should be overridden for particular applications. These are the
         // locales for which we have (at least some) localized messages.
@@ -2326,6 +2427,19 @@ public final class TapestryModule
 
         configuration.add(SymbolConstants.APPLICATION_FOLDER, "");
 
+        configuration.add(SymbolConstants.PAGE_CACHE_MAX_SIZE, 0);
+        configuration.add(SymbolConstants.PAGE_CACHE_EVICTION_POLICY, "lru");
+
+        configuration.add(SymbolConstants.PRELOAD_PAGES, false);
+        configuration.add(SymbolConstants.PRELOAD_PAGES_LOCALES, "");
+        configuration.add(SymbolConstants.PRELOAD_PAGES_FAIL_ON_ERROR, false);
+
+        configuration.add(SymbolConstants.ASYNC_REQUEST_TIMEOUT, "60 s");
+        configuration.add(SymbolConstants.RENDER_PROFILING_ENABLED, false);
+        configuration.add(SymbolConstants.PIPELINE_METRICS_ENABLED, false);
+        configuration.add(SymbolConstants.SLOW_REQUEST_THRESHOLD, "1 s");
+        configuration.add(SymbolConstants.SLOW_REQUEST_CAPTURE_SIZE, 20);
+
         // Grid component parameters defaults
         configuration.add(ComponentParameterConstants.GRID_ROWS_PER_PAGE, GridConstants.ROWS_PER_PAGE);
         configuration.add(ComponentParameterConstants.GRID_PAGER_POSITION, GridConstants.PAGER_POSITION);
@@ -2349,6 +2463,10 @@ public final class TapestryModule
 
         // By default, no page is on the whitelist unless it has the @WhitelistAccessOnly annotation
         configuration.add(MetaDataConstants.WHITELIST_ONLY_PAGE, false);
+
+        // By default, pages are rendered to a DOM before being written
+        configuration.add(MetaDataConstants.STREAM_MARKUP, false);
+        configuration.add(MetaDataConstants.FLUSH_HEAD, false);
     }
 
     /**
@@ -2406,6 +2524,8 @@ public final class TapestryModule
      * <dd>Determines if the request is Ajax oriented, and redirects to an alternative handler if so</dd>
      * <dt>Secure</dt>
      * <dd>Sends a redirect if an non-secure request accesses a secure page</dd>
+     * <dt>PipelineTiming</dt>
+     * <dd>Records the time spent in the pipeline with {@link PipelineMetrics}</dd>
      * </dl>
      */
     public void contributeComponentEventRequestHandler(OrderedConfiguration<ComponentEventRequestFilter> configuration,
@@ -2423,6 +2543,9 @@ public final class TapestryModule
                 handler.handle(parameters);
             }
         };
+
+        configuration.addInstance("PipelineTiming", PipelineTimingFilter.class, "before:*");
+
         configuration.add("Secure", secureFilter);
 
         configuration.add("Ajax", new AjaxFilter(request, ajaxHandler));
@@ -2868,4 +2991,26 @@ public final class TapestryModule
     {
         configuration.add("LocalhostOnly", new LocalhostOnly());
     }
+
+    /**
+     * Advises the {@link PageActivator} service to record the "activation" stage.
+     *
+     * @since 5.4
+     */
+    @Match("PageActivator")
+    public static void adviseActivationTiming(MethodAdviceReceiver receiver, PipelineMetrics metrics)
+    {
+        receiver.adviseAllMethods(new PipelineTimingAdvice(metrics, "activation"));
+    }
+
+    /**
+     * Advises the {@link org.apache.tapestry5.internal.services.ResourceStreamer} service to record the "asset" stage.
+     *
+     * @since 5.4
+     */
+    @Match("ResourceStreamer")
+    public static void adviseAssetTiming(MethodAdviceReceiver receiver, PipelineMetrics metrics)
+    {
+        receiver.adviseAllMethods(new PipelineTimingAdvice(metrics, "asset"));
+    }
 }
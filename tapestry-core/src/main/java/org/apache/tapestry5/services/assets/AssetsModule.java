@@ -1,4 +1,4 @@
-// Copyright 2011 The Apache Software Foundation
+// Copyright 2011, 2012 The Apache Software Foundation
 //
 // Licensed under the Apache License, Version 2.0 (the "License");
 // you may not use this file except in compliance with the License.
@@ -19,6 +19,7 @@ import org.apache.tapestry5.internal.services.assets.*;
 import org.apache.tapestry5.ioc.MappedConfiguration;
 import org.apache.tapestry5.ioc.ServiceBinder;
 import org.apache.tapestry5.ioc.annotations.*;
+import org.apache.tapestry5.ioc.internal.util.InternalUtils;
 import org.apache.tapestry5.ioc.services.FactoryDefaults;
 import org.apache.tapestry5.ioc.services.SymbolProvider;
 import org.apache.tapestry5.services.Core;
@@ -34,8 +35,11 @@ public class AssetsModule
         binder.bind(StreamableResourceSource.class, StreamableResourceSourceImpl.class);
         binder.bind(CompressionAnalyzer.class, CompressionAnalyzerImpl.class);
         binder.bind(ContentTypeAnalyzer.class, ContentTypeAnalyzerImpl.class);
+        binder.bind(CacheControlAnalyzer.class, CacheControlAnalyzerImpl.class);
         binder.bind(ResourceChangeTracker.class, ResourceChangeTrackerImpl.class);
         binder.bind(ResourceMinimizer.class, MasterResourceMinimizer.class);
+        binder.bind(AssetStore.class, AssetStoreImpl.class);
+        binder.bind(AssetCache.class, AssetCacheImpl.class);
     }
 
     @Contribute(SymbolProvider.class)
@@ -46,11 +50,22 @@ public class AssetsModule
         configuration.add(SymbolConstants.GZIP_COMPRESSION_ENABLED, "true");
         configuration.add(SymbolConstants.COMBINE_SCRIPTS, SymbolConstants.PRODUCTION_MODE_VALUE);
         configuration.add(SymbolConstants.ASSET_URL_FULL_QUALIFIED, "false");
+        configuration.add(SymbolConstants.ASSET_STORE, "");
+        configuration.add(SymbolConstants.ASSET_CACHE_SIZE, "33554432");
     }
 
     // The use of decorators is to allow third-parties to get their own extensions
     // into the pipeline.
 
+    @Decorate(id = "AssetStore", serviceInterface = StreamableResourceSource.class)
+    @Order("before:CacheCompressed")
+    public StreamableResourceSource enableAssetStore(StreamableResourceSource delegate, AssetStore store,
+                                                     @Symbol(SymbolConstants.ASSET_STORE)
+                                                     String location)
+    {
+        return InternalUtils.isBlank(location) ? null : new SRSAssetStoreInterceptor(delegate, store);
+    }
+
     @Decorate(id = "GZipCompression", serviceInterface = StreamableResourceSource.class)
     public StreamableResourceSource enableCompression(StreamableResourceSource delegate,
                                                       @Symbol(SymbolConstants.GZIP_COMPRESSION_ENABLED)
@@ -64,28 +79,17 @@ public class AssetsModule
     @Order("before:GZIpCompression")
     public StreamableResourceSource enableCompressedCaching(StreamableResourceSource delegate,
                                                             @Symbol(SymbolConstants.GZIP_COMPRESSION_ENABLED)
-                                                            boolean gzipEnabled, ResourceChangeTracker tracker)
+                                                            boolean gzipEnabled, AssetCache cache)
     {
-        if (!gzipEnabled)
-            return null;
-
-        SRSCompressedCachingInterceptor interceptor = new SRSCompressedCachingInterceptor(delegate);
-
-        tracker.addInvalidationListener(interceptor);
-
-        return interceptor;
+        return gzipEnabled ? new SRSCompressedCachingInterceptor(delegate, cache) : null;
     }
 
     @Decorate(id = "Cache", serviceInterface = StreamableResourceSource.class)
     @Order("after:GZipCompression")
     public StreamableResourceSource enableUncompressedCaching(StreamableResourceSource delegate,
-                                                              ResourceChangeTracker tracker)
+                                                              AssetCache cache)
     {
-        SRSCachingInterceptor interceptor = new SRSCachingInterceptor(delegate);
-
-        tracker.addInvalidationListener(interceptor);
-
-        return interceptor;
+        return new SRSCachingInterceptor(delegate, cache);
     }
 
     @Decorate(id = "Minification", serviceInterface = StreamableResourceSource.class)
@@ -117,6 +121,10 @@ public class AssetsModule
      * <dd>image/svg+xml</dd>
      * <dt>swf</dt>
      * <dd>application/x-shockwave-flash</dd>
+     * <dt>pdf</dt>
+     * <dd>application/pdf</dd>
+     * <dt>woff</dt>
+     * <dd>application/font-woff</dd>
      * </dl>
      */
     @Contribute(ContentTypeAnalyzer.class)
@@ -130,6 +138,8 @@ public class AssetsModule
         configuration.add("png", "image/png");
         configuration.add("swf", "application/x-shockwave-flash");
         configuration.add("svg", "image/svg+xml");
+        configuration.add("pdf", "application/pdf");
+        configuration.add("woff", "application/font-woff");
     }
 
     /**
@@ -139,7 +149,10 @@ public class AssetsModule
      * <li>image/gif</li>
      * <li>image/png</li>
      * <li>application/x-shockwave-flash</li>
+     * <li>application/pdf</li>
+     * <li>application/font-woff</li>
      * </ul>
+     * Content that is not compressed (and not transformed) is streamed from its source, rather than cached in memory.
      */
     @Contribute(CompressionAnalyzer.class)
     public void disableCompressionForImageTypes(MappedConfiguration<String, Boolean> configuration)
@@ -148,5 +161,7 @@ public class AssetsModule
         configuration.add("image/gif", false);
         configuration.add("image/png", false);
         configuration.add("application/x-shockwave-flash", false);
+        configuration.add("application/pdf", false);
+        configuration.add("application/font-woff", false);
     }
 }
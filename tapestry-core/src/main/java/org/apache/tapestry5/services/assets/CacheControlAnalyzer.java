@@ -0,0 +1,40 @@
+// Copyright 2012 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.services.assets;
+
+import org.apache.tapestry5.ioc.annotations.UsesMappedConfiguration;
+
+/**
+ * Determines the Cache-Control response header sent with assets (including JavaScript stacks), based on their content
+ * type.
+ * <p>
+ * The configuration maps content types (e.g., "image/png") to Cache-Control header values (e.g., "public,
+ * max-age=86400"). A key may also be a wildcard for all subtypes of a type (e.g., "image/*"), or "*" for any content
+ * type. By default, the configuration is empty and no Cache-Control header is sent.
+ *
+ * @since 5.4
+ */
+@UsesMappedConfiguration(String.class)
+public interface CacheControlAnalyzer
+{
+    /**
+     * Returns the Cache-Control header value for the content type.
+     *
+     * @param contentType
+     *         MIME content type, possibly including attributes such as encoding type
+     * @return the header value, or null if no Cache-Control header should be sent
+     */
+    String getCacheControl(String contentType);
+}
@@ -1,4 +1,4 @@
-// Copyright 2011 The Apache Software Foundation
+// Copyright 2011, 2012 The Apache Software Foundation
 //
 // Licensed under the Apache License, Version 2.0 (the "License");
 // you may not use this file except in compliance with the License.
@@ -68,4 +68,13 @@ public interface StreamableResource
      * the HTTP request/response date headers.
      */
     long getLastModified();
+
+    /**
+     * Returns the (quoted) HTTP entity tag for the content, as streamed (that is, after any minimization and
+     * compression). The tag is derived from the content, so that it does not vary between servers, and is determined
+     * at most once for each resource, rather than on each request.
+     *
+     * @since 5.4
+     */
+    String getETag();
 }
@@ -0,0 +1,35 @@
+// Copyright 2012 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.services.pageload;
+
+/**
+ * Determines which loaded page instance is discarded when the page cache reaches its
+ * {@linkplain org.apache.tapestry5.SymbolConstants#PAGE_CACHE_MAX_SIZE maximum size}. Pinned pages are never discarded.
+ *
+ * @see org.apache.tapestry5.SymbolConstants#PAGE_CACHE_EVICTION_POLICY
+ * @since 5.4
+ */
+public enum PageCacheEvictionPolicy
+{
+    /**
+     * Discard the page that was least recently used.
+     */
+    LRU,
+
+    /**
+     * Discard the page that was least frequently used (that is, the one with the fewest cache hits since it was loaded).
+     */
+    LFU
+}
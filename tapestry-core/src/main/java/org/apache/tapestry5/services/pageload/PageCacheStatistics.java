@@ -0,0 +1,61 @@
+// Copyright 2012 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.services.pageload;
+
+/**
+ * Exposes the counters maintained by the page cache, the cache of loaded page instances (keyed on page name and
+ * {@link ComponentResourceSelector}). The values are live, and reflect activity since the application started (they are
+ * not reset when the cache is cleared).
+ *
+ * @since 5.4
+ */
+public interface PageCacheStatistics
+{
+    /**
+     * Number of page requests satisfied from the cache.
+     */
+    long getHitCount();
+
+    /**
+     * Number of page requests where the page was not in the cache. Concurrent requests for the same page will each
+     * count as a miss, even though the page is only loaded once.
+     */
+    long getMissCount();
+
+    /**
+     * Number of times a page instance was actually loaded (assembled).
+     */
+    long getLoadCount();
+
+    /**
+     * Cumulative time, in milliseconds, spent loading pages.
+     */
+    long getTotalLoadTime();
+
+    /**
+     * Number of page instances discarded to keep the cache within its maximum size.
+     */
+    long getEvictionCount();
+
+    /**
+     * Current number of page instances in the cache.
+     */
+    int getSize();
+
+    /**
+     * The configured maximum size of the cache, or 0 if the cache is unbounded.
+     */
+    int getMaximumSize();
+}
@@ -0,0 +1,154 @@
+// Copyright 2012 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The results of a {@link LoadTester} run: for the script as a whole and, via {@link #getStepReports()}, for each
+ * step. Failed steps are counted as errors, and are not included in the latency or allocation figures.
+ *
+ * @since 5.4
+ */
+public class LoadTestReport
+{
+    private final String description;
+
+    private final long[] latencies;
+
+    private final int errorCount;
+
+    private final long allocatedBytes;
+
+    private final long elapsedNanos;
+
+    private final List<LoadTestReport> stepReports;
+
+    /**
+     * @param description
+     *         identifies the script or step
+     * @param latencies
+     *         latency, in nanoseconds, of each successful step (the array is sorted in place)
+     * @param errorCount
+     *         number of failed steps
+     * @param allocatedBytes
+     *         total bytes allocated by the successful steps (0 if not measured)
+     * @param elapsedNanos
+     *         wall clock duration of the run
+     * @param stepReports
+     *         reports for individual steps (empty for a step report)
+     */
+    public LoadTestReport(String description, long[] latencies, int errorCount, long allocatedBytes,
+                          long elapsedNanos, List<LoadTestReport> stepReports)
+    {
+        this.description = description;
+        this.latencies = latencies;
+        this.errorCount = errorCount;
+        this.allocatedBytes = allocatedBytes;
+        this.elapsedNanos = elapsedNanos;
+        this.stepReports = Collections.unmodifiableList(stepReports);
+
+        Arrays.sort(latencies);
+    }
+
+    public String getDescription()
+    {
+        return description;
+    }
+
+    /**
+     * Number of successfully completed steps.
+     */
+    public int getRequestCount()
+    {
+        return latencies.length;
+    }
+
+    public int getErrorCount()
+    {
+        return errorCount;
+    }
+
+    public long getElapsedNanos()
+    {
+        return elapsedNanos;
+    }
+
+    /**
+     * Completed steps per second, across all threads.
+     */
+    public double getThroughput()
+    {
+        return elapsedNanos == 0 ? 0 : latencies.length * 1000000000d / elapsedNanos;
+    }
+
+    /**
+     * Returns the latency, in nanoseconds, at the given percentile (0 - 100) of completed steps, or 0 if no steps
+     * completed.
+     */
+    public long getLatencyPercentile(double percentile)
+    {
+        if (latencies.length == 0)
+        {
+            return 0;
+        }
+
+        int index = (int) Math.ceil(percentile / 100d * latencies.length) - 1;
+
+        return latencies[Math.max(0, Math.min(latencies.length - 1, index))];
+    }
+
+    /**
+     * Average bytes allocated by each completed step, or 0 if allocation could not be measured.
+     */
+    public long getAllocatedBytesPerRequest()
+    {
+        return latencies.length == 0 ? 0 : allocatedBytes / latencies.length;
+    }
+
+    public List<LoadTestReport> getStepReports()
+    {
+        return stepReports;
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder builder = new StringBuilder(summary());
+
+        for (LoadTestReport step : stepReports)
+        {
+            builder.append("\n  ").append(step.summary());
+        }
+
+        return builder.toString();
+    }
+
+    private String summary()
+    {
+        return String.format(
+                "%s: %,d requests, %,d errors, %,.1f requests/second, latency (ms) p50 %,.2f p90 %,.2f p99 %,.2f max %,.2f, %,d bytes allocated/request",
+                description, getRequestCount(), errorCount, getThroughput(), millis(getLatencyPercentile(50)),
+                millis(getLatencyPercentile(90)), millis(getLatencyPercentile(99)), millis(getLatencyPercentile(100)),
+                getAllocatedBytesPerRequest());
+    }
+
+    private static double millis(long nanos)
+    {
+        return nanos / 1000000d;
+    }
+}
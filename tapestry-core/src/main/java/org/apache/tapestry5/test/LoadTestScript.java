@@ -0,0 +1,136 @@
+// Copyright 2012 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.test;
+
+import org.apache.tapestry5.dom.Document;
+import org.apache.tapestry5.dom.Element;
+import org.apache.tapestry5.ioc.internal.util.CollectionFactory;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A sequence of {@link LoadTestStep}s, replayed by each client of a {@link LoadTester}. Steps that follow links or
+ * submit forms locate the link or form, by id, in the document rendered by the previous step, just as a user would.
+ *
+ * @since 5.4
+ */
+public class LoadTestScript
+{
+    private final List<String> descriptions = CollectionFactory.newList();
+
+    private final List<LoadTestStep> steps = CollectionFactory.newList();
+
+    /**
+     * Adds a step to the script.
+     *
+     * @param description
+     *         identifies the step in the {@link LoadTestReport}
+     * @param step
+     *         the step to perform
+     * @return this script, for chaining
+     */
+    public LoadTestScript add(String description, LoadTestStep step)
+    {
+        assert description != null;
+        assert step != null;
+
+        descriptions.add(description);
+        steps.add(step);
+
+        return this;
+    }
+
+    /**
+     * Adds a step that renders a page, as with {@link PageTester#renderPage(String)}.
+     */
+    public LoadTestScript renderPage(final String pageName)
+    {
+        return add("render " + pageName, new LoadTestStep()
+        {
+            public Document perform(PageTester tester, Document previous)
+            {
+                return tester.renderPage(pageName);
+            }
+        });
+    }
+
+    /**
+     * Adds a step that clicks a link in the previous document, as with {@link PageTester#clickLink(Element)}.
+     */
+    public LoadTestScript clickLink(final String linkId)
+    {
+        return add("click " + linkId, new LoadTestStep()
+        {
+            public Document perform(PageTester tester, Document previous)
+            {
+                return tester.clickLink(findElement(previous, linkId));
+            }
+        });
+    }
+
+    /**
+     * Adds a step that submits a form in the previous document, as with
+     * {@link PageTester#submitForm(Element, Map)}.
+     */
+    public LoadTestScript submitForm(final String formId, final Map<String, String> parameters)
+    {
+        return add("submit " + formId, new LoadTestStep()
+        {
+            public Document perform(PageTester tester, Document previous)
+            {
+                return tester.submitForm(findElement(previous, formId), parameters);
+            }
+        });
+    }
+
+    /**
+     * Adds a step that submits a form in the previous document, using one of its submit buttons, as with
+     * {@link PageTester#clickSubmit(Element, Map)}.
+     */
+    public LoadTestScript clickSubmit(final String submitId, final Map<String, String> fieldValues)
+    {
+        return add("click " + submitId, new LoadTestStep()
+        {
+            public Document perform(PageTester tester, Document previous)
+            {
+                return tester.clickSubmit(findElement(previous, submitId), fieldValues);
+            }
+        });
+    }
+
+    private static Element findElement(Document document, String id)
+    {
+        Element result = document == null ? null : document.getElementById(id);
+
+        if (result == null)
+        {
+            throw new RuntimeException(String.format("The previous step did not render an element with id '%s'.", id));
+        }
+
+        return result;
+    }
+
+    public List<String> getDescriptions()
+    {
+        return Collections.unmodifiableList(descriptions);
+    }
+
+    public List<LoadTestStep> getSteps()
+    {
+        return Collections.unmodifiableList(steps);
+    }
+}
@@ -0,0 +1,39 @@
+// Copyright 2012 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.test;
+
+import org.apache.tapestry5.dom.Document;
+
+/**
+ * One step of a {@link LoadTestScript}: typically, a single user action such as rendering a page or submitting a
+ * form (which may involve several requests, when redirects are followed).
+ *
+ * @since 5.4
+ */
+public interface LoadTestStep
+{
+    /**
+     * Performs the step.
+     *
+     * @param tester
+     *         used to make requests, on behalf of the current load test client
+     * @param previous
+     *         the document rendered by the previous step, or null for the first step
+     * @return the document rendered by this step, which may be null
+     * @throws RuntimeException
+     *         if the step fails; the failure is counted, and the remaining steps of the script are skipped
+     */
+    Document perform(PageTester tester, Document previous);
+}
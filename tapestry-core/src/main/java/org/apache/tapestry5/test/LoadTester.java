@@ -0,0 +1,350 @@
+// Copyright 2012 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.test;
+
+import org.apache.tapestry5.dom.Document;
+import org.apache.tapestry5.internal.InternalConstants;
+import org.apache.tapestry5.internal.SingleKeySymbolProvider;
+import org.apache.tapestry5.internal.TapestryAppInitializer;
+import org.apache.tapestry5.internal.test.LoadTesterClient;
+import org.apache.tapestry5.internal.test.LoadTesterModule;
+import org.apache.tapestry5.internal.test.PageTesterContext;
+import org.apache.tapestry5.ioc.Registry;
+import org.apache.tapestry5.ioc.internal.util.CollectionFactory;
+import org.apache.tapestry5.ioc.internal.util.InternalUtils;
+import org.apache.tapestry5.ioc.services.SymbolProvider;
+import org.apache.tapestry5.services.ApplicationGlobals;
+import org.apache.tapestry5.services.RenderProfiler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Drives a Tapestry application with many concurrent clients, without a servlet container, in order to measure its
+ * throughput, latency and memory allocation. As with the {@link PageTester}, the application is started inside a
+ * Registry; each thread then acts as a single client (with its own session and cookies), replaying a
+ * {@link LoadTestScript} a number of times. Each thread first replays the script some number of times without
+ * measurement, to warm up the application.
+ * <p/>
+ * Allocation is measured only on JVMs that report the bytes allocated by each thread.
+ *
+ * @since 5.4
+ */
+public class LoadTester
+{
+    private final Logger logger = LoggerFactory.getLogger(LoadTester.class);
+
+    private final Registry registry;
+
+    private final RenderProfiler profiler;
+
+    /**
+     * Starts the application.
+     *
+     * @param appPackage
+     *         the root package of the application (as with {@link PageTester})
+     * @param appName
+     *         the name of the application (may be blank)
+     * @param contextPath
+     *         relative path to the web context root (i.e., "src/main/webapp")
+     * @param moduleClasses
+     *         additional modules to load
+     */
+    public LoadTester(String appPackage, String appName, String contextPath, Class... moduleClasses)
+    {
+        assert InternalUtils.isNonBlank(appPackage);
+        assert appName != null;
+        assert InternalUtils.isNonBlank(contextPath);
+
+        SymbolProvider provider = new SingleKeySymbolProvider(InternalConstants.TAPESTRY_APP_PACKAGE_PARAM, appPackage);
+
+        TapestryAppInitializer initializer = new TapestryAppInitializer(logger, provider, appName, null);
+
+        initializer.addModules(LoadTesterModule.class);
+        initializer.addModules(moduleClasses);
+
+        registry = initializer.createRegistry();
+
+        registry.getObject(ApplicationGlobals.class, null).storeContext(new PageTesterContext(contextPath));
+
+        registry.performRegistryStartup();
+
+        profiler = registry.getService(RenderProfiler.class);
+
+        initializer.announceStartup();
+    }
+
+    public Registry getRegistry()
+    {
+        return registry;
+    }
+
+    /**
+     * Runs the script, and reports the results. Each thread runs the script for the warmup iterations, then waits
+     * for all other threads to finish warming up before running the script for the measured iterations.
+     *
+     * @param script
+     *         steps performed by each client
+     * @param threadCount
+     *         number of concurrent clients
+     * @param warmupIterations
+     *         number of times each client performs the script before measurement starts
+     * @param iterations
+     *         number of times each client performs the script while being measured
+     * @return the results of the measured iterations
+     */
+    public LoadTestReport run(final LoadTestScript script, int threadCount, final int warmupIterations,
+                              final int iterations)
+    {
+        assert script != null;
+        assert threadCount > 0;
+        assert iterations > 0;
+
+        // Each client counts down once it has warmed up, or failed to; a failure aborts the other clients.
+
+        final CountDownLatch warmedUp = new CountDownLatch(threadCount);
+
+        final AtomicBoolean warmupFailed = new AtomicBoolean();
+
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+
+        List<Future<ClientResults>> futures = CollectionFactory.newList();
+
+        try
+        {
+            for (int i = 0; i < threadCount; i++)
+            {
+                futures.add(executor.submit(new Callable<ClientResults>()
+                {
+                    public ClientResults call() throws Exception
+                    {
+                        return runClient(script, warmupIterations, iterations, warmedUp, warmupFailed);
+                    }
+                }));
+            }
+
+            warmedUp.await();
+
+            long startNanos = System.nanoTime();
+
+            List<ClientResults> results = CollectionFactory.newList();
+
+            // Clients aborted by another client's warmup failure return null; the failed client's exception is
+            // reported.
+
+            for (Future<ClientResults> future : futures)
+            {
+                ClientResults clientResults = future.get();
+
+                if (clientResults != null)
+                {
+                    results.add(clientResults);
+                }
+            }
+
+            return createReport(script, results, System.nanoTime() - startNanos);
+        } catch (InterruptedException ex)
+        {
+            Thread.currentThread().interrupt();
+
+            throw new RuntimeException(ex);
+        } catch (ExecutionException ex)
+        {
+            throw new RuntimeException(String.format("Load test failed: %s", InternalUtils.toMessage(ex.getCause())),
+                    ex.getCause());
+        } finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Measurements for a single client (thread).
+     */
+    private static class ClientResults
+    {
+        final long[][] latencies;
+
+        final int[] completed, errors;
+
+        final long[] allocated;
+
+        ClientResults(int stepCount, int iterations)
+        {
+            latencies = new long[stepCount][iterations];
+            completed = new int[stepCount];
+            errors = new int[stepCount];
+            allocated = new long[stepCount];
+        }
+    }
+
+    /**
+     * Runs the script for a single client.
+     *
+     * @return the client's results, or null if the run was aborted because another client failed while warming up
+     */
+    private ClientResults runClient(LoadTestScript script, int warmupIterations, int iterations,
+                                    CountDownLatch warmedUp, AtomicBoolean warmupFailed) throws Exception
+    {
+        List<LoadTestStep> steps = script.getSteps();
+
+        ClientResults results = new ClientResults(steps.size(), iterations);
+
+        LoadTesterClient.bind();
+
+        try
+        {
+            PageTester tester;
+
+            boolean warm = false;
+
+            try
+            {
+                tester = new PageTester(registry);
+
+                for (int i = 0; i < warmupIterations; i++)
+                {
+                    runScript(tester, steps, null);
+                }
+
+                warm = true;
+            } finally
+            {
+                // Release the other threads, rather than leave them waiting for this one.
+
+                if (!warm)
+                {
+                    warmupFailed.set(true);
+                }
+
+                warmedUp.countDown();
+            }
+
+            warmedUp.await();
+
+            if (warmupFailed.get())
+            {
+                return null;
+            }
+
+            for (int i = 0; i < iterations; i++)
+            {
+                runScript(tester, steps, results);
+            }
+
+            return results;
+        } finally
+        {
+            LoadTesterClient.unbind();
+
+            registry.cleanupThread();
+        }
+    }
+
+    /**
+     * Runs the script once. While measuring, a failed step is counted as an error and ends the iteration; while
+     * warming up (with no results), the failure is rethrown, failing the run.
+     */
+    private void runScript(PageTester tester, List<LoadTestStep> steps, ClientResults results)
+    {
+        Document document = null;
+
+        for (int i = 0; i < steps.size(); i++)
+        {
+            long startBytes = profiler.getAllocatedBytes();
+            long startNanos = System.nanoTime();
+
+            try
+            {
+                document = steps.get(i).perform(tester, document);
+            } catch (RuntimeException ex)
+            {
+                if (results == null)
+                {
+                    throw ex;
+                }
+
+                logger.debug(String.format("Load test step failed: %s", InternalUtils.toMessage(ex)), ex);
+
+                results.errors[i]++;
+
+                // Later steps depend on this one.
+
+                return;
+            }
+
+            if (results != null)
+            {
+                results.latencies[i][results.completed[i]++] = System.nanoTime() - startNanos;
+                results.allocated[i] += profiler.getAllocatedBytes() - startBytes;
+            }
+        }
+    }
+
+    private LoadTestReport createReport(LoadTestScript script, List<ClientResults> results, long elapsedNanos)
+    {
+        List<String> descriptions = script.getDescriptions();
+
+        List<LoadTestReport> stepReports = CollectionFactory.newList();
+
+        long[] allLatencies = new long[0];
+        int allErrors = 0;
+        long allAllocated = 0;
+
+        for (int step = 0; step < descriptions.size(); step++)
+        {
+            long[] latencies = new long[0];
+            int errors = 0;
+            long allocated = 0;
+
+            for (ClientResults client : results)
+            {
+                latencies = append(latencies, client.latencies[step], client.completed[step]);
+                errors += client.errors[step];
+                allocated += client.allocated[step];
+            }
+
+            stepReports.add(new LoadTestReport(descriptions.get(step), latencies.clone(), errors, allocated,
+                    elapsedNanos, CollectionFactory.<LoadTestReport>newList()));
+
+            allLatencies = append(allLatencies, latencies, latencies.length);
+            allErrors += errors;
+            allAllocated += allocated;
+        }
+
+        return new LoadTestReport("all steps", allLatencies, allErrors, allAllocated, elapsedNanos, stepReports);
+    }
+
+    private static long[] append(long[] array, long[] values, int count)
+    {
+        long[] result = new long[array.length + count];
+
+        System.arraycopy(array, 0, result, 0, array.length);
+        System.arraycopy(values, 0, result, array.length, count);
+
+        return result;
+    }
+
+    /**
+     * Shuts down the application.
+     */
+    public void shutdown()
+    {
+        registry.shutdown();
+    }
+}
@@ -1,4 +1,4 @@
-// Copyright 2006, 2007, 2008, 2009, 2010, 2011 The Apache Software Foundation
+// Copyright 2006, 2007, 2008, 2009, 2010, 2011, 2012 The Apache Software Foundation
 //
 // Licensed under the Apache License, Version 2.0 (the "License");
 // you may not use this file except in compliance with the License.
@@ -123,6 +123,25 @@ public class PageTester
         initializer.announceStartup();
     }
 
+    /**
+     * Creates a tester for an existing Registry, which is shared with other testers; used by the {@link LoadTester}
+     * to create a tester for each of its threads. The Registry belongs to the LoadTester, so this tester should not
+     * be shut down.
+     *
+     * @since 5.4
+     */
+    PageTester(Registry registry)
+    {
+        this.registry = registry;
+
+        request = registry.getService(TestableRequest.class);
+        response = registry.getService(TestableResponse.class);
+
+        requestHandler = registry.getService("RequestHandler", RequestHandler.class);
+
+        request.setLocale(Locale.ENGLISH);
+    }
+
     /**
      * Overridden in subclasses to provide additional module definitions beyond those normally
      * located. This
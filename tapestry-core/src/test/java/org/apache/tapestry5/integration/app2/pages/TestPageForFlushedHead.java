@@ -0,0 +1,39 @@
+// Copyright 2012 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.integration.app2.pages;
+
+import org.apache.tapestry5.MetaDataConstants;
+import org.apache.tapestry5.annotations.Import;
+import org.apache.tapestry5.annotations.Meta;
+import org.apache.tapestry5.internal.test.TestableResponse;
+import org.apache.tapestry5.ioc.annotations.Inject;
+
+@Meta(MetaDataConstants.FLUSH_HEAD + "=true")
+@Import(stack = "core")
+public class TestPageForFlushedHead
+{
+    @Inject
+    private TestableResponse response;
+
+    /**
+     * Invoked while the body renders; by then, the head (with its links) should already have been sent.
+     */
+    public boolean isHeadSent()
+    {
+        String output = response.getOutput();
+
+        return output.contains("</head>") && output.contains("tapestry-console.css");
+    }
+}
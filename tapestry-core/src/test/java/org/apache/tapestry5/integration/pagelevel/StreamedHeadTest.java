@@ -0,0 +1,137 @@
+// Copyright 2012 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.integration.pagelevel;
+
+import org.apache.tapestry5.dom.Document;
+import org.apache.tapestry5.dom.Element;
+import org.apache.tapestry5.ioc.internal.util.CollectionFactory;
+import org.apache.tapestry5.test.PageTester;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public class StreamedHeadTest extends Assert
+{
+    private PageTester tester;
+
+    @Test
+    public void stack_imported_by_streamed_page_is_linked_from_head()
+    {
+        tester = new PageTester(TestConstants.APP2_PACKAGE, TestConstants.APP2_NAME);
+
+        String output = tester.renderPageAndReturnResponse("TestPageForStreamedHead").getOutput();
+
+        assertStackLinkedFromHead(output);
+    }
+
+    @Test
+    public void flushed_head_links_stack_before_body_renders()
+    {
+        tester = new PageTester(TestConstants.APP2_PACKAGE, TestConstants.APP2_NAME);
+
+        String output = tester.renderPageAndReturnResponse("TestPageForFlushedHead").getOutput();
+
+        assertStackLinkedFromHead(output);
+
+        assertTrue(output.contains("Head sent: true"), output);
+    }
+
+    @Test
+    public void form_on_streamed_page_can_be_submitted()
+    {
+        tester = new PageTester(TestConstants.APP2_PACKAGE, TestConstants.APP2_NAME);
+
+        String output = tester.renderPageAndReturnResponse("TestPageForStreamedForm").getOutput();
+
+        // The form data field is added to the form's hidden div after the rest of the form has rendered.
+
+        assertTrue(output.contains("name=\"t:formdata\""), output);
+
+        Map<String, String> fieldValues = CollectionFactory.newMap();
+        fieldValues.put("t1", "hello");
+
+        String result = tester.submitFormAndReturnResponse(parseForm(output), fieldValues).getOutput();
+
+        assertTrue(result.contains("You entered: hello."), result);
+    }
+
+    /**
+     * The streamed page's rendered document has been discarded as it was written, so the form (its action and its
+     * fields) is rebuilt from the output.
+     */
+    private Element parseForm(String output)
+    {
+        Matcher formMatcher = Pattern.compile("<form[^>]*\\saction=\"([^\"]*)\"").matcher(output);
+
+        assertTrue(formMatcher.find(), output);
+
+        Element form = new Document().newRootElement("form");
+
+        form.attribute("action", unescape(formMatcher.group(1)));
+
+        Matcher inputMatcher = Pattern.compile("<input[^>]*>").matcher(output);
+
+        while (inputMatcher.find())
+        {
+            Element input = form.element("input");
+
+            Matcher attributeMatcher = Pattern.compile("([\\w:]+)=\"([^\"]*)\"").matcher(inputMatcher.group());
+
+            while (attributeMatcher.find())
+            {
+                input.attribute(attributeMatcher.group(1), unescape(attributeMatcher.group(2)));
+            }
+        }
+
+        return form;
+    }
+
+    private String unescape(String value)
+    {
+        return value.replace("&amp;", "&").replace("&quot;", "\"");
+    }
+
+    /**
+     * The core stack's stylesheet and libraries must be in the head, which is written before the body renders.
+     */
+    private void assertStackLinkedFromHead(String output)
+    {
+        int bodyStart = output.indexOf("<body");
+
+        assertTrue(bodyStart > 0, output);
+
+        String head = output.substring(0, bodyStart);
+        String body = output.substring(bodyStart);
+
+        assertTrue(head.contains("<link") && head.contains("tapestry-console.css"), output);
+        assertTrue(head.contains("<script") && head.contains("src="), output);
+
+        assertFalse(body.contains("tapestry-console.css"), output);
+        assertFalse(body.contains("src="), output);
+    }
+
+    @AfterMethod
+    public void after()
+    {
+        if (tester != null)
+        {
+            tester.shutdown();
+        }
+    }
+}
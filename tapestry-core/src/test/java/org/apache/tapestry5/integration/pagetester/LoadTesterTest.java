@@ -0,0 +1,123 @@
+// Copyright 2012 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.integration.pagetester;
+
+import org.apache.tapestry5.dom.Document;
+import org.apache.tapestry5.integration.pagelevel.TestConstants;
+import org.apache.tapestry5.test.LoadTestReport;
+import org.apache.tapestry5.test.LoadTestScript;
+import org.apache.tapestry5.test.LoadTestStep;
+import org.apache.tapestry5.test.LoadTester;
+import org.apache.tapestry5.test.PageTester;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class LoadTesterTest extends Assert
+{
+    private LoadTester tester;
+
+    @BeforeClass
+    public void setup()
+    {
+        tester = new LoadTester(TestConstants.APP2_PACKAGE, TestConstants.APP2_NAME, "src/test/app2");
+    }
+
+    @AfterClass
+    public void cleanup()
+    {
+        tester.shutdown();
+
+        tester = null;
+    }
+
+    @Test
+    public void script_is_replayed_by_each_client()
+    {
+        Map<String, String> parameters = Collections.emptyMap();
+
+        LoadTestScript script = new LoadTestScript().renderPage("Launch").submitForm("form", parameters);
+
+        LoadTestReport report = tester.run(script, 4, 2, 5);
+
+        assertEquals(report.getErrorCount(), 0);
+        assertEquals(report.getRequestCount(), 4 * 5 * 2);
+        assertTrue(report.getThroughput() > 0);
+
+        assertTrue(report.getLatencyPercentile(50) > 0);
+        assertTrue(report.getLatencyPercentile(50) <= report.getLatencyPercentile(99));
+        assertTrue(report.getLatencyPercentile(99) <= report.getLatencyPercentile(100));
+
+        assertEquals(report.getStepReports().size(), 2);
+
+        LoadTestReport render = report.getStepReports().get(0);
+
+        assertEquals(render.getDescription(), "render Launch");
+        assertEquals(render.getRequestCount(), 20);
+
+        assertEquals(report.getStepReports().get(1).getDescription(), "submit form");
+    }
+
+    @Test
+    public void failed_steps_are_counted_and_end_the_iteration()
+    {
+        LoadTestScript script = new LoadTestScript().renderPage("Launch").clickLink("does-not-exist").renderPage(
+                "Final");
+
+        LoadTestReport report = tester.run(script, 2, 0, 3);
+
+        assertEquals(report.getErrorCount(), 6);
+
+        assertEquals(report.getStepReports().get(0).getRequestCount(), 6);
+        assertEquals(report.getStepReports().get(1).getErrorCount(), 6);
+        assertEquals(report.getStepReports().get(2).getRequestCount(), 0);
+    }
+
+    @Test(timeOut = 30000)
+    public void client_failing_during_warmup_fails_the_run()
+    {
+        final AtomicBoolean failed = new AtomicBoolean();
+
+        // Only one of the clients fails; the others must not be left waiting for it.
+
+        LoadTestScript script = new LoadTestScript().add("fail once", new LoadTestStep()
+        {
+            public Document perform(PageTester tester, Document previous)
+            {
+                if (failed.compareAndSet(false, true))
+                {
+                    throw new RuntimeException("Simulated warmup failure.");
+                }
+
+                return previous;
+            }
+        });
+
+        try
+        {
+            tester.run(script, 4, 2, 5);
+
+            fail("Load test should have failed.");
+        } catch (RuntimeException ex)
+        {
+            assertTrue(ex.getMessage().contains("Simulated warmup failure."));
+        }
+    }
+}
@@ -0,0 +1,521 @@
+// Copyright 2012 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.internal.services;
+
+import org.apache.tapestry5.internal.InternalConstants;
+import org.apache.tapestry5.ioc.Invokable;
+import org.apache.tapestry5.ioc.services.PerthreadManager;
+import org.apache.tapestry5.ioc.services.PerthreadScope;
+import org.apache.tapestry5.services.AsyncResult;
+import org.apache.tapestry5.services.ComponentEventResultProcessor;
+import org.apache.tapestry5.services.HttpServletRequestFilter;
+import org.apache.tapestry5.services.HttpServletRequestHandler;
+import org.apache.tapestry5.services.Request;
+import org.apache.tapestry5.services.RequestGlobals;
+import org.apache.tapestry5.services.RequestHandler;
+import org.apache.tapestry5.services.Response;
+import org.apache.tapestry5.test.TapestryTestCase;
+import org.easymock.EasyMock;
+import org.easymock.IAnswer;
+import org.slf4j.Logger;
+import org.testng.annotations.Test;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class AsyncRequestFilterTest extends TapestryTestCase
+{
+    /**
+     * Counts how often, and by how many threads at once, the scope is bound.
+     */
+    private static final class CountingScope implements PerthreadScope
+    {
+        final AtomicInteger runs = new AtomicInteger();
+
+        final AtomicInteger bound = new AtomicInteger();
+
+        public void run(final Runnable runnable)
+        {
+            invoke(new Invokable<Void>()
+            {
+                public Void invoke()
+                {
+                    runnable.run();
+
+                    return null;
+                }
+            });
+        }
+
+        public <T> T invoke(Invokable<T> invokable)
+        {
+            runs.incrementAndGet();
+
+            assertEquals(bound.incrementAndGet(), 1, "Scope bound by two threads at once.");
+
+            try
+            {
+                return invokable.invoke();
+            } finally
+            {
+                bound.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * The listener registered with the mock AsyncContext.
+     */
+    private AsyncListener listener;
+
+    private Thread timeoutThread;
+
+    @Test
+    public void request_not_suspended() throws IOException
+    {
+        HttpServletRequest request = mockHttpServletRequest();
+        HttpServletResponse response = mockHttpServletResponse();
+        HttpServletRequestHandler handler = mockHttpServletRequestHandler();
+
+        HttpServletRequestFilter filter = newFilter(1000, mockRequestGlobals(), mockRequestHandler());
+
+        train_service(handler, request, response, false);
+        train_takeSuspendedRequest(request, null);
+
+        replay();
+
+        assertFalse(filter.service(request, response, handler));
+
+        verify();
+    }
+
+    @Test
+    public void waits_for_result_when_asynchronous_requests_not_supported() throws IOException
+    {
+        HttpServletRequest request = mockHttpServletRequest();
+        HttpServletResponse response = mockHttpServletResponse();
+        HttpServletRequestHandler handler = mockHttpServletRequestHandler();
+        RequestGlobals globals = mockRequestGlobals();
+        RequestHandler requestHandler = mockRequestHandler();
+        Request tapestryRequest = mockRequest();
+        Response tapestryResponse = mockResponse();
+
+        HttpServletRequestFilter filter = newFilter(10000, globals, requestHandler);
+
+        final AsyncResult result = new AsyncResult();
+        SuspendedRequest suspended = new SuspendedRequest(result, mockComponentEventResultProcessor());
+
+        train_service(handler, request, response, true);
+        train_takeSuspendedRequest(request, suspended);
+        train_getRequestResponse(globals, tapestryRequest, tapestryResponse);
+        expect(request.isAsyncSupported()).andReturn(false);
+
+        // The result is processed by the RequestHandler pipeline, with all of its filters.
+
+        tapestryRequest.setAttribute(InternalConstants.RESUMED_REQUEST, suspended);
+        expect(requestHandler.service(tapestryRequest, tapestryResponse)).andReturn(true);
+
+        train_takeSuspendedRequest(request, null);
+
+        replay();
+
+        new Thread()
+        {
+            @Override
+            public void run()
+            {
+                result.complete("Index");
+            }
+        }.start();
+
+        assertTrue(filter.service(request, response, handler));
+
+        verify();
+    }
+
+    @Test
+    public void resumed_request_is_taken_once()
+    {
+        Request request = mockRequest();
+        SuspendedRequest suspended = new SuspendedRequest(new AsyncResult(), mockComponentEventResultProcessor());
+
+        train_getAttribute(request, InternalConstants.RESUMED_REQUEST, suspended);
+        request.setAttribute(InternalConstants.RESUMED_REQUEST, null);
+
+        train_getAttribute(request, InternalConstants.RESUMED_REQUEST, null);
+
+        replay();
+
+        assertSame(SuspendedRequest.takeResumed(request), suspended);
+        assertNull(SuspendedRequest.takeResumed(request));
+
+        verify();
+    }
+
+    @Test
+    public void null_value_processes_default_result() throws IOException
+    {
+        ComponentEventResultProcessor processor = mockComponentEventResultProcessor();
+
+        AsyncResult result = new AsyncResult();
+        SuspendedRequest suspended = new SuspendedRequest(result, processor);
+
+        suspended.setDefaultResult("Start");
+        result.complete(null);
+
+        processor.processResultValue("Start");
+
+        replay();
+
+        suspended.resume();
+
+        verify();
+    }
+
+    @Test
+    public void failed_result_is_rethrown() throws IOException
+    {
+        ComponentEventResultProcessor processor = mockComponentEventResultProcessor();
+
+        AsyncResult result = new AsyncResult();
+        Throwable failure = new RuntimeException("Backend unavailable.");
+
+        result.fail(failure);
+
+        replay();
+
+        // The pipeline's ErrorFilter reports the exception.
+
+        try
+        {
+            new SuspendedRequest(result, processor).resume();
+            unreachable();
+        } catch (RuntimeException ex)
+        {
+            assertSame(ex.getCause(), failure);
+        }
+
+        verify();
+    }
+
+    @Test
+    public void timeout_sends_service_unavailable() throws IOException
+    {
+        HttpServletRequest request = mockHttpServletRequest();
+        HttpServletResponse response = mockHttpServletResponse();
+        HttpServletRequestHandler handler = mockHttpServletRequestHandler();
+        RequestGlobals globals = mockRequestGlobals();
+
+        HttpServletRequestFilter filter = newFilter(10, globals, mockRequestHandler());
+
+        SuspendedRequest suspended = new SuspendedRequest(new AsyncResult(), mockComponentEventResultProcessor());
+
+        train_service(handler, request, response, true);
+        train_takeSuspendedRequest(request, suspended);
+        train_getRequestResponse(globals, mockRequest(), mockResponse());
+        expect(request.isAsyncSupported()).andReturn(false);
+
+        expect(response.isCommitted()).andReturn(false);
+        response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Timed out waiting for an asynchronous result.");
+
+        replay();
+
+        assertTrue(filter.service(request, response, handler));
+
+        verify();
+    }
+
+    @Test
+    public void suspended_request_resumes_on_container_thread() throws IOException
+    {
+        HttpServletRequest request = mockHttpServletRequest();
+        HttpServletResponse response = mockHttpServletResponse();
+        HttpServletRequestHandler handler = mockHttpServletRequestHandler();
+        RequestGlobals globals = mockRequestGlobals();
+        RequestHandler requestHandler = mockRequestHandler();
+        Request tapestryRequest = mockRequest();
+        Response tapestryResponse = mockResponse();
+        PerthreadManager perthreadManager = newMock(PerthreadManager.class);
+        AsyncContext context = newMock(AsyncContext.class);
+        CountingScope scope = new CountingScope();
+
+        HttpServletRequestFilter filter = newFilter(1000, perthreadManager, globals, requestHandler);
+
+        AsyncResult result = new AsyncResult();
+        SuspendedRequest suspended = new SuspendedRequest(result, mockComponentEventResultProcessor());
+
+        train_service(handler, request, response, true);
+        train_takeSuspendedRequest(request, suspended);
+        train_getRequestResponse(globals, tapestryRequest, tapestryResponse);
+        train_startAsync(request, context, 1000);
+        expect(perthreadManager.detachScope()).andReturn(scope);
+
+        train_start(context);
+
+        tapestryRequest.setAttribute(InternalConstants.RESUMED_REQUEST, suspended);
+        expect(requestHandler.service(tapestryRequest, tapestryResponse)).andReturn(true);
+
+        train_takeSuspendedRequest(request, null);
+
+        perthreadManager.cleanup();
+        context.complete();
+
+        replay();
+
+        assertTrue(filter.service(request, response, handler));
+
+        assertEquals(scope.runs.get(), 0);
+
+        result.complete("Index");
+
+        assertEquals(scope.runs.get(), 1);
+
+        verify();
+    }
+
+    @Test
+    public void timeout_of_suspended_request_sends_service_unavailable() throws IOException
+    {
+        HttpServletRequest request = mockHttpServletRequest();
+        HttpServletResponse response = mockHttpServletResponse();
+        HttpServletRequestHandler handler = mockHttpServletRequestHandler();
+        RequestGlobals globals = mockRequestGlobals();
+        PerthreadManager perthreadManager = newMock(PerthreadManager.class);
+        AsyncContext context = newMock(AsyncContext.class);
+        CountingScope scope = new CountingScope();
+
+        HttpServletRequestFilter filter = newFilter(1000, perthreadManager, globals, mockRequestHandler());
+
+        AsyncResult result = new AsyncResult();
+        SuspendedRequest suspended = new SuspendedRequest(result, mockComponentEventResultProcessor());
+
+        train_service(handler, request, response, true);
+        train_takeSuspendedRequest(request, suspended);
+        train_getRequestResponse(globals, mockRequest(), mockResponse());
+        train_startAsync(request, context, 1000);
+        expect(perthreadManager.detachScope()).andReturn(scope);
+
+        expect(response.isCommitted()).andReturn(false);
+        response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Timed out waiting for an asynchronous result.");
+
+        perthreadManager.cleanup();
+        context.complete();
+
+        replay();
+
+        assertTrue(filter.service(request, response, handler));
+
+        listener.onTimeout(null);
+
+        // A result that completes after the timeout is ignored (the context is not started).
+
+        result.complete("Index");
+
+        assertEquals(scope.runs.get(), 1);
+
+        verify();
+    }
+
+    @Test
+    public void error_completes_suspended_request() throws IOException
+    {
+        HttpServletRequest request = mockHttpServletRequest();
+        HttpServletResponse response = mockHttpServletResponse();
+        HttpServletRequestHandler handler = mockHttpServletRequestHandler();
+        RequestGlobals globals = mockRequestGlobals();
+        PerthreadManager perthreadManager = newMock(PerthreadManager.class);
+        AsyncContext context = newMock(AsyncContext.class);
+
+        HttpServletRequestFilter filter = newFilter(1000, perthreadManager, globals, mockRequestHandler());
+
+        SuspendedRequest suspended = new SuspendedRequest(new AsyncResult(), mockComponentEventResultProcessor());
+
+        train_service(handler, request, response, true);
+        train_takeSuspendedRequest(request, suspended);
+        train_getRequestResponse(globals, mockRequest(), mockResponse());
+        train_startAsync(request, context, 1000);
+        expect(perthreadManager.detachScope()).andReturn(new CountingScope());
+
+        perthreadManager.cleanup();
+        context.complete();
+
+        replay();
+
+        assertTrue(filter.service(request, response, handler));
+
+        listener.onError(null);
+
+        verify();
+    }
+
+    @Test
+    public void timeout_waits_for_result_being_processed() throws Exception
+    {
+        HttpServletRequest request = mockHttpServletRequest();
+        HttpServletResponse response = mockHttpServletResponse();
+        HttpServletRequestHandler handler = mockHttpServletRequestHandler();
+        RequestGlobals globals = mockRequestGlobals();
+        RequestHandler requestHandler = mockRequestHandler();
+        Request tapestryRequest = mockRequest();
+        Response tapestryResponse = mockResponse();
+        PerthreadManager perthreadManager = newMock(PerthreadManager.class);
+        AsyncContext context = newMock(AsyncContext.class);
+        final CountingScope scope = new CountingScope();
+
+        HttpServletRequestFilter filter = newFilter(1000, perthreadManager, globals, requestHandler);
+
+        AsyncResult result = new AsyncResult();
+        SuspendedRequest suspended = new SuspendedRequest(result, mockComponentEventResultProcessor());
+
+        train_service(handler, request, response, true);
+        train_takeSuspendedRequest(request, suspended);
+        train_getRequestResponse(globals, tapestryRequest, tapestryResponse);
+        train_startAsync(request, context, 1000);
+        expect(perthreadManager.detachScope()).andReturn(scope);
+
+        train_start(context);
+
+        tapestryRequest.setAttribute(InternalConstants.RESUMED_REQUEST, suspended);
+
+        // While the result is processed, the container times out the request on another thread; that thread must wait,
+        // and then find the request finished, rather than using the scope at the same time.
+
+        expect(requestHandler.service(tapestryRequest, tapestryResponse)).andAnswer(new IAnswer<Boolean>()
+        {
+            public Boolean answer() throws Throwable
+            {
+                timeoutThread = new Thread()
+                {
+                    @Override
+                    public void run()
+                    {
+                        try
+                        {
+                            listener.onTimeout(null);
+                        } catch (IOException ex)
+                        {
+                            throw new RuntimeException(ex);
+                        }
+                    }
+                };
+
+                timeoutThread.start();
+
+                while (timeoutThread.getState() != Thread.State.BLOCKED)
+                {
+                    assertTrue(timeoutThread.isAlive());
+
+                    Thread.yield();
+                }
+
+                assertEquals(scope.runs.get(), 1);
+
+                return true;
+            }
+        });
+
+        train_takeSuspendedRequest(request, null);
+
+        perthreadManager.cleanup();
+        context.complete();
+
+        replay();
+
+        assertTrue(filter.service(request, response, handler));
+
+        result.complete("Index");
+
+        timeoutThread.join();
+
+        // The timed out thread did not bind the scope.
+
+        assertEquals(scope.runs.get(), 1);
+
+        verify();
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void result_may_only_be_completed_once()
+    {
+        AsyncResult result = new AsyncResult();
+
+        result.complete("Index");
+        result.complete("Start");
+    }
+
+    private HttpServletRequestFilter newFilter(long timeout, RequestGlobals globals, RequestHandler requestHandler)
+    {
+        return newFilter(timeout, newMock(PerthreadManager.class), globals, requestHandler);
+    }
+
+    private HttpServletRequestFilter newFilter(long timeout, PerthreadManager perthreadManager, RequestGlobals globals,
+                                               RequestHandler requestHandler)
+    {
+        return new AsyncRequestFilter(newMock(Logger.class), timeout, perthreadManager, globals, requestHandler);
+    }
+
+    private void train_startAsync(HttpServletRequest request, AsyncContext context, long timeout)
+    {
+        expect(request.isAsyncSupported()).andReturn(true);
+        expect(request.startAsync()).andReturn(context);
+
+        context.setTimeout(timeout);
+
+        context.addListener(EasyMock.isA(AsyncListener.class));
+        EasyMock.expectLastCall().andAnswer(new IAnswer<Object>()
+        {
+            public Object answer() throws Throwable
+            {
+                listener = (AsyncListener) EasyMock.getCurrentArguments()[0];
+
+                return null;
+            }
+        });
+    }
+
+    /**
+     * The container runs the task immediately, on the thread that completes the result.
+     */
+    private void train_start(AsyncContext context)
+    {
+        context.start(EasyMock.isA(Runnable.class));
+        EasyMock.expectLastCall().andAnswer(new IAnswer<Object>()
+        {
+            public Object answer() throws Throwable
+            {
+                ((Runnable) EasyMock.getCurrentArguments()[0]).run();
+
+                return null;
+            }
+        });
+    }
+
+    private void train_takeSuspendedRequest(HttpServletRequest request, SuspendedRequest suspended)
+    {
+        expect(request.getAttribute(InternalConstants.SUSPENDED_REQUEST)).andReturn(suspended);
+
+        request.removeAttribute(InternalConstants.SUSPENDED_REQUEST);
+    }
+
+    private void train_getRequestResponse(RequestGlobals globals, Request request, Response response)
+    {
+        expect(globals.getRequest()).andReturn(request);
+        expect(globals.getResponse()).andReturn(response);
+    }
+}
@@ -0,0 +1,76 @@
+// Copyright 2012 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.internal.services;
+
+import org.apache.tapestry5.ioc.test.TestBase;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.List;
+
+public class ByteRangeTest extends TestBase
+{
+    @DataProvider
+    public Object[][] range_data()
+    {
+        return new Object[][]{
+                {"bytes=0-499", "[ByteRange[0-499]]"},
+                {"bytes=500-", "[ByteRange[500-999]]"},
+                {"bytes=-200", "[ByteRange[800-999]]"},
+                {"bytes=-5000", "[ByteRange[0-999]]"},
+                {"bytes=900-5000", "[ByteRange[900-999]]"},
+                {"Bytes=0-0, -1", "[ByteRange[0-0], ByteRange[999-999]]"},
+                {"bytes=0-99,200-299", "[ByteRange[0-99], ByteRange[200-299]]"},
+                {"bytes=1000-", "[]"},
+                {"bytes=1000-2000, 0-9", "[ByteRange[0-9]]"},
+                {"bytes=-0", "[]"},
+                {null, null},
+                {"items=0-10", null},
+                {"bytes=", null},
+                {"bytes=10", null},
+                {"bytes=20-10", null},
+                {"bytes=a-b", null}};
+    }
+
+    @Test(dataProvider = "range_data")
+    public void parse(String header, String expected)
+    {
+        List<ByteRange> ranges = ByteRange.parse(header, 1000);
+
+        assertEquals(ranges == null ? null : ranges.toString(), expected);
+    }
+
+    @Test
+    public void too_many_ranges_are_ignored()
+    {
+        StringBuilder builder = new StringBuilder("bytes=0-0");
+
+        for (int i = 1; i <= ByteRange.MAX_RANGES; i++)
+        {
+            builder.append(",").append(i).append("-").append(i);
+        }
+
+        assertNull(ByteRange.parse(builder.toString(), 1000));
+    }
+
+    @Test
+    public void content_range()
+    {
+        ByteRange range = new ByteRange(100, 199);
+
+        assertEquals(range.getLength(), 100L);
+        assertEquals(range.toContentRange(1000), "bytes 100-199/1000");
+    }
+}
@@ -0,0 +1,105 @@
+// Copyright 2012 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.internal.services;
+
+import org.apache.tapestry5.internal.gzip.DeflateContentEncoder;
+import org.apache.tapestry5.internal.gzip.GZipContentEncoder;
+import org.apache.tapestry5.ioc.test.TestBase;
+import org.apache.tapestry5.services.ContentEncoder;
+import org.apache.tapestry5.services.ContentEncoderSource;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+public class ContentEncoderSourceImplTest extends TestBase
+{
+    private final ContentEncoder brotli = new ContentEncoder()
+    {
+        public String getEncoding()
+        {
+            return "br";
+        }
+
+        public OutputStream encode(OutputStream stream)
+        {
+            return stream;
+        }
+    };
+
+    private final ContentEncoderSource source = new ContentEncoderSourceImpl(Arrays.asList(brotli,
+            new GZipContentEncoder(), new DeflateContentEncoder()));
+
+    @DataProvider
+    public Object[][] negotiation_data()
+    {
+        return new Object[][]{
+                {null, null},
+                {"", null},
+                {"identity", null},
+                {"gzip", "gzip"},
+                {"GZIP", "gzip"},
+                {"deflate, gzip", "gzip"},
+                {"gzip, deflate, br", "br"},
+                {"gzip;q=1.0, br;q=0.5", "gzip"},
+                {"br;q=0, gzip; q=0.8, deflate", "deflate"},
+                {"*", "br"},
+                {"*;q=0.5, br;q=0, gzip;q=0.4", "deflate"},
+                {"gzip;q=bogus, deflate;q=0.1", "deflate"},
+                {"compress", null}};
+    }
+
+    @Test(dataProvider = "negotiation_data")
+    public void negotiate(String acceptEncoding, String expected)
+    {
+        ContentEncoder encoder = source.negotiate(acceptEncoding);
+
+        assertEquals(encoder == null ? null : encoder.getEncoding(), expected);
+    }
+
+    @Test
+    public void get_encoder_by_name()
+    {
+        assertSame(source.getEncoder("BR"), brotli);
+        assertNull(source.getEncoder("compress"));
+    }
+
+    @Test
+    public void builtin_encoders_compress_content() throws IOException
+    {
+        byte[] content = new byte[10000];
+
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+
+        OutputStream stream = source.getEncoder("deflate").encode(bos);
+
+        stream.write(content);
+        stream.close();
+
+        assertTrue(bos.size() < 100);
+
+        bos.reset();
+
+        stream = source.getEncoder("gzip").encode(bos);
+
+        stream.write(content);
+        stream.close();
+
+        assertTrue(bos.size() < 100);
+    }
+}
@@ -0,0 +1,144 @@
+// Copyright 2012 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.internal.services;
+
+import org.apache.tapestry5.internal.test.InternalBaseTestCase;
+import org.apache.tapestry5.ioc.internal.services.NonParallelExecutor;
+import org.apache.tapestry5.services.ComponentClassResolver;
+import org.apache.tapestry5.services.LocalizationSetter;
+import org.apache.tapestry5.services.pageload.ComponentResourceSelector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+public class PagePreloaderTest extends InternalBaseTestCase
+{
+    private final Logger logger = LoggerFactory.getLogger(PagePreloaderTest.class);
+
+    @Test
+    public void does_nothing_when_disabled()
+    {
+        ComponentClassResolver resolver = mockComponentClassResolver();
+        PageSource source = newMock(PageSource.class);
+        LocalizationSetter setter = mockLocalizationSetter();
+
+        replay();
+
+        new PagePreloader(logger, false, true, "", "en", 3, resolver, source, setter, new NonParallelExecutor()).run();
+
+        verify();
+    }
+
+    @Test
+    public void loads_each_page_for_each_locale()
+    {
+        ComponentClassResolver resolver = mockComponentClassResolver();
+        PageSource source = newMock(PageSource.class);
+        LocalizationSetter setter = mockLocalizationSetter();
+
+        expect(resolver.getPageNames()).andReturn(Arrays.asList("Index", "About"));
+        expect(setter.toLocale("en")).andReturn(Locale.ENGLISH);
+        expect(setter.toLocale("fr")).andReturn(Locale.FRENCH);
+
+        ComponentResourceSelector english = new ComponentResourceSelector(Locale.ENGLISH);
+        ComponentResourceSelector french = new ComponentResourceSelector(Locale.FRENCH);
+
+        expect(source.getPage("Index", english)).andReturn(mockPage());
+        expect(source.getPage("Index", french)).andReturn(mockPage());
+        expect(source.getPage("About", english)).andReturn(mockPage());
+        expect(source.getPage("About", french)).andReturn(mockPage());
+
+        replay();
+
+        new PagePreloader(logger, true, true, "en,fr", "en,fr,de", 3, resolver, source, setter,
+                new NonParallelExecutor()).run();
+
+        verify();
+    }
+
+    @Test
+    public void default_locale_used_when_none_configured()
+    {
+        ComponentClassResolver resolver = mockComponentClassResolver();
+        PageSource source = newMock(PageSource.class);
+        LocalizationSetter setter = mockLocalizationSetter();
+
+        expect(resolver.getPageNames()).andReturn(Arrays.asList("Index"));
+        expect(setter.toLocale("de")).andReturn(Locale.GERMAN);
+
+        expect(source.getPage("Index", new ComponentResourceSelector(Locale.GERMAN))).andReturn(mockPage());
+
+        replay();
+
+        new PagePreloader(logger, true, true, "", "de,en", 3, resolver, source, setter,
+                new NonParallelExecutor()).run();
+
+        verify();
+    }
+
+    @Test
+    public void failure_reported_after_other_pages_load()
+    {
+        ComponentClassResolver resolver = mockComponentClassResolver();
+        PageSource source = newMock(PageSource.class);
+        LocalizationSetter setter = mockLocalizationSetter();
+
+        ComponentResourceSelector english = new ComponentResourceSelector(Locale.ENGLISH);
+
+        expect(resolver.getPageNames()).andReturn(Arrays.asList("Broken", "Index"));
+        expect(setter.toLocale("en")).andReturn(Locale.ENGLISH);
+
+        expect(source.getPage("Broken", english)).andThrow(new RuntimeException("Template missing."));
+        expect(source.getPage("Index", english)).andReturn(mockPage());
+
+        replay();
+
+        try
+        {
+            new PagePreloader(logger, true, true, "", "en", 3, resolver, source, setter,
+                    new NonParallelExecutor()).run();
+            unreachable();
+        } catch (RuntimeException ex)
+        {
+            assertEquals(ex.getMessage(), "Unable to preload pages: Broken (en).");
+        }
+
+        verify();
+    }
+
+    @Test
+    public void failure_only_logged_when_not_fatal()
+    {
+        ComponentClassResolver resolver = mockComponentClassResolver();
+        PageSource source = newMock(PageSource.class);
+        LocalizationSetter setter = mockLocalizationSetter();
+
+        ComponentResourceSelector english = new ComponentResourceSelector(Locale.ENGLISH);
+
+        expect(resolver.getPageNames()).andReturn(Arrays.asList("Broken"));
+        expect(setter.toLocale("en")).andReturn(Locale.ENGLISH);
+
+        expect(source.getPage("Broken", english)).andThrow(new RuntimeException("Template missing."));
+
+        replay();
+
+        new PagePreloader(logger, true, false, "", "en", 3, resolver, source, setter, new NonParallelExecutor()).run();
+
+        verify();
+    }
+}
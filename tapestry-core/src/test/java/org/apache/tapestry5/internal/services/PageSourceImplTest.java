@@ -0,0 +1,273 @@
+// Copyright 2012 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.internal.services;
+
+import org.apache.tapestry5.internal.structure.Page;
+import org.apache.tapestry5.internal.test.InternalBaseTestCase;
+import org.apache.tapestry5.services.pageload.ComponentRequestSelectorAnalyzer;
+import org.apache.tapestry5.services.pageload.ComponentResourceSelector;
+import org.apache.tapestry5.services.pageload.PageCacheEvictionPolicy;
+import org.apache.tapestry5.services.pageload.PageCacheStatistics;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class PageSourceImplTest extends InternalBaseTestCase
+{
+    private final ComponentResourceSelector english = new ComponentResourceSelector(Locale.ENGLISH);
+
+    private final ComponentRequestSelectorAnalyzer analyzer = new ComponentRequestSelectorAnalyzer()
+    {
+        public ComponentResourceSelector buildSelectorForRequest()
+        {
+            return english;
+        }
+    };
+
+    @Test
+    public void loaded_page_is_cached()
+    {
+        PageLoader loader = newMock(PageLoader.class);
+        Page page = mockPage();
+
+        expect(loader.loadPage("Index", english)).andReturn(page);
+
+        replay();
+
+        PageSourceImpl source = new PageSourceImpl(loader, analyzer, 0, PageCacheEvictionPolicy.LRU,
+                Collections.<String>emptyList());
+
+        assertSame(source.getPage("Index"), page);
+        assertSame(source.getPage("Index"), page);
+
+        PageCacheStatistics statistics = source.getCacheStatistics();
+
+        assertEquals(statistics.getHitCount(), 1L);
+        assertEquals(statistics.getMissCount(), 1L);
+        assertEquals(statistics.getLoadCount(), 1L);
+        assertEquals(statistics.getSize(), 1);
+
+        verify();
+    }
+
+    @Test
+    public void least_recently_used_page_is_evicted()
+    {
+        PageLoader loader = newMock(PageLoader.class);
+        Page index = mockPage();
+        Page about = mockPage();
+        Page news = mockPage();
+
+        expect(loader.loadPage("Index", english)).andReturn(index);
+        expect(loader.loadPage("About", english)).andReturn(about);
+        expect(loader.loadPage("News", english)).andReturn(news);
+
+        replay();
+
+        PageSourceImpl source = new PageSourceImpl(loader, analyzer, 2, PageCacheEvictionPolicy.LRU,
+                Collections.<String>emptyList());
+
+        source.getPage("Index");
+        source.getPage("About");
+
+        // Touch Index, so that About becomes the least recently used.
+
+        source.getPage("Index");
+
+        source.getPage("News");
+
+        assertEquals(source.getAllPages().size(), 2);
+        assertTrue(source.getAllPages().contains(index));
+        assertFalse(source.getAllPages().contains(about));
+        assertEquals(source.getCacheStatistics().getEvictionCount(), 1L);
+
+        verify();
+    }
+
+    @Test
+    public void least_frequently_used_page_is_evicted()
+    {
+        PageLoader loader = newMock(PageLoader.class);
+        Page index = mockPage();
+        Page about = mockPage();
+        Page news = mockPage();
+
+        expect(loader.loadPage("Index", english)).andReturn(index);
+        expect(loader.loadPage("About", english)).andReturn(about);
+        expect(loader.loadPage("News", english)).andReturn(news);
+
+        replay();
+
+        PageSourceImpl source = new PageSourceImpl(loader, analyzer, 2, PageCacheEvictionPolicy.LFU,
+                Collections.<String>emptyList());
+
+        source.getPage("Index");
+        source.getPage("Index");
+        source.getPage("Index");
+
+        source.getPage("About");
+
+        source.getPage("News");
+
+        assertTrue(source.getAllPages().contains(index));
+        assertFalse(source.getAllPages().contains(about));
+
+        verify();
+    }
+
+    @Test
+    public void pinned_page_is_never_evicted()
+    {
+        PageLoader loader = newMock(PageLoader.class);
+        Page index = mockPage();
+        Page about = mockPage();
+        Page news = mockPage();
+
+        expect(loader.loadPage("Index", english)).andReturn(index);
+        expect(loader.loadPage("About", english)).andReturn(about);
+        expect(loader.loadPage("News", english)).andReturn(news);
+
+        replay();
+
+        PageSourceImpl source = new PageSourceImpl(loader, analyzer, 1, PageCacheEvictionPolicy.LRU,
+                Arrays.asList("index"));
+
+        source.getPage("Index");
+        source.getPage("About");
+        source.getPage("News");
+
+        assertTrue(source.getAllPages().contains(index));
+        assertTrue(source.getAllPages().contains(news));
+        assertFalse(source.getAllPages().contains(about));
+
+        verify();
+    }
+
+    @Test
+    public void concurrent_requests_share_a_single_load() throws Exception
+    {
+        final Page page = mockPage();
+        final AtomicInteger loads = new AtomicInteger();
+        final CountDownLatch loading = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        replay();
+
+        PageLoader loader = new PageLoader()
+        {
+            public Page loadPage(String pageName, ComponentResourceSelector selector)
+            {
+                loads.incrementAndGet();
+                loading.countDown();
+
+                try
+                {
+                    release.await();
+                } catch (InterruptedException ex)
+                {
+                    throw new RuntimeException(ex);
+                }
+
+                return page;
+            }
+        };
+
+        final PageSourceImpl source = new PageSourceImpl(loader, analyzer, 0, PageCacheEvictionPolicy.LRU,
+                Collections.<String>emptyList());
+
+        final List<Page> results = Collections.synchronizedList(new ArrayList<Page>());
+
+        Runnable request = new Runnable()
+        {
+            public void run()
+            {
+                results.add(source.getPage("Index"));
+            }
+        };
+
+        Thread first = new Thread(request);
+        first.start();
+
+        loading.await();
+
+        final CountDownLatch secondRequesting = new CountDownLatch(1);
+
+        Thread second = new Thread(new Runnable()
+        {
+            public void run()
+            {
+                secondRequesting.countDown();
+
+                results.add(source.getPage("Index"));
+            }
+        });
+        second.start();
+
+        secondRequesting.await();
+
+        // The second thread can only park once it is waiting on the first thread's load; if it started a load of its
+        // own, it would be counted below.
+
+        while (second.getState() != Thread.State.WAITING)
+        {
+            Thread.yield();
+        }
+
+        assertEquals(loads.get(), 1);
+        assertTrue(results.isEmpty());
+
+        release.countDown();
+
+        first.join();
+        second.join();
+
+        assertEquals(loads.get(), 1);
+        assertEquals(results.size(), 2);
+        assertSame(results.get(0), page);
+        assertSame(results.get(1), page);
+
+        verify();
+    }
+
+    @Test
+    public void cleared_cache_reloads_page()
+    {
+        PageLoader loader = newMock(PageLoader.class);
+        Page first = mockPage();
+        Page second = mockPage();
+
+        expect(loader.loadPage("Index", english)).andReturn(first);
+        expect(loader.loadPage("Index", english)).andReturn(second);
+
+        replay();
+
+        PageSourceImpl source = new PageSourceImpl(loader, analyzer, 0, PageCacheEvictionPolicy.LRU,
+                Collections.<String>emptyList());
+
+        assertSame(source.getPage("Index"), first);
+
+        source.objectWasInvalidated();
+
+        assertSame(source.getPage("Index"), second);
+
+        verify();
+    }
+}
@@ -0,0 +1,101 @@
+// Copyright 2012 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.internal.services;
+
+import org.apache.tapestry5.ioc.internal.services.PerthreadManagerImpl;
+import org.apache.tapestry5.ioc.test.TestBase;
+import org.apache.tapestry5.services.PipelineStageStatistics;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.Test;
+
+import java.util.List;
+
+public class PipelineMetricsImplTest extends TestBase
+{
+    private PipelineMetricsImpl newMetrics(boolean enabled)
+    {
+        return new PipelineMetricsImpl(new PerthreadManagerImpl(LoggerFactory.getLogger(PerthreadManagerImpl.class)),
+                enabled);
+    }
+
+    @Test
+    public void nested_stages_are_recorded_per_page()
+    {
+        PipelineMetricsImpl metrics = newMetrics(true);
+
+        for (int i = 0; i < 2; i++)
+        {
+            assertTrue(metrics.start("request"));
+            assertTrue(metrics.start("render"));
+
+            metrics.setPageName("Index");
+
+            assertTrue(metrics.start("markup"));
+            metrics.end();
+
+            metrics.end();
+            metrics.end();
+        }
+
+        List<PipelineStageStatistics> statistics = metrics.getStatistics();
+
+        assertEquals(statistics.size(), 3);
+
+        assertEquals(statistics.get(0).getPath(), "request");
+        assertEquals(statistics.get(1).getPath(), "request/render");
+        assertEquals(statistics.get(2).getPath(), "request/render/markup");
+
+        for (PipelineStageStatistics s : statistics)
+        {
+            assertEquals(s.getPageName(), "Index");
+            assertEquals(s.getCount(), 2L);
+            assertTrue(s.getMaxNanos() >= s.getMedianNanos());
+        }
+    }
+
+    @Test
+    public void stages_without_a_page_have_blank_page_name()
+    {
+        PipelineMetricsImpl metrics = newMetrics(true);
+
+        metrics.start("asset");
+        metrics.end();
+
+        assertEquals(metrics.getStatistics().get(0).getPageName(), "");
+    }
+
+    @Test
+    public void nothing_recorded_when_disabled()
+    {
+        PipelineMetricsImpl metrics = newMetrics(false);
+
+        assertFalse(metrics.start("request"));
+
+        metrics.end();
+
+        assertTrue(metrics.getStatistics().isEmpty());
+
+        metrics.setEnabled(true);
+
+        assertTrue(metrics.start("request"));
+        metrics.end();
+
+        assertEquals(metrics.getStatistics().size(), 1);
+
+        metrics.reset();
+
+        assertTrue(metrics.getStatistics().isEmpty());
+    }
+}
@@ -0,0 +1,137 @@
+// Copyright 2012 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package org.apache.tapestry5.internal.services;
+
+import org.apache.tapestry5.ioc.test.TestBase;
+import org.apache.tapestry5.services.RenderProfile;
+import org.apache.tapestry5.services.RenderProfiler;
+import org.testng.annotations.Test;
+
+import java.util.List;
+
+public class RenderProfilerImplTest extends TestBase
+{
+    @Test
+    public void enabled_may_be_changed()
+    {
+        RenderProfiler profiler = new RenderProfilerImpl(false);
+
+        assertFalse(profiler.isEnabled());
+
+        profiler.setEnabled(true);
+
+        assertTrue(profiler.isEnabled());
+    }
+
+    @Test
+    public void totals_are_accumulated_per_name()
+    {
+        RenderProfiler profiler = new RenderProfilerImpl(true);
+
+        profiler.recordPage("Index", 10, 1000, 500);
+        profiler.recordPage("Index", 20, 3000, 700);
+        profiler.recordPage("About", 5, 8000, 100);
+
+        List<RenderProfile> profiles = profiler.getPageProfiles();
+
+        assertEquals(profiles.size(), 2);
+
+        // Sorted by descending elapsed time
+
+        RenderProfile about = profiles.get(0);
+
+        assertEquals(about.getName(), "About");
+        assertEquals(about.getRenderCount(), 1L);
+
+        RenderProfile index = profiles.get(1);
+
+        assertEquals(index.getName(), "Index");
+        assertEquals(index.getRenderCount(), 2L);
+        assertEquals(index.getCommandCount(), 30L);
+        assertEquals(index.getElapsedNanos(), 4000L);
+        assertEquals(index.getAllocatedBytes(), 1200L);
+
+        assertTrue(profiler.getComponentProfiles().isEmpty());
+    }
+
+    @Test
+    public void totals_are_accumulated_across_threads() throws InterruptedException
+    {
+        final RenderProfiler profiler = new RenderProfilerImpl(true);
+
+        Thread[] threads = new Thread[8];
+
+        for (int i = 0; i < threads.length; i++)
+        {
+            threads[i] = new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    for (int j = 0; j < 1000; j++)
+                    {
+                        profiler.recordComponent("org.example.Layout", 3, 10, 1);
+                    }
+                }
+            };
+
+            threads[i].start();
+        }
+
+        for (Thread thread : threads)
+        {
+            thread.join();
+        }
+
+        RenderProfile profile = profiler.getComponentProfiles().get(0);
+
+        assertEquals(profile.getRenderCount(), 8000L);
+        assertEquals(profile.getCommandCount(), 24000L);
+        assertEquals(profile.getElapsedNanos(), 80000L);
+        assertEquals(profile.getAllocatedBytes(), 8000L);
+    }
+
+    @Test
+    public void reset_discards_totals()
+    {
+        RenderProfiler profiler = new RenderProfilerImpl(true);
+
+        profiler.recordPage("Index", 10, 1000, 500);
+        profiler.recordComponent("org.example.Layout", 10, 1000, 500);
+
+        profiler.reset();
+
+        assertTrue(profiler.getPageProfiles().isEmpty());
+        assertTrue(profiler.getComponentProfiles().isEmpty());
+    }
+
+    @Test
+    public void allocated_bytes_increase()
+    {
+        RenderProfiler profiler = new RenderProfilerImpl(true);
+
+        long before = profiler.getAllocatedBytes();
+
+        byte[] garbage = new byte[100000];
+
+        long after = profiler.getAllocatedBytes();
+
+        // Zero on JVMs that can't measure allocation.
+
+        assertTrue(after >= before);
+        assertEquals(garbage.length, 100000);
+    }
+}
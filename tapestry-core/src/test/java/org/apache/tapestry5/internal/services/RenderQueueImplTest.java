@@ -1,4 +1,4 @@
-// Copyright 2006, 2007, 2008 The Apache Software Foundation
+// Copyright 2006, 2007, 2008, 2012 The Apache Software Foundation
 //
 // Licensed under the Apache License, Version 2.0 (the "License");
 // you may not use this file except in compliance with the License.
@@ -20,6 +20,8 @@ import org.apache.tapestry5.TapestryMarkers;
 import org.apache.tapestry5.internal.test.InternalBaseTestCase;
 import org.apache.tapestry5.runtime.RenderCommand;
 import org.apache.tapestry5.runtime.RenderQueue;
+import org.apache.tapestry5.services.RenderProfiler;
+import static org.easymock.EasyMock.anyLong;
 import static org.easymock.EasyMock.eq;
 import static org.easymock.EasyMock.isA;
 import org.slf4j.Logger;
@@ -59,6 +61,36 @@ public class RenderQueueImplTest extends InternalBaseTestCase
         verify();
     }
 
+    @Test
+    public void profiled_run_logs_commands()
+    {
+        RenderCommand command = mockRenderCommand();
+
+        Logger logger = mockLogger();
+        MarkupWriter writer = mockMarkupWriter();
+        RenderProfiler profiler = newMock(RenderProfiler.class);
+        RenderQueueImpl queue = new RenderQueueImpl(logger, profiler, "Index");
+
+        expect(logger.isTraceEnabled(TapestryMarkers.RENDER_COMMANDS)).andReturn(true);
+        expect(profiler.isEnabled()).andReturn(true);
+        expect(profiler.getAllocatedBytes()).andReturn(0L).anyTimes();
+
+        logger.trace(TapestryMarkers.RENDER_COMMANDS, "Executing: {}", command);
+
+        command.render(writer, queue);
+
+        logger.debug(eq(TapestryMarkers.RENDER_COMMANDS), isA(String.class));
+
+        profiler.recordPage(eq("Index"), eq(1L), anyLong(), eq(0L));
+
+        replay();
+
+        queue.push(command);
+        queue.run(writer);
+
+        verify();
+    }
+
     @Test
     public void command_failed()
     {
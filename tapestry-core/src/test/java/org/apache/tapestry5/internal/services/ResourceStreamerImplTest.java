@@ -0,0 +1,36 @@
+// Copyright 2012 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.internal.services;
+
+import org.apache.tapestry5.ioc.test.TestBase;
+import org.testng.annotations.Test;
+
+public class ResourceStreamerImplTest extends TestBase
+{
+    private static final String ETAG = "\"0123456789abcdef\"";
+
+    @Test
+    public void if_none_match()
+    {
+        assertTrue(ResourceStreamerImpl.matches(ETAG, ETAG));
+        assertTrue(ResourceStreamerImpl.matches("*", ETAG));
+        assertTrue(ResourceStreamerImpl.matches("\"other\", " + ETAG, ETAG));
+        assertTrue(ResourceStreamerImpl.matches("W/" + ETAG, ETAG));
+
+        assertFalse(ResourceStreamerImpl.matches("\"other\"", ETAG));
+        assertFalse(ResourceStreamerImpl.matches("0123456789abcdef", ETAG));
+        assertFalse(ResourceStreamerImpl.matches("", ETAG));
+    }
+}
@@ -0,0 +1,77 @@
+// Copyright 2012 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.internal.services;
+
+import org.apache.tapestry5.ioc.services.OperationTiming;
+import org.apache.tapestry5.ioc.test.TestBase;
+import org.apache.tapestry5.services.SlowRequest;
+import org.apache.tapestry5.services.SlowRequestLog;
+import org.testng.annotations.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+public class SlowRequestLogImplTest extends TestBase
+{
+    @Test
+    public void most_recent_requests_are_kept()
+    {
+        SlowRequestLog log = new SlowRequestLogImpl(1000, 2);
+
+        log.add(newRequest("/a"));
+        log.add(newRequest("/b"));
+        log.add(newRequest("/c"));
+
+        List<SlowRequest> requests = log.getSlowRequests();
+
+        assertEquals(requests.size(), 2);
+        assertEquals(requests.get(0).getPath(), "/c");
+        assertEquals(requests.get(1).getPath(), "/b");
+    }
+
+    @Test
+    public void clear_discards_requests()
+    {
+        SlowRequestLog log = new SlowRequestLogImpl(1000, 5);
+
+        log.add(newRequest("/a"));
+
+        log.clear();
+
+        assertTrue(log.getSlowRequests().isEmpty());
+
+        log.add(newRequest("/b"));
+
+        assertEquals(log.getSlowRequests().size(), 1);
+    }
+
+    @Test
+    public void threshold_may_be_changed()
+    {
+        SlowRequestLog log = new SlowRequestLogImpl(1000, 5);
+
+        assertEquals(log.getThreshold(), 1000L);
+
+        log.setThreshold(-1);
+
+        assertEquals(log.getThreshold(), 0L);
+    }
+
+    private SlowRequest newRequest(String path)
+    {
+        return new SlowRequest("GET", path, System.currentTimeMillis(), 2000000000L,
+                Collections.<OperationTiming>emptyList());
+    }
+}
@@ -0,0 +1,197 @@
+// Copyright 2012 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.internal.services;
+
+import org.apache.tapestry5.MarkupWriter;
+import org.apache.tapestry5.dom.DefaultMarkupModel;
+import org.apache.tapestry5.dom.Element;
+import org.apache.tapestry5.internal.test.InternalBaseTestCase;
+import org.apache.tapestry5.ioc.internal.util.CollectionFactory;
+import org.testng.annotations.Test;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.List;
+
+public class StreamingMarkupWriterImplTest extends InternalBaseTestCase
+{
+    private final StringWriter output = new StringWriter();
+
+    private final PrintWriter pw = new PrintWriter(output);
+
+    private StreamingMarkupWriterImpl newWriter()
+    {
+        output.getBuffer().setLength(0);
+
+        return new StreamingMarkupWriterImpl(new DefaultMarkupModel(), "UTF-8", pw, false);
+    }
+
+    private String finish(MarkupWriter writer)
+    {
+        writer.toMarkup(pw);
+
+        pw.flush();
+
+        return output.toString();
+    }
+
+    @Test
+    public void completed_elements_are_written_and_discarded()
+    {
+        StreamingMarkupWriterImpl writer = newWriter();
+
+        writer.element("html");
+        writer.element("body", "class", "main");
+        writer.element("div");
+        writer.element("p");
+        writer.write("first");
+        writer.end();
+
+        assertEquals(output.toString(), "<html><body class=\"main\"><div><p>first</p>");
+
+        // Only the open elements remain in the document.
+
+        assertTrue(writer.getElement().isEmpty());
+
+        writer.comment("done");
+        writer.end();
+
+        assertEquals(finish(writer), "<html><body class=\"main\"><div><p>first</p><!--done--></div></body></html>");
+    }
+
+    @Test
+    public void head_commit_callback_invoked_when_body_starts()
+    {
+        final StreamingMarkupWriterImpl writer = newWriter();
+
+        writer.addHeadCommitCallback(new Runnable()
+        {
+            public void run()
+            {
+                writer.getDocument().find("html/head").element("link", "href", "site.css");
+            }
+        });
+
+        writer.element("html");
+        writer.element("head");
+        writer.element("title");
+        writer.write("Title");
+        writer.end();
+        writer.end();
+
+        assertEquals(output.toString(), "");
+
+        writer.element("body");
+
+        assertEquals(output.toString(), "<html><head><title>Title</title><link href=\"site.css\"/></head>");
+
+        writer.write("content");
+        writer.end();
+        writer.end();
+
+        assertEquals(finish(writer),
+                "<html><head><title>Title</title><link href=\"site.css\"/></head><body>content</body></html>");
+    }
+
+    @Test
+    public void forms_are_held_until_later_content_completes()
+    {
+        StreamingMarkupWriterImpl writer = newWriter();
+
+        writer.element("html");
+        writer.element("body");
+
+        Element formElement = writer.element("form", "action", "/submit");
+        Element div = writer.element("div");
+        writer.end();
+        writer.element("input", "name", "field");
+        writer.end();
+        writer.end();
+
+        assertEquals(output.toString(), "");
+
+        // As with the Form component, after the form has ended.
+
+        formElement.forceAttributes("enctype", "multipart/form-data");
+        div.element("input", "name", "t:formdata");
+
+        writer.element("p");
+        writer.end();
+
+        String form = "<form enctype=\"multipart/form-data\" action=\"/submit\"><div><input name=\"t:formdata\"></input></div>"
+                + "<input name=\"field\"></input></form>";
+
+        assertEquals(output.toString(), "<html><body>" + form + "<p></p>");
+
+        writer.end();
+
+        assertEquals(finish(writer), "<html><body>" + form + "<p></p></body></html>");
+    }
+
+    @Test
+    public void unclosed_elements_are_closed_on_finish()
+    {
+        StreamingMarkupWriterImpl writer = newWriter();
+
+        writer.element("html");
+        writer.element("body");
+        writer.element("div");
+        writer.element("p");
+        writer.end();
+        writer.write("tail");
+
+        assertEquals(finish(writer), "<html><body><div><p></p>tail</div></body></html>");
+    }
+
+    @Test
+    public void head_flushed_when_body_starts()
+    {
+        final List<String> flushed = CollectionFactory.newList();
+
+        final StringWriter target = new StringWriter()
+        {
+            @Override
+            public void flush()
+            {
+                flushed.add(toString());
+            }
+        };
+
+        PrintWriter pw = new PrintWriter(target);
+
+        StreamingMarkupWriterImpl writer = new StreamingMarkupWriterImpl(new DefaultMarkupModel(), "UTF-8", pw, true);
+
+        writer.element("html");
+        writer.element("head");
+        writer.element("title");
+        writer.write("Slow Page");
+        writer.end();
+        writer.end();
+
+        assertTrue(flushed.isEmpty());
+
+        writer.element("body");
+
+        assertEquals(flushed, CollectionFactory.newList("<html><head><title>Slow Page</title></head>"));
+
+        writer.end();
+        writer.end();
+
+        writer.toMarkup(pw);
+        pw.flush();
+
+        assertEquals(target.toString(), "<html><head><title>Slow Page</title></head><body></body></html>");
+    }
+}
@@ -0,0 +1,216 @@
+// Copyright 2012 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.internal.services.assets;
+
+import org.apache.tapestry5.internal.TapestryInternalUtils;
+import org.apache.tapestry5.ioc.test.TestBase;
+import org.apache.tapestry5.services.assets.CompressionStatus;
+import org.apache.tapestry5.services.assets.StreamableResource;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+public class AssetCacheImplTest extends TestBase
+{
+    @Test
+    public void content_is_copied_into_cache() throws IOException
+    {
+        AssetCache cache = new AssetCacheImpl(1000);
+
+        StreamableResource cached = cache.put("a", newResource("alpha"));
+
+        assertEquals(cached.getContentType(), "text/plain");
+        assertEquals(cached.getCompression(), CompressionStatus.COMPRESSABLE);
+        assertEquals(cached.getLastModified(), 1000L);
+        assertEquals(cached.getSize(), 5);
+
+        assertEquals(streamedContent(cached), "alpha");
+        assertEquals(openedContent(cached), "alpha");
+
+        // Each stream is independent.
+
+        assertEquals(streamedContent(cached), "alpha");
+
+        assertSame(cache.get("a"), cached);
+        assertNull(cache.get("b"));
+
+        assertEquals(cache.getHits(), 1L);
+        assertEquals(cache.getMisses(), 1L);
+        assertEquals(cache.getSize(), 5L);
+        assertEquals(cache.getEntryCount(), 1);
+    }
+
+    @Test
+    public void least_recently_used_content_is_evicted() throws IOException
+    {
+        AssetCache cache = new AssetCacheImpl(12);
+
+        cache.put("a", newResource("alpha"));
+        cache.put("b", newResource("bravo"));
+
+        // Access "a" so that "b" is the least recently used.
+
+        assertNotNull(cache.get("a"));
+
+        cache.put("c", newResource("charlie"));
+
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("a"));
+        assertNotNull(cache.get("c"));
+
+        assertEquals(cache.getEvictions(), 1L);
+        assertEquals(cache.getSize(), 12L);
+        assertEquals(cache.getEntryCount(), 2);
+    }
+
+    @Test
+    public void replaced_content_is_not_counted_twice() throws IOException
+    {
+        AssetCache cache = new AssetCacheImpl(100);
+
+        cache.put("a", newResource("alpha"));
+        cache.put("a", newResource("alphabet"));
+
+        assertEquals(cache.getSize(), 8L);
+        assertEquals(streamedContent(cache.get("a")), "alphabet");
+    }
+
+    @Test
+    public void content_larger_than_cache_is_not_cached() throws IOException
+    {
+        AssetCache cache = new AssetCacheImpl(4);
+
+        StreamableResource resource = newResource("alpha");
+
+        assertSame(cache.put("a", resource), resource);
+        assertNull(cache.get("a"));
+        assertEquals(cache.getSize(), 0L);
+    }
+
+    @Test
+    public void clear_discards_content() throws IOException
+    {
+        AssetCacheImpl cache = new AssetCacheImpl(100);
+
+        cache.put("a", newResource("alpha"));
+
+        cache.objectWasInvalidated();
+
+        assertNull(cache.get("a"));
+        assertEquals(cache.getSize(), 0L);
+        assertEquals(cache.getEntryCount(), 0);
+    }
+
+    @Test
+    public void concurrent_reads_and_writes_stay_within_budget() throws Exception
+    {
+        final AssetCache cache = new AssetCacheImpl(50);
+
+        Thread[] threads = new Thread[4];
+
+        final Throwable[] failure = new Throwable[1];
+
+        for (int i = 0; i < threads.length; i++)
+        {
+            final int thread = i;
+
+            threads[i] = new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        for (int j = 0; j < 1000; j++)
+                        {
+                            String key = String.valueOf((thread + j) % 20);
+
+                            if (cache.get(key) == null)
+                            {
+                                cache.put(key, newResource("content" + key));
+                            }
+                        }
+                    } catch (Throwable ex)
+                    {
+                        failure[0] = ex;
+                    }
+                }
+            };
+
+            threads[i].start();
+        }
+
+        for (Thread thread : threads)
+        {
+            thread.join();
+        }
+
+        assertNull(failure[0]);
+
+        assertTrue(cache.getSize() <= 50);
+        assertEquals(cache.getHits() + cache.getMisses(), 4000L);
+        assertTrue(cache.getEvictions() > 0);
+
+        // Size reflects exactly the content still cached.
+
+        long total = 0;
+
+        for (int i = 0; i < 20; i++)
+        {
+            StreamableResource resource = cache.get(String.valueOf(i));
+
+            if (resource != null)
+            {
+                total += resource.getSize();
+            }
+        }
+
+        assertEquals(cache.getSize(), total);
+    }
+
+    private StreamableResource newResource(String content) throws IOException
+    {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+
+        bos.write(content.getBytes("UTF-8"));
+
+        return new StreamableResourceImpl(content, "text/plain", CompressionStatus.COMPRESSABLE, 1000L,
+                new BytestreamCache(bos));
+    }
+
+    private String streamedContent(StreamableResource resource) throws IOException
+    {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+
+        resource.streamTo(bos);
+
+        return bos.toString("UTF-8");
+    }
+
+    private String openedContent(StreamableResource resource) throws IOException
+    {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+
+        InputStream stream = resource.openStream();
+
+        TapestryInternalUtils.copy(stream, bos);
+
+        stream.close();
+
+        return bos.toString("UTF-8");
+    }
+}
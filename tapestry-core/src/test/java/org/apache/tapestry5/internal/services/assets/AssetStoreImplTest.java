@@ -0,0 +1,176 @@
+// Copyright 2012 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.internal.services.assets;
+
+import org.apache.tapestry5.ioc.test.TestBase;
+import org.apache.tapestry5.services.assets.CompressionStatus;
+import org.apache.tapestry5.services.assets.StreamableResource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+public class AssetStoreImplTest extends TestBase
+{
+    private static final String KEY = "classpath:org/example/site.js";
+
+    private static final long CACHE_SIZE = 1024 * 1024;
+
+    private final Logger logger = LoggerFactory.getLogger(AssetStoreImplTest.class);
+
+    @Test
+    public void blank_location_is_an_empty_store() throws IOException
+    {
+        AssetStore store = new AssetStoreImpl(logger, new AssetCacheImpl(CACHE_SIZE), "");
+
+        assertNull(store.get(KEY, true));
+    }
+
+    @Test
+    public void stored_content_is_returned() throws IOException
+    {
+        File folder = newStoreFolder();
+
+        String digest = writeFile(folder, "classpath/org/example/site.js", "var x=1;");
+        String compressedDigest = writeFile(folder, "classpath/org/example/site.js.gz", "<compressed>");
+
+        writeFile(folder, AssetStoreImpl.MANIFEST_FILE,
+                "classpath\\:org/example/site.js=text/javascript|1000|" + digest + "|" + compressedDigest + "\n");
+
+        AssetStore store = new AssetStoreImpl(logger, new AssetCacheImpl(CACHE_SIZE), folder.getPath());
+
+        StreamableResource uncompressed = store.get(KEY, false);
+
+        assertEquals(contentOf(uncompressed), "var x=1;");
+        assertEquals(uncompressed.getContentType(), "text/javascript");
+        assertEquals(uncompressed.getLastModified(), 1000L);
+        assertEquals(uncompressed.getCompression(), CompressionStatus.COMPRESSABLE);
+
+        StreamableResource compressed = store.get(KEY, true);
+
+        assertEquals(contentOf(compressed), "<compressed>");
+        assertEquals(compressed.getCompression(), CompressionStatus.COMPRESSED);
+
+        assertSame(store.get(KEY, true), compressed);
+
+        assertNull(store.get("classpath:org/example/other.js", false));
+    }
+
+    @Test
+    public void uncompressed_content_returned_when_no_compressed_content_stored() throws IOException
+    {
+        File folder = newStoreFolder();
+
+        String digest = writeFile(folder, "context/images/logo.png", "PNG");
+
+        writeFile(folder, AssetStoreImpl.MANIFEST_FILE, "context\\:images/logo.png=image/png|1000|" + digest + "\n");
+
+        StreamableResource resource = new AssetStoreImpl(logger, new AssetCacheImpl(CACHE_SIZE), folder.getPath()).get("context:images/logo.png", true);
+
+        assertEquals(contentOf(resource), "PNG");
+        assertEquals(resource.getCompression(), CompressionStatus.NOT_COMPRESSABLE);
+    }
+
+    @Test
+    public void content_not_matching_digest_is_ignored() throws IOException
+    {
+        File folder = newStoreFolder();
+
+        String digest = writeFile(folder, "classpath/org/example/site.js", "var x=1;");
+
+        writeFile(folder, "classpath/org/example/site.js", "var x=2;");
+
+        writeFile(folder, AssetStoreImpl.MANIFEST_FILE,
+                "classpath\\:org/example/site.js=text/javascript|1000|" + digest + "\n");
+
+        AssetStore store = new AssetStoreImpl(logger, new AssetCacheImpl(CACHE_SIZE), folder.getPath());
+
+        assertNull(store.get(KEY, false));
+
+        // The mismatch is remembered; the content is not read (or reported) again.
+
+        writeFile(folder, "classpath/org/example/site.js", "var x=1;");
+
+        assertNull(store.get(KEY, false));
+    }
+
+    @Test
+    public void stored_content_is_kept_in_asset_cache() throws IOException
+    {
+        File folder = newStoreFolder();
+
+        String digest = writeFile(folder, "classpath/org/example/site.js", "var x=1;");
+
+        writeFile(folder, AssetStoreImpl.MANIFEST_FILE,
+                "classpath\\:org/example/site.js=text/javascript|1000|" + digest + "\n");
+
+        AssetCache cache = new AssetCacheImpl(CACHE_SIZE);
+
+        StreamableResource resource = new AssetStoreImpl(logger, cache, folder.getPath()).get(KEY, false);
+
+        assertSame(cache.get("store:" + KEY), resource);
+        assertEquals(cache.getSize(), 8L);
+    }
+
+    @Test
+    public void key_to_file_name()
+    {
+        assertEquals(AssetStoreImpl.toFileName(KEY), "classpath/org/example/site.js");
+        assertEquals(AssetStoreImpl.toFileName("context:/images/logo.png"), "context/images/logo.png");
+        assertEquals(AssetStoreImpl.toFileName("stack:en/core.js"), "stack/en/core.js");
+    }
+
+    private File newStoreFolder() throws IOException
+    {
+        File folder = File.createTempFile("asset-store", "");
+
+        folder.delete();
+        folder.mkdirs();
+        folder.deleteOnExit();
+
+        return folder;
+    }
+
+    private String writeFile(File folder, String path, String content) throws IOException
+    {
+        File file = new File(folder, path);
+
+        file.getParentFile().mkdirs();
+        file.deleteOnExit();
+
+        byte[] bytes = content.getBytes("UTF-8");
+
+        OutputStream stream = new FileOutputStream(file);
+
+        stream.write(bytes);
+        stream.close();
+
+        return AssetStoreImpl.digest(bytes);
+    }
+
+    private String contentOf(StreamableResource resource) throws IOException
+    {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+
+        resource.streamTo(bos);
+
+        return bos.toString("UTF-8");
+    }
+}
@@ -0,0 +1,45 @@
+// Copyright 2012 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.internal.services.assets;
+
+import org.apache.tapestry5.ioc.internal.util.CollectionFactory;
+import org.apache.tapestry5.ioc.test.TestBase;
+import org.apache.tapestry5.services.assets.CacheControlAnalyzer;
+import org.testng.annotations.Test;
+
+import java.util.Map;
+
+public class CacheControlAnalyzerImplTest extends TestBase
+{
+    @Test
+    public void content_type_lookup()
+    {
+        Map<String, String> configuration = CollectionFactory.newCaseInsensitiveMap();
+
+        configuration.put("text/javascript", "public, max-age=3600");
+        configuration.put("image/*", "public, max-age=86400");
+
+        CacheControlAnalyzer analyzer = new CacheControlAnalyzerImpl(configuration);
+
+        assertEquals(analyzer.getCacheControl("text/javascript"), "public, max-age=3600");
+        assertEquals(analyzer.getCacheControl("text/javascript;charset=utf-8"), "public, max-age=3600");
+        assertEquals(analyzer.getCacheControl("image/png"), "public, max-age=86400");
+        assertNull(analyzer.getCacheControl("text/css"));
+
+        configuration.put("*", "no-cache");
+
+        assertEquals(analyzer.getCacheControl("text/css"), "no-cache");
+    }
+}
@@ -0,0 +1,126 @@
+// Copyright 2012 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.internal.services.assets;
+
+import org.apache.tapestry5.internal.TapestryInternalUtils;
+import org.apache.tapestry5.internal.services.ResourceDigestGeneratorImpl;
+import org.apache.tapestry5.ioc.test.TestBase;
+import org.apache.tapestry5.services.ResourceDigestGenerator;
+import org.apache.tapestry5.services.assets.CompressionStatus;
+import org.testng.annotations.Test;
+
+import java.io.*;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+public class URLStreamableResourceTest extends TestBase
+{
+    private final ResourceDigestGenerator digestGenerator = new ResourceDigestGeneratorImpl(
+            Collections.<String>emptyList());
+
+    @Test
+    public void file_content_is_streamed() throws IOException
+    {
+        byte[] content = newContent(200000);
+
+        File file = File.createTempFile("streamed", ".pdf");
+        file.deleteOnExit();
+
+        OutputStream os = new FileOutputStream(file);
+        os.write(content);
+        os.close();
+
+        URLStreamableResource resource = URLStreamableResource.create("document", "application/pdf", 1000L,
+                file.toURI().toURL(), digestGenerator);
+
+        assertEquals(resource.getFile(), file);
+        assertEquals(resource.getSize(), content.length);
+        assertEquals(resource.getCompression(), CompressionStatus.NOT_COMPRESSABLE);
+        assertEquals(resource.getLastModified(), 1000L);
+
+        // The entity tag is derived from the content, not the modification time.
+
+        assertEquals(resource.getETag(), "\"" + digestGenerator.generateDigest(file.toURI().toURL()) + "\"");
+        assertEquals(URLStreamableResource.create("document", "application/pdf", 2000L, file.toURI().toURL(),
+                digestGenerator).getETag(), resource.getETag());
+
+        assertContent(resource, content);
+    }
+
+    @Test
+    public void jar_content_is_streamed() throws IOException
+    {
+        byte[] content = newContent(50000);
+
+        File file = File.createTempFile("streamed", ".jar");
+        file.deleteOnExit();
+
+        JarOutputStream jos = new JarOutputStream(new FileOutputStream(file));
+        jos.putNextEntry(new JarEntry("images/logo.png"));
+        jos.write(content);
+        jos.close();
+
+        URL url = new URL("jar:" + file.toURI().toURL() + "!/images/logo.png");
+
+        URLStreamableResource resource = URLStreamableResource.create("logo", "image/png", 1000L, url, digestGenerator);
+
+        assertNull(resource.getFile());
+        assertEquals(resource.getSize(), content.length);
+
+        assertContent(resource, content);
+    }
+
+    @Test
+    public void missing_file_is_not_streamed() throws IOException
+    {
+        File file = new File(System.getProperty("java.io.tmpdir"), "does-not-exist.png");
+
+        assertNull(URLStreamableResource.create("missing", "image/png", 1000L, file.toURI().toURL(), digestGenerator));
+    }
+
+    private byte[] newContent(int size)
+    {
+        byte[] content = new byte[size];
+
+        for (int i = 0; i < size; i++)
+        {
+            content[i] = (byte) i;
+        }
+
+        return content;
+    }
+
+    private void assertContent(URLStreamableResource resource, byte[] expected) throws IOException
+    {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+
+        resource.streamTo(bos);
+
+        assertTrue(Arrays.equals(bos.toByteArray(), expected));
+
+        bos.reset();
+
+        InputStream stream = resource.openStream();
+
+        TapestryInternalUtils.copy(stream, bos);
+
+        stream.close();
+
+        assertTrue(Arrays.equals(bos.toByteArray(), expected));
+    }
+}
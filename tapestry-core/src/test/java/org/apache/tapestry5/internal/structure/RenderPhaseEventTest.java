@@ -0,0 +1,112 @@
+// Copyright 2012 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package org.apache.tapestry5.internal.structure;
+
+import org.apache.tapestry5.MarkupWriter;
+import org.apache.tapestry5.Renderable;
+import org.apache.tapestry5.internal.services.RenderQueueImpl;
+import org.apache.tapestry5.ioc.Invokable;
+import org.apache.tapestry5.ioc.OperationTracker;
+import org.apache.tapestry5.ioc.test.TestBase;
+import org.apache.tapestry5.runtime.RenderCommand;
+import org.apache.tapestry5.runtime.RenderQueue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.Test;
+
+public class RenderPhaseEventTest extends TestBase
+{
+    private static class CountingTracker implements OperationTracker
+    {
+        int count;
+
+        public void run(String description, Runnable operation)
+        {
+            count++;
+
+            operation.run();
+        }
+
+        public <T> T invoke(String description, Invokable<T> operation)
+        {
+            count++;
+
+            return operation.invoke();
+        }
+    }
+
+    private final Logger logger = LoggerFactory.getLogger(RenderPhaseEventTest.class);
+
+    @Test
+    public void boolean_result_bypasses_tracker()
+    {
+        CountingTracker tracker = new CountingTracker();
+
+        RenderPhaseEvent event = new RenderPhaseEvent(new RenderPhaseEventHandler(new RenderQueueImpl(logger)),
+                logger, tracker);
+
+        event.setMethodDescription("Loop.setup()");
+
+        assertTrue(event.storeResult(false));
+
+        assertFalse(event.getResult());
+        assertTrue(event.isAborted());
+        assertEquals(tracker.count, 0);
+    }
+
+    @Test
+    public void render_command_result_bypasses_tracker()
+    {
+        CountingTracker tracker = new CountingTracker();
+        RenderQueueImpl queue = new RenderQueueImpl(logger);
+
+        RenderPhaseEvent event = new RenderPhaseEvent(new RenderPhaseEventHandler(queue), logger, tracker);
+
+        RenderCommand command = new RenderCommand()
+        {
+            public void render(MarkupWriter writer, RenderQueue queue)
+            {
+            }
+        };
+
+        event.setMethodDescription("Layout.beginRender()");
+
+        assertFalse(event.storeResult(command));
+
+        assertTrue(event.getResult());
+        assertEquals(tracker.count, 0);
+    }
+
+    @Test
+    public void other_results_are_tracked()
+    {
+        CountingTracker tracker = new CountingTracker();
+
+        RenderPhaseEvent event = new RenderPhaseEvent(new RenderPhaseEventHandler(new RenderQueueImpl(logger)),
+                logger, tracker);
+
+        event.setMethodDescription("Layout.beginRender()");
+
+        assertFalse(event.storeResult(new Renderable()
+        {
+            public void render(MarkupWriter writer)
+            {
+            }
+        }));
+
+        assertEquals(tracker.count, 1);
+    }
+}
@@ -0,0 +1,76 @@
+// Copyright 2012 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.internal.util;
+
+import org.apache.tapestry5.ioc.test.TestBase;
+import org.testng.annotations.Test;
+
+public class LatencyHistogramTest extends TestBase
+{
+    @Test
+    public void each_value_is_within_its_bucket()
+    {
+        long[] values = {0, 1, 7, 8, 15, 16, 17, 1000, 123456789, Long.MAX_VALUE};
+
+        for (long value : values)
+        {
+            int index = LatencyHistogram.bucketIndex(value);
+
+            assertTrue(value <= LatencyHistogram.bucketUpperBound(index));
+
+            if (index > 0)
+            {
+                assertTrue(value > LatencyHistogram.bucketUpperBound(index - 1));
+            }
+        }
+    }
+
+    @Test
+    public void empty_histogram()
+    {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        assertEquals(histogram.getCount(), 0L);
+        assertEquals(histogram.getMean(), 0L);
+        assertEquals(histogram.getPercentile(50), 0L);
+    }
+
+    @Test
+    public void percentiles_are_within_precision()
+    {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        for (long i = 1; i <= 1000; i++)
+        {
+            histogram.record(i * 1000);
+        }
+
+        assertEquals(histogram.getCount(), 1000L);
+        assertEquals(histogram.getMax(), 1000000L);
+        assertEquals(histogram.getMean(), 500500L);
+
+        assertWithin(histogram.getPercentile(50), 500000L);
+        assertWithin(histogram.getPercentile(90), 900000L);
+        assertWithin(histogram.getPercentile(99), 990000L);
+
+        assertEquals(histogram.getPercentile(100), 1000000L);
+    }
+
+    private void assertWithin(long actual, long expected)
+    {
+        assertTrue(actual >= expected && actual <= expected + expected / 8,
+                String.format("%d is not within 12.5%% of %d", actual, expected));
+    }
+}
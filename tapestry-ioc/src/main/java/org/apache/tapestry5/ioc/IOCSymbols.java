@@ -1,4 +1,4 @@
-// Copyright 2010, 2011 The Apache Software Foundation
+// Copyright 2010, 2011, 2012 The Apache Software Foundation
 //
 // Licensed under the Apache License, Version 2.0 (the "License");
 // you may not use this file except in compliance with the License.
@@ -61,4 +61,14 @@ public class IOCSymbols
      * @since 5.1.0.3
      */
     public static final String THREAD_POOL_ENABLED = "tapestry.thread-pool-enabled";
+
+    /**
+     * The number of threads used to realize {@linkplain org.apache.tapestry5.ioc.annotations.EagerLoad eager loaded}
+     * services at registry startup. Eager loaded services that (directly or indirectly) depend on each other are always
+     * realized on the same thread, in their normal order; independent groups of such services may be realized
+     * concurrently. The default, 1, realizes all eager loaded services on the startup thread.
+     *
+     * @since 5.4
+     */
+    public static final String EAGER_LOAD_THREADS = "tapestry.eager-load-threads";
 }
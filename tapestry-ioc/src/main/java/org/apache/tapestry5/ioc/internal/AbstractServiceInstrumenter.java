@@ -1,4 +1,4 @@
-// Copyright 2009, 2010, 2011 The Apache Software Foundation
+// Copyright 2009, 2010, 2011, 2012 The Apache Software Foundation
 //
 // Licensed under the Apache License, Version 2.0 (the "License");
 // you may not use this file except in compliance with the License.
@@ -79,6 +79,26 @@ public class AbstractServiceInstrumenter
         return constraints;
     }
 
+    /**
+     * Returns the types that may be injected when the method is invoked for a service with the given interface,
+     * omitting the delegate being decorated (passed as Object or as the service interface). Used to work out which
+     * eager loaded services are independent of each other.
+     *
+     * @since 5.4
+     */
+    List<Class> getDependencyTypes(Class serviceInterface)
+    {
+        List<Class> result = CollectionFactory.newList();
+
+        for (Class type : method.getParameterTypes())
+        {
+            if (type != Object.class && type != serviceInterface)
+                result.add(type);
+        }
+
+        return result;
+    }
+
     /**
      * Returns true if <em>any</em> provided pattern matches the id of the service.
      */
@@ -1,4 +1,4 @@
-// Copyright 2006, 2007, 2008, 2009, 2010, 2011 The Apache Software Foundation
+// Copyright 2006, 2007, 2008, 2009, 2010, 2011, 2012 The Apache Software Foundation
 //
 // Licensed under the Apache License, Version 2.0 (the "License");
 // you may not use this file except in compliance with the License.
@@ -59,6 +59,17 @@ public class ContributionDefImpl implements ContributionDef3
         return InternalUtils.asString(contributorMethod, proxyFactory);
     }
 
+    /**
+     * Returns the types that will be injected when the contribution method is invoked (along with the configuration
+     * type). Used to work out which eager loaded services are independent of each other.
+     *
+     * @since 5.4
+     */
+    Class[] getDependencyTypes()
+    {
+        return contributorMethod.getParameterTypes();
+    }
+
     public boolean isOptional()
     {
         return optional;
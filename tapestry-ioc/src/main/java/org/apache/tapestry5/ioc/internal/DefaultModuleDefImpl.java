@@ -1,4 +1,4 @@
-// Copyright 2006, 2007, 2008, 2009, 2010, 2011 The Apache Software Foundation
+// Copyright 2006, 2007, 2008, 2009, 2010, 2011, 2012 The Apache Software Foundation
 //
 // Licensed under the Apache License, Version 2.0 (the "License");
 // you may not use this file except in compliance with the License.
@@ -434,7 +434,7 @@ public class DefaultModuleDefImpl implements ModuleDef2, ServiceDefAccumulator
         markers.addAll(extractServiceDefMarkers(method));
 
         ServiceDefImpl serviceDef = new ServiceDefImpl(returnType, null, serviceId, markers, scope, eagerLoad,
-                preventDecoration, source);
+                preventDecoration, source, method);
 
         addServiceDef(serviceDef);
     }
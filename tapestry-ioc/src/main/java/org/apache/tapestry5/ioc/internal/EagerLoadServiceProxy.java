@@ -1,4 +1,4 @@
-// Copyright 2006 The Apache Software Foundation
+// Copyright 2006, 2012 The Apache Software Foundation
 //
 // Licensed under the Apache License, Version 2.0 (the "License");
 // you may not use this file except in compliance with the License.
@@ -21,4 +21,11 @@ package org.apache.tapestry5.ioc.internal;
 public interface EagerLoadServiceProxy
 {
     void eagerLoadService();
+
+    /**
+     * Returns the id of the service realized by {@link #eagerLoadService()}.
+     *
+     * @since 5.4
+     */
+    String getServiceId();
 }
@@ -0,0 +1,357 @@
+// Copyright 2012 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.ioc.internal;
+
+import org.apache.tapestry5.func.Mapper;
+import org.apache.tapestry5.ioc.IOCSymbols;
+import org.apache.tapestry5.ioc.internal.util.CollectionFactory;
+import org.apache.tapestry5.ioc.internal.util.InternalUtils;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Realizes eager loaded services at registry startup, optionally using several threads.
+ * <p/>
+ * The services are partitioned into groups: two services are in the same group when either depends, directly or by
+ * way of other services, on the other. Each group is realized on a single thread, in the order the services were
+ * collected, so dependent services are realized in the same relative order as when everything is realized on the
+ * startup thread. Independent groups are realized concurrently, by a fixed size pool that exists only for the duration
+ * of the eager load. Services that merely share a dependency stay independent; the proxy for the shared service ensures
+ * it is only realized once.
+ * <p/>
+ * A failure stops the rest of its group, but not the other groups. Once all groups have finished, the failure of the
+ * service that was collected first is rethrown, so the reported error does not depend on thread timing.
+ * <p/>
+ * Dependencies are worked out from the types injected into services and into the methods that contribute to their
+ * configurations; dependencies that can not be seen that way (such as services used by objects contributed as
+ * classes) may still put two groups in contention for the same services, and so deadlock. While waiting, the loader
+ * periodically checks for deadlocked threads, and fails with a report of the services involved if any of its threads
+ * are deadlocked.
+ *
+ * @see org.apache.tapestry5.ioc.IOCSymbols#EAGER_LOAD_THREADS
+ * @since 5.4
+ */
+public class EagerLoader
+{
+    /**
+     * Milliseconds between checks for deadlocked threads.
+     */
+    private static final long DEADLOCK_CHECK_INTERVAL = 1000;
+
+    private final List<EagerLoadServiceProxy> proxies;
+
+    private final Mapper<String, Collection<String>> dependencies;
+
+    /**
+     * @param proxies
+     *         proxies for the eager loaded services, in the order they should be realized
+     * @param dependencies
+     *         maps a service id to the ids of the services it directly depends on
+     */
+    public EagerLoader(List<EagerLoadServiceProxy> proxies, Mapper<String, Collection<String>> dependencies)
+    {
+        this.proxies = proxies;
+        this.dependencies = dependencies;
+    }
+
+    /**
+     * Realizes all the services.
+     *
+     * @param threadCount
+     *         maximum number of threads to use; if 1, all services are realized on the current thread
+     * @param threadCleanup
+     *         invoked on each pool thread once it has realized its group of services
+     */
+    public void load(int threadCount, final Runnable threadCleanup)
+    {
+        List<List<EagerLoadServiceProxy>> groups = threadCount > 1 && proxies.size() > 1 ? getGroups() : null;
+
+        if (groups == null || groups.size() < 2)
+        {
+            for (EagerLoadServiceProxy proxy : proxies)
+                proxy.eagerLoadService();
+
+            return;
+        }
+
+        final Map<EagerLoadServiceProxy, Throwable> failures = CollectionFactory.newConcurrentMap();
+
+        // The service being realized by each pool thread.
+
+        final Map<Thread, EagerLoadServiceProxy> realizing = CollectionFactory.newConcurrentMap();
+
+        List<Callable<Void>> tasks = CollectionFactory.newList();
+
+        for (final List<EagerLoadServiceProxy> group : groups)
+        {
+            tasks.add(new Callable<Void>()
+            {
+                public Void call()
+                {
+                    try
+                    {
+                        for (EagerLoadServiceProxy proxy : group)
+                        {
+                            realizing.put(Thread.currentThread(), proxy);
+
+                            try
+                            {
+                                proxy.eagerLoadService();
+                            } catch (Throwable ex)
+                            {
+                                failures.put(proxy, ex);
+
+                                return null;
+                            }
+                        }
+                    } finally
+                    {
+                        realizing.remove(Thread.currentThread());
+
+                        threadCleanup.run();
+                    }
+
+                    return null;
+                }
+            });
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threadCount, groups.size()),
+                new ThreadFactory()
+                {
+                    private final AtomicInteger count = new AtomicInteger();
+
+                    public Thread newThread(Runnable runnable)
+                    {
+                        Thread thread = new Thread(runnable, "Tapestry eager load " + count.incrementAndGet());
+
+                        thread.setDaemon(true);
+
+                        return thread;
+                    }
+                });
+
+        try
+        {
+            List<Future<Void>> futures = CollectionFactory.newList();
+
+            for (Callable<Void> task : tasks)
+                futures.add(executor.submit(task));
+
+            for (Future<Void> future : futures)
+                await(future, realizing);
+        } catch (InterruptedException ex)
+        {
+            Thread.currentThread().interrupt();
+
+            throw new RuntimeException("Interrupted while realizing eager loaded services.", ex);
+        } finally
+        {
+            executor.shutdown();
+        }
+
+        for (EagerLoadServiceProxy proxy : proxies)
+        {
+            Throwable failure = failures.get(proxy);
+
+            if (failure == null)
+                continue;
+
+            if (failure instanceof RuntimeException)
+                throw (RuntimeException) failure;
+
+            if (failure instanceof Error)
+                throw (Error) failure;
+
+            throw new RuntimeException(failure);
+        }
+    }
+
+    private static void await(Future<Void> future, Map<Thread, EagerLoadServiceProxy> realizing)
+            throws InterruptedException
+    {
+        while (true)
+        {
+            try
+            {
+                future.get(DEADLOCK_CHECK_INTERVAL, TimeUnit.MILLISECONDS);
+
+                return;
+            } catch (TimeoutException ex)
+            {
+                checkForDeadlock(realizing);
+            } catch (ExecutionException ex)
+            {
+                // Only possible if the thread cleanup fails; failures to realize services are collected by the task.
+
+                throw new RuntimeException(ex.getCause());
+            }
+        }
+    }
+
+    /**
+     * Throws an exception identifying the services being realized by any deadlocked pool threads. Deadlocked threads
+     * can not be stopped; as they are daemon threads, they do not keep the JVM from exiting.
+     */
+    static void checkForDeadlock(Map<Thread, EagerLoadServiceProxy> realizing)
+    {
+        ThreadMXBean bean;
+        long[] deadlocked;
+
+        try
+        {
+            bean = ManagementFactory.getThreadMXBean();
+            deadlocked = bean.findDeadlockedThreads();
+        } catch (RuntimeException ex)
+        {
+            // Not supported in this environment.
+
+            return;
+        }
+
+        if (deadlocked == null)
+            return;
+
+        Set<Long> deadlockedIds = CollectionFactory.newSet();
+
+        for (long id : deadlocked)
+            deadlockedIds.add(id);
+
+        List<String> report = CollectionFactory.newList();
+
+        for (Map.Entry<Thread, EagerLoadServiceProxy> entry : realizing.entrySet())
+        {
+            Thread thread = entry.getKey();
+
+            if (!deadlockedIds.contains(thread.getId()))
+                continue;
+
+            ThreadInfo info = bean.getThreadInfo(thread.getId());
+
+            report.add(String.format("%s (realizing service '%s') is waiting for %s, held by %s", thread.getName(),
+                    entry.getValue().getServiceId(), info == null ? null : info.getLockName(),
+                    info == null ? null : info.getLockOwnerName()));
+        }
+
+        if (report.isEmpty())
+            return;
+
+        Collections.sort(report);
+
+        throw new RuntimeException(String.format(
+                "Eager loaded services realized in parallel have deadlocked: %s. Set symbol %s to 1 to realize eager loaded services on a single thread.",
+                InternalUtils.join(report, "; "), IOCSymbols.EAGER_LOAD_THREADS));
+    }
+
+    /**
+     * Partitions the proxies into groups of dependent services. Groups are ordered by their first service, and
+     * services within a group retain their original order.
+     */
+    List<List<EagerLoadServiceProxy>> getGroups()
+    {
+        int count = proxies.size();
+
+        Map<String, Integer> indexes = CollectionFactory.newCaseInsensitiveMap();
+
+        int[] parents = new int[count];
+
+        for (int i = 0; i < count; i++)
+        {
+            indexes.put(proxies.get(i).getServiceId(), i);
+            parents[i] = i;
+        }
+
+        Map<String, Collection<String>> cache = CollectionFactory.newCaseInsensitiveMap();
+
+        for (int i = 0; i < count; i++)
+        {
+            for (String serviceId : findReachable(proxies.get(i).getServiceId(), cache))
+            {
+                Integer j = indexes.get(serviceId);
+
+                if (j != null)
+                    parents[root(parents, j)] = root(parents, i);
+            }
+        }
+
+        Map<Integer, List<EagerLoadServiceProxy>> groups = new LinkedHashMap<Integer, List<EagerLoadServiceProxy>>();
+
+        for (int i = 0; i < count; i++)
+        {
+            int root = root(parents, i);
+
+            List<EagerLoadServiceProxy> group = groups.get(root);
+
+            if (group == null)
+            {
+                group = CollectionFactory.newList();
+                groups.put(root, group);
+            }
+
+            group.add(proxies.get(i));
+        }
+
+        return CollectionFactory.newList(groups.values());
+    }
+
+    private static int root(int[] parents, int index)
+    {
+        while (parents[index] != index)
+        {
+            parents[index] = parents[parents[index]];
+            index = parents[index];
+        }
+
+        return index;
+    }
+
+    /**
+     * Returns the ids of all services the service depends on, directly or indirectly.
+     */
+    private Set<String> findReachable(String serviceId, Map<String, Collection<String>> cache)
+    {
+        Set<String> result = CollectionFactory.newSet();
+
+        LinkedList<String> queue = CollectionFactory.newLinkedList();
+
+        queue.add(serviceId);
+
+        while (!queue.isEmpty())
+        {
+            String id = queue.removeFirst();
+
+            Collection<String> direct = cache.get(id);
+
+            if (direct == null)
+            {
+                direct = dependencies.map(id);
+                cache.put(id, direct);
+            }
+
+            for (String dependency : direct)
+            {
+                if (result.add(dependency))
+                    queue.add(dependency);
+            }
+        }
+
+        return result;
+    }
+}
@@ -1,4 +1,4 @@
-// Copyright 2008, 2009, 2010, 2011 The Apache Software Foundation
+// Copyright 2008, 2009, 2010, 2011, 2012 The Apache Software Foundation
 //
 // Licensed under the Apache License, Version 2.0 (the "License");
 // you may not use this file except in compliance with the License.
@@ -18,22 +18,52 @@ import org.apache.tapestry5.ioc.Invokable;
 import org.apache.tapestry5.ioc.OperationTracker;
 import org.apache.tapestry5.ioc.internal.util.CollectionFactory;
 import org.apache.tapestry5.ioc.internal.util.InternalUtils;
+import org.apache.tapestry5.ioc.services.OperationTiming;
 import org.apache.tapestry5.ioc.util.Stack;
 import org.slf4j.Logger;
 
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
 /**
- * Core implementation that manages a logger and catches and reports exception.
+ * Core implementation that manages a logger and catches and reports exception. Optionally, records the timing of
+ * each operation.
  *
  * @see org.apache.tapestry5.ioc.internal.PerThreadOperationTracker
  */
 public class OperationTrackerImpl implements OperationTracker
 {
+    /**
+     * Limits the memory used by a single recording; later operations are not recorded.
+     */
+    static final int MAX_RECORDED_OPERATIONS = 1000;
+
+    private static final Comparator<OperationTiming> BY_START = new Comparator<OperationTiming>()
+    {
+        public int compare(OperationTiming o1, OperationTiming o2)
+        {
+            if (o1.getStartNanos() != o2.getStartNanos())
+            {
+                return o1.getStartNanos() < o2.getStartNanos() ? -1 : 1;
+            }
+
+            return o1.getDepth() - o2.getDepth();
+        }
+    };
+
     private final Logger logger;
 
     private final Stack<String> operations = CollectionFactory.newStack();
 
     private boolean logged;
 
+    // Non-null only while recording
+
+    private List<OperationTiming> recording;
+
+    private long recordingStartNanos;
+
     public OperationTrackerImpl(Logger logger)
     {
         this.logger = logger;
@@ -69,10 +99,14 @@ public class OperationTrackerImpl implements OperationTracker
 
         operations.push(description);
 
+        boolean failed = true;
+
         try
         {
             T result = operation.invoke();
 
+            failed = false;
+
             if (logger.isDebugEnabled())
             {
                 long elapsedNanos = System.nanoTime() - startNanos;
@@ -99,6 +133,12 @@ public class OperationTrackerImpl implements OperationTracker
             throw ex;
         } finally
         {
+            if (recording != null && recording.size() < MAX_RECORDED_OPERATIONS)
+            {
+                recording.add(new OperationTiming(description, operations.getDepth(), startNanos - recordingStartNanos,
+                        System.nanoTime() - startNanos, failed));
+            }
+
             operations.pop();
 
             // We've finally backed out of the operation stack ... but there may be more to come!
@@ -139,8 +179,35 @@ public class OperationTrackerImpl implements OperationTracker
         return trace;
     }
 
+    void startRecording()
+    {
+        if (recording == null)
+        {
+            recording = CollectionFactory.newList();
+            recordingStartNanos = System.nanoTime();
+        }
+    }
+
+    List<OperationTiming> stopRecording()
+    {
+        if (recording == null)
+        {
+            return Collections.emptyList();
+        }
+
+        List<OperationTiming> result = recording;
+
+        recording = null;
+
+        // Operations are recorded as they end; nested operations end before their containers.
+
+        Collections.sort(result, BY_START);
+
+        return result;
+    }
+
     boolean isEmpty()
     {
-        return operations.isEmpty();
+        return operations.isEmpty() && recording == null;
     }
 }
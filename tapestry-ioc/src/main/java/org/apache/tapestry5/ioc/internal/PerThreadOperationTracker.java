@@ -1,4 +1,4 @@
-//  Copyright 2008, 2009, 2011 The Apache Software Foundation
+//  Copyright 2008, 2009, 2011, 2012 The Apache Software Foundation
 //
 // Licensed under the Apache License, Version 2.0 (the "License");
 // you may not use this file except in compliance with the License.
@@ -17,14 +17,18 @@ package org.apache.tapestry5.ioc.internal;
 import org.apache.tapestry5.ioc.Invokable;
 import org.apache.tapestry5.ioc.OperationTracker;
 import org.apache.tapestry5.ioc.internal.util.JDKUtils;
+import org.apache.tapestry5.ioc.services.OperationRecorder;
+import org.apache.tapestry5.ioc.services.OperationTiming;
 import org.slf4j.Logger;
 
+import java.util.List;
 import java.util.concurrent.locks.Lock;
 
 /**
- * Manages a per-thread OperationTracker using a ThreadLocal.
+ * Manages a per-thread OperationTracker using a ThreadLocal. Also records the timing of operations in each thread,
+ * on request.
  */
-public class PerThreadOperationTracker implements OperationTracker
+public class PerThreadOperationTracker implements OperationTracker, OperationRecorder
 {
     private final Logger logger;
 
@@ -44,7 +48,7 @@ public class PerThreadOperationTracker implements OperationTracker
         this.logger = logger;
     }
 
-    OperationTracker get()
+    OperationTrackerImpl get()
     {
         lock.lock();
 
@@ -90,4 +94,20 @@ public class PerThreadOperationTracker implements OperationTracker
             cleanup();
         }
     }
+
+    public void startRecording()
+    {
+        get().startRecording();
+    }
+
+    public List<OperationTiming> stopRecording()
+    {
+        try
+        {
+            return get().stopRecording();
+        } finally
+        {
+            cleanup();
+        }
+    }
 }
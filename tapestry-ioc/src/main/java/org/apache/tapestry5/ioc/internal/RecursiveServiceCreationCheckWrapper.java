@@ -1,4 +1,4 @@
-// Copyright 2006, 2007 The Apache Software Foundation
+// Copyright 2006, 2007, 2012 The Apache Software Foundation
 //
 // Licensed under the Apache License, Version 2.0 (the "License");
 // you may not use this file except in compliance with the License.
@@ -44,7 +44,9 @@ public class RecursiveServiceCreationCheckWrapper implements ObjectCreator
 
     /**
      * We could make this method synchronized, but in the context of creating a service for a proxy, it will already be
-     * synchronized (inside the proxy).
+     * synchronized (inside the proxy). This is also what keeps the check valid when eager loaded services are realized
+     * on several threads: a second thread that needs the service blocks on the proxy until the first thread finishes,
+     * and only genuine recursion (on the same thread) reaches the lock.
      */
     public Object createObject()
     {
@@ -64,6 +64,8 @@ public class RegistryImpl implements Registry, InternalRegistry, ServiceProxyPro
 
     static final String LOGGER_SOURCE_SERVICE_ID = "LoggerSource";
 
+    static final String OPERATION_RECORDER_SERVICE_ID = "OperationRecorder";
+
     private final OneShotLock lock = new OneShotLock();
 
     private final OneShotLock eagerLoadLock = new OneShotLock();
@@ -187,6 +189,7 @@ public class RegistryImpl implements Registry, InternalRegistry, ServiceProxyPro
         addBuiltin(PERTHREAD_MANAGER_SERVICE_ID, PerthreadManager.class, perthreadManager);
         addBuiltin(REGISTRY_SHUTDOWN_HUB_SERVICE_ID, RegistryShutdownHub.class, registryShutdownHub);
         addBuiltin(PLASTIC_PROXY_FACTORY_SERVICE_ID, PlasticProxyFactory.class, proxyFactory);
+        addBuiltin(OPERATION_RECORDER_SERVICE_ID, OperationRecorder.class, toOperationRecorder(operationTracker));
 
         validateContributeDefs(moduleDefs);
 
@@ -305,8 +308,24 @@ public class RegistryImpl implements Registry, InternalRegistry, ServiceProxyPro
 
         // TAPESTRY-2267: Gather up all the proxies before instantiating any of them.
 
-        for (EagerLoadServiceProxy proxy : proxies)
-            proxy.eagerLoadService();
+        int threadCount = proxies.size() < 2 ? 1 : typeCoercerProxy.coerce(
+                getSymbolSource().valueForSymbol(IOCSymbols.EAGER_LOAD_THREADS), Integer.class);
+
+        EagerLoader loader = new EagerLoader(proxies, new Mapper<String, Collection<String>>()
+        {
+            public Collection<String> map(String serviceId)
+            {
+                return findDependencies(serviceId);
+            }
+        });
+
+        loader.load(threadCount, new Runnable()
+        {
+            public void run()
+            {
+                cleanupThread();
+            }
+        });
 
         getService("RegistryStartup", Runnable.class).run();
 
@@ -327,6 +346,30 @@ public class RegistryImpl implements Registry, InternalRegistry, ServiceProxyPro
         return loggerSource.getLogger(TapestryIOCModule.class + "." + serviceId);
     }
 
+    /**
+     * The tracker normally records operations itself; a tracker that doesn't (generally, in tests) never records
+     * anything.
+     */
+    private static OperationRecorder toOperationRecorder(OperationTracker operationTracker)
+    {
+        if (operationTracker instanceof OperationRecorder)
+        {
+            return (OperationRecorder) operationTracker;
+        }
+
+        return new OperationRecorder()
+        {
+            public void startRecording()
+            {
+            }
+
+            public List<OperationTiming> stopRecording()
+            {
+                return Collections.emptyList();
+            }
+        };
+    }
+
     private <T> void addBuiltin(final String serviceId, final Class<T> serviceInterface, T service)
     {
         builtinTypes.put(serviceId, serviceInterface);
@@ -747,6 +790,72 @@ public class RegistryImpl implements Registry, InternalRegistry, ServiceProxyPro
         return result;
     }
 
+    /**
+     * Finds the services that may be injected into a service when it is realized: into the service itself, into the
+     * methods that contribute to its configuration, or into the methods that decorate or advise it. Only services
+     * defined by {@link ServiceDefImpl}, contributions defined by {@link ContributionDefImpl}, and decorators and
+     * advisors defined by module methods can be analyzed; others are treated as having no dependencies.
+     */
+    private Collection<String> findDependencies(String serviceId)
+    {
+        Module module = serviceIdToModule.get(serviceId);
+
+        ServiceDef3 def = module == null ? null : module.getServiceDef(serviceId);
+
+        if (def == null)
+            return Collections.emptyList();
+
+        List<Class> types = CollectionFactory.newList();
+
+        try
+        {
+            if (def instanceof ServiceDefImpl)
+                addAll(types, ((ServiceDefImpl) def).getDependencyTypes());
+
+            for (Module m : moduleToServiceDefs.keySet())
+            {
+                for (ContributionDef2 contribution : m.getContributorDefsForService(def))
+                {
+                    if (contribution instanceof ContributionDefImpl)
+                        addAll(types, ((ContributionDefImpl) contribution).getDependencyTypes());
+                }
+
+                for (DecoratorDef decorator : m.findMatchingDecoratorDefs(def))
+                {
+                    if (decorator instanceof AbstractServiceInstrumenter)
+                        types.addAll(((AbstractServiceInstrumenter) decorator).getDependencyTypes(
+                                def.getServiceInterface()));
+                }
+
+                for (AdvisorDef advisor : m.findMatchingServiceAdvisors(def))
+                {
+                    if (advisor instanceof AbstractServiceInstrumenter)
+                        types.addAll(((AbstractServiceInstrumenter) advisor).getDependencyTypes(
+                                def.getServiceInterface()));
+                }
+            }
+        } catch (RuntimeException ex)
+        {
+            // Reported properly when the service is realized.
+        }
+
+        Set<String> result = CollectionFactory.newSet();
+
+        for (Class type : types)
+        {
+            if (!type.isPrimitive())
+                result.addAll(findServiceIdsForInterface(type));
+        }
+
+        return result;
+    }
+
+    private static void addAll(List<Class> list, Class[] types)
+    {
+        if (types != null)
+            list.addAll(Arrays.asList(types));
+    }
+
     public ServiceLifecycle2 getServiceLifecycle(String scope)
     {
         lock.check();
@@ -1,4 +1,4 @@
-// Copyright 2006, 2007, 2008, 2011 The Apache Software Foundation
+// Copyright 2006, 2007, 2008, 2011, 2012 The Apache Software Foundation
 //
 // Licensed under the Apache License, Version 2.0 (the "License");
 // you may not use this file except in compliance with the License.
@@ -14,7 +14,11 @@
 
 package org.apache.tapestry5.ioc.internal;
 
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Set;
 
 import org.apache.tapestry5.func.F;
@@ -23,8 +27,10 @@ import org.apache.tapestry5.func.Mapper;
 import org.apache.tapestry5.ioc.AnnotationProvider;
 import org.apache.tapestry5.ioc.ObjectCreator;
 import org.apache.tapestry5.ioc.ServiceBuilderResources;
+import org.apache.tapestry5.ioc.annotations.Inject;
 import org.apache.tapestry5.ioc.def.ServiceDef3;
 import org.apache.tapestry5.ioc.internal.services.AnnotationProviderChain;
+import org.apache.tapestry5.ioc.internal.util.CollectionFactory;
 import org.apache.tapestry5.ioc.internal.util.InternalUtils;
 
 public class ServiceDefImpl implements ServiceDef3
@@ -45,6 +51,15 @@ public class ServiceDefImpl implements ServiceDef3
 
     private final boolean preventDecoration;
 
+    private final Method builderMethod;
+
+    ServiceDefImpl(Class serviceInterface, Class serviceImplementation, String serviceId, Set<Class> markers,
+            String scope, boolean eagerLoad, boolean preventDecoration, ObjectCreatorSource source)
+    {
+        this(serviceInterface, serviceImplementation, serviceId, markers, scope, eagerLoad, preventDecoration, source,
+                null);
+    }
+
     /**
      * @param serviceInterface
      *            interface implemented by the service (or the service implementation class, for
@@ -63,9 +78,12 @@ public class ServiceDefImpl implements ServiceDef3
      *            if true, the service may not be decorated
      * @param source
      *            used to create the service implementation when needed
+     * @param builderMethod
+     *            module method that builds the service, if any
      */
     ServiceDefImpl(Class serviceInterface, Class serviceImplementation, String serviceId, Set<Class> markers,
-            String scope, boolean eagerLoad, boolean preventDecoration, ObjectCreatorSource source)
+            String scope, boolean eagerLoad, boolean preventDecoration, ObjectCreatorSource source,
+            Method builderMethod)
     {
         this.serviceInterface = serviceInterface;
         this.serviceImplementation = serviceImplementation;
@@ -74,6 +92,7 @@ public class ServiceDefImpl implements ServiceDef3
         this.eagerLoad = eagerLoad;
         this.preventDecoration = preventDecoration;
         this.source = source;
+        this.builderMethod = builderMethod;
 
         this.markers = markers;
     }
@@ -139,4 +158,40 @@ public class ServiceDefImpl implements ServiceDef3
             }
         }).map(InternalUtils.METHOD_TO_AP_MAPPER).toList());
     }
+
+    /**
+     * Returns the types that will be injected when the service is realized: the parameters of the builder method, or
+     * the parameters of the implementation's constructor along with its injected fields. Used to work out which eager
+     * loaded services are independent of each other.
+     *
+     * @return the types, or null if not known (the service is built by a
+     *         {@link org.apache.tapestry5.ioc.ServiceBuilder})
+     * @since 5.4
+     */
+    Class[] getDependencyTypes()
+    {
+        if (builderMethod != null)
+            return builderMethod.getParameterTypes();
+
+        if (serviceImplementation == null)
+            return null;
+
+        List<Class> result = CollectionFactory.newList();
+
+        Constructor constructor = InternalUtils.findAutobuildConstructor(serviceImplementation);
+
+        if (constructor != null)
+            result.addAll(Arrays.asList(constructor.getParameterTypes()));
+
+        for (Class c = serviceImplementation; c != Object.class; c = c.getSuperclass())
+        {
+            for (Field f : c.getDeclaredFields())
+            {
+                if (f.getAnnotation(Inject.class) != null || f.getAnnotation(javax.inject.Inject.class) != null)
+                    result.add(f.getType());
+            }
+        }
+
+        return result.toArray(new Class[result.size()]);
+    }
 }
@@ -0,0 +1,28 @@
+// Copyright 2012 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.ioc.internal.services;
+
+/**
+ * Implemented by classes generated by {@link PropertyAccessImpl} to read and write the properties of a single bean
+ * class, without reflection. Each readable and each writable property is identified by an index.
+ *
+ * @since 5.4
+ */
+public interface BeanAccessor
+{
+    Object get(Object instance, int readIndex);
+
+    void set(Object instance, int writeIndex, Object value);
+}
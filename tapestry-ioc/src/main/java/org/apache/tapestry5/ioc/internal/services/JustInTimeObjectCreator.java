@@ -1,4 +1,4 @@
-// Copyright 2007, 2009, 2011 The Apache Software Foundation
+// Copyright 2007, 2009, 2011, 2012 The Apache Software Foundation
 //
 // Licensed under the Apache License, Version 2.0 (the "License");
 // you may not use this file except in compliance with the License.
@@ -86,6 +86,11 @@ public class JustInTimeObjectCreator<T> implements ObjectCreator<T>, EagerLoadSe
         createObject();
     }
 
+    public String getServiceId()
+    {
+        return serviceId;
+    }
+
     /**
      * Invoked when the Registry is shutdown; deletes the instantiated object (if it exists) and replaces
      * the ObjectCreator with one that throws an IllegalStateException.
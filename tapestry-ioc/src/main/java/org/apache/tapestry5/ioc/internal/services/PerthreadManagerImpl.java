@@ -1,4 +1,4 @@
-// Copyright 2006, 2007, 2008, 2010, 2011 The Apache Software Foundation
+// Copyright 2006, 2007, 2008, 2010, 2011, 2012 The Apache Software Foundation
 //
 // Licensed under the Apache License, Version 2.0 (the "License");
 // you may not use this file except in compliance with the License.
@@ -19,35 +19,86 @@ import org.apache.tapestry5.ioc.internal.util.CollectionFactory;
 import org.apache.tapestry5.ioc.internal.util.JDKUtils;
 import org.apache.tapestry5.ioc.services.PerThreadValue;
 import org.apache.tapestry5.ioc.services.PerthreadManager;
+import org.apache.tapestry5.ioc.services.PerthreadScope;
 import org.apache.tapestry5.ioc.services.ThreadCleanupListener;
 import org.slf4j.Logger;
 
 import java.util.List;
-import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Lock;
 
+/**
+ * Stores per-thread values in an array, one per thread; each {@link PerThreadValue} is assigned a fixed slot
+ * (an index into the array) when it is created, so reading or updating a value is a single {@link ThreadLocal} lookup
+ * followed by an array access, with no locking or hashing.
+ * <p/>
+ * The array is wrapped as a {@link PerthreadScope}, which can be bound to other threads.
+ */
 @SuppressWarnings("all")
 public class PerthreadManagerImpl implements PerthreadManager
 {
+    private static final int INITIAL_CAPACITY = 32;
+
+    private static final Object[] EMPTY = new Object[0];
+
+    /**
+     * Only a real lock under JDK 1.5, where it guards the creation and removal of the thread's storage.
+     */
     private final Lock lock = JDKUtils.createLockForThreadLocalCreation();
 
     private final PerThreadValue<List<ThreadCleanupListener>> listenersValue;
 
-    private static class MapHolder extends ThreadLocal<Map>
+    /**
+     * The values for a single request; an unused slot is null, and a slot explicitly set to null contains
+     * {@link #NULL_VALUE}.
+     */
+    private final class Slots implements PerthreadScope
     {
-        @Override
-        protected Map initialValue()
+        Object[] values;
+
+        Slots(int capacity)
+        {
+            values = new Object[capacity];
+        }
+
+        public void run(final Runnable runnable)
         {
-            return CollectionFactory.newMap();
+            assert runnable != null;
+
+            invoke(new Invokable<Void>()
+            {
+                public Void invoke()
+                {
+                    runnable.run();
+
+                    return null;
+                }
+            });
+        }
+
+        public <T> T invoke(Invokable<T> invokable)
+        {
+            assert invokable != null;
+
+            Slots previous = holder.get();
+
+            bind(this);
+
+            try
+            {
+                return invokable.invoke();
+            } finally
+            {
+                bind(previous);
+            }
         }
     }
 
     private final Logger logger;
 
-    private final MapHolder holder = new MapHolder();
+    private final ThreadLocal<Slots> holder = new ThreadLocal<Slots>();
 
-    private final AtomicInteger uuidGenerator = new AtomicInteger();
+    private final AtomicInteger slotGenerator = new AtomicInteger();
 
     public PerthreadManagerImpl(Logger logger)
     {
@@ -56,13 +107,38 @@ public class PerthreadManagerImpl implements PerthreadManager
         listenersValue = createValue();
     }
 
-    private Map getPerthreadMap()
+    private Slots getSlots()
+    {
+        Slots slots = holder.get();
+
+        return slots == null ? createSlots() : slots;
+    }
+
+    private Slots createSlots()
+    {
+        Slots slots = new Slots(Math.max(INITIAL_CAPACITY, slotGenerator.get()));
+
+        bind(slots);
+
+        return slots;
+    }
+
+    /**
+     * Binds the slots to the current thread, or unbinds the current slots if null.
+     */
+    private void bind(Slots slots)
     {
         lock.lock();
 
         try
         {
-            return holder.get();
+            if (slots == null)
+            {
+                holder.remove();
+            } else
+            {
+                holder.set(slots);
+            }
         } finally
         {
             lock.unlock();
@@ -93,85 +169,132 @@ public class PerthreadManagerImpl implements PerthreadManager
      */
     public void cleanup()
     {
-        List<ThreadCleanupListener> listeners = getListeners();
-
-        listenersValue.set(null);
+        List<ThreadCleanupListener> listeners = listenersValue.get();
 
-        for (ThreadCleanupListener listener : listeners)
+        if (listeners != null)
         {
-            try
-            {
-                listener.threadDidCleanup();
-            } catch (Exception ex)
+            listenersValue.set(null);
+
+            for (ThreadCleanupListener listener : listeners)
             {
-                logger.warn(ServiceMessages.threadCleanupError(listener, ex), ex);
+                try
+                {
+                    listener.threadDidCleanup();
+                } catch (Exception ex)
+                {
+                    logger.warn(ServiceMessages.threadCleanupError(listener, ex), ex);
+                }
             }
         }
 
         // Listeners should not re-add themselves or store any per-thread state
         // here, it will be lost.
 
-        try
-        {
-            lock.lock();
+        // Discard the per-thread values, including the slot that stores
+        // the listeners. This means that if a listener attempts to register
+        // new listeners, the new listeners will not be triggered and will be
+        // released to the GC. The values are also discarded from the scope itself,
+        // in case it has been captured and is bound to some other thread.
 
-            // Discard the per-thread map of values, including the key that stores
-            // the listeners. This means that if a listener attempts to register
-            // new listeners, the new listeners will not be triggered and will be
-            // released to the GC.
+        Slots slots = holder.get();
 
-            holder.remove();
-        } finally
+        if (slots != null)
         {
-            lock.unlock();
+            slots.values = EMPTY;
+
+            bind(null);
         }
     }
 
-    private static Object NULL_VALUE = new Object();
+    public PerthreadScope captureScope()
+    {
+        return getSlots();
+    }
 
-    <T> PerThreadValue<T> createValue(final Object key)
+    public PerthreadScope detachScope()
     {
-        return new PerThreadValue<T>()
-        {
-            public T get()
-            {
-                return get(null);
-            }
+        Slots slots = getSlots();
 
-            public T get(T defaultValue)
-            {
-                Map map = getPerthreadMap();
+        bind(null);
 
-                if (map.containsKey(key))
-                {
-                    Object storedValue = map.get(key);
+        return slots;
+    }
 
-                    if (storedValue == NULL_VALUE)
-                        return null;
+    private static final Object NULL_VALUE = new Object();
 
-                    return (T) storedValue;
-                }
+    private final class SlotValue<T> implements PerThreadValue<T>
+    {
+        private final int slot;
+
+        SlotValue(int slot)
+        {
+            this.slot = slot;
+        }
+
+        public T get()
+        {
+            return get(null);
+        }
+
+        public T get(T defaultValue)
+        {
+            Object storedValue = getStoredValue();
 
+            if (storedValue == null)
                 return defaultValue;
-            }
 
-            public T set(T newValue)
-            {
-                getPerthreadMap().put(key, newValue == null ? NULL_VALUE : newValue);
+            if (storedValue == NULL_VALUE)
+                return null;
 
-                return newValue;
-            }
+            return (T) storedValue;
+        }
+
+        public T set(T newValue)
+        {
+            Slots slots = getSlots();
 
-            public boolean exists()
+            Object[] values = slots.values;
+
+            if (slot >= values.length)
             {
-                return getPerthreadMap().containsKey(key);
+                // Values created since this thread's storage was allocated; grow to fit all of them.
+
+                Object[] expanded = new Object[Math.max(values.length * 2, slotGenerator.get())];
+
+                System.arraycopy(values, 0, expanded, 0, values.length);
+
+                slots.values = values = expanded;
             }
-        };
+
+            values[slot] = newValue == null ? NULL_VALUE : newValue;
+
+            return newValue;
+        }
+
+        public boolean exists()
+        {
+            return getStoredValue() != null;
+        }
+
+        /**
+         * Returns the value stored in the slot, without allocating the thread's storage if it does not yet exist.
+         */
+        private Object getStoredValue()
+        {
+            Slots slots = holder.get();
+
+            if (slots == null)
+                return null;
+
+            Object[] values = slots.values;
+
+            return slot < values.length ? values[slot] : null;
+        }
     }
 
     public <T> PerThreadValue<T> createValue()
     {
-        return createValue(uuidGenerator.getAndIncrement());
+        return new SlotValue<T>(slotGenerator.getAndIncrement());
     }
 
     public void run(Runnable runnable)
@@ -1,4 +1,4 @@
-// Copyright 2006, 2007, 2008, 2010 The Apache Software Foundation
+// Copyright 2006, 2007, 2008, 2010, 2012 The Apache Software Foundation
 //
 // Licensed under the Apache License, Version 2.0 (the "License");
 // you may not use this file except in compliance with the License.
@@ -15,24 +15,61 @@
 package org.apache.tapestry5.ioc.internal.services;
 
 import org.apache.tapestry5.ioc.internal.util.CollectionFactory;
+import org.apache.tapestry5.ioc.services.Builtin;
 import org.apache.tapestry5.ioc.services.ClassPropertyAdapter;
+import org.apache.tapestry5.ioc.services.PlasticProxyFactory;
 import org.apache.tapestry5.ioc.services.PropertyAccess;
+import org.apache.tapestry5.plastic.*;
 
 import java.beans.BeanInfo;
 import java.beans.IntrospectionException;
 import java.beans.Introspector;
 import java.beans.PropertyDescriptor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
-
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Builds and caches a {@link ClassPropertyAdapter} for each class. When a {@link PlasticProxyFactory} is provided, a
+ * {@link BeanAccessor} class is generated for each bean class, so that public getters, setters and fields are accessed
+ * directly, rather than through reflection. Properties the generated class could not access (non-public classes or
+ * members, static fields, or types not visible to the proxy factory's class loader) continue to use reflection.
+ * <p/>
+ * Accessors are only generated for bean classes visible to the proxy factory's class loader; such classes are never
+ * reloaded, so their accessors are kept when the cache of adapters is {@linkplain #clearCache() cleared}.
+ */
 @SuppressWarnings("unchecked")
 public class PropertyAccessImpl implements PropertyAccess
 {
-    private final Map<Class, ClassPropertyAdapter> adapters = CollectionFactory.newConcurrentMap();
+    private static final MethodDescription GET_DESCRIPTION = PlasticUtils.getMethodDescription(BeanAccessor.class,
+            "get", Object.class, int.class);
+
+    private static final MethodDescription SET_DESCRIPTION = PlasticUtils.getMethodDescription(BeanAccessor.class,
+            "set", Object.class, int.class, Object.class);
+
+    private final ConcurrentMap<Class, ClassPropertyAdapter> adapters = CollectionFactory.newConcurrentMap();
+
+    private final ConcurrentMap<Class, GeneratedAccessor> accessors = CollectionFactory.newConcurrentMap();
+
+    private final PlasticProxyFactory proxyFactory;
+
+    /**
+     * Creates an instance that always uses reflection.
+     */
+    public PropertyAccessImpl()
+    {
+        this(null);
+    }
+
+    public PropertyAccessImpl(@Builtin PlasticProxyFactory proxyFactory)
+    {
+        this.proxyFactory = proxyFactory;
+    }
 
     public Object get(Object instance, String propertyName)
     {
@@ -45,13 +82,17 @@ public class PropertyAccessImpl implements PropertyAccess
     }
 
     /**
-     * Clears the cache of adapters and asks the {@link Introspector} to clear its cache.
+     * Clears the cache of adapters and asks the {@link Introspector} to clear its cache. Generated accessors are
+     * retained.
      */
-    public synchronized void clearCache()
+    public void clearCache()
     {
         adapters.clear();
 
-        Introspector.flushCaches();
+        synchronized (Introspector.class)
+        {
+            Introspector.flushCaches();
+        }
     }
 
     public ClassPropertyAdapter getAdapter(Object instance)
@@ -65,43 +106,358 @@ public class PropertyAccessImpl implements PropertyAccess
 
         if (result == null)
         {
-            result = buildAdapter(forClass);
-            adapters.put(forClass, result);
+            // In some race conditions, we may build the adapter for the same class multiple times.
+            // The first one cached wins.
+
+            ClassPropertyAdapter newAdapter = buildAdapter(forClass);
+
+            result = adapters.putIfAbsent(forClass, newAdapter);
+
+            if (result == null)
+            {
+                result = newAdapter;
+            }
         }
 
         return result;
     }
 
     /**
-     * Builds a new adapter and updates the _adapters cache. This not only guards access to the adapter cache, but also
-     * serializes access to the Java Beans Introspector, which is not thread safe. In addition, handles the case where
-     * the class in question is an interface, accumulating properties inherited from super-classes.
+     * Builds a new adapter. Access to the Java Beans Introspector, which is not thread safe, is serialized. In addition,
+     * handles the case where the class in question is an interface, accumulating properties inherited from
+     * super-classes.
      */
-    private synchronized ClassPropertyAdapter buildAdapter(Class forClass)
+    private ClassPropertyAdapter buildAdapter(Class forClass)
     {
-        // In some race conditions, we may hit this method for the same class multiple times.
-        // We just let it happen, replacing the old ClassPropertyAdapter with a new one.
+        ClassPropertyAdapterImpl result;
 
         try
         {
-            BeanInfo info = Introspector.getBeanInfo(forClass);
-
             List<PropertyDescriptor> descriptors = CollectionFactory.newList();
 
-            addAll(descriptors, info.getPropertyDescriptors());
+            synchronized (Introspector.class)
+            {
+                BeanInfo info = Introspector.getBeanInfo(forClass);
 
-            // TAP5-921 - Introspector misses interface methods not implemented in an abstract class
-            if (forClass.isInterface() || Modifier.isAbstract(forClass.getModifiers()) )
-                addPropertiesFromExtendedInterfaces(forClass, descriptors);
+                addAll(descriptors, info.getPropertyDescriptors());
+
+                // TAP5-921 - Introspector misses interface methods not implemented in an abstract class
+                if (forClass.isInterface() || Modifier.isAbstract(forClass.getModifiers()))
+                    addPropertiesFromExtendedInterfaces(forClass, descriptors);
+            }
 
             addPropertiesFromScala(forClass, descriptors);
 
-            return new ClassPropertyAdapterImpl(forClass, descriptors);
+            result = new ClassPropertyAdapterImpl(forClass, descriptors);
         }
         catch (Throwable ex)
         {
             throw new RuntimeException(ex);
         }
+
+        if (proxyFactory != null)
+        {
+            generateAccessor(result);
+        }
+
+        return result;
+    }
+
+    /**
+     * A generated {@link BeanAccessor} (if any) for a bean class, with the names of the properties it reads and
+     * writes, in index order.
+     */
+    private static class GeneratedAccessor
+    {
+        final BeanAccessor accessor;
+
+        final List<String> readable, writable;
+
+        GeneratedAccessor(BeanAccessor accessor, List<String> readable, List<String> writable)
+        {
+            this.accessor = accessor;
+            this.readable = readable;
+            this.writable = writable;
+        }
+
+        void apply(ClassPropertyAdapter classAdapter)
+        {
+            if (accessor == null)
+            {
+                return;
+            }
+
+            for (String name : classAdapter.getPropertyNames())
+            {
+                int readIndex = readable.indexOf(name);
+                int writeIndex = writable.indexOf(name);
+
+                if (readIndex >= 0 || writeIndex >= 0)
+                {
+                    ((PropertyAdapterImpl) classAdapter.getPropertyAdapter(name)).useAccessor(accessor, readIndex,
+                            writeIndex);
+                }
+            }
+        }
+    }
+
+    /**
+     * Switches the properties of the class that may be accessed directly over to a {@link BeanAccessor}, generating
+     * it on first use.
+     */
+    private void generateAccessor(ClassPropertyAdapter classAdapter)
+    {
+        Class beanType = classAdapter.getBeanType();
+
+        if (!isVisible(beanType))
+        {
+            return;
+        }
+
+        GeneratedAccessor generated = accessors.get(beanType);
+
+        if (generated == null)
+        {
+            GeneratedAccessor newAccessor = createAccessor(classAdapter);
+
+            generated = accessors.putIfAbsent(beanType, newAccessor);
+
+            if (generated == null)
+            {
+                generated = newAccessor;
+            }
+        }
+
+        generated.apply(classAdapter);
+    }
+
+    private GeneratedAccessor createAccessor(ClassPropertyAdapter classAdapter)
+    {
+        final Class beanType = classAdapter.getBeanType();
+
+        final List<PropertyAdapterImpl> readable = CollectionFactory.newList();
+        final List<PropertyAdapterImpl> writable = CollectionFactory.newList();
+
+        List<String> readableNames = CollectionFactory.newList();
+        List<String> writableNames = CollectionFactory.newList();
+
+        for (String name : classAdapter.getPropertyNames())
+        {
+            PropertyAdapterImpl adapter = (PropertyAdapterImpl) classAdapter.getPropertyAdapter(name);
+
+            if (isDirectlyReadable(beanType, adapter))
+            {
+                readable.add(adapter);
+                readableNames.add(name);
+            }
+
+            if (isDirectlyWritable(beanType, adapter))
+            {
+                writable.add(adapter);
+                writableNames.add(name);
+            }
+        }
+
+        if (readable.isEmpty() && writable.isEmpty())
+        {
+            return new GeneratedAccessor(null, readableNames, writableNames);
+        }
+
+        ClassInstantiator<BeanAccessor> instantiator = proxyFactory.createProxy(BeanAccessor.class,
+                new PlasticClassTransformer()
+                {
+                    public void transform(PlasticClass plasticClass)
+                    {
+                        plasticClass.introduceMethod(GET_DESCRIPTION, new InstructionBuilderCallback()
+                        {
+                            public void doBuild(InstructionBuilder builder)
+                            {
+                                if (readable.isEmpty())
+                                {
+                                    builder.throwException(IllegalArgumentException.class, "No readable properties.");
+                                    return;
+                                }
+
+                                builder.loadArgument(1).startSwitch(0, readable.size() - 1, new SwitchCallback()
+                                {
+                                    public void doSwitch(SwitchBlock block)
+                                    {
+                                        for (int i = 0; i < readable.size(); i++)
+                                        {
+                                            addReadCase(block, i, beanType, readable.get(i));
+                                        }
+                                    }
+                                });
+                            }
+                        });
+
+                        plasticClass.introduceMethod(SET_DESCRIPTION, new InstructionBuilderCallback()
+                        {
+                            public void doBuild(InstructionBuilder builder)
+                            {
+                                if (writable.isEmpty())
+                                {
+                                    builder.throwException(IllegalArgumentException.class, "No writable properties.");
+                                    return;
+                                }
+
+                                builder.loadArgument(1).startSwitch(0, writable.size() - 1, new SwitchCallback()
+                                {
+                                    public void doSwitch(SwitchBlock block)
+                                    {
+                                        for (int i = 0; i < writable.size(); i++)
+                                        {
+                                            addWriteCase(block, i, beanType, writable.get(i));
+                                        }
+                                    }
+                                });
+                            }
+                        });
+
+                        plasticClass.addToString(String.format("<BeanAccessor for %s>", beanType.getName()));
+                    }
+                });
+
+        return new GeneratedAccessor(instantiator.newInstance(), readableNames, writableNames);
+    }
+
+    private void addReadCase(SwitchBlock block, int index, final Class beanType, final PropertyAdapterImpl adapter)
+    {
+        block.addCase(index, false, new InstructionBuilderCallback()
+        {
+            public void doBuild(InstructionBuilder builder)
+            {
+                Class owner = ownerOf(beanType, adapter);
+
+                builder.loadArgument(0).checkcast(owner);
+
+                Class valueType;
+
+                if (adapter.isField())
+                {
+                    valueType = adapter.getField().getType();
+
+                    builder.getField(owner.getName(), adapter.getName(), valueType);
+                } else
+                {
+                    Method readMethod = adapter.getReadMethod();
+
+                    valueType = readMethod.getReturnType();
+
+                    builder.invoke(owner, valueType, readMethod.getName());
+                }
+
+                builder.boxPrimitive(PlasticUtils.toTypeName(valueType)).returnResult();
+            }
+        });
+    }
+
+    private void addWriteCase(SwitchBlock block, int index, final Class beanType, final PropertyAdapterImpl adapter)
+    {
+        block.addCase(index, false, new InstructionBuilderCallback()
+        {
+            public void doBuild(InstructionBuilder builder)
+            {
+                Class owner = ownerOf(beanType, adapter);
+
+                builder.loadArgument(0).checkcast(owner);
+
+                if (adapter.isField())
+                {
+                    Class valueType = adapter.getField().getType();
+
+                    builder.loadArgument(2).castOrUnbox(PlasticUtils.toTypeName(valueType));
+                    builder.putField(owner.getName(), adapter.getName(), valueType);
+                } else
+                {
+                    Method writeMethod = adapter.getWriteMethod();
+
+                    Class valueType = writeMethod.getParameterTypes()[0];
+
+                    builder.loadArgument(2).castOrUnbox(PlasticUtils.toTypeName(valueType));
+                    builder.invoke(owner, void.class, writeMethod.getName(), valueType);
+                }
+
+                builder.returnResult();
+            }
+        });
+    }
+
+    /**
+     * The class on which the member is accessed: the declaring class if public, otherwise the bean type (for a public
+     * member inherited from a non-public base class).
+     */
+    private static Class ownerOf(Class beanType, PropertyAdapterImpl adapter)
+    {
+        Class declaringClass = adapter.isField() ? adapter.getField().getDeclaringClass() : adapter.getDeclaringClass();
+
+        return Modifier.isPublic(declaringClass.getModifiers()) ? declaringClass : beanType;
+    }
+
+    private boolean isDirectlyReadable(Class beanType, PropertyAdapterImpl adapter)
+    {
+        if (adapter.isField())
+        {
+            return isAccessible(beanType, adapter, adapter.getField(), adapter.getField().getType());
+        }
+
+        Method readMethod = adapter.getReadMethod();
+
+        return readMethod != null && isAccessible(beanType, adapter, readMethod, readMethod.getReturnType());
+    }
+
+    private boolean isDirectlyWritable(Class beanType, PropertyAdapterImpl adapter)
+    {
+        if (adapter.isField())
+        {
+            Field field = adapter.getField();
+
+            return !Modifier.isFinal(field.getModifiers()) && isAccessible(beanType, adapter, field, field.getType());
+        }
+
+        Method writeMethod = adapter.getWriteMethod();
+
+        return writeMethod != null && writeMethod.getParameterTypes().length == 1
+                && isAccessible(beanType, adapter, writeMethod, writeMethod.getParameterTypes()[0]);
+    }
+
+    private boolean isAccessible(Class beanType, PropertyAdapterImpl adapter, Member member, Class valueType)
+    {
+        int modifiers = member.getModifiers();
+
+        if (!Modifier.isPublic(modifiers) || Modifier.isStatic(modifiers))
+        {
+            return false;
+        }
+
+        Class owner = ownerOf(beanType, adapter);
+
+        return Modifier.isPublic(owner.getModifiers()) && isVisible(owner) && isVisible(valueType);
+    }
+
+    /**
+     * Is the type visible to the generated class? Classes loaded by other class loaders (such as component classes)
+     * are not.
+     */
+    private boolean isVisible(Class type)
+    {
+        while (type.isArray())
+        {
+            type = type.getComponentType();
+        }
+
+        if (type.isPrimitive())
+        {
+            return true;
+        }
+
+        try
+        {
+            return Class.forName(type.getName(), false, proxyFactory.getClassLoader()) == type;
+        } catch (ClassNotFoundException ex)
+        {
+            return false;
+        }
     }
 
     private <T> void addAll(List<T> list, T[] array)
@@ -1,4 +1,4 @@
-// Copyright 2006, 2008, 2010 The Apache Software Foundation
+// Copyright 2006, 2008, 2010, 2012 The Apache Software Foundation
 //
 // Licensed under the Apache License, Version 2.0 (the "License");
 // you may not use this file except in compliance with the License.
@@ -44,6 +44,12 @@ public class PropertyAdapterImpl implements PropertyAdapter
 
     private final Class declaringClass;
 
+    // Generated access, if available; assigned before the class adapter is published
+
+    private BeanAccessor accessor;
+
+    private int readIndex = -1, writeIndex = -1;
+
     PropertyAdapterImpl(ClassPropertyAdapter classAdapter, String name, Class type, Method readMethod,
                         Method writeMethod)
     {
@@ -112,6 +118,25 @@ public class PropertyAdapterImpl implements PropertyAdapter
         return Modifier.isFinal(member.getModifiers());
     }
 
+    /**
+     * Switches reading and/or writing of the property to the generated accessor; an index of -1 indicates that
+     * reflection is still used.
+     */
+    void useAccessor(BeanAccessor accessor, int readIndex, int writeIndex)
+    {
+        this.accessor = accessor;
+        this.readIndex = readIndex;
+        this.writeIndex = writeIndex;
+    }
+
+    /**
+     * The generated accessor used by this property, or null if only reflection is used.
+     */
+    BeanAccessor getAccessor()
+    {
+        return accessor;
+    }
+
     public Object get(Object instance)
     {
         if (field == null && readMethod == null)
@@ -121,6 +146,9 @@ public class PropertyAdapterImpl implements PropertyAdapter
 
         try
         {
+            if (readIndex >= 0)
+                return accessor.get(instance, readIndex);
+
             if (field == null)
                 return readMethod.invoke(instance);
             else
@@ -145,7 +173,9 @@ public class PropertyAdapterImpl implements PropertyAdapter
 
         try
         {
-            if (field == null)
+            if (writeIndex >= 0)
+                accessor.set(instance, writeIndex, value);
+            else if (field == null)
                 writeMethod.invoke(instance, value);
             else
                 field.set(instance, value);
@@ -1,4 +1,4 @@
-// Copyright 2006, 2007, 2008, 2010 The Apache Software Foundation
+// Copyright 2006, 2007, 2008, 2010, 2012 The Apache Software Foundation
 //
 // Licensed under the Apache License, Version 2.0 (the "License");
 // you may not use this file except in compliance with the License.
@@ -27,7 +27,14 @@ import org.apache.tapestry5.plastic.PlasticUtils;
 import org.apache.tapestry5.util.StringToEnumCoercion;
 
 import java.util.*;
-
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Caches coercions in two levels, by target type then by source type; both levels are concurrent maps, so the
+ * coercion for a previously seen pair of types is found without locking. The coercions for the source and target type
+ * of each configured {@link CoercionTuple} are found when the coercer is constructed, and restored whenever
+ * the cache is {@linkplain #clearCache() cleared}.
+ */
 @SuppressWarnings("all")
 public class TypeCoercerImpl implements TypeCoercer
 {
@@ -35,6 +42,11 @@ public class TypeCoercerImpl implements TypeCoercer
 
     private final Map<Class, List<CoercionTuple>> sourceTypeToTuple = CollectionFactory.newMap();
 
+    /**
+     * Coercions found at construction, by target type then source type. Never modified after construction.
+     */
+    private final Map<Class, Map<Class, Coercion>> precomputed = CollectionFactory.newMap();
+
     /**
      * A coercion to a specific target type. Manages a cache of coercions to specific types.
      */
@@ -47,11 +59,13 @@ public class TypeCoercerImpl implements TypeCoercer
         TargetCoercion(Class type)
         {
             this.type = type;
-        }
 
-        void clearCache()
-        {
-            cache.clear();
+            Map<Class, Coercion> coercions = precomputed.get(type);
+
+            if (coercions != null)
+            {
+                cache.putAll(coercions);
+            }
         }
 
         Object coerce(Object input)
@@ -92,9 +106,10 @@ public class TypeCoercerImpl implements TypeCoercer
     }
 
     /**
-     * Map from a target type to a TargetCoercion for that type.
+     * Map from a target type to a TargetCoercion for that type. Cleared by {@link #clearCache()}, so that
+     * references to unloaded classes are not retained.
      */
-    private final Map<Class, TargetCoercion> typeToTargetCoercion = new WeakHashMap<Class, TargetCoercion>();
+    private final ConcurrentMap<Class, TargetCoercion> typeToTargetCoercion = CollectionFactory.newConcurrentMap();
 
     private static final Coercion NO_COERCION = new Coercion<Object, Object>()
     {
@@ -126,6 +141,28 @@ public class TypeCoercerImpl implements TypeCoercer
 
             InternalUtils.addToMapList(sourceTypeToTuple, key, tuple);
         }
+
+        // Find the coercion for each tuple's types up front, rather than when first needed. The search may
+        // select a different (but equivalent) coercion than the tuple's own, just as it would later.
+
+        for (CoercionTuple tuple : tuples)
+        {
+            Class sourceType = tuple.getSourceType();
+            Class targetType = tuple.getTargetType();
+
+            Map<Class, Coercion> coercions = precomputed.get(targetType);
+
+            if (coercions == null)
+            {
+                coercions = CollectionFactory.newMap();
+                precomputed.put(targetType, coercions);
+            }
+
+            if (!coercions.containsKey(sourceType))
+            {
+                coercions.put(sourceType, findOrCreateCoercion(sourceType, targetType));
+            }
+        }
     }
 
     @SuppressWarnings("unchecked")
@@ -216,32 +253,31 @@ if (type == void.class)
         return getTargetCoercion(effectiveTargetType).explain(effectiveSourceType);
     }
 
-    private synchronized TargetCoercion getTargetCoercion(Class targetType)
+    private TargetCoercion getTargetCoercion(Class targetType)
     {
         TargetCoercion tc = typeToTargetCoercion.get(targetType);
 
         if (tc == null)
         {
             tc = new TargetCoercion(targetType);
-            typeToTargetCoercion.put(targetType, tc);
+
+            TargetCoercion existing = typeToTargetCoercion.putIfAbsent(targetType, tc);
+
+            if (existing != null)
+            {
+                tc = existing;
+            }
         }
 
         return tc;
     }
 
-    public synchronized void clearCache()
+    public void clearCache()
     {
-        // There's no need to clear the typeToTargetCoercion map, as it is a WeakHashMap and
-        // will release the keys for classes that are no longer in existence. On the other hand,
-        // there's likely all sorts of references to unloaded classes inside each TargetCoercion's
-        // individual cache, so clear all those.
+        // Both the target types and the source types may be classes that are no longer in
+        // existence. Each TargetCoercion restores the precomputed coercions when re-created.
 
-        for (TargetCoercion tc : typeToTargetCoercion.values())
-        {
-            // Can tc ever be null?
-
-            tc.clearCache();
-        }
+        typeToTargetCoercion.clear();
     }
 
     /**
@@ -0,0 +1,229 @@
+// Copyright 2012 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.ioc.internal.util;
+
+import org.apache.tapestry5.ioc.Invokable;
+
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * An alternative to {@link ConcurrentBarrier} for cases where the read side is very frequent and the write side is
+ * rare, such as guarding each request against a (rare) check for updated files. Each thread announces that it is
+ * reading by setting a flag it owns, so entering and leaving the read side performs no writes to memory shared between
+ * threads (the first read by a thread registers its flag, once). A writer raises a shared flag, which new readers wait
+ * on, then waits for threads already reading to finish.
+ * <p/>
+ * Only a single writer may be active at a time; {@link #tryWithWrite(Runnable, long, TimeUnit)} fails immediately,
+ * rather than waiting, when another thread is already writing.
+ * <p/>
+ * As with ConcurrentBarrier, a thread's flag is stored in a ThreadLocal; unlike ConcurrentBarrier, it is kept for the
+ * life of the thread (removing it would mean registering it again on each read).
+ *
+ * @since 5.4
+ */
+public class ReadMostlyBarrier
+{
+    private static final long WAIT_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private static final class Reader
+    {
+        final WeakReference<Thread> owner = new WeakReference<Thread>(Thread.currentThread());
+
+        /**
+         * Only written by the owning thread.
+         */
+        volatile boolean active;
+    }
+
+    private final Queue<Reader> readers = new ConcurrentLinkedQueue<Reader>();
+
+    private final ThreadLocal<Reader> currentReader = new ThreadLocal<Reader>()
+    {
+        @Override
+        protected Reader initialValue()
+        {
+            Reader reader = new Reader();
+
+            readers.add(reader);
+
+            return reader;
+        }
+    };
+
+    private final AtomicBoolean writing = new AtomicBoolean();
+
+    /**
+     * Used to park readers while a write is in progress.
+     */
+    private final Object monitor = new Object();
+
+    /**
+     * Invokes the object on the read side of the barrier, first waiting for any in-progress write to complete. Reads
+     * may be nested.
+     *
+     * @return the result of invoking the invokable
+     */
+    public <T> T withRead(Invokable<T> invokable)
+    {
+        Reader reader = currentReader.get();
+
+        if (reader.active)
+        {
+            return invokable.invoke();
+        }
+
+        enter(reader);
+
+        try
+        {
+            return invokable.invoke();
+        } finally
+        {
+            reader.active = false;
+        }
+    }
+
+    /**
+     * Attempts to invoke the runnable exclusively: no other thread will be on the read side of the barrier while it
+     * executes. If the current thread is reading, it leaves the read side for the duration, and re-enters it
+     * afterwards. The runnable is not invoked when another thread is already writing, or when threads that are reading
+     * do not finish within the timeout.
+     *
+     * @param runnable    to execute exclusively
+     * @param timeout     time to wait for reading threads to finish
+     * @param timeoutUnit units of timeout
+     * @return true if the runnable was executed, false otherwise
+     */
+    public boolean tryWithWrite(Runnable runnable, long timeout, TimeUnit timeoutUnit)
+    {
+        Reader reader = currentReader.get();
+
+        boolean readingAtEntry = reader.active;
+
+        reader.active = false;
+
+        try
+        {
+            if (!writing.compareAndSet(false, true))
+            {
+                return false;
+            }
+
+            try
+            {
+                if (!awaitReaders(System.nanoTime() + timeoutUnit.toNanos(timeout)))
+                {
+                    return false;
+                }
+
+                runnable.run();
+
+                return true;
+            } finally
+            {
+                writing.set(false);
+
+                synchronized (monitor)
+                {
+                    monitor.notifyAll();
+                }
+            }
+        } finally
+        {
+            if (readingAtEntry)
+            {
+                enter(reader);
+            }
+        }
+    }
+
+    private void enter(Reader reader)
+    {
+        boolean interrupted = false;
+
+        while (true)
+        {
+            // The writer raises its flag, then checks the readers' flags; a reader raises its flag, then
+            // checks the writer's flag. As all are volatile, at least one of the two will see the other.
+
+            reader.active = true;
+
+            if (!writing.get())
+            {
+                break;
+            }
+
+            reader.active = false;
+
+            synchronized (monitor)
+            {
+                while (writing.get())
+                {
+                    try
+                    {
+                        monitor.wait();
+                    } catch (InterruptedException ex)
+                    {
+                        interrupted = true;
+                    }
+                }
+            }
+        }
+
+        if (interrupted)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Waits for every reading thread to leave the read side, discarding the flags of threads that no longer exist.
+     *
+     * @return true if all readers finished before the deadline
+     */
+    private boolean awaitReaders(long deadline)
+    {
+        Iterator<Reader> iterator = readers.iterator();
+
+        while (iterator.hasNext())
+        {
+            Reader reader = iterator.next();
+
+            if (reader.owner.get() == null)
+            {
+                iterator.remove();
+                continue;
+            }
+
+            while (reader.active)
+            {
+                if (System.nanoTime() - deadline >= 0 || Thread.currentThread().isInterrupted())
+                {
+                    return false;
+                }
+
+                LockSupport.parkNanos(WAIT_NANOS);
+            }
+        }
+
+        return true;
+    }
+}
@@ -0,0 +1,39 @@
+// Copyright 2012 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.ioc.services;
+
+import java.util.List;
+
+/**
+ * Records, for the current thread, each operation tracked by the {@link org.apache.tapestry5.ioc.OperationTracker}
+ * along with its timing. Recording is normally off, in which case operations are tracked (for error reporting) without
+ * any additional overhead.
+ *
+ * @since 5.4
+ */
+public interface OperationRecorder
+{
+    /**
+     * Starts recording operations in the current thread. Does nothing if already recording.
+     */
+    void startRecording();
+
+    /**
+     * Stops recording operations in the current thread.
+     *
+     * @return the operations that completed while recording, in the order they started (empty if not recording)
+     */
+    List<OperationTiming> stopRecording();
+}
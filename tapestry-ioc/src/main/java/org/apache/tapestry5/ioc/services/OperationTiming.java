@@ -0,0 +1,92 @@
+// Copyright 2012 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.ioc.services;
+
+/**
+ * The timing of a single operation captured by the {@link OperationRecorder}.
+ *
+ * @since 5.4
+ */
+public class OperationTiming
+{
+    private final String description;
+
+    private final int depth;
+
+    private final long startNanos, elapsedNanos;
+
+    private final boolean failed;
+
+    public OperationTiming(String description, int depth, long startNanos, long elapsedNanos, boolean failed)
+    {
+        this.description = description;
+        this.depth = depth;
+        this.startNanos = startNanos;
+        this.elapsedNanos = elapsedNanos;
+        this.failed = failed;
+    }
+
+    /**
+     * The description of the operation, as provided to the {@link org.apache.tapestry5.ioc.OperationTracker}.
+     */
+    public String getDescription()
+    {
+        return description;
+    }
+
+    /**
+     * The nesting depth of the operation; top level operations have depth 1.
+     */
+    public int getDepth()
+    {
+        return depth;
+    }
+
+    /**
+     * The time at which the operation started, relative to the start of recording.
+     */
+    public long getStartNanos()
+    {
+        return startNanos;
+    }
+
+    /**
+     * The time at which the operation ended, relative to the start of recording.
+     */
+    public long getEndNanos()
+    {
+        return startNanos + elapsedNanos;
+    }
+
+    public long getElapsedNanos()
+    {
+        return elapsedNanos;
+    }
+
+    /**
+     * If true, the operation ended by throwing an exception.
+     */
+    public boolean isFailed()
+    {
+        return failed;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("[%2d] +%,.3f ms %,.3f ms%s %s", depth, startNanos / 1000000d, elapsedNanos / 1000000d,
+                failed ? " (failed)" : "", description);
+    }
+}
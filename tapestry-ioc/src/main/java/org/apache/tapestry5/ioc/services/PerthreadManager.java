@@ -1,4 +1,4 @@
-// Copyright 2006, 2007, 2008, 2010, 2011 The Apache Software Foundation
+// Copyright 2006, 2007, 2008, 2010, 2011, 2012 The Apache Software Foundation
 //
 // Licensed under the Apache License, Version 2.0 (the "License");
 // you may not use this file except in compliance with the License.
@@ -58,4 +58,22 @@ public interface PerthreadManager
      * Returns the result from the invocation, providing a try...finally to {@linkplain #cleanup() cleanup} after.
      */
     <T> T invoke(Invokable<T> invokable);
+
+    /**
+     * Returns the scope bound to the current thread, so that it may also be {@linkplain PerthreadScope#run(Runnable)
+     * bound} to another thread. The scope remains bound to the current thread.
+     *
+     * @since 5.4
+     */
+    PerthreadScope captureScope();
+
+    /**
+     * Returns the scope bound to the current thread, and unbinds it from the thread without cleaning it up; the
+     * thread is left with a new, empty, scope. This is used when processing of a request continues on a different
+     * thread: the code that completes the request is responsible for {@linkplain #cleanup() cleaning up} the scope (by
+     * invoking {@link #cleanup()} while the scope is bound).
+     *
+     * @since 5.4
+     */
+    PerthreadScope detachScope();
 }
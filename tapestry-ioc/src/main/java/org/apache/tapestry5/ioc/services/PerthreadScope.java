@@ -0,0 +1,48 @@
+// Copyright 2012 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.ioc.services;
+
+import org.apache.tapestry5.ioc.Invokable;
+
+/**
+ * The set of per-thread values (and thread cleanup listeners) managed by the {@link PerthreadManager} for a single
+ * request. Normally, a scope is bound to the thread that processes the request; a scope obtained from
+ * {@link PerthreadManager#captureScope()} or {@link PerthreadManager#detachScope()} may be bound to a different thread
+ * (for example, a thread that completes an asynchronous request, or a worker thread performing blocking I/O), so that
+ * {@link PerThreadValue}s, and the perthread services that depend on them (such as the Request, Response and
+ * Environment), see the same values there.
+ * <p/>
+ * A scope is not thread safe: it may be handed from one thread to another, but should not be used by two threads at
+ * the same time.
+ *
+ * @since 5.4
+ */
+public interface PerthreadScope
+{
+    /**
+     * Binds this scope to the current thread, invokes {@link Runnable#run()}, then restores the thread's previous
+     * scope. The scope is not cleaned up afterwards; invoking {@link PerthreadManager#cleanup()} while the scope is bound
+     * cleans up this scope (on every thread).
+     */
+    void run(Runnable runnable);
+
+    /**
+     * Binds this scope to the current thread, invokes the invokable and returns its result, then restores the thread's
+     * previous scope.
+     *
+     * @see #run(Runnable)
+     */
+    <T> T invoke(Invokable<T> invokable);
+}
@@ -527,5 +527,6 @@ public final class TapestryIOCModule
         configuration.add(IOCSymbols.THREAD_POOL_KEEP_ALIVE, "1 m");
         configuration.add(IOCSymbols.THREAD_POOL_ENABLED, true);
         configuration.add(IOCSymbols.THREAD_POOL_QUEUE_SIZE, 100);
+        configuration.add(IOCSymbols.EAGER_LOAD_THREADS, 1);
     }
 }
@@ -1,4 +1,4 @@
-// Copyright 2006, 2007, 2008, 2009, 2010, 2011 The Apache Software Foundation
+// Copyright 2006, 2007, 2008, 2009, 2010, 2011, 2012 The Apache Software Foundation
 //
 // Licensed under the Apache License, Version 2.0 (the "License");
 // you may not use this file except in compliance with the License.
@@ -365,6 +365,23 @@ public class IntegrationTest extends IOCInternalTestCase
         r.shutdown();
     }
 
+    @Test
+    public void independent_eager_services_are_realized_in_parallel()
+    {
+        Registry r = buildRegistry(ParallelEagerLoadModule.class);
+
+        r.performRegistryStartup();
+
+        String first = r.getService("First", StringHolder.class).getValue();
+        String second = r.getService("Second", StringHolder.class).getValue();
+
+        assertTrue(first.startsWith("Tapestry eager load"));
+        assertTrue(second.startsWith("Tapestry eager load"));
+        assertFalse(first.equals(second));
+
+        r.shutdown();
+    }
+
     @Test
     public void access_to_services_ignores_case()
     {
@@ -0,0 +1,62 @@
+// Copyright 2012 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.ioc;
+
+import org.apache.tapestry5.ioc.annotations.EagerLoad;
+
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Two independent eager loaded services, each of which waits for the other to start being realized.
+ */
+public class ParallelEagerLoadModule
+{
+    private final CyclicBarrier barrier = new CyclicBarrier(2);
+
+    public static void contributeApplicationDefaults(MappedConfiguration<String, String> configuration)
+    {
+        configuration.add(IOCSymbols.EAGER_LOAD_THREADS, "2");
+    }
+
+    @EagerLoad
+    public StringHolder buildFirst()
+    {
+        return realize();
+    }
+
+    @EagerLoad
+    public StringHolder buildSecond()
+    {
+        return realize();
+    }
+
+    private StringHolder realize()
+    {
+        try
+        {
+            barrier.await(10, TimeUnit.SECONDS);
+        } catch (Exception ex)
+        {
+            throw new RuntimeException(ex);
+        }
+
+        StringHolder result = new StringHolderImpl();
+
+        result.setValue(Thread.currentThread().getName());
+
+        return result;
+    }
+}
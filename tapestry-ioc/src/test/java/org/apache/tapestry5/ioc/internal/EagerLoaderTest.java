@@ -0,0 +1,266 @@
+// Copyright 2012 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.ioc.internal;
+
+import org.apache.tapestry5.func.Mapper;
+import org.apache.tapestry5.ioc.internal.util.CollectionFactory;
+import org.apache.tapestry5.ioc.test.TestBase;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class EagerLoaderTest extends TestBase
+{
+    private final Map<String, Collection<String>> dependencies = CollectionFactory.newCaseInsensitiveMap();
+
+    private final List<String> realized = Collections.synchronizedList(CollectionFactory.<String>newList());
+
+    private final Mapper<String, Collection<String>> mapper = new Mapper<String, Collection<String>>()
+    {
+        public Collection<String> map(String serviceId)
+        {
+            Collection<String> result = dependencies.get(serviceId);
+
+            return result == null ? Collections.<String>emptyList() : result;
+        }
+    };
+
+    @Test
+    public void dependent_services_are_grouped()
+    {
+        // A depends on C by way of a service that is not eager loaded; D depends on B.
+
+        dependencies.put("A", Arrays.asList("X"));
+        dependencies.put("X", Arrays.asList("C", "Y"));
+        dependencies.put("D", Arrays.asList("b"));
+
+        List<EagerLoadServiceProxy> proxies = proxies("A", "B", "C", "D", "E");
+
+        List<List<EagerLoadServiceProxy>> groups = new EagerLoader(proxies, mapper).getGroups();
+
+        assertEquals(groups.size(), 3);
+        assertEquals(groups.get(0), Arrays.asList(proxies.get(0), proxies.get(2)));
+        assertEquals(groups.get(1), Arrays.asList(proxies.get(1), proxies.get(3)));
+        assertEquals(groups.get(2), Arrays.asList(proxies.get(4)));
+    }
+
+    @Test
+    public void services_sharing_a_dependency_are_independent()
+    {
+        dependencies.put("A", Arrays.asList("Shared"));
+        dependencies.put("B", Arrays.asList("Shared"));
+
+        assertEquals(new EagerLoader(proxies("A", "B"), mapper).getGroups().size(), 2);
+    }
+
+    @Test
+    public void single_thread_realizes_in_order()
+    {
+        final AtomicInteger cleanups = new AtomicInteger();
+
+        new EagerLoader(proxies("A", "B", "C"), mapper).load(1, new Runnable()
+        {
+            public void run()
+            {
+                cleanups.incrementAndGet();
+            }
+        });
+
+        assertEquals(realized, Arrays.asList("A", "B", "C"));
+        assertEquals(cleanups.get(), 0);
+    }
+
+    @Test
+    public void independent_groups_are_realized_concurrently() throws Exception
+    {
+        final CountDownLatch latch = new CountDownLatch(2);
+
+        Runnable await = new Runnable()
+        {
+            public void run()
+            {
+                latch.countDown();
+
+                try
+                {
+                    // Would time out if the groups were realized one after the other.
+
+                    assertTrue(latch.await(10, TimeUnit.SECONDS));
+                } catch (InterruptedException ex)
+                {
+                    throw new RuntimeException(ex);
+                }
+            }
+        };
+
+        dependencies.put("B", Arrays.asList("A"));
+        dependencies.put("D", Arrays.asList("C"));
+
+        final AtomicInteger cleanups = new AtomicInteger();
+
+        new EagerLoader(Arrays.<EagerLoadServiceProxy>asList(proxy("A", await), proxy("B", null),
+                proxy("C", await), proxy("D", null)), mapper).load(4, new Runnable()
+        {
+            public void run()
+            {
+                cleanups.incrementAndGet();
+            }
+        });
+
+        assertEquals(realized.size(), 4);
+        assertTrue(realized.indexOf("A") < realized.indexOf("B"));
+        assertTrue(realized.indexOf("C") < realized.indexOf("D"));
+        assertEquals(cleanups.get(), 2);
+    }
+
+    @Test
+    public void first_failure_in_eager_load_order_is_reported()
+    {
+        Runnable slowFailure = new Runnable()
+        {
+            public void run()
+            {
+                try
+                {
+                    Thread.sleep(100);
+                } catch (InterruptedException ex)
+                {
+                    // Ignore
+                }
+
+                throw new RuntimeException("A failed.");
+            }
+        };
+
+        Runnable failure = new Runnable()
+        {
+            public void run()
+            {
+                throw new RuntimeException("B failed.");
+            }
+        };
+
+        dependencies.put("C", Arrays.asList("B"));
+
+        try
+        {
+            new EagerLoader(Arrays.<EagerLoadServiceProxy>asList(proxy("A", slowFailure), proxy("B", failure),
+                    proxy("C", null)), mapper).load(2, new Runnable()
+            {
+                public void run()
+                {
+                }
+            });
+
+            unreachable();
+        } catch (RuntimeException ex)
+        {
+            assertEquals(ex.getMessage(), "A failed.");
+        }
+
+        // The rest of a failed group is not realized.
+
+        assertFalse(realized.contains("C"));
+    }
+
+    @Test
+    public void deadlocked_groups_are_reported()
+    {
+        // Groups that contend for the same monitors, by way of dependencies the loader can not see.
+
+        final Object first = new Object();
+        final Object second = new Object();
+        final CountDownLatch locked = new CountDownLatch(2);
+
+        try
+        {
+            new EagerLoader(Arrays.<EagerLoadServiceProxy>asList(proxy("A", lockBoth(first, second, locked)),
+                    proxy("B", lockBoth(second, first, locked))), mapper).load(2, new Runnable()
+            {
+                public void run()
+                {
+                }
+            });
+
+            unreachable();
+        } catch (RuntimeException ex)
+        {
+            assertMessageContains(ex, "have deadlocked", "realizing service 'A'", "realizing service 'B'",
+                    "tapestry.eager-load-threads");
+        }
+    }
+
+    private Runnable lockBoth(final Object outer, final Object inner, final CountDownLatch locked)
+    {
+        return new Runnable()
+        {
+            public void run()
+            {
+                synchronized (outer)
+                {
+                    locked.countDown();
+
+                    try
+                    {
+                        locked.await();
+                    } catch (InterruptedException ex)
+                    {
+                        throw new RuntimeException(ex);
+                    }
+
+                    synchronized (inner)
+                    {
+                    }
+                }
+            }
+        };
+    }
+
+    private List<EagerLoadServiceProxy> proxies(String... serviceIds)
+    {
+        List<EagerLoadServiceProxy> result = CollectionFactory.newList();
+
+        for (String serviceId : serviceIds)
+            result.add(proxy(serviceId, null));
+
+        return result;
+    }
+
+    private EagerLoadServiceProxy proxy(final String serviceId, final Runnable action)
+    {
+        return new EagerLoadServiceProxy()
+        {
+            public void eagerLoadService()
+            {
+                if (action != null)
+                    action.run();
+
+                realized.add(serviceId);
+            }
+
+            public String getServiceId()
+            {
+                return serviceId;
+            }
+        };
+    }
+}
@@ -0,0 +1,117 @@
+// Copyright 2012 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.ioc.internal;
+
+import org.apache.tapestry5.ioc.Invokable;
+import org.apache.tapestry5.ioc.services.OperationTiming;
+import org.apache.tapestry5.ioc.test.TestBase;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.Test;
+
+import java.util.List;
+
+public class PerThreadOperationTrackerTest extends TestBase
+{
+    private final PerThreadOperationTracker tracker = new PerThreadOperationTracker(
+            LoggerFactory.getLogger(PerThreadOperationTrackerTest.class));
+
+    private final Runnable noop = new Runnable()
+    {
+        public void run()
+        {
+        }
+    };
+
+    @Test
+    public void nothing_recorded_unless_recording()
+    {
+        tracker.run("outside", noop);
+
+        assertTrue(tracker.stopRecording().isEmpty());
+    }
+
+    @Test
+    public void operations_recorded_in_start_order()
+    {
+        tracker.startRecording();
+
+        tracker.run("first", new Runnable()
+        {
+            public void run()
+            {
+                tracker.run("nested", noop);
+            }
+        });
+
+        tracker.invoke("second", new Invokable<Object>()
+        {
+            public Object invoke()
+            {
+                return null;
+            }
+        });
+
+        List<OperationTiming> timings = tracker.stopRecording();
+
+        assertEquals(timings.size(), 3);
+
+        assertEquals(timings.get(0).getDescription(), "first");
+        assertEquals(timings.get(0).getDepth(), 1);
+
+        assertEquals(timings.get(1).getDescription(), "nested");
+        assertEquals(timings.get(1).getDepth(), 2);
+
+        assertEquals(timings.get(2).getDescription(), "second");
+
+        OperationTiming first = timings.get(0);
+        OperationTiming nested = timings.get(1);
+
+        assertTrue(nested.getStartNanos() >= first.getStartNanos());
+        assertTrue(nested.getEndNanos() <= first.getEndNanos());
+
+        // Recording has stopped
+
+        tracker.run("after", noop);
+
+        assertTrue(tracker.stopRecording().isEmpty());
+    }
+
+    @Test
+    public void failed_operations_are_recorded()
+    {
+        tracker.startRecording();
+
+        try
+        {
+            tracker.run("failing", new Runnable()
+            {
+                public void run()
+                {
+                    throw new IllegalStateException("Boom");
+                }
+            });
+
+            unreachable();
+        } catch (RuntimeException ex)
+        {
+            // Expected
+        }
+
+        List<OperationTiming> timings = tracker.stopRecording();
+
+        assertEquals(timings.size(), 1);
+        assertTrue(timings.get(0).isFailed());
+    }
+}
@@ -0,0 +1,141 @@
+// Copyright 2012 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.ioc.internal.services;
+
+import org.apache.tapestry5.ioc.services.PropertyAccess;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.Test;
+
+/**
+ * Repeats the tests of {@link PropertyAccessImplTest} with generated accessors in place of reflection.
+ */
+public class GeneratedPropertyAccessImplTest extends PropertyAccessImplTest
+{
+    static class PackagePrivateBean
+    {
+        private String value;
+
+        public String getValue()
+        {
+            return value;
+        }
+
+        public void setValue(String value)
+        {
+            this.value = value;
+        }
+    }
+
+    public static class PrimitiveBean
+    {
+        public long count;
+
+        private double ratio;
+
+        private String[] names;
+
+        public double getRatio()
+        {
+            return ratio;
+        }
+
+        public void setRatio(double ratio)
+        {
+            this.ratio = ratio;
+        }
+
+        public String[] getNames()
+        {
+            return names;
+        }
+
+        public void setNames(String[] names)
+        {
+            this.names = names;
+        }
+    }
+
+    private final PropertyAccess access = newPropertyAccess();
+
+    @Override
+    protected PropertyAccess newPropertyAccess()
+    {
+        return new PropertyAccessImpl(new PlasticProxyFactoryImpl(Thread.currentThread().getContextClassLoader(),
+                LoggerFactory.getLogger(GeneratedPropertyAccessImplTest.class)));
+    }
+
+    @Test
+    public void primitive_and_array_properties()
+    {
+        PrimitiveBean bean = new PrimitiveBean();
+
+        String[] names = {"fred", "barney"};
+
+        access.set(bean, "count", 97L);
+        access.set(bean, "ratio", 0.5d);
+        access.set(bean, "names", names);
+
+        assertEquals(bean.count, 97L);
+        assertEquals(bean.getRatio(), 0.5d);
+        assertSame(bean.getNames(), names);
+
+        assertEquals(access.get(bean, "count"), 97L);
+        assertEquals(access.get(bean, "ratio"), 0.5d);
+        assertSame(access.get(bean, "names"), names);
+    }
+
+    @Test
+    public void non_public_class_uses_reflection()
+    {
+        PackagePrivateBean bean = new PackagePrivateBean();
+
+        access.set(bean, "value", "wilma");
+
+        assertEquals(access.get(bean, "value"), "wilma");
+    }
+
+    @Test
+    public void wrong_value_type_on_write()
+    {
+        PrimitiveBean bean = new PrimitiveBean();
+
+        try
+        {
+            access.set(bean, "ratio", "not a number");
+            unreachable();
+        } catch (RuntimeException ex)
+        {
+            assertMessageContains(ex, "Error updating property 'ratio'");
+        }
+    }
+
+    @Test
+    public void generated_accessors_are_kept_when_cache_is_cleared()
+    {
+        PropertyAccessImpl access = (PropertyAccessImpl) newPropertyAccess();
+
+        PropertyAdapterImpl before = (PropertyAdapterImpl) access.getAdapter(PrimitiveBean.class)
+                .getPropertyAdapter("count");
+
+        access.clearCache();
+
+        PropertyAdapterImpl after = (PropertyAdapterImpl) access.getAdapter(PrimitiveBean.class)
+                .getPropertyAdapter("count");
+
+        assertNotSame(after, before);
+        assertNotNull(before.getAccessor());
+        assertSame(after.getAccessor(), before.getAccessor());
+    }
+}
@@ -1,4 +1,4 @@
-// Copyright 2006, 2007, 2008, 2010, 2011 The Apache Software Foundation
+// Copyright 2006, 2007, 2008, 2010, 2011, 2012 The Apache Software Foundation
 //
 // Licensed under the Apache License, Version 2.0 (the "License");
 // you may not use this file except in compliance with the License.
@@ -15,12 +15,17 @@
 package org.apache.tapestry5.ioc.internal.services;
 
 import org.apache.tapestry5.ioc.Invokable;
+import org.apache.tapestry5.ioc.internal.util.CollectionFactory;
 import org.apache.tapestry5.ioc.services.PerThreadValue;
+import org.apache.tapestry5.ioc.services.PerthreadScope;
 import org.apache.tapestry5.ioc.services.ThreadCleanupListener;
 import org.apache.tapestry5.ioc.test.IOCTestCase;
 import org.slf4j.Logger;
 import org.testng.annotations.Test;
 
+import java.util.Arrays;
+import java.util.List;
+
 public class PerthreadManagerImplTest extends IOCTestCase
 {
     @Test
@@ -123,12 +128,11 @@ public class PerthreadManagerImplTest extends IOCTestCase
     @Test
     public void per_thread_value()
     {
-        Object key = new Object();
         Object value = "Tapestry";
 
         PerthreadManagerImpl m = new PerthreadManagerImpl(null);
 
-        PerThreadValue<Object> v = m.createValue(key);
+        PerThreadValue<Object> v = m.createValue();
 
         assertFalse(v.exists());
         assertNull(v.get());
@@ -144,7 +148,7 @@ public class PerthreadManagerImplTest extends IOCTestCase
     {
         PerthreadManagerImpl m = new PerthreadManagerImpl(null);
 
-        PerThreadValue<Object> v = m.createValue(new Object());
+        PerThreadValue<Object> v = m.createValue();
 
         Object def = new Object();
 
@@ -166,7 +170,7 @@ public class PerthreadManagerImplTest extends IOCTestCase
     {
         PerthreadManagerImpl m = new PerthreadManagerImpl(null);
 
-        PerThreadValue<Object> v = m.createValue(new Object());
+        PerThreadValue<Object> v = m.createValue();
 
         v.set(null);
 
@@ -215,4 +219,154 @@ public class PerthreadManagerImplTest extends IOCTestCase
         assertNull(v.get());
 
     }
+
+    @Test
+    public void values_created_after_first_use_are_stored()
+    {
+        PerthreadManagerImpl m = new PerthreadManagerImpl(null);
+
+        PerThreadValue<Integer> first = m.createValue();
+
+        first.set(0);
+
+        List<PerThreadValue<Integer>> values = CollectionFactory.newList();
+
+        for (int i = 0; i < 100; i++)
+        {
+            PerThreadValue<Integer> v = m.createValue();
+
+            assertFalse(v.exists());
+
+            v.set(i);
+
+            values.add(v);
+        }
+
+        assertEquals(first.get(), new Integer(0));
+
+        for (int i = 0; i < 100; i++)
+        {
+            assertEquals(values.get(i).get(), new Integer(i));
+        }
+    }
+
+    @Test
+    public void values_are_per_thread() throws Exception
+    {
+        final PerthreadManagerImpl m = new PerthreadManagerImpl(null);
+
+        final PerThreadValue<String> v = m.createValue();
+
+        v.set("main");
+
+        final List<String> observed = CollectionFactory.newList();
+
+        Thread thread = new Thread()
+        {
+            public void run()
+            {
+                observed.add(v.get("unset"));
+
+                v.set("other");
+
+                observed.add(v.get());
+            }
+        };
+
+        thread.start();
+        thread.join();
+
+        assertEquals(observed, Arrays.asList("unset", "other"));
+        assertEquals(v.get(), "main");
+    }
+
+    @Test
+    public void captured_scope_may_be_bound_to_another_thread() throws Exception
+    {
+        final PerthreadManagerImpl m = new PerthreadManagerImpl(null);
+
+        final PerThreadValue<String> v = m.createValue();
+
+        v.set("request");
+
+        final PerthreadScope scope = m.captureScope();
+
+        final List<String> observed = CollectionFactory.newList();
+
+        Thread thread = new Thread()
+        {
+            public void run()
+            {
+                v.set("worker");
+
+                scope.run(new Runnable()
+                {
+                    public void run()
+                    {
+                        observed.add(v.get());
+
+                        v.set("updated");
+                    }
+                });
+
+                observed.add(v.get());
+            }
+        };
+
+        thread.start();
+        thread.join();
+
+        assertEquals(observed, Arrays.asList("request", "worker"));
+        assertEquals(v.get(), "updated");
+    }
+
+    @Test
+    public void detached_scope_is_cleaned_up_where_it_is_bound()
+    {
+        final PerthreadManagerImpl m = new PerthreadManagerImpl(null);
+
+        final PerThreadValue<String> v = m.createValue();
+
+        ThreadCleanupListener listener = mockThreadCleanupListener();
+
+        listener.threadDidCleanup();
+
+        replay();
+
+        m.addThreadCleanupListener(listener);
+
+        v.set("request");
+
+        PerthreadScope scope = m.detachScope();
+
+        assertFalse(v.exists());
+
+        // Cleaning up the thread does not affect the detached scope.
+
+        m.cleanup();
+
+        String value = scope.invoke(new Invokable<String>()
+        {
+            public String invoke()
+            {
+                String result = v.get();
+
+                m.cleanup();
+
+                return result;
+            }
+        });
+
+        verify();
+
+        assertEquals(value, "request");
+
+        scope.run(new Runnable()
+        {
+            public void run()
+            {
+                assertFalse(v.exists());
+            }
+        });
+    }
 }
@@ -1,4 +1,4 @@
-// Copyright 2006, 2007, 2008, 2010 The Apache Software Foundation
+// Copyright 2006, 2007, 2008, 2010, 2012 The Apache Software Foundation
 //
 // Licensed under the Apache License, Version 2.0 (the "License");
 // you may not use this file except in compliance with the License.
@@ -35,10 +35,15 @@ public class PropertyAccessImplTest extends IOCInternalTestCase
 {
     private static final String CLASS_NAME = PropertyAccessImplTest.class.getName();
 
-    private PropertyAccess access = new PropertyAccessImpl();
+    private PropertyAccess access = newPropertyAccess();
 
     private Random random = new Random();
 
+    protected PropertyAccess newPropertyAccess()
+    {
+        return new PropertyAccessImpl();
+    }
+
     public static class Bean
     {
         public static final Double PI = 3.14;
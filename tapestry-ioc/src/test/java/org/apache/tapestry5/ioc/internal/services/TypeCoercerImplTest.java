@@ -1,4 +1,4 @@
-// Copyright 2006, 2007, 2008, 2009, 2010, 2011 The Apache Software Foundation
+// Copyright 2006, 2007, 2008, 2009, 2010, 2011, 2012 The Apache Software Foundation
 //
 // Licensed under the Apache License, Version 2.0 (the "License");
 // you may not use this file except in compliance with the License.
@@ -19,6 +19,7 @@ import org.apache.tapestry5.ioc.annotations.AnnotationUseContext;
 import org.apache.tapestry5.ioc.internal.IOCInternalTestCase;
 import org.apache.tapestry5.ioc.internal.util.CollectionFactory;
 import org.apache.tapestry5.ioc.services.Coercion;
+import org.apache.tapestry5.ioc.services.CoercionTuple;
 import org.apache.tapestry5.ioc.services.TypeCoercer;
 import org.apache.tapestry5.ioc.util.TimeInterval;
 import org.testng.annotations.AfterClass;
@@ -333,4 +334,42 @@ public class TypeCoercerImplTest extends IOCInternalTestCase
         assertArraysEqual(result, input.toArray());
     }
 
+    @Test
+    public void configured_coercions_are_restored_after_clear_cache()
+    {
+        CoercionTuple<String, StringBuilder> tuple = CoercionTuple.create(String.class, StringBuilder.class,
+                new Coercion<String, StringBuilder>()
+                {
+                    public StringBuilder coerce(String input)
+                    {
+                        return new StringBuilder(input);
+                    }
+                });
+
+        List<CoercionTuple> tuples = CollectionFactory.newList();
+
+        tuples.add(tuple);
+
+        TypeCoercer coercer = new TypeCoercerImpl(tuples);
+
+        Coercion<String, StringBuilder> coercion = tuple.getCoercion();
+
+        assertSame(coercer.getCoercion(String.class, StringBuilder.class), coercion);
+
+        coercer.clearCache();
+
+        assertSame(coercer.getCoercion(String.class, StringBuilder.class), coercion);
+        assertEquals(coercer.coerce("fred", StringBuilder.class).toString(), "fred");
+    }
+
+    @Test
+    public void searched_coercions_are_found_again_after_clear_cache()
+    {
+        assertEquals(coercer.coerce(new StringBuilder("99"), Long.class), new Long(99));
+
+        coercer.clearCache();
+
+        assertEquals(coercer.coerce(new StringBuilder("98"), Long.class), new Long(98));
+        assertEquals(coercer.explain(StringBuilder.class, Long.class), "Object --> String, String --> Long");
+    }
 }
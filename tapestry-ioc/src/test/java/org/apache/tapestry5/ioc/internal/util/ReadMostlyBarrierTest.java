@@ -0,0 +1,249 @@
+// Copyright 2012 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.ioc.internal.util;
+
+import org.apache.tapestry5.ioc.Invokable;
+import org.apache.tapestry5.ioc.test.TestBase;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.apache.tapestry5.ioc.internal.util.CollectionFactory.newList;
+
+public class ReadMostlyBarrierTest extends TestBase
+{
+    private final ReadMostlyBarrier barrier = new ReadMostlyBarrier();
+
+    @Test
+    public void reads_may_be_nested()
+    {
+        String result = barrier.withRead(new Invokable<String>()
+        {
+            public String invoke()
+            {
+                return barrier.withRead(new Invokable<String>()
+                {
+                    public String invoke()
+                    {
+                        return "nested";
+                    }
+                });
+            }
+        });
+
+        assertEquals(result, "nested");
+    }
+
+    @Test
+    public void write_inside_read() throws Exception
+    {
+        final AtomicBoolean written = new AtomicBoolean();
+
+        boolean result = barrier.withRead(new Invokable<Boolean>()
+        {
+            public Boolean invoke()
+            {
+                return barrier.tryWithWrite(new Runnable()
+                {
+                    public void run()
+                    {
+                        written.set(true);
+                    }
+                }, 20, TimeUnit.MILLISECONDS);
+            }
+        });
+
+        assertTrue(result);
+        assertTrue(written.get());
+
+        // The read side must have been re-entered, and left, so that other threads may write.
+
+        assertTrue(tryWriteInOtherThread());
+    }
+
+    @Test
+    public void write_times_out_while_another_thread_reads() throws Exception
+    {
+        final CountDownLatch reading = new CountDownLatch(1);
+        final CountDownLatch finish = new CountDownLatch(1);
+
+        Thread reader = new Thread(new Runnable()
+        {
+            public void run()
+            {
+                barrier.withRead(new Invokable<Void>()
+                {
+                    public Void invoke()
+                    {
+                        reading.countDown();
+
+                        await(finish);
+
+                        return null;
+                    }
+                });
+            }
+        });
+
+        reader.start();
+
+        reading.await();
+
+        assertFalse(barrier.tryWithWrite(new Runnable()
+        {
+            public void run()
+            {
+                unreachable();
+            }
+        }, 20, TimeUnit.MILLISECONDS));
+
+        finish.countDown();
+
+        reader.join();
+
+        assertTrue(tryWriteInOtherThread());
+    }
+
+    @Test
+    public void only_one_writer_at_a_time() throws Exception
+    {
+        final AtomicBoolean nested = new AtomicBoolean(true);
+
+        assertTrue(barrier.tryWithWrite(new Runnable()
+        {
+            public void run()
+            {
+                try
+                {
+                    nested.set(tryWriteInOtherThread());
+                } catch (InterruptedException ex)
+                {
+                    throw new RuntimeException(ex);
+                }
+            }
+        }, 20, TimeUnit.MILLISECONDS));
+
+        assertFalse(nested.get());
+    }
+
+    @Test
+    public void readers_are_excluded_during_write() throws Exception
+    {
+        final AtomicBoolean inWrite = new AtomicBoolean();
+        final AtomicInteger violations = new AtomicInteger();
+        final AtomicInteger writes = new AtomicInteger();
+
+        final Runnable write = new Runnable()
+        {
+            public void run()
+            {
+                inWrite.set(true);
+
+                Thread.yield();
+
+                inWrite.set(false);
+
+                writes.incrementAndGet();
+            }
+        };
+
+        final Invokable<Void> read = new Invokable<Void>()
+        {
+            public Void invoke()
+            {
+                if (inWrite.get())
+                {
+                    violations.incrementAndGet();
+                }
+
+                return null;
+            }
+        };
+
+        List<Thread> threads = newList();
+
+        for (int i = 0; i < 10; i++)
+        {
+            final int index = i;
+
+            threads.add(new Thread(new Runnable()
+            {
+                public void run()
+                {
+                    for (int j = 0; j < 10000; j++)
+                    {
+                        if (index == 0 && j % 100 == 0)
+                        {
+                            barrier.tryWithWrite(write, 1, TimeUnit.SECONDS);
+                        }
+
+                        barrier.withRead(read);
+                    }
+                }
+            }));
+        }
+
+        for (Thread t : threads)
+        {
+            t.start();
+        }
+
+        for (Thread t : threads)
+        {
+            t.join();
+        }
+
+        assertEquals(violations.get(), 0);
+        assertTrue(writes.get() > 0);
+    }
+
+    private boolean tryWriteInOtherThread() throws InterruptedException
+    {
+        final AtomicBoolean result = new AtomicBoolean();
+
+        Thread thread = new Thread(new Runnable()
+        {
+            public void run()
+            {
+                result.set(barrier.tryWithWrite(new Runnable()
+                {
+                    public void run()
+                    {
+                    }
+                }, 20, TimeUnit.MILLISECONDS));
+            }
+        });
+
+        thread.start();
+        thread.join();
+
+        return result.get();
+    }
+
+    private static void await(CountDownLatch latch)
+    {
+        try
+        {
+            latch.await();
+        } catch (InterruptedException ex)
+        {
+            throw new RuntimeException(ex);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+// Copyright 2012 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.internal.jmx;
+
+import org.apache.tapestry5.services.PipelineMetrics;
+import org.apache.tapestry5.services.PipelineStageStatistics;
+
+import java.util.List;
+
+/**
+ * Exposes the {@link PipelineMetrics} as an MBean.
+ *
+ * @since 5.4
+ */
+public class PipelineTiming implements PipelineTimingMBean
+{
+    private final PipelineMetrics metrics;
+
+    public PipelineTiming(PipelineMetrics metrics)
+    {
+        this.metrics = metrics;
+    }
+
+    public boolean isEnabled()
+    {
+        return metrics.isEnabled();
+    }
+
+    public void setEnabled(boolean enabled)
+    {
+        metrics.setEnabled(enabled);
+    }
+
+    public String[] getStatistics()
+    {
+        List<PipelineStageStatistics> statistics = metrics.getStatistics();
+
+        String[] result = new String[statistics.size()];
+
+        for (int i = 0; i < result.length; i++)
+        {
+            result[i] = statistics.get(i).toString();
+        }
+
+        return result;
+    }
+
+    public void reset()
+    {
+        metrics.reset();
+    }
+}
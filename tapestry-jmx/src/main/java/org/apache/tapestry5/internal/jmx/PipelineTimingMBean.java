@@ -0,0 +1,37 @@
+// Copyright 2012 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.internal.jmx;
+
+/**
+ * Management interface for the {@link org.apache.tapestry5.services.PipelineMetrics}.
+ *
+ * @since 5.4
+ */
+public interface PipelineTimingMBean
+{
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    /**
+     * Latency statistics, one string per stage and page, sorted by stage path and page name.
+     */
+    String[] getStatistics();
+
+    /**
+     * Discards all collected data.
+     */
+    void reset();
+}
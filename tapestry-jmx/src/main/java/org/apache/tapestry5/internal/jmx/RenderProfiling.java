@@ -0,0 +1,73 @@
+// Copyright 2012 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package org.apache.tapestry5.internal.jmx;
+
+import org.apache.tapestry5.services.RenderProfile;
+import org.apache.tapestry5.services.RenderProfiler;
+
+import java.util.List;
+
+/**
+ * Exposes the {@link RenderProfiler} as an MBean.
+ *
+ * @since 5.4
+ */
+public class RenderProfiling implements RenderProfilingMBean
+{
+    private final RenderProfiler profiler;
+
+    public RenderProfiling(RenderProfiler profiler)
+    {
+        this.profiler = profiler;
+    }
+
+    public boolean isEnabled()
+    {
+        return profiler.isEnabled();
+    }
+
+    public void setEnabled(boolean enabled)
+    {
+        profiler.setEnabled(enabled);
+    }
+
+    public String[] getPageProfiles()
+    {
+        return toStrings(profiler.getPageProfiles());
+    }
+
+    public String[] getComponentProfiles()
+    {
+        return toStrings(profiler.getComponentProfiles());
+    }
+
+    public void reset()
+    {
+        profiler.reset();
+    }
+
+    private static String[] toStrings(List<RenderProfile> profiles)
+    {
+        String[] result = new String[profiles.size()];
+
+        for (int i = 0; i < result.length; i++)
+        {
+            result[i] = profiles.get(i).toString();
+        }
+
+        return result;
+    }
+}
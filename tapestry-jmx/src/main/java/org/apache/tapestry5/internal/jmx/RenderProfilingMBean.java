@@ -0,0 +1,43 @@
+// Copyright 2012 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package org.apache.tapestry5.internal.jmx;
+
+/**
+ * Management interface for the {@link org.apache.tapestry5.services.RenderProfiler}.
+ *
+ * @since 5.4
+ */
+public interface RenderProfilingMBean
+{
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    /**
+     * Per-page totals, one string per page, sorted by descending elapsed time.
+     */
+    String[] getPageProfiles();
+
+    /**
+     * Per-component class totals, one string per class, sorted by descending elapsed time.
+     */
+    String[] getComponentProfiles();
+
+    /**
+     * Discards all collected data.
+     */
+    void reset();
+}
@@ -0,0 +1,74 @@
+// Copyright 2012 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.internal.jmx;
+
+import org.apache.tapestry5.ioc.services.OperationTiming;
+import org.apache.tapestry5.services.SlowRequest;
+import org.apache.tapestry5.services.SlowRequestLog;
+
+import java.util.List;
+
+/**
+ * Exposes the {@link SlowRequestLog} as an MBean.
+ *
+ * @since 5.4
+ */
+public class SlowRequestCapture implements SlowRequestCaptureMBean
+{
+    private final SlowRequestLog log;
+
+    public SlowRequestCapture(SlowRequestLog log)
+    {
+        this.log = log;
+    }
+
+    public long getThreshold()
+    {
+        return log.getThreshold();
+    }
+
+    public void setThreshold(long thresholdMillis)
+    {
+        log.setThreshold(thresholdMillis);
+    }
+
+    public String[] getSlowRequests()
+    {
+        List<SlowRequest> requests = log.getSlowRequests();
+
+        String[] result = new String[requests.size()];
+
+        for (int i = 0; i < result.length; i++)
+        {
+            SlowRequest request = requests.get(i);
+
+            StringBuilder builder = new StringBuilder(request.toString());
+
+            for (OperationTiming operation : request.getOperations())
+            {
+                builder.append('\n').append(operation);
+            }
+
+            result[i] = builder.toString();
+        }
+
+        return result;
+    }
+
+    public void clear()
+    {
+        log.clear();
+    }
+}
@@ -0,0 +1,41 @@
+// Copyright 2012 The Apache Software Foundation
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.internal.jmx;
+
+/**
+ * Management interface for the {@link org.apache.tapestry5.services.SlowRequestLog}.
+ *
+ * @since 5.4
+ */
+public interface SlowRequestCaptureMBean
+{
+    /**
+     * The threshold, in milliseconds; zero if capture is disabled.
+     */
+    long getThreshold();
+
+    void setThreshold(long thresholdMillis);
+
+    /**
+     * The captured requests, most recent first; each string includes the request's timeline of operations, one per
+     * line.
+     */
+    String[] getSlowRequests();
+
+    /**
+     * Discards all captured requests.
+     */
+    void clear();
+}
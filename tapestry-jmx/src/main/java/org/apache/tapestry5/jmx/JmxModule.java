@@ -1,4 +1,4 @@
-// Copyright 2010, 2011 The Apache Software Foundation
+// Copyright 2010, 2011, 2012 The Apache Software Foundation
 //
 // Licensed under the Apache License, Version 2.0 (the "License");
 // you may not use this file except in compliance with the License.
@@ -14,7 +14,14 @@
 package org.apache.tapestry5.jmx;
 
 import org.apache.tapestry5.internal.jmx.MBeanSupportImpl;
+import org.apache.tapestry5.internal.jmx.PipelineTiming;
+import org.apache.tapestry5.internal.jmx.RenderProfiling;
+import org.apache.tapestry5.internal.jmx.SlowRequestCapture;
 import org.apache.tapestry5.ioc.ServiceBinder;
+import org.apache.tapestry5.ioc.annotations.Startup;
+import org.apache.tapestry5.services.PipelineMetrics;
+import org.apache.tapestry5.services.RenderProfiler;
+import org.apache.tapestry5.services.SlowRequestLog;
 
 /**
  * Module for JMX services.
@@ -25,4 +32,38 @@ public class JmxModule
     {
         binder.bind(MBeanSupport.class, MBeanSupportImpl.class);
     }
+
+    /**
+     * Exposes the {@link RenderProfiler}, so that render profiling may be enabled, inspected and reset remotely.
+     *
+     * @since 5.4
+     */
+    @Startup
+    public static void registerRenderProfiler(MBeanSupport support, RenderProfiler profiler)
+    {
+        support.register(new RenderProfiling(profiler), "org.apache.tapestry5:service=RenderProfiler");
+    }
+
+    /**
+     * Exposes the {@link PipelineMetrics}, so that the time spent in each stage of the request pipeline may be
+     * inspected remotely.
+     *
+     * @since 5.4
+     */
+    @Startup
+    public static void registerPipelineMetrics(MBeanSupport support, PipelineMetrics metrics)
+    {
+        support.register(new PipelineTiming(metrics), "org.apache.tapestry5:service=PipelineMetrics");
+    }
+
+    /**
+     * Exposes the {@link SlowRequestLog}, so that slow requests may be inspected, and the threshold changed, remotely.
+     *
+     * @since 5.4
+     */
+    @Startup
+    public static void registerSlowRequestLog(MBeanSupport support, SlowRequestLog log)
+    {
+        support.register(new SlowRequestCapture(log), "org.apache.tapestry5:service=SlowRequestLog");
+    }
 }